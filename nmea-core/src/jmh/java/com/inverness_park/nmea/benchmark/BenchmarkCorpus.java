@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea.benchmark;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Realistic input for the benchmarks: what a multi-constellation RTK receiver sends every epoch,
+ * including a sentence type the receiver doesn't support and a proprietary one
+ */
+final class BenchmarkCorpus {
+
+    /**
+     * One epoch's worth of sentences, all with valid checksums
+     */
+    static final String[] EPOCH = new String[] {
+            "$GPGGA,092750.000,5321.68021533,N,00630.33721234,W,4,16,0.61,61.712,M,55.201,M,1.0,0000*64\r\n",
+            "$GPGSA,A,3,10,07,05,02,29,04,08,13,,,,,1.72,1.03,1.38*0A\r\n",
+            "$GNGSA,A,3,79,80,69,70,,,,,,,,,1.72,1.03,1.38*1E\r\n",
+            "$GPGSV,3,1,11,10,63,137,17,07,61,098,15,05,59,290,20,08,54,157,30*70\r\n",
+            "$GPGSV,3,2,11,02,39,223,19,13,28,070,17,26,23,252,,04,14,186,14*79\r\n",
+            "$GPGSV,3,3,11,29,09,301,24,16,09,020,,36,,,*76\r\n",
+            "$GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*43\r\n",
+            "$GPVTG,172.516,T,155.295,M,0.049,N,0.090,K,D*2B\r\n",
+            "$GNGST,143333.00,7.38,1.49,1.30,68.1409,1.47,1.33,2.07*4A\r\n",
+            "$GPHDT,75.5664,T*36\r\n",
+            "$GPGLL,5321.6802,N,00630.3372,W,092750.000,A,A*4B\r\n",
+            "$PGRME,15.0,M,45.0,M,25.0,M*1C\r\n",
+    };
+
+    /**
+     * Number of epochs in Build()'s output
+     */
+    static final int EPOCHS = 100;
+
+    /**
+     * Number of sentences in Build()'s output, for @OperationsPerInvocation
+     */
+    static final int SENTENCES = 1200;
+
+    private BenchmarkCorpus() {
+    }
+
+    /**
+     * @return EPOCHS epochs, back to back
+     */
+    static byte[] Build() {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < EPOCHS; ++i ) {
+            for ( String sentence : EPOCH ) {
+                sb.append( sentence );
+            }
+        }
+        return sb.toString().getBytes( StandardCharsets.US_ASCII );
+    }
+
+    /**
+     * @param formatter e.g. "GGA"
+     * @return The first sentence of that type
+     */
+    static String Sentence( String formatter ) {
+        for ( String sentence : EPOCH ) {
+            if ( sentence.startsWith( formatter, 3 ) ) {
+                return sentence;
+            }
+        }
+        throw new IllegalArgumentException( formatter );
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea.benchmark;
+
+import com.inverness_park.nmea.BaseNmeaMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BaseNmeaMessage.ComputeChecksum, against the plain byte-by-byte loop it replaced
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ChecksumBenchmark {
+
+    /**
+     * Typical payload, longest standard payload, and a large proprietary one
+     */
+    @Param( { "64", "80", "1024" } )
+    public int _length;
+
+    private byte[] _bytes;
+
+    @Setup
+    public void Setup() {
+        Random random = new Random( 42 );
+        _bytes = new byte[_length];
+        for ( int i = 0; i < _length; ++i ) {
+            _bytes[i] = (byte)( ' ' + random.nextInt( 95 ) );
+        }
+    }
+
+    @Benchmark
+    public byte ComputeChecksum() {
+        return BaseNmeaMessage.ComputeChecksum( _bytes, 0, _bytes.length );
+    }
+
+    @Benchmark
+    public byte ComputeChecksumByteWise() {
+        byte rc = 0;
+        for ( int i = 0; i < _bytes.length; ++i ) {
+            rc ^= _bytes[i];
+        }
+        return rc;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea.benchmark;
+
+import com.inverness_park.nmea.DecimalParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DecimalParser against the JDK parsers, fed the way parseFields() used to feed them: a new
+ * String per field
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class DecimalParserBenchmark {
+
+    /**
+     * HDOP, altitude, speed, and an 8-decimal RTK coordinate
+     */
+    @Param( { "0.61", "61.712", "0.049", "5321.68021533" } )
+    public String _field;
+
+    private byte[] _bytes;
+
+    @Setup
+    public void Setup() {
+        _bytes = ( "," + _field + "," ).getBytes( StandardCharsets.US_ASCII );
+    }
+
+    @Benchmark
+    public float DecimalParserFloat() {
+        return DecimalParser.ParseFloat( _bytes, 1, _bytes.length - 1 );
+    }
+
+    @Benchmark
+    public float JdkParseFloat() {
+        return Float.parseFloat( new String( _bytes, 1, _bytes.length - 2, StandardCharsets.US_ASCII ) );
+    }
+
+    @Benchmark
+    public double DecimalParserDouble() {
+        return DecimalParser.ParseDouble( _bytes, 1, _bytes.length - 1 );
+    }
+
+    @Benchmark
+    public double JdkParseDouble() {
+        return Double.parseDouble( new String( _bytes, 1, _bytes.length - 2, StandardCharsets.US_ASCII ) );
+    }
+}
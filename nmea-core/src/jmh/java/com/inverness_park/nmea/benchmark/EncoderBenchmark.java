@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea.benchmark;
+
+import com.inverness_park.nmea.INmeaMessageExtensions;
+import com.inverness_park.nmea.NmeaFields;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing sentences back: get_payload(), toString() and writeTo()
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class EncoderBenchmark {
+
+    @Param( { "GGA", "GSA", "GST", "GSV", "HDT", "RMC", "VTG" } )
+    public String _formatter;
+
+    private INmeaMessageExtensions _msg;
+    private ByteBuffer _buffer = ByteBuffer.allocate( 1024 );
+    private byte[] _bytes = new byte[1024];
+
+    @Setup
+    public void Setup() {
+        String sentence = BenchmarkCorpus.Sentence( _formatter );
+        byte[] bytes = sentence.getBytes( StandardCharsets.US_ASCII );
+        NmeaFields fields = new NmeaFields().Tokenize( bytes, 1, sentence.indexOf( '*' ) - 1 );
+        _msg = (INmeaMessageExtensions) SentenceBenchmark.Factory( _formatter ).Create();
+        _msg.parseFields( fields );
+    }
+
+    @Benchmark
+    public String GetPayload() {
+        return _msg.get_payload();
+    }
+
+    @Benchmark
+    public String ToString() {
+        return _msg.toString();
+    }
+
+    @Benchmark
+    public int WriteToBytes() {
+        return _msg.writeTo( _bytes, 0 );
+    }
+
+    @Benchmark
+    public int WriteToByteBuffer() {
+        _buffer.clear();
+        _msg.writeTo( _buffer );
+        return _buffer.position();
+    }
+}
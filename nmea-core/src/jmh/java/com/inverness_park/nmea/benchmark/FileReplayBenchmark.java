@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea.benchmark;
+
+import com.inverness_park.nmea.NmeaFileReplay;
+import com.inverness_park.nmea.NmeaReceiver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-speed replay of a memory-mapped capture file, with message recycling.  One operation is one
+ * sentence; multiply by get_averageSentenceLength() (about 55) for bytes per second.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+@OperationsPerInvocation( FileReplayBenchmark.REPEATS * BenchmarkCorpus.SENTENCES )
+public class FileReplayBenchmark {
+
+    /**
+     * Copies of the corpus in the file, about 10 MB
+     */
+    static final int REPEATS = 128;
+
+    private File _file;
+    private NmeaFileReplay _replay;
+    private NmeaReceiverBenchmark.CountingHandler _handler;
+    private int _averageSentenceLength;
+
+    @Setup
+    public void Setup() throws IOException {
+        byte[] corpus = BenchmarkCorpus.Build();
+        _file = File.createTempFile( "replay", ".nmea" );
+        FileOutputStream stream = new FileOutputStream( _file );
+        try {
+            for ( int i = 0; i < REPEATS; ++i ) {
+                stream.write( corpus );
+            }
+        } finally {
+            stream.close();
+        }
+        _averageSentenceLength = corpus.length / BenchmarkCorpus.SENTENCES;
+
+        _handler = new NmeaReceiverBenchmark.CountingHandler();
+        NmeaReceiver receiver = new NmeaReceiver( _handler );
+        receiver.set_recycleMessages( true );
+        _replay = new NmeaFileReplay( receiver );
+    }
+
+    /**
+     * Average length of the replayed sentences, in bytes
+     * @return
+     */
+    public int get_averageSentenceLength() {
+        return _averageSentenceLength;
+    }
+
+    @TearDown
+    public void TearDown() {
+        _file.delete();
+    }
+
+    @Benchmark
+    public int Replay() throws Exception {
+        _replay.Replay( _file );
+        return _handler._count;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea.benchmark;
+
+import com.inverness_park.nmea.INmeaHandler;
+import com.inverness_park.nmea.INmeaMessage;
+import com.inverness_park.nmea.NmeaReceiver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end: framing, checksum, dispatch, tokenizing and parsing of a mixed corpus, with and
+ * without message recycling.  One operation is one sentence.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+@OperationsPerInvocation( BenchmarkCorpus.SENTENCES )
+public class NmeaReceiverBenchmark {
+
+    @Param( { "false", "true" } )
+    public boolean _recycleMessages;
+
+    private byte[] _corpus;
+    private NmeaReceiver _receiver;
+    private CountingHandler _handler;
+
+    @Setup
+    public void Setup() {
+        _corpus = BenchmarkCorpus.Build();
+        _handler = new CountingHandler();
+        _receiver = new NmeaReceiver( _handler );
+        _receiver.set_recycleMessages( _recycleMessages );
+    }
+
+    @Benchmark
+    public int Receive() {
+        _receiver.Receive( _corpus );
+        return _handler._count;
+    }
+
+    /**
+     * Lets the messages escape, so that the JIT can't drop the parsing
+     */
+    static class CountingHandler implements INmeaHandler {
+        int _count;
+        INmeaMessage _last;
+
+        private void Count( INmeaMessage msg ) {
+            _last = msg;
+            ++_count;
+        }
+
+        @Override public void HandleGGA( INmeaMessage msg ) { Count( msg ); }
+        @Override public void HandleGSA( INmeaMessage msg ) { Count( msg ); }
+        @Override public void HandleGST( INmeaMessage msg ) { Count( msg ); }
+        @Override public void HandleGSV( INmeaMessage msg ) { Count( msg ); }
+        @Override public void HandleHDT( INmeaMessage msg ) { Count( msg ); }
+        @Override public void HandleRMC( INmeaMessage msg ) { Count( msg ); }
+        @Override public void HandleVTG( INmeaMessage msg ) { Count( msg ); }
+    }
+}
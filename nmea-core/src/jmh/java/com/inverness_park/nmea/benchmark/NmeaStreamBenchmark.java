@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea.benchmark;
+
+import com.inverness_park.nmea.INmeaStream;
+import com.inverness_park.nmea.NmeaStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Framing: NmeaStream.Append, byte by byte versus in bulk.  One operation is one sentence.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+@OperationsPerInvocation( BenchmarkCorpus.SENTENCES )
+public class NmeaStreamBenchmark {
+
+    private byte[] _corpus;
+    private ByteBuffer _directBuffer;
+    private NmeaStream _stream;
+    private int _received;
+
+    @Setup
+    public void Setup() {
+        _corpus = BenchmarkCorpus.Build();
+        _directBuffer = ByteBuffer.allocateDirect( _corpus.length );
+        _directBuffer.put( _corpus ).flip();
+        _stream = new NmeaStream();
+        _stream.set_OnNMEAMessageReceivedHandler( new INmeaStream.OnNMEAMessageReceivedHandler() {
+            @Override
+            public void NMEAMessageReceived( byte[] bytes, int index, int count ) {
+                _received += count;
+            }
+        } );
+    }
+
+    @Benchmark
+    public int AppendByteByByte() {
+        for ( byte b : _corpus ) {
+            _stream.Append( b );
+        }
+        return _received;
+    }
+
+    @Benchmark
+    public int AppendBulk() {
+        _stream.Append( _corpus, 0, _corpus.length );
+        return _received;
+    }
+
+    @Benchmark
+    public int AppendDirectByteBuffer() {
+        _directBuffer.rewind();
+        _stream.Append( _directBuffer );
+        return _received;
+    }
+}
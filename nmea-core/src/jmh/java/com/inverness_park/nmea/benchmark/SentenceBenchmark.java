@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea.benchmark;
+
+import com.inverness_park.nmea.INmeaMessage;
+import com.inverness_park.nmea.INmeaMessageExtensions;
+import com.inverness_park.nmea.INmeaMessageFactory;
+import com.inverness_park.nmea.NmeaFields;
+import com.inverness_park.nmea.Sentences.GGA;
+import com.inverness_park.nmea.Sentences.GSA;
+import com.inverness_park.nmea.Sentences.GST;
+import com.inverness_park.nmea.Sentences.GSV;
+import com.inverness_park.nmea.Sentences.HDT;
+import com.inverness_park.nmea.Sentences.RMC;
+import com.inverness_park.nmea.Sentences.VTG;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-sentence costs: tokenizing, then parseFields() into a new or a recycled message
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class SentenceBenchmark {
+
+    @Param( { "GGA", "GSA", "GST", "GSV", "HDT", "RMC", "VTG" } )
+    public String _formatter;
+
+    private byte[] _bytes;
+    private int _payloadLength;
+    private NmeaFields _fields;
+    private INmeaMessageFactory _factory;
+    private INmeaMessageExtensions _recycled;
+
+    @Setup
+    public void Setup() {
+        String sentence = BenchmarkCorpus.Sentence( _formatter );
+        _bytes = sentence.getBytes( StandardCharsets.US_ASCII );
+        _payloadLength = sentence.indexOf( '*' ) - 1;
+        _fields = new NmeaFields().Tokenize( _bytes, 1, _payloadLength );
+        _factory = Factory( _formatter );
+        _recycled = (INmeaMessageExtensions) _factory.Create();
+    }
+
+    @Benchmark
+    public NmeaFields Tokenize() {
+        return _fields.Tokenize( _bytes, 1, _payloadLength );
+    }
+
+    @Benchmark
+    public INmeaMessage ParseFields() {
+        return ((INmeaMessageExtensions) _factory.Create()).parseFields( _fields );
+    }
+
+    @Benchmark
+    public INmeaMessage ParseFieldsRecycled() {
+        _recycled.Reset();
+        return _recycled.parseFields( _fields );
+    }
+
+    static INmeaMessageFactory Factory( String formatter ) {
+        switch ( formatter ) {
+            case "GGA": return GGA.FACTORY;
+            case "GSA": return GSA.FACTORY;
+            case "GST": return GST.FACTORY;
+            case "GSV": return GSV.FACTORY;
+            case "HDT": return HDT.FACTORY;
+            case "RMC": return RMC.FACTORY;
+            case "VTG": return VTG.FACTORY;
+            default: throw new IllegalArgumentException( formatter );
+        }
+    }
+}
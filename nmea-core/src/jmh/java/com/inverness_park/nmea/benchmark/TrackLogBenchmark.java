@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea.benchmark;
+
+import com.inverness_park.nmea.FixEpochCorrelator;
+import com.inverness_park.nmea.NmeaEncoder;
+import com.inverness_park.nmea.NmeaFileReplay;
+import com.inverness_park.nmea.NmeaReceiver;
+import com.inverness_park.nmea.TrackLogReader;
+import com.inverness_park.nmea.TrackLogWriter;
+import com.inverness_park.nmea.TrackStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloading a track into a TrackStore, from a binary track log and from the NMEA text it was
+ * written from (GGA, RMC and VTG at 1 Hz).  One operation is one fix.  The text takes about 186
+ * bytes per fix, the track log about 9 (see get_textLength() and get_logLength()).
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+@OperationsPerInvocation( TrackLogBenchmark.FIXES )
+public class TrackLogBenchmark {
+
+    /**
+     * A day at 1 Hz
+     */
+    static final int FIXES = 86400;
+
+    private File _text;
+    private File _log;
+
+    @Setup
+    public void Setup() throws IOException {
+        _text = File.createTempFile( "track", ".nmea" );
+        NmeaEncoder encoder = new NmeaEncoder();
+        OutputStream stream = new BufferedOutputStream( new FileOutputStream( _text ) );
+        try {
+            for ( int i = 0; i < FIXES; ++i ) {
+                double latitude = 53.3613367 + 1e-6 * Math.sin( i / 60.0 );
+                double longitude = -6.5056200 + 1e-6 * i;
+                int millisOfDay = i * 1000;
+                encoder.Begin().Field( "GPGGA" ).FieldTime( millisOfDay )
+                        .FieldDMM( latitude, 2, 'N', 'S' ).FieldDMM( longitude, 3, 'E', 'W' )
+                        .Field( 1 ).Field( 8 ).Field( 1.03, 2 ).Field( 61.7 + ( i % 10 ) / 10.0, 1 ).Field( 'M' )
+                        .Field( 55.2, 1 ).Field( 'M' ).Field().Field().End();
+                stream.write( encoder.get_bytes(), 0, encoder.get_length() );
+                encoder.Begin().Field( "GPRMC" ).FieldTime( millisOfDay ).Field( 'A' )
+                        .FieldDMM( latitude, 2, 'N', 'S' ).FieldDMM( longitude, 3, 'E', 'W' )
+                        .Field( 0.02, 2 ).Field( 31.66, 2 ).FieldDate( 20110528 ).Field().Field().Field( 'A' ).End();
+                stream.write( encoder.get_bytes(), 0, encoder.get_length() );
+                encoder.Begin().Field( "GPVTG" ).Field( 31.66, 2 ).Field( 'T' ).Field( 15.44, 2 ).Field( 'M' )
+                        .Field( 0.02, 2 ).Field( 'N' ).Field( 0.04, 2 ).Field( 'K' ).Field( 'A' ).End();
+                stream.write( encoder.get_bytes(), 0, encoder.get_length() );
+            }
+        } finally {
+            stream.close();
+        }
+
+        _log = File.createTempFile( "track", ".log" );
+        TrackLogWriter writer = new TrackLogWriter( new BufferedOutputStream( new FileOutputStream( _log ) ) );
+        try {
+            TrackStore track = Reparse();
+            if ( track.get_size() != FIXES ) {
+                throw new IllegalStateException( "Parsed " + track.get_size() + " fixes" );
+            }
+            writer.Append( track );
+        } finally {
+            writer.close();
+        }
+        if ( _log.length() * 4 > _text.length() ) {
+            throw new IllegalStateException( "Track log of " + _log.length() + " bytes, for " + _text.length() + " bytes of text" );
+        }
+    }
+
+    /**
+     * Size of the NMEA text, in bytes
+     * @return
+     */
+    public long get_textLength() {
+        return _text.length();
+    }
+
+    /**
+     * Size of the track log, in bytes
+     * @return
+     */
+    public long get_logLength() {
+        return _log.length();
+    }
+
+    @TearDown
+    public void TearDown() {
+        _text.delete();
+        _log.delete();
+    }
+
+    @Benchmark
+    public TrackStore Text() throws IOException {
+        return Reparse();
+    }
+
+    @Benchmark
+    public TrackStore Log() throws IOException {
+        TrackStore track = new TrackStore();
+        TrackLogReader reader = new TrackLogReader( _log );
+        try {
+            reader.ReadAll( track );
+        } finally {
+            reader.close();
+        }
+        return track;
+    }
+
+    private TrackStore Reparse() throws IOException {
+        TrackStore track = new TrackStore();
+        FixEpochCorrelator correlator = new FixEpochCorrelator( track );
+        NmeaReceiver receiver = new NmeaReceiver( correlator );
+        receiver.set_recycleMessages( true );
+        try {
+            new NmeaFileReplay( receiver ).Replay( _text );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        correlator.Flush();
+        return track;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Abstract base class wrapper for NMEA messages
+ */
+public abstract class BaseNmeaMessage implements INmeaMessageExtensions {
+    /**
+     * Field delimiter
+     */
+    protected static final String DELIM_FIELDS = ",";
+
+    /**
+     * Field delimiter set
+     */
+    static final char[] DELIMS = new char[] { ',' };
+
+    /**
+     * Sentence writer, created on first use and reused afterwards
+     */
+    private NmeaEncoder _encoder;
+
+    /**
+     * Set while the default writePayload() calls get_payload(), to catch subclasses that
+     * implement neither
+     */
+    private boolean _writingPayload = false;
+
+    /**
+     * Set while one default parseFields() calls the other, to catch subclasses that implement
+     * neither
+     */
+    private boolean _parsingFields = false;
+
+    /**
+     * Computes the checksum.  Bytes are folded 8 at a time, as a tree of independent XORs, so
+     * that the loop overhead and the dependency chain are paid once per 8 bytes.  (NmeaReceiver
+     * only needs this for custom streams: NmeaStream computes the checksum while it scans for
+     * delimiters.)
+     * @param bytes
+     * @param index
+     * @param count
+     * @return
+     */
+    public static byte ComputeChecksum(byte[] bytes, int index, int count) {
+        int rc = 0;
+        int end = index + Math.min(bytes.length-index, count);
+        int i = index;
+        for (final int end8 = end - 7; i < end8; i += 8) {
+            rc ^= ( bytes[i] ^ bytes[i + 1] ^ bytes[i + 2] ^ bytes[i + 3] )
+                    ^ ( bytes[i + 4] ^ bytes[i + 5] ^ bytes[i + 6] ^ bytes[i + 7] );
+        }
+        for (; i < end; ++i) {
+            rc ^= bytes[i];
+        }
+        return (byte)rc;
+    }
+
+    /**
+     * Stringification to full NMEA format, including SOM and EOM delimiters.
+     * @return
+     */
+    @Override
+    public String toString() {
+        NmeaEncoder encoder = Encode();
+        return new String( encoder.get_bytes(), 0, encoder.get_length(), StandardCharsets.US_ASCII );
+    }
+
+    /**
+     * As per NMEA 0183 documentation
+     * @return
+     */
+    @Override
+    public abstract String get_description() ;
+
+    /**
+     * NMEA sentence without the leading "$" and the trailing "*" & checksum
+     * @return
+     */
+    @Override
+    public String get_payload() {
+        NmeaEncoder encoder = Encode();
+        return new String( encoder.get_bytes(), 1, encoder.get_payloadLength(), StandardCharsets.US_ASCII );
+    }
+
+    /**
+     * Get the NMEA ckecksum
+     * @return
+     */
+    @Override
+    public byte get_checksum() {
+        return Encode().get_checksum();
+    }
+
+    /**
+     * Writes the full NMEA sentence, "$" to CR LF, as ASCII bytes
+     * @param bytes Destination
+     * @param index Where the sentence starts
+     * @return Number of bytes written
+     * @throws IndexOutOfBoundsException if the sentence doesn't fit; nothing is written then
+     */
+    @Override
+    public int writeTo( byte[] bytes, int index ) {
+        NmeaEncoder encoder = Encode();
+        System.arraycopy( encoder.get_bytes(), 0, bytes, index, encoder.get_length() );
+        return encoder.get_length();
+    }
+
+    /**
+     * Writes the full NMEA sentence, "$" to CR LF, as ASCII bytes, at the buffer's position
+     * @param buffer Destination
+     * @throws java.nio.BufferOverflowException if the sentence doesn't fit; nothing is written then
+     */
+    @Override
+    public void writeTo( ByteBuffer buffer ) {
+        NmeaEncoder encoder = Encode();
+        buffer.put( encoder.get_bytes(), 0, encoder.get_length() );
+    }
+
+    /**
+     * Writes the payload fields, from the address field on.  Subclasses that predate the
+     * encoder may implement get_payload() instead, which this then writes as is.  Subclasses must
+     * override one or the other.
+     * @param encoder
+     * @throws UnsupportedOperationException if the subclass overrides neither
+     */
+    protected void writePayload( NmeaEncoder encoder ) {
+        if ( _writingPayload ) {
+            // ... get_payload() came back here through Encode(): it isn't overridden either
+            throw new UnsupportedOperationException( getClass().getName() + " must override writePayload() or get_payload()" );
+        }
+        _writingPayload = true;
+        try {
+            encoder.Append( get_payload() );
+        } finally {
+            _writingPayload = false;
+        }
+    }
+
+    /**
+     * Writes the whole sentence into the reused encoder
+     * @return The encoder
+     */
+    private NmeaEncoder Encode() {
+        if ( _encoder == null ) {
+            _encoder = new NmeaEncoder();
+        }
+        _encoder.Begin();
+        writePayload( _encoder );
+        return _encoder.End();
+    }
+
+    /**
+     * Loads NMEA fields that have been parsed into stirng tokens.  Subclasses must override this or
+     * parseFields(NmeaFields).
+     * @param tokens
+     * @return
+     * @throws UnsupportedOperationException if the subclass overrides neither
+     */
+    @Override
+    public INmeaMessage parseFields( String[] tokens ) {
+        if ( _parsingFields ) {
+            // ... parseFields(NmeaFields) came back here: it isn't overridden either
+            throw new UnsupportedOperationException( getClass().getName() + " must override parseFields(NmeaFields) or parseFields(String[])" );
+        }
+        _parsingFields = true;
+        try {
+            return parseFields( NmeaFields.FromTokens( tokens ) );
+        } finally {
+            _parsingFields = false;
+        }
+    }
+
+    /**
+     * Loads NMEA fields straight from the bytes of a tokenized sentence.  Subclasses that predate
+     * NmeaFields may implement parseFields(String[]) instead, which this then calls with the
+     * fields as strings.
+     * @param fields
+     * @return
+     * @throws UnsupportedOperationException if the subclass overrides neither
+     */
+    @Override
+    public INmeaMessage parseFields( NmeaFields fields ) {
+        if ( _parsingFields ) {
+            throw new UnsupportedOperationException( getClass().getName() + " must override parseFields(NmeaFields) or parseFields(String[])" );
+        }
+        _parsingFields = true;
+        try {
+            return parseFields( fields.ToTokens() );
+        } finally {
+            _parsingFields = false;
+        }
+    }
+
+    /**
+     * Clears all fields back to their defaults.  Messages with optional fields must override
+     * this, or they may be recycled with stale values.
+     */
+    @Override
+    public void Reset() {
+    }
+}
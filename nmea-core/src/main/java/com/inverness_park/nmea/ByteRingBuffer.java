@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free, single-producer/single-consumer ring of bytes.  One thread Offer()s bytes, another
+ * Drain()s them; the storage is allocated once, up front.
+ */
+
+public class ByteRingBuffer {
+
+    /**
+     * Receives the bytes drained from the ring, straight from its storage
+     */
+    public interface Consumer {
+        /**
+         * @param bytes Ring storage; only valid until this returns
+         * @param index
+         * @param count
+         */
+        void Consume( byte[] bytes, int index, int count );
+    }
+
+    // ... Positions are stored 16 longs (128 bytes) apart, so that the producer's and the consumer's
+    // sit on different cache lines, and the two threads don't invalidate each other's line on every
+    // write.  Positions only ever grow; they are masked into the storage.
+
+    /**
+     * Position after the last byte written; written by the producer
+     */
+    private static final int HEAD = 15;
+
+    /**
+     * Number of Offer()s rejected for lack of room; written by the producer
+     */
+    private static final int OVERFLOWS = 16;
+
+    /**
+     * Position after the last byte drained; written by the consumer
+     */
+    private static final int TAIL = 31;
+
+    private static final int POSITIONS_LENGTH = 47;
+
+    private final AtomicLongArray _positions = new AtomicLongArray( POSITIONS_LENGTH );
+
+    private final byte[] _buffer;
+
+    private final int _mask;
+
+    /**
+     * If set, Offer() publishes with a volatile write rather than an ordered one
+     */
+    private final boolean _volatilePublish;
+
+    /**
+     * Constructor
+     * @param capacity Number of bytes the ring can hold, rounded up to a power of 2
+     */
+    public ByteRingBuffer( int capacity ) {
+        this( capacity, false );
+    }
+
+    /**
+     * Constructor
+     * @param capacity Number of bytes the ring can hold, rounded up to a power of 2
+     * @param volatilePublish If set, Offer() publishes the bytes with a volatile write, so that
+     *                        the producer's volatile reads that follow (e.g. of a flag set by a
+     *                        consumer about to park) can't be reordered before the bytes are
+     *                        visible.  An ordered write is cheaper, and enough for a consumer that
+     *                        never sleeps.
+     */
+    public ByteRingBuffer( int capacity, boolean volatilePublish ) {
+        if ( capacity < 1 || capacity > 1 << 30 ) {
+            throw new IllegalArgumentException( "capacity must be between 1 and 2^30" );
+        }
+        int size = Integer.highestOneBit( capacity );
+        if ( size < capacity ) {
+            size <<= 1;
+        }
+        _buffer = new byte[size];
+        _mask = size - 1;
+        _volatilePublish = volatilePublish;
+    }
+
+    public int get_capacity() {
+        return _buffer.length;
+    }
+
+    /**
+     * Number of bytes waiting to be drained
+     * @return
+     */
+    public int get_size() {
+        return (int) ( _positions.get( HEAD ) - _positions.get( TAIL ) );
+    }
+
+    /**
+     * Number of Offer()s rejected because the ring was full
+     * @return
+     */
+    public long get_overflowCount() {
+        return _positions.get( OVERFLOWS );
+    }
+
+    /**
+     * Copies a range of bytes into the ring.  Producer thread only.
+     * @param bytes
+     * @param index
+     * @param count
+     * @return false, with none of the bytes copied, if the ring doesn't have room for all of them
+     */
+    public boolean Offer( byte[] bytes, int index, int count ) {
+        long head = _positions.get( HEAD );
+        if ( head + count - _positions.get( TAIL ) > _buffer.length ) {
+            Overflow();
+            return false;
+        }
+        int offset = (int) head & _mask;
+        int first = Math.min( count, _buffer.length - offset );
+        System.arraycopy( bytes, index, _buffer, offset, first );
+        System.arraycopy( bytes, index + first, _buffer, 0, count - first );
+
+        Publish( head + count );
+        return true;
+    }
+
+    /**
+     * Copies the remaining bytes of a buffer into the ring.  Producer thread only.  The buffer's
+     * position is advanced to its limit, even if its bytes are rejected.
+     * @param buffer
+     * @return false, with none of the bytes copied, if the ring doesn't have room for all of them
+     */
+    public boolean Offer( ByteBuffer buffer ) {
+        int count = buffer.remaining();
+        long head = _positions.get( HEAD );
+        if ( head + count - _positions.get( TAIL ) > _buffer.length ) {
+            buffer.position( buffer.limit() );
+            Overflow();
+            return false;
+        }
+        int offset = (int) head & _mask;
+        int first = Math.min( count, _buffer.length - offset );
+        buffer.get( _buffer, offset, first );
+        buffer.get( _buffer, 0, count - first );
+        Publish( head + count );
+        return true;
+    }
+
+    /**
+     * Makes the bytes offered visible to the consumer
+     * @param head
+     */
+    private void Publish( long head ) {
+        if ( _volatilePublish ) {
+            _positions.set( HEAD, head );
+        } else {
+            // ... An ordered write is enough for a single consumer that polls
+            _positions.lazySet( HEAD, head );
+        }
+    }
+
+    /**
+     * Hands all the bytes waiting in the ring to a consumer, in at most two contiguous ranges, then
+     * frees their room.  Consumer thread only.
+     * @param consumer
+     * @return Number of bytes drained
+     */
+    public int Drain( Consumer consumer ) {
+        long tail = _positions.get( TAIL );
+        int available = (int) ( _positions.get( HEAD ) - tail );
+        if ( available == 0 ) {
+            return 0;
+        }
+        int offset = (int) tail & _mask;
+        int first = Math.min( available, _buffer.length - offset );
+        try {
+            consumer.Consume( _buffer, offset, first );
+            if ( first < available ) {
+                consumer.Consume( _buffer, 0, available - first );
+            }
+        } finally {
+            // ... Bytes are never handed over twice, even if the consumer throws
+            _positions.lazySet( TAIL, tail + available );
+        }
+        return available;
+    }
+
+    private void Overflow() {
+        _positions.lazySet( OVERFLOWS, _positions.get( OVERFLOWS ) + 1 );
+    }
+}
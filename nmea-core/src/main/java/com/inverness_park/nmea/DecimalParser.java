@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decimal number parser for the restricted format of NMEA fields: an optional sign, digits, and
+ * an optional decimal point followed by more digits (e.g. "-12.345"), with no exponent.
+ *
+ * Numbers are parsed straight from ASCII bytes into a long mantissa and a power-of-ten scale.
+ * When both are exactly representable, a single floating-point division gives the correctly
+ * rounded result, i.e. the very value Double.parseDouble() or Float.parseFloat() would return.
+ * That covers every number of up to 15 significant digits and 22 decimals.  Anything else is
+ * handed over to the JDK parsers, which keeps their results and their exceptions.
+ */
+public final class DecimalParser {
+
+    /**
+     * Mantissas below this are exact doubles
+     */
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    /**
+     * Mantissas below this are exact floats
+     */
+    private static final long MAX_EXACT_FLOAT = 1L << 24;
+
+    /**
+     * Powers of ten that are exact doubles
+     */
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+
+    /**
+     * Powers of ten that are exact floats
+     */
+    private static final float[] POW10F = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f,
+    };
+
+    /**
+     * Scan() result layout: mantissa, then scale, then sign
+     */
+    private static final int SCALE_SHIFT = 53;
+    private static final long MANTISSA_MASK = MAX_EXACT_DOUBLE - 1;
+    private static final long NEGATIVE = 1L << 58;
+
+    /**
+     * Scan() result for numbers that need the JDK parsers
+     */
+    private static final long FALLBACK = -1;
+
+    /**
+     * Low bits of a double that lies exactly halfway between two floats
+     */
+    private static final long FLOAT_HALFWAY_MASK = ( 1L << 29 ) - 1;
+    private static final long FLOAT_HALFWAY = 1L << 28;
+
+    private DecimalParser() {
+    }
+
+    /**
+     * Parses a number, as Double.parseDouble() would
+     * @param bytes ASCII characters
+     * @param start Index of the first character
+     * @param end Index past the last character
+     * @return
+     * @throws NumberFormatException
+     */
+    public static double ParseDouble( byte[] bytes, int start, int end ) {
+        long scanned = Scan( bytes, start, end );
+        if ( scanned == FALLBACK ) {
+            return Double.parseDouble( AsString( bytes, start, end ) );
+        }
+
+        double rc = ( scanned & MANTISSA_MASK ) / POW10[(int)( scanned >>> SCALE_SHIFT ) & 0x1F];
+        return ( scanned & NEGATIVE ) != 0 ? -rc : rc;
+    }
+
+    /**
+     * Parses a number, as Float.parseFloat() would
+     * @param bytes ASCII characters
+     * @param start Index of the first character
+     * @param end Index past the last character
+     * @return
+     * @throws NumberFormatException
+     */
+    public static float ParseFloat( byte[] bytes, int start, int end ) {
+        long scanned = Scan( bytes, start, end );
+        if ( scanned == FALLBACK ) {
+            return Float.parseFloat( AsString( bytes, start, end ) );
+        }
+
+        long mantissa = scanned & MANTISSA_MASK;
+        int scale = (int)( scanned >>> SCALE_SHIFT ) & 0x1F;
+        float rc;
+        if ( mantissa < MAX_EXACT_FLOAT && scale < POW10F.length ) {
+            rc = mantissa / POW10F[scale];
+        } else {
+            // ... Rounding to double first, then to float, is only wrong when the double lands
+            // exactly halfway between two floats
+            double d = mantissa / POW10[scale];
+            if ( ( Double.doubleToRawLongBits( d ) & FLOAT_HALFWAY_MASK ) == FLOAT_HALFWAY ) {
+                return Float.parseFloat( AsString( bytes, start, end ) );
+            }
+            rc = (float)d;
+        }
+        return ( scanned & NEGATIVE ) != 0 ? -rc : rc;
+    }
+
+    /**
+     * Reads sign, digits and decimal point
+     * @return Packed mantissa, scale and sign, or FALLBACK
+     */
+    private static long Scan( byte[] bytes, int start, int end ) {
+        // ... Surrounding whitespace is allowed, as String.trim() would remove it
+        while ( start < end && bytes[start] <= ' ' && bytes[start] >= 0 ) {
+            ++start;
+        }
+        while ( end > start && bytes[end - 1] <= ' ' && bytes[end - 1] >= 0 ) {
+            --end;
+        }
+
+        long sign = 0;
+        if ( start < end && ( bytes[start] == '-' || bytes[start] == '+' ) ) {
+            sign = bytes[start] == '-' ? NEGATIVE : 0;
+            ++start;
+        }
+
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for ( int j = start; j < end; ++j ) {
+            int digit = bytes[j] - '0';
+            if ( digit >= 0 && digit <= 9 ) {
+                mantissa = mantissa * 10 + digit;
+                if ( mantissa >= MAX_EXACT_DOUBLE ) {
+                    return FALLBACK;
+                }
+                if ( fraction ) {
+                    ++scale;
+                }
+                ++digits;
+            } else if ( bytes[j] == '.' && !fraction ) {
+                fraction = true;
+            } else {
+                return FALLBACK;
+            }
+        }
+        if ( digits == 0 || scale >= POW10.length ) {
+            return FALLBACK;
+        }
+        return sign | ( (long)scale << SCALE_SHIFT ) | mantissa;
+    }
+
+    private static String AsString( byte[] bytes, int start, int end ) {
+        return new String( bytes, start, end - start, StandardCharsets.US_ASCII );
+    }
+}
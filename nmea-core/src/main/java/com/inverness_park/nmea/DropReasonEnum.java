@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+/**
+ * Reasons for NmeaReceiver to drop a framed sentence, as reported to OnNmeaMessageDropped()
+ */
+public enum DropReasonEnum {
+    InsufficientBytes( "Insufficient number of bytes" ),
+    InvalidStartOfMessage( "Invalid start of message" ),
+    NoCR( "Invalid end of message delimiter (no CR)" ),
+    NoLF( "Invalid end of message delimiter (no LF)" ),
+    InvalidChecksumDelimiter( "Invalid checksum delimiter" );
+
+    private final String _description;
+
+    DropReasonEnum( String description ) {
+        _description = description;
+    }
+
+    /**
+     * As passed to OnNmeaMessageDropped()
+     * @return
+     */
+    public String get_description() {
+        return _description;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+/**
+ * Builds full UTC times for the fixes of successive epochs: the date is that of the last RMC;
+ * before the first one, fixes are dated 1970-01-01, and move to the next day at midnight.
+ */
+
+final class FixClock {
+
+    private static final long MILLIS_PER_DAY = 24 * 3600 * 1000L;
+
+    /**
+     * Day of the fixes, in days since 1970-01-01
+     */
+    private long _day = 0;
+
+    /**
+     * Time of day of the last fix, to detect midnight
+     */
+    private int _lastMillisOfDay = -1;
+
+    /**
+     * UTC time of an epoch
+     * @param epoch
+     * @return Milliseconds since 1970-01-01, or -1 if the epoch has no time
+     */
+    long TimeMillis( FixEpoch epoch ) {
+        int millisOfDay = epoch.get_utcMillisOfDay();
+        if ( millisOfDay < 0 ) {
+            return -1;
+        }
+        if ( epoch.get_utcDate() > 0 ) {
+            _day = EpochDay( epoch.get_utcDate() );
+        } else if ( _lastMillisOfDay >= 0 && millisOfDay < _lastMillisOfDay - MILLIS_PER_DAY / 2 ) {
+            ++_day;
+        }
+        _lastMillisOfDay = millisOfDay;
+        return _day * MILLIS_PER_DAY + millisOfDay;
+    }
+
+    void Reset() {
+        _day = 0;
+        _lastMillisOfDay = -1;
+    }
+
+    /**
+     * Days since 1970-01-01 of a date
+     * @param packedDate yyyymmdd
+     * @return
+     */
+    static long EpochDay( int packedDate ) {
+        // ... Days from civil, counting years from March so that the leap day comes last
+        int year = packedDate / 10000;
+        int month = packedDate / 100 % 100;
+        int day = packedDate % 100;
+        if ( month <= 2 ) {
+            --year;
+        }
+        int era = ( year >= 0 ? year : year - 399 ) / 400;
+        int yearOfEra = year - era * 400;
+        int dayOfYear = ( 153 * ( month > 2 ? month - 3 : month + 9 ) + 2 ) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
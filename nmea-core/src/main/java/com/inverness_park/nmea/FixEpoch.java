@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Types.FixQualityEnum;
+import com.inverness_park.nmea.Types.FixSelectionMode;
+import com.inverness_park.nmea.Types.StatusEnum;
+
+/**
+ * Everything the GGA, RMC, GSA, GST, VTG and HDT sentences of one epoch say about the fix, in a
+ * single flat record, as assembled by a FixEpochCorrelator.  Values that none of the epoch's
+ * sentences carried are NaN (floating point), -1 (integers) or null (enumerations).
+ */
+
+public class FixEpoch {
+
+    /**
+     * Sentence types, as combined in get_sentences()
+     */
+    public static final int GGA = 1;
+    public static final int RMC = 1 << 1;
+    public static final int GSA = 1 << 2;
+    public static final int GST = 1 << 3;
+    public static final int VTG = 1 << 4;
+    public static final int HDT = 1 << 5;
+
+    /**
+     * Number of satellite IDs kept per epoch: a GSA sentence lists up to 12, and multi-GNSS
+     * receivers send one GSA per constellation
+     */
+    public static final int MAX_USED_SATELLITES = 64;
+
+    int _sentences;
+    long _nanoTime;
+
+    // ... GGA and RMC
+    int _utcMillisOfDay;
+    double _latitude;
+    double _longitude;
+
+    // ... GGA
+    FixQualityEnum _fixQuality;
+    int _satelliteCount;
+    float _hdop;
+    float _altitude;
+    float _geoidHeight;
+
+    // ... RMC
+    int _utcDate;
+    StatusEnum _status;
+    float _magneticVariation;
+
+    // ... RMC and VTG
+    float _speedKnots;
+    float _courseTrueDegrees;
+
+    // ... VTG
+    float _speedKph;
+    float _courseMagneticDegrees;
+
+    // ... GSA
+    FixSelectionMode _fixSelectionMode;
+    int _fix3D;
+    float _pdop;
+    float _vdop;
+    int _usedSatelliteCount;
+    final short[] _usedPrns = new short[MAX_USED_SATELLITES];
+
+    // ... GST
+    float _rms;
+    float _semiMajorStdev;
+    float _semiMinorStdev;
+    float _orientation;
+    float _latitudeErrorStdev;
+    float _longitudeErrorStdev;
+    float _altitudeErrorStdev;
+
+    // ... HDT
+    float _headingTrue;
+
+    public FixEpoch() {
+        Clear();
+    }
+
+    /**
+     * Forgets all values
+     */
+    public void Clear() {
+        _sentences = 0;
+        _nanoTime = 0;
+        _utcMillisOfDay = -1;
+        _latitude = Double.NaN;
+        _longitude = Double.NaN;
+        _fixQuality = null;
+        _satelliteCount = -1;
+        _hdop = Float.NaN;
+        _altitude = Float.NaN;
+        _geoidHeight = Float.NaN;
+        _utcDate = -1;
+        _status = null;
+        _magneticVariation = Float.NaN;
+        _speedKnots = Float.NaN;
+        _courseTrueDegrees = Float.NaN;
+        _speedKph = Float.NaN;
+        _courseMagneticDegrees = Float.NaN;
+        _fixSelectionMode = null;
+        _fix3D = -1;
+        _pdop = Float.NaN;
+        _vdop = Float.NaN;
+        _usedSatelliteCount = 0;
+        _rms = Float.NaN;
+        _semiMajorStdev = Float.NaN;
+        _semiMinorStdev = Float.NaN;
+        _orientation = Float.NaN;
+        _latitudeErrorStdev = Float.NaN;
+        _longitudeErrorStdev = Float.NaN;
+        _altitudeErrorStdev = Float.NaN;
+        _headingTrue = Float.NaN;
+    }
+
+    /**
+     * Copies the epoch, e.g. to keep it after the FixEpochCorrelator listener returns
+     * @param other
+     */
+    public void CopyTo( FixEpoch other ) {
+        other._sentences = _sentences;
+        other._nanoTime = _nanoTime;
+        other._utcMillisOfDay = _utcMillisOfDay;
+        other._latitude = _latitude;
+        other._longitude = _longitude;
+        other._fixQuality = _fixQuality;
+        other._satelliteCount = _satelliteCount;
+        other._hdop = _hdop;
+        other._altitude = _altitude;
+        other._geoidHeight = _geoidHeight;
+        other._utcDate = _utcDate;
+        other._status = _status;
+        other._magneticVariation = _magneticVariation;
+        other._speedKnots = _speedKnots;
+        other._courseTrueDegrees = _courseTrueDegrees;
+        other._speedKph = _speedKph;
+        other._courseMagneticDegrees = _courseMagneticDegrees;
+        other._fixSelectionMode = _fixSelectionMode;
+        other._fix3D = _fix3D;
+        other._pdop = _pdop;
+        other._vdop = _vdop;
+        other._usedSatelliteCount = _usedSatelliteCount;
+        System.arraycopy( _usedPrns, 0, other._usedPrns, 0, _usedSatelliteCount );
+        other._rms = _rms;
+        other._semiMajorStdev = _semiMajorStdev;
+        other._semiMinorStdev = _semiMinorStdev;
+        other._orientation = _orientation;
+        other._latitudeErrorStdev = _latitudeErrorStdev;
+        other._longitudeErrorStdev = _longitudeErrorStdev;
+        other._altitudeErrorStdev = _altitudeErrorStdev;
+        other._headingTrue = _headingTrue;
+    }
+
+    /**
+     * Sentence types the epoch was assembled from, e.g. GGA | RMC | GSA
+     * @return
+     */
+    public int get_sentences() {
+        return _sentences;
+    }
+
+    /**
+     * @param sentences One or more sentence types, e.g. GGA | GST
+     * @return true if the epoch has all of them
+     */
+    public boolean Has( int sentences ) {
+        return ( _sentences & sentences ) == sentences;
+    }
+
+    /**
+     * System.nanoTime() when the first sentence of the epoch was received
+     * @return
+     */
+    public long get_nanoTime() {
+        return _nanoTime;
+    }
+
+    /**
+     * UTC time of the epoch, from GGA, RMC or GST
+     * @return Milliseconds since midnight, or -1
+     */
+    public int get_utcMillisOfDay() {
+        return _utcMillisOfDay;
+    }
+
+    /**
+     * UTC date, from RMC
+     * @return yyyymmdd, or -1
+     */
+    public int get_utcDate() {
+        return _utcDate;
+    }
+
+    /**
+     * Latitude in degrees, from GGA or RMC (south is negative)
+     * @return
+     */
+    public double get_latitude() {
+        return _latitude;
+    }
+
+    /**
+     * Longitude in degrees, from GGA or RMC (west is negative)
+     * @return
+     */
+    public double get_longitude() {
+        return _longitude;
+    }
+
+    public FixQualityEnum get_fixQuality() {
+        return _fixQuality;
+    }
+
+    public int get_satelliteCount() {
+        return _satelliteCount;
+    }
+
+    /**
+     * Horizontal dilution of precision, from GGA, or GSA if there is no GGA
+     * @return
+     */
+    public float get_hdop() {
+        return _hdop;
+    }
+
+    /**
+     * Altitude above mean sea level, in meters
+     * @return
+     */
+    public float get_altitude() {
+        return _altitude;
+    }
+
+    public float get_geoidHeight() {
+        return _geoidHeight;
+    }
+
+    public StatusEnum get_status() {
+        return _status;
+    }
+
+    /**
+     * Magnetic variation in degrees, from RMC (west is negative)
+     * @return
+     */
+    public float get_magneticVariation() {
+        return _magneticVariation;
+    }
+
+    /**
+     * Speed over ground, from RMC or VTG
+     * @return
+     */
+    public float get_speedKnots() {
+        return _speedKnots;
+    }
+
+    /**
+     * Course over ground relative to true north, from RMC or VTG
+     * @return
+     */
+    public float get_courseTrueDegrees() {
+        return _courseTrueDegrees;
+    }
+
+    /**
+     * Speed over ground, from VTG
+     * @return
+     */
+    public float get_speedKph() {
+        return _speedKph;
+    }
+
+    /**
+     * Course over ground relative to magnetic north, from VTG
+     * @return
+     */
+    public float get_courseMagneticDegrees() {
+        return _courseMagneticDegrees;
+    }
+
+    public FixSelectionMode get_fixSelectionMode() {
+        return _fixSelectionMode;
+    }
+
+    /**
+     * As per Fix3DEnum, or -1
+     * @return
+     */
+    public int get_fix3D() {
+        return _fix3D;
+    }
+
+    public float get_pdop() {
+        return _pdop;
+    }
+
+    public float get_vdop() {
+        return _vdop;
+    }
+
+    /**
+     * Number of satellites used in the solution, as listed by the GSA sentences of the epoch
+     * @return
+     */
+    public int get_usedSatelliteCount() {
+        return _usedSatelliteCount;
+    }
+
+    /**
+     * ID of a satellite used in the solution
+     * @param i 0 to get_usedSatelliteCount() - 1
+     * @return
+     */
+    public int get_usedPrn( int i ) {
+        if ( i < 0 || i >= _usedSatelliteCount ) {
+            throw new IndexOutOfBoundsException( "Satellite " + i + " of " + _usedSatelliteCount );
+        }
+        return _usedPrns[i];
+    }
+
+    /**
+     * RMS of the pseudorange residuals, from GST
+     * @return
+     */
+    public float get_rms() {
+        return _rms;
+    }
+
+    public float get_semiMajorStdev() {
+        return _semiMajorStdev;
+    }
+
+    public float get_semiMinorStdev() {
+        return _semiMinorStdev;
+    }
+
+    /**
+     * Orientation of the error ellipse, in degrees from true north
+     * @return
+     */
+    public float get_orientation() {
+        return _orientation;
+    }
+
+    public float get_latitudeErrorStdev() {
+        return _latitudeErrorStdev;
+    }
+
+    public float get_longitudeErrorStdev() {
+        return _longitudeErrorStdev;
+    }
+
+    public float get_altitudeErrorStdev() {
+        return _altitudeErrorStdev;
+    }
+
+    /**
+     * Heading relative to true north, from HDT
+     * @return
+     */
+    public float get_headingTrue() {
+        return _headingTrue;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GGA;
+import com.inverness_park.nmea.Sentences.GSA;
+import com.inverness_park.nmea.Sentences.GST;
+import com.inverness_park.nmea.Sentences.HDT;
+import com.inverness_park.nmea.Sentences.RMC;
+import com.inverness_park.nmea.Sentences.VTG;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Combines the GGA, RMC, GSA, GST, VTG and HDT sentences of each epoch into a single FixEpoch, and
+ * hands it over to a listener once per epoch, rather than once per sentence.
+ *
+ * GGA, RMC and GST carry the UTC time of their epoch: a different time, or a second sentence of
+ * the same type, starts a new epoch.  GSA, VTG and HDT don't, and are assigned to the epoch being
+ * assembled, unless it already has a VTG or HDT of the same type, or the receiver has been quiet
+ * for longer than the burst gap.  Successive GSA sentences, one per constellation on multi-GNSS
+ * receivers, are merged: their satellite IDs are appended, and the DOPs of the first are kept.
+ * Once an epoch has all the sentences of the previous one, it is handed over right away;
+ * otherwise, it is handed over when the next one starts, or by Expire() / Flush().
+ *
+ * Values are copied out of the messages as they come in, so messages may be recycled.  The epoch
+ * handed to the listener is reused, and only valid until the listener returns; use
+ * FixEpoch.CopyTo() to keep it.  Like a receiver, a correlator is used from one thread at a time.
+ */
+
+public class FixEpochCorrelator implements INmeaHandler {
+
+    /**
+     * Receives each assembled epoch
+     */
+    public interface Listener {
+        void OnFixEpoch( FixEpoch epoch );
+    }
+
+    public static final long DEFAULT_BURST_GAP_MILLIS = 50;
+
+    private final Listener _listener;
+
+    private final long _burstGapNanos;
+
+    private final FixEpoch _epoch = new FixEpoch();
+
+    /**
+     * Sentence types of the previous epoch
+     */
+    private int _previousSentences = 0;
+
+    /**
+     * When the last sentence was received
+     */
+    private long _lastNanos = 0;
+
+    /**
+     * Number of GSA sentences in the epoch being assembled, and in the previous one
+     */
+    private int _gsaCount = 0;
+    private int _previousGsaCount = 0;
+
+    /**
+     * Constructor
+     * @param listener Receives each assembled epoch
+     * @param burstGapMillis How long the receiver must be quiet for an epoch to be over
+     */
+    public FixEpochCorrelator( Listener listener, long burstGapMillis ) {
+        _listener = listener;
+        _burstGapNanos = TimeUnit.MILLISECONDS.toNanos( burstGapMillis );
+    }
+
+    public FixEpochCorrelator( Listener listener ) {
+        this( listener, DEFAULT_BURST_GAP_MILLIS );
+    }
+
+    @Override
+    public void HandleGGA( INmeaMessage msg ) {
+        GGA gga = (GGA) msg;
+        FixEpoch epoch = Begin( FixEpoch.GGA, gga.get_utcMillisOfDay(), System.nanoTime() );
+        epoch._latitude = gga.get_latitude().get_degrees();
+        epoch._longitude = gga.get_longitude().get_degrees();
+        epoch._fixQuality = gga.get_fixQuality();
+        epoch._satelliteCount = gga.get_satelliteCount();
+        epoch._hdop = gga.get_hdop();
+        epoch._altitude = gga.get_altitude();
+        epoch._geoidHeight = gga.get_geoidHeight();
+        End();
+    }
+
+    @Override
+    public void HandleRMC( INmeaMessage msg ) {
+        RMC rmc = (RMC) msg;
+        FixEpoch epoch = Begin( FixEpoch.RMC, rmc.get_utcMillisOfDay(), System.nanoTime() );
+        epoch._utcDate = rmc.get_utcDate();
+        epoch._status = rmc.get_status();
+        if ( !epoch.Has( FixEpoch.GGA ) ) {
+            epoch._latitude = rmc.get_latitude().get_degrees();
+            epoch._longitude = rmc.get_longitude().get_degrees();
+        }
+        epoch._speedKnots = rmc.get_speedAboveGroundKnots();
+        epoch._courseTrueDegrees = rmc.get_trackAngleTrueNorthDegrees();
+        epoch._magneticVariation = rmc.get_magneticVariation() != null ? rmc.get_magneticVariation() : Float.NaN;
+        End();
+    }
+
+    @Override
+    public void HandleGST( INmeaMessage msg ) {
+        GST gst = (GST) msg;
+        FixEpoch epoch = Begin( FixEpoch.GST, gst.get_utcMillisOfDay(), System.nanoTime() );
+        epoch._rms = gst.get_rms();
+        epoch._semiMajorStdev = gst.get_smjrStdev();
+        epoch._semiMinorStdev = gst.get_smnrStdev();
+        epoch._orientation = gst.get_orientation();
+        epoch._latitudeErrorStdev = gst.get_latitudeErrorStdev();
+        epoch._longitudeErrorStdev = gst.get_longitudeErrorStdev();
+        epoch._altitudeErrorStdev = gst.get_altitudeErrorStdev();
+        End();
+    }
+
+    @Override
+    public void HandleGSA( INmeaMessage msg ) {
+        GSA gsa = (GSA) msg;
+        FixEpoch epoch = Begin( FixEpoch.GSA, -1, System.nanoTime() );
+        if ( _gsaCount++ == 0 ) {
+            // ... The DOPs of all the GSA sentences of an epoch are those of the combined solution
+            epoch._fixSelectionMode = gsa.get_fixSelectionMode();
+            epoch._fix3D = gsa.get_fix3D();
+            epoch._pdop = gsa.get_pdop();
+            epoch._vdop = gsa.get_vdop();
+            if ( !epoch.Has( FixEpoch.GGA ) ) {
+                epoch._hdop = gsa.get_hdop();
+            }
+        }
+        for ( String prn : gsa.get_prn() ) {
+            int id = ParsePrn( prn );
+            if ( id > 0 && epoch._usedSatelliteCount < FixEpoch.MAX_USED_SATELLITES ) {
+                epoch._usedPrns[epoch._usedSatelliteCount++] = (short) id;
+            }
+        }
+        End();
+    }
+
+    @Override
+    public void HandleVTG( INmeaMessage msg ) {
+        VTG vtg = (VTG) msg;
+        FixEpoch epoch = Begin( FixEpoch.VTG, -1, System.nanoTime() );
+        epoch._courseMagneticDegrees = vtg.get_magneticTrackMadeGoodDegrees();
+        epoch._speedKph = vtg.get_groundSpeedKph();
+        if ( !epoch.Has( FixEpoch.RMC ) ) {
+            epoch._courseTrueDegrees = vtg.get_trueTrackMadeGoodDegrees();
+            epoch._speedKnots = vtg.get_groundSpeedKnots();
+        }
+        End();
+    }
+
+    @Override
+    public void HandleHDT( INmeaMessage msg ) {
+        HDT hdt = (HDT) msg;
+        FixEpoch epoch = Begin( FixEpoch.HDT, -1, System.nanoTime() );
+        epoch._headingTrue = hdt.get_headingTrue();
+        End();
+    }
+
+    @Override
+    public void HandleGSV( INmeaMessage msg ) {
+        // ... Satellites in view aren't part of the fix: see GsvAssembler
+    }
+
+    /**
+     * Hands the epoch being assembled over if the receiver has been quiet for longer than the
+     * burst gap, so that the last epoch isn't held back when sentences stop.  The correlator isn't
+     * thread-safe: call this on the thread that calls Receive(), e.g. between reads that time out,
+     * not from a timer thread.
+     * @param nowNanos System.nanoTime()
+     */
+    public void Expire( long nowNanos ) {
+        if ( _epoch._sentences != 0 && nowNanos - _lastNanos >= _burstGapNanos ) {
+            Emit();
+        }
+    }
+
+    /**
+     * Hands the epoch being assembled over now
+     */
+    public void Flush() {
+        Emit();
+    }
+
+    /**
+     * Finds the epoch a sentence belongs to, handing the current one over if the sentence starts
+     * a new one
+     * @param sentence Sentence type, e.g. FixEpoch.GGA
+     * @param utcMillisOfDay Time of the sentence, or -1 if it doesn't have one
+     * @param nowNanos
+     * @return The epoch to copy the sentence's values into
+     */
+    FixEpoch Begin( int sentence, int utcMillisOfDay, long nowNanos ) {
+        FixEpoch epoch = _epoch;
+        if ( epoch._sentences != 0 ) {
+            boolean newTime = utcMillisOfDay >= 0 && epoch._utcMillisOfDay >= 0 && utcMillisOfDay != epoch._utcMillisOfDay;
+            // ... Multi-GNSS receivers send one GSA per constellation: those are merged
+            boolean repeated = ( epoch._sentences & sentence & ~FixEpoch.GSA ) != 0;
+            boolean gap = nowNanos - _lastNanos >= _burstGapNanos;
+            if ( newTime || repeated || gap ) {
+                Emit();
+            }
+        }
+
+        if ( epoch._sentences == 0 ) {
+            epoch._nanoTime = nowNanos;
+        }
+        if ( epoch._utcMillisOfDay < 0 ) {
+            epoch._utcMillisOfDay = utcMillisOfDay;
+        }
+        epoch._sentences |= sentence;
+        _lastNanos = nowNanos;
+        return epoch;
+    }
+
+    /**
+     * Once the epoch has all the sentences of the previous one, it is complete
+     */
+    void End() {
+        if ( _previousSentences != 0 && _epoch.Has( _previousSentences ) && _gsaCount >= _previousGsaCount ) {
+            Emit();
+        }
+    }
+
+    /**
+     * Satellite ID of a GSA field, without allocating
+     * @param prn
+     * @return The ID, or -1 if the field is empty or not a number
+     */
+    static int ParsePrn( String prn ) {
+        if ( prn == null ) {
+            return -1;
+        }
+        int id = 0;
+        int digits = 0;
+        for ( int i = 0; i < prn.length(); ++i ) {
+            char c = prn.charAt( i );
+            if ( c >= '0' && c <= '9' ) {
+                if ( ++digits > 4 ) {
+                    return -1;
+                }
+                id = id * 10 + ( c - '0' );
+            } else if ( c != ' ' ) {
+                return -1;
+            }
+        }
+        return digits > 0 ? id : -1;
+    }
+
+    private void Emit() {
+        if ( _epoch._sentences == 0 ) {
+            return;
+        }
+        _previousSentences = _epoch._sentences;
+        _previousGsaCount = _gsaCount;
+        _gsaCount = 0;
+        _listener.OnFixEpoch( _epoch );
+        _epoch.Clear();
+    }
+}
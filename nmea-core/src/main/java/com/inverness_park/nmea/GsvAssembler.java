@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GSV;
+import com.inverness_park.nmea.Types.ConstellationEnum;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assembles the GSV sentences of an epoch, i.e. parts 1 to N of each sequence, into a single
+ * SatellitesInView.  There is a sequence per talker (GP, GL, GA, GB...), and, from NMEA 4.10 on,
+ * per signal of that talker (e.g. L1 then L5), as given by the signal ID field that ends each
+ * sentence.  The sequences of all the signals of a talker are merged: a satellite tracked on
+ * several signals is listed once, with its best SNR.
+ *
+ * Parts are placed by their sentence number, so they may arrive in any order.  An epoch is over
+ * when every sequence of the previous epoch has sent all its parts, when a sequence starts over
+ * (a part it already sent comes again), or when it has been open for longer than the timeout;
+ * in the last two cases, parts may be missing, and the epoch is reported as incomplete.
+ *
+ * Sentences are parsed straight into preallocated primitive tables, and the epoch handed to the
+ * listener is reused: nothing is allocated per sentence.  The epoch is only valid until the
+ * listener returns; use SatellitesInView.CopyTo() to keep it.  Like a receiver, an assembler
+ * isn't thread-safe, and is used from one thread at a time.
+ */
+
+public class GsvAssembler {
+
+    /**
+     * Receives each assembled epoch
+     */
+    public interface Listener {
+        void OnSatellitesInView( SatellitesInView satellites );
+    }
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * Highest number of parts in a sequence
+     */
+    private static final int MAX_PARTS = 16;
+
+    private static final int SATELLITES_PER_PART = 4;
+
+    private static final int SATELLITES_PER_SEQUENCE = MAX_PARTS * SATELLITES_PER_PART;
+
+    /**
+     * Signal IDs are a single hex digit
+     */
+    private static final int MAX_SIGNALS = 16;
+
+    private static final ConstellationEnum[] TALKERS = ConstellationEnum.values();
+
+    private final Listener _listener;
+
+    private final long _timeoutNanos;
+
+    /**
+     * Sequences, MAX_SIGNALS per talker, created the first time they are seen
+     */
+    private final Sequence[] _sequences = new Sequence[TALKERS.length * MAX_SIGNALS];
+
+    /**
+     * Number of sequences in the epoch being assembled, and in the previous one; number of
+     * sequences of the previous epoch that are also in this one
+     */
+    private int _sequenceCount = 0;
+    private int _previousSequenceCount = 0;
+    private int _repeatedSequenceCount = 0;
+
+    private long _epochNanos = 0;
+
+    private final SatellitesInView _epoch = new SatellitesInView( TALKERS.length * SATELLITES_PER_SEQUENCE );
+
+    /**
+     * The GSV sentence being assembled
+     */
+    private final Part _part = new Part();
+
+    /**
+     * Always returns the same Part, which is why registering the assembler doesn't make the
+     * receiver allocate, whether or not it recycles messages
+     */
+    private final INmeaMessageFactory _factory = new INmeaMessageFactory() {
+        @Override
+        public INmeaMessage Create() {
+            return _part;
+        }
+    };
+
+    private final INmeaMessageHandler _handler = new INmeaMessageHandler() {
+        @Override
+        public void HandleMessage( INmeaMessage msg ) {
+            if ( msg == _part ) {
+                Commit( System.nanoTime() );
+            } else if ( msg instanceof GSV ) {
+                Add( (GSV) msg );
+            }
+        }
+    };
+
+    /**
+     * Constructor
+     * @param listener Receives each assembled epoch
+     * @param timeoutMillis How long an epoch waits for missing parts
+     */
+    public GsvAssembler( Listener listener, long timeoutMillis ) {
+        _listener = listener;
+        _timeoutNanos = TimeUnit.MILLISECONDS.toNanos( timeoutMillis );
+    }
+
+    public GsvAssembler( Listener listener ) {
+        this( listener, DEFAULT_TIMEOUT_MILLIS );
+    }
+
+    /**
+     * Routes a receiver's GSV sentences to the assembler, instead of to its INmeaHandler
+     * @param receiver
+     */
+    public void register( NmeaReceiver receiver ) {
+        receiver.register( "GSV", _factory, _handler );
+    }
+
+    /**
+     * Adds a GSV message parsed elsewhere, e.g. from INmeaHandler.HandleGSV()
+     * @param gsv
+     */
+    public void Add( GSV gsv ) {
+        String address = gsv.get_dataTypeName();
+        _part._first = address != null && address.length() >= 2 ? address.charAt( 0 ) : '\0';
+        _part._second = address != null && address.length() >= 2 ? address.charAt( 1 ) : '\0';
+        _part._numSentences = gsv.get_numSentences();
+        _part._sentenceIndex = gsv.get_sentenceIndex();
+        _part._numSatellitesInView = gsv.get_numSatellitesInView();
+        _part._signalId = gsv.get_signalId();
+        _part._count = 0;
+        for ( GSV.Satellite satellite : gsv.get_satelliteInfo() ) {
+            int prn = FixEpochCorrelator.ParsePrn( satellite.get_prn() );
+            if ( prn < 0 ) {
+                continue;
+            }
+            _part.Set( _part._count++, prn,
+                    satellite.get_elevationDegrees() != null ? satellite.get_elevationDegrees() : SatellitesInView.NO_VALUE,
+                    satellite.get_azimuthDegrees() != null ? satellite.get_azimuthDegrees() : SatellitesInView.NO_VALUE,
+                    satellite.get_snr() != null ? satellite.get_snr() : SatellitesInView.NO_VALUE );
+        }
+        Commit( System.nanoTime() );
+    }
+
+    /**
+     * Reports the epoch being assembled if it has timed out, when GSV sentences stop coming.  The
+     * assembler isn't thread-safe: call this on the thread that calls Receive(), e.g. between reads
+     * that time out, not from a timer thread.
+     * @param nowNanos System.nanoTime()
+     */
+    public void Expire( long nowNanos ) {
+        if ( _sequenceCount != 0 && nowNanos - _epochNanos >= _timeoutNanos ) {
+            Emit();
+        }
+    }
+
+    /**
+     * Reports the epoch being assembled now, complete or not
+     */
+    public void Flush() {
+        Emit();
+    }
+
+    /**
+     * Places the parsed part in the epoch
+     * @param nowNanos
+     */
+    void Commit( long nowNanos ) {
+        final Part part = _part;
+        if ( part._sentenceIndex < 1 || part._sentenceIndex > part._numSentences || part._numSentences > MAX_PARTS ) {
+            return;
+        }
+        Expire( nowNanos );
+
+        int talker = part.get_constellation().ordinal();
+        int slot = talker * MAX_SIGNALS + ( part._signalId >= 0 && part._signalId < MAX_SIGNALS ? part._signalId : 0 );
+        Sequence sequence = _sequences[slot];
+        if ( sequence == null ) {
+            sequence = _sequences[slot] = new Sequence();
+        }
+
+        int partBit = 1 << ( part._sentenceIndex - 1 );
+        if ( sequence._inEpoch ) {
+            if ( ( sequence._partsReceived & partBit ) != 0 ) {
+                // ... The sequence started over: the epoch is over
+                Emit();
+            } else if ( sequence._partCount != part._numSentences ) {
+                // ... The sequence changed its number of parts midway: start it over
+                sequence._partsReceived = 0;
+                sequence._partCount = part._numSentences;
+            }
+        }
+
+        if ( _sequenceCount == 0 ) {
+            _epochNanos = nowNanos;
+        }
+        if ( !sequence._inEpoch ) {
+            sequence._inEpoch = true;
+            sequence._partCount = part._numSentences;
+            sequence._partsReceived = 0;
+            ++_sequenceCount;
+            if ( sequence._inPreviousEpoch ) {
+                ++_repeatedSequenceCount;
+            }
+        }
+
+        int offset = ( part._sentenceIndex - 1 ) * SATELLITES_PER_PART;
+        System.arraycopy( part._prn, 0, sequence._prn, offset, part._count );
+        System.arraycopy( part._elevation, 0, sequence._elevation, offset, part._count );
+        System.arraycopy( part._azimuth, 0, sequence._azimuth, offset, part._count );
+        System.arraycopy( part._snr, 0, sequence._snr, offset, part._count );
+        sequence._partSatellites[part._sentenceIndex - 1] = (byte) part._count;
+        sequence._partsReceived |= partBit;
+
+        // ... Once the sequences of the previous epoch are all done, so is this epoch
+        if ( _previousSequenceCount != 0 && _repeatedSequenceCount == _previousSequenceCount && IsComplete() ) {
+            Emit();
+        }
+    }
+
+    /**
+     * @return true if every sequence of the epoch has sent all its parts
+     */
+    private boolean IsComplete() {
+        for ( Sequence sequence : _sequences ) {
+            if ( sequence != null && sequence._inEpoch && !sequence.IsComplete() ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hands the epoch over to the listener, and starts a new one
+     */
+    private void Emit() {
+        if ( _sequenceCount == 0 ) {
+            return;
+        }
+        _epoch.Begin( _epochNanos );
+        _epoch.set_complete( IsComplete() );
+        for ( int slot = 0; slot < _sequences.length; ++slot ) {
+            Sequence sequence = _sequences[slot];
+            if ( sequence == null ) {
+                continue;
+            }
+            if ( sequence._inEpoch ) {
+                ConstellationEnum constellation = TALKERS[slot / MAX_SIGNALS];
+                for ( int part = 0; part < sequence._partCount; ++part ) {
+                    if ( ( sequence._partsReceived & ( 1 << part ) ) == 0 ) {
+                        continue;
+                    }
+                    int offset = part * SATELLITES_PER_PART;
+                    for ( int i = offset; i < offset + sequence._partSatellites[part]; ++i ) {
+                        _epoch.Merge( constellation, sequence._prn[i], sequence._elevation[i], sequence._azimuth[i], sequence._snr[i] );
+                    }
+                }
+            }
+            sequence._inPreviousEpoch = sequence._inEpoch;
+            sequence._inEpoch = false;
+        }
+
+        _previousSequenceCount = _sequenceCount;
+        _sequenceCount = 0;
+        _repeatedSequenceCount = 0;
+        _listener.OnSatellitesInView( _epoch );
+    }
+
+    /**
+     * Parts received so far from the sequence of one talker and signal
+     */
+    private static final class Sequence {
+        private final short[] _prn = new short[SATELLITES_PER_SEQUENCE];
+        private final byte[] _elevation = new byte[SATELLITES_PER_SEQUENCE];
+        private final short[] _azimuth = new short[SATELLITES_PER_SEQUENCE];
+        private final byte[] _snr = new byte[SATELLITES_PER_SEQUENCE];
+
+        /**
+         * Number of satellites in each part received
+         */
+        private final byte[] _partSatellites = new byte[MAX_PARTS];
+
+        private int _partCount;
+
+        /**
+         * Parts received, one bit per part
+         */
+        private int _partsReceived;
+
+        private boolean _inEpoch;
+        private boolean _inPreviousEpoch;
+
+        private boolean IsComplete() {
+            return _partsReceived == ( 1 << _partCount ) - 1;
+        }
+    }
+
+    /**
+     * One GSV sentence, parsed into primitives
+     */
+    private static final class Part extends BaseNmeaMessage {
+        private char _first;
+        private char _second;
+        private int _numSentences;
+        private int _sentenceIndex;
+        private int _numSatellitesInView;
+        private int _signalId;
+        private int _count;
+        private final short[] _prn = new short[SATELLITES_PER_PART];
+        private final byte[] _elevation = new byte[SATELLITES_PER_PART];
+        private final short[] _azimuth = new short[SATELLITES_PER_PART];
+        private final byte[] _snr = new byte[SATELLITES_PER_PART];
+
+        private ConstellationEnum get_constellation() {
+            return ConstellationEnum.FromTalker( _first, _second );
+        }
+
+        private void Set( int i, int prn, int elevation, int azimuth, int snr ) {
+            _prn[i] = (short) prn;
+            _elevation[i] = (byte) elevation;
+            _azimuth[i] = (short) azimuth;
+            _snr[i] = (byte) snr;
+        }
+
+        @Override
+        public String get_description() {
+            return "Satellites in view";
+        }
+
+        @Override
+        public void Reset() {
+            _numSentences = 0;
+            _sentenceIndex = 0;
+            _signalId = -1;
+            _count = 0;
+        }
+
+        @Override
+        public INmeaMessage parseFields( NmeaFields fields ) {
+            boolean hasTalker = fields.get_length( 0 ) >= 2;
+            _first = hasTalker ? (char) fields.get_bytes()[fields.get_start( 0 )] : '\0';
+            _second = hasTalker ? (char) fields.get_bytes()[fields.get_start( 0 ) + 1] : '\0';
+            _numSentences = fields.fieldAsInt( 1 );
+            _sentenceIndex = fields.fieldAsInt( 2 );
+            _numSatellitesInView = fields.fieldAsInt( 3 );
+            _signalId = SignalId( fields );
+            _count = 0;
+            for ( int offset = 4; offset + 3 < fields.get_count() && _count < SATELLITES_PER_PART; offset += 4 ) {
+                if ( fields.fieldIsBlank( offset ) ) {
+                    continue;
+                }
+                Set( _count++, fields.fieldAsInt( offset ), OptionalInt( fields, offset + 1 ),
+                        OptionalInt( fields, offset + 2 ), OptionalInt( fields, offset + 3 ) );
+            }
+            return this;
+        }
+
+        /**
+         * Signal ID of an NMEA 4.10 sentence: the single field that follows the satellites
+         * @return The ID, or -1 if there is none
+         */
+        private static int SignalId( NmeaFields fields ) {
+            int count = fields.get_count();
+            if ( count <= 4 || ( count - 4 ) % 4 != 1 || fields.get_length( count - 1 ) != 1 ) {
+                return -1;
+            }
+            return Character.digit( (char) fields.get_bytes()[fields.get_start( count - 1 )], 16 );
+        }
+
+        private static int OptionalInt( NmeaFields fields, int i ) {
+            return fields.fieldIsBlank( i ) ? SatellitesInView.NO_VALUE : fields.fieldAsInt( i );
+        }
+
+        @Override
+        protected void writePayload( NmeaEncoder encoder ) {
+            encoder.Field( new String( new char[] { _first, _second } ) + "GSV" )
+                    .Field( _numSentences )
+                    .Field( _sentenceIndex )
+                    .Field( _numSatellitesInView );
+            for ( int i = 0; i < _count; ++i ) {
+                encoder.Field( _prn[i], 2 );
+                OptionalField( encoder, _elevation[i], 2 );
+                OptionalField( encoder, _azimuth[i], 3 );
+                OptionalField( encoder, _snr[i], 2 );
+            }
+            if ( _signalId >= 0 ) {
+                encoder.Field( Character.toUpperCase( Character.forDigit( _signalId, 16 ) ) );
+            }
+        }
+
+        private static void OptionalField( NmeaEncoder encoder, int value, int minDigits ) {
+            if ( value != SatellitesInView.NO_VALUE ) {
+                encoder.Field( value, minDigits );
+            } else {
+                encoder.Field();
+            }
+        }
+    }
+}
@@ -24,7 +24,8 @@ package com.inverness_park.nmea;import com.inverness_park.nmea.INmeaMessage;
 /**
  * ﻿NMEA handler contract, to be implemented by the application layer.
  *
- *﻿ Note: This is where you can add support for more NMEA data types.
+ * Note: To support more NMEA data types, register them with NmeaReceiver.register() rather
+ * than adding methods to this contract.
  */
 
 public interface INmeaHandler {
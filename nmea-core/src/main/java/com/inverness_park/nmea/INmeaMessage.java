@@ -21,8 +21,6 @@
 
 package com.inverness_park.nmea;
 
-import android.content.Context;
-
 /**
  * ﻿NMEA message contract
  */
@@ -32,7 +30,7 @@ public interface INmeaMessage {
      * ﻿As per NMEA 0183's documentation
      * @return Human readable description
      */
-    String get_description( Context context ) ;
+    String get_description() ;
 
     /**
      * ﻿NMEA sentence without the leading "$" and the trailing "*" & checksum
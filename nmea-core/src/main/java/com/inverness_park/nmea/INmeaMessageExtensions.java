@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Optional capabilities of an INmeaMessage, implemented by BaseNmeaMessage.  NmeaReceiver uses
+ * them when its messages implement this interface, and falls back on the plain INmeaMessage
+ * methods otherwise: fields are split into strings before being parsed, and recycled messages
+ * are created anew for each sentence rather than reset.
+ */
+
+public interface INmeaMessageExtensions extends INmeaMessage {
+
+    /**
+     * Writes the full NMEA sentence, "$" to CR LF, as ASCII bytes
+     * @param bytes Destination
+     * @param index Where the sentence starts
+     * @return Number of bytes written
+     */
+    int writeTo(byte[] bytes, int index);
+
+    /**
+     * Writes the full NMEA sentence, "$" to CR LF, as ASCII bytes, at the buffer's position
+     * @param buffer Destination
+     */
+    void writeTo(ByteBuffer buffer);
+
+    /**
+     * Loads NMEA fields straight from the bytes of a tokenized sentence
+     * @param fields
+     * @return this
+     */
+    INmeaMessage parseFields(NmeaFields fields);
+
+    /**
+     * Clears all fields back to their defaults, without reallocating, so that the message can be
+     * parsed into again
+     */
+    void Reset();
+}
@@ -19,8 +19,11 @@
  *
  */
 
-package com.inverness_park.nmea;/**
- * ﻿NMEA stream interface contract
+package com.inverness_park.nmea;
+
+/**
+ * ﻿NMEA stream interface contract.  Streams may also implement INmeaStreamExtensions, which
+ * NmeaReceiver uses when available.
  */
 
 public interface INmeaStream {
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Optional capabilities of an INmeaStream.  NmeaReceiver uses them when its stream implements
+ * this interface, and falls back on the plain INmeaStream methods otherwise: ranges and buffers
+ * are copied before being appended, overflows aren't counted, and sentences are timed as they
+ * are reported rather than as they arrive.
+ */
+
+public interface INmeaStreamExtensions extends INmeaStream {
+
+    /**
+     * Appends a range of bytes to the stream
+     * @param bytes
+     * @param index
+     * @param count
+     */
+    void Append(byte [] bytes, int index, int count);
+
+    /**
+     * Appends the remaining bytes of a buffer (heap or direct) to the stream.  The buffer's
+     * position is advanced to its limit.
+     * @param buffer
+     */
+    void Append(ByteBuffer buffer);
+
+    /**
+     * When set, the stream records when each sentence arrives, i.e. the System.nanoTime() of the
+     * Append() call that delivered its SOM, at the cost of one System.nanoTime() per call
+     * @param recordArrivalTimes
+     */
+    void set_recordArrivalTimes( boolean recordArrivalTimes );
+
+    boolean get_recordArrivalTimes();
+
+    /**
+     * Arrival time of the sentence being reported to the OnNMEAMessageReceivedHandler, if arrival
+     * times are recorded.  Only valid from within the handler.
+     * @return
+     */
+    long get_arrivalNanos();
+
+    /**
+     * Sets the counter incremented each time an incomplete sentence is dropped because it doesn't
+     * fit in the stream, e.g. a NmeaMetrics counter shared by several streams
+     * @param counter
+     */
+    void set_overflowCounter( StripedCounter counter );
+}
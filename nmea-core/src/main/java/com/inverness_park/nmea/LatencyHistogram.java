@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies, in nanoseconds, in the manner of HdrHistogram: buckets are linear within
+ * each power of 2, with 32 buckets per power of 2, so that any value is known within about 3%,
+ * from 1 ns up to a minute.  The buckets are fixed and preallocated, so recording a value is a
+ * bit of arithmetic and one atomic increment, with no lock and no allocation.  Snapshots read
+ * the buckets without locking.
+ */
+
+public final class LatencyHistogram {
+
+    /**
+     * log2 of the number of buckets per power of 2
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Longer latencies are recorded as this one (a little over a minute)
+     */
+    public static final long HIGHEST_TRACKABLE_NANOS = ( 1L << 36 ) - 1;
+
+    private static final int BUCKETS = Index( HIGHEST_TRACKABLE_NANOS ) + 1;
+
+    private final AtomicLongArray _counts = new AtomicLongArray( BUCKETS );
+
+    /**
+     * Records a latency
+     * @param nanos Negative values are recorded as 0, and values above HIGHEST_TRACKABLE_NANOS as
+     *              HIGHEST_TRACKABLE_NANOS
+     */
+    public void Record( long nanos ) {
+        _counts.getAndIncrement( Index( Math.min( Math.max( nanos, 0 ), HIGHEST_TRACKABLE_NANOS ) ) );
+    }
+
+    /**
+     * Reads the buckets.  Values recorded while the snapshot is being taken may or may not be in it.
+     * @return
+     */
+    public Snapshot get_snapshot() {
+        long[] counts = new long[BUCKETS];
+        for ( int i = 0; i < BUCKETS; ++i ) {
+            counts[i] = _counts.get( i );
+        }
+        return new Snapshot( counts );
+    }
+
+    /**
+     * Bucket of a value: the value itself below 2 * SUB_BUCKETS, then SUB_BUCKETS buckets per
+     * power of 2
+     */
+    static int Index( long value ) {
+        if ( value < SUB_BUCKETS ) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros( value ) - SUB_BUCKET_BITS;
+        return ( ( shift + 1 ) << SUB_BUCKET_BITS ) + (int) ( value >>> shift ) - SUB_BUCKETS;
+    }
+
+    /**
+     * Lowest value recorded in a bucket
+     */
+    static long LowestValue( int index ) {
+        if ( index < 2 * SUB_BUCKETS ) {
+            return index;
+        }
+        int shift = ( index >>> SUB_BUCKET_BITS ) - 1;
+        return (long) ( SUB_BUCKETS + ( index & ( SUB_BUCKETS - 1 ) ) ) << shift;
+    }
+
+    /**
+     * Highest value recorded in a bucket
+     */
+    static long HighestValue( int index ) {
+        return index + 1 < BUCKETS ? LowestValue( index + 1 ) - 1 : HIGHEST_TRACKABLE_NANOS;
+    }
+
+    /**
+     * Counts of the buckets at a given time, or their increase over a period of time
+     */
+    public static final class Snapshot {
+
+        /**
+         * Snapshot of a histogram that hasn't recorded anything
+         */
+        public static final Snapshot EMPTY = new Snapshot( new long[BUCKETS] );
+
+        private final long[] _counts;
+        private final long _count;
+
+        private Snapshot( long[] counts ) {
+            _counts = counts;
+            long count = 0;
+            for ( long c : counts ) {
+                count += c;
+            }
+            _count = count;
+        }
+
+        /**
+         * Number of latencies recorded
+         * @return
+         */
+        public long get_count() {
+            return _count;
+        }
+
+        /**
+         * Latency below or at which a given percentage of the recorded latencies are, e.g. 99 for the
+         * 99th percentile.  Reported as the highest value of its bucket, so it is never understated.
+         * @param percentile 0 to 100
+         * @return Nanoseconds, or 0 if nothing was recorded
+         */
+        public long get_percentile( double percentile ) {
+            if ( _count == 0 ) {
+                return 0;
+            }
+            long rank = Math.max( 1, (long) Math.ceil( Math.min( percentile, 100 ) / 100 * _count ) );
+            long seen = 0;
+            for ( int i = 0; i < _counts.length; ++i ) {
+                seen += _counts[i];
+                if ( seen >= rank ) {
+                    return HighestValue( i );
+                }
+            }
+            return HIGHEST_TRACKABLE_NANOS;
+        }
+
+        /**
+         * Highest latency recorded, within the precision of its bucket
+         * @return Nanoseconds, or 0 if nothing was recorded
+         */
+        public long get_max() {
+            return get_percentile( 100 );
+        }
+
+        /**
+         * Mean latency, counting each latency as the middle of its bucket
+         * @return Nanoseconds, or 0 if nothing was recorded
+         */
+        public double get_mean() {
+            if ( _count == 0 ) {
+                return 0;
+            }
+            double sum = 0;
+            for ( int i = 0; i < _counts.length; ++i ) {
+                if ( _counts[i] != 0 ) {
+                    sum += _counts[i] * ( LowestValue( i ) + HighestValue( i ) ) / 2.0;
+                }
+            }
+            return sum / _count;
+        }
+
+        /**
+         * Latencies recorded since an earlier snapshot of the same histogram
+         * @param earlier
+         * @return
+         */
+        public Snapshot Since( Snapshot earlier ) {
+            long[] counts = new long[_counts.length];
+            for ( int i = 0; i < counts.length; ++i ) {
+                counts[i] = _counts[i] - earlier._counts[i];
+            }
+            return new Snapshot( counts );
+        }
+    }
+}
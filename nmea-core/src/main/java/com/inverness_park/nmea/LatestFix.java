@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Types.FixQualityEnum;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latest fix, as handed over by a FixEpochCorrelator, for any number of threads to read (UI,
+ * logging, telemetry...) while the receiver thread keeps updating it:
+ *
+ *      LatestFix latestFix = new LatestFix();
+ *      NmeaReceiver receiver = new NmeaReceiver( new FixEpochCorrelator( latestFix ) );
+ *
+ * The fix is kept in primitive fields behind a sequence lock: the writer makes the sequence odd,
+ * updates the fields, and makes it even again; readers copy the fields, and start over in the
+ * unlikely case that the sequence changed meanwhile.  Readers never lock, never block the writer
+ * nor each other, and never see half an update.  There must only be one writer at a time.
+ */
+
+public class LatestFix implements FixEpochCorrelator.Listener {
+
+    private static final FixQualityEnum[] FIX_QUALITIES = FixQualityEnum.values();
+
+    /**
+     * Fields, doubles being stored as their bits.  All accesses are volatile, which is what keeps
+     * the field reads of a reader between its two sequence reads.
+     */
+    private static final int SEQUENCE = 0;
+    private static final int NANO_TIME = 1;
+    private static final int UTC_MILLIS_OF_DAY = 2;
+    private static final int UTC_DATE = 3;
+    private static final int LATITUDE = 4;
+    private static final int LONGITUDE = 5;
+    private static final int ALTITUDE = 6;
+    private static final int SPEED_KNOTS = 7;
+    private static final int COURSE_TRUE = 8;
+    private static final int HEADING_TRUE = 9;
+    private static final int HDOP = 10;
+    private static final int FIX_QUALITY = 11;
+    private static final int SATELLITE_COUNT = 12;
+    private static final int FIELDS = 13;
+
+    private final AtomicLongArray _fields = new AtomicLongArray( FIELDS );
+
+    /**
+     * Copy of the latest fix at the time it was read
+     */
+    public static final class Snapshot {
+        long _version;
+        long _nanoTime;
+        int _utcMillisOfDay;
+        int _utcDate;
+        double _latitude;
+        double _longitude;
+        double _altitude;
+        double _speedKnots;
+        double _courseTrueDegrees;
+        double _headingTrue;
+        double _hdop;
+        FixQualityEnum _fixQuality;
+        int _satelliteCount;
+
+        /**
+         * Number of updates so far; 0 if there is no fix yet
+         * @return
+         */
+        public long get_version() {
+            return _version;
+        }
+
+        /**
+         * System.nanoTime() when the fix's first sentence was received, e.g. to tell its age
+         * @return
+         */
+        public long get_nanoTime() {
+            return _nanoTime;
+        }
+
+        /**
+         * @return Milliseconds since midnight UTC, or -1
+         */
+        public int get_utcMillisOfDay() {
+            return _utcMillisOfDay;
+        }
+
+        /**
+         * @return yyyymmdd, or -1
+         */
+        public int get_utcDate() {
+            return _utcDate;
+        }
+
+        public double get_latitude() {
+            return _latitude;
+        }
+
+        public double get_longitude() {
+            return _longitude;
+        }
+
+        public double get_altitude() {
+            return _altitude;
+        }
+
+        public double get_speedKnots() {
+            return _speedKnots;
+        }
+
+        public double get_courseTrueDegrees() {
+            return _courseTrueDegrees;
+        }
+
+        public double get_headingTrue() {
+            return _headingTrue;
+        }
+
+        public double get_hdop() {
+            return _hdop;
+        }
+
+        /**
+         * @return The fix quality, or null if the fix had no GGA
+         */
+        public FixQualityEnum get_fixQuality() {
+            return _fixQuality;
+        }
+
+        /**
+         * @return Number of satellites used, or -1
+         */
+        public int get_satelliteCount() {
+            return _satelliteCount;
+        }
+    }
+
+    /**
+     * Updates the latest fix.  Values the epoch doesn't have become unknown (NaN, -1 or null), as
+     * they are in the epoch.
+     * @param epoch
+     */
+    @Override
+    public void OnFixEpoch( FixEpoch epoch ) {
+        final AtomicLongArray fields = _fields;
+        long sequence = fields.get( SEQUENCE );
+        fields.set( SEQUENCE, sequence + 1 );
+
+        fields.set( NANO_TIME, epoch.get_nanoTime() );
+        fields.set( UTC_MILLIS_OF_DAY, epoch.get_utcMillisOfDay() );
+        fields.set( UTC_DATE, epoch.get_utcDate() );
+        fields.set( LATITUDE, Double.doubleToRawLongBits( epoch.get_latitude() ) );
+        fields.set( LONGITUDE, Double.doubleToRawLongBits( epoch.get_longitude() ) );
+        fields.set( ALTITUDE, Double.doubleToRawLongBits( epoch.get_altitude() ) );
+        fields.set( SPEED_KNOTS, Double.doubleToRawLongBits( epoch.get_speedKnots() ) );
+        fields.set( COURSE_TRUE, Double.doubleToRawLongBits( epoch.get_courseTrueDegrees() ) );
+        fields.set( HEADING_TRUE, Double.doubleToRawLongBits( epoch.get_headingTrue() ) );
+        fields.set( HDOP, Double.doubleToRawLongBits( epoch.get_hdop() ) );
+        fields.set( FIX_QUALITY, epoch.get_fixQuality() != null ? epoch.get_fixQuality().ordinal() : -1 );
+        fields.set( SATELLITE_COUNT, epoch.get_satelliteCount() );
+
+        fields.set( SEQUENCE, sequence + 2 );
+    }
+
+    /**
+     * Copies the latest fix, without allocating, e.g. into a Snapshot kept by each reader thread
+     * @param snapshot
+     * @return false if there is no fix yet
+     */
+    public boolean Read( Snapshot snapshot ) {
+        final AtomicLongArray fields = _fields;
+        while ( true ) {
+            long sequence = fields.get( SEQUENCE );
+            if ( ( sequence & 1 ) != 0 ) {
+                // ... Being updated
+                continue;
+            }
+
+            snapshot._nanoTime = fields.get( NANO_TIME );
+            snapshot._utcMillisOfDay = (int) fields.get( UTC_MILLIS_OF_DAY );
+            snapshot._utcDate = (int) fields.get( UTC_DATE );
+            snapshot._latitude = Double.longBitsToDouble( fields.get( LATITUDE ) );
+            snapshot._longitude = Double.longBitsToDouble( fields.get( LONGITUDE ) );
+            snapshot._altitude = Double.longBitsToDouble( fields.get( ALTITUDE ) );
+            snapshot._speedKnots = Double.longBitsToDouble( fields.get( SPEED_KNOTS ) );
+            snapshot._courseTrueDegrees = Double.longBitsToDouble( fields.get( COURSE_TRUE ) );
+            snapshot._headingTrue = Double.longBitsToDouble( fields.get( HEADING_TRUE ) );
+            snapshot._hdop = Double.longBitsToDouble( fields.get( HDOP ) );
+            int fixQuality = (int) fields.get( FIX_QUALITY );
+            snapshot._fixQuality = fixQuality >= 0 ? FIX_QUALITIES[fixQuality] : null;
+            snapshot._satelliteCount = (int) fields.get( SATELLITE_COUNT );
+
+            if ( fields.get( SEQUENCE ) == sequence ) {
+                snapshot._version = sequence / 2;
+                return sequence != 0;
+            }
+        }
+    }
+
+    /**
+     * Copies the latest fix into a new Snapshot
+     * @return The snapshot, or null if there is no fix yet
+     */
+    public Snapshot get_snapshot() {
+        Snapshot snapshot = new Snapshot();
+        return Read( snapshot ) ? snapshot : null;
+    }
+}
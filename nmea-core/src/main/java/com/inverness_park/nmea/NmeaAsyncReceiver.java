@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decouples the thread that reads bytes (e.g. from USB, Bluetooth or a socket) from the parsing
+ * and handling of sentences.  Receive() only copies the bytes into a ByteRingBuffer, and never
+ * blocks; a dedicated thread drains the ring into a NmeaReceiver, which invokes its handlers from
+ * that thread.  A slow handler can then no longer stall the reads: if the ring fills up, the bytes
+ * received meanwhile are dropped and counted instead.
+ */
+
+public class NmeaAsyncReceiver {
+
+    /**
+     * Longest a parked consumer sleeps before checking the ring again: only a safety net, since
+     * the producer always unparks a consumer that parked on an empty ring
+     */
+    private static final long MAX_PARK_NANOS = 1000000L;
+
+    private final NmeaReceiver _receiver;
+
+    private final ByteRingBuffer _ring;
+
+    private final WaitStrategyEnum _waitStrategy;
+
+    private final Thread _thread;
+
+    private volatile boolean _running = true;
+
+    /**
+     * Set while the consumer is parked, or about to be
+     */
+    private volatile boolean _parked = false;
+
+    private final ByteRingBuffer.Consumer _consumer = new ByteRingBuffer.Consumer() {
+        @Override
+        public void Consume( byte[] bytes, int index, int count ) {
+            _receiver.Receive( bytes, index, count );
+        }
+    };
+
+    /**
+     * Constructor; starts the consumer thread
+     * @param receiver Parses the bytes and invokes the handlers, from the consumer thread
+     * @param capacity Number of bytes the ring can hold, rounded up to a power of 2
+     * @param waitStrategy How the consumer thread waits for bytes
+     */
+    public NmeaAsyncReceiver( NmeaReceiver receiver, int capacity, WaitStrategyEnum waitStrategy ) {
+        _receiver = receiver;
+        // ... When parking, the producer publishes its bytes then reads _parked, while the
+        // consumer sets _parked then reads the ring: both need volatile accesses so that at least
+        // one of them sees the other's write, and no wake-up is lost
+        _ring = new ByteRingBuffer( capacity, waitStrategy == WaitStrategyEnum.Park );
+        _waitStrategy = waitStrategy;
+        _thread = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                Consume();
+            }
+        }, "NmeaAsyncReceiver" );
+        _thread.setDaemon( true );
+        _thread.start();
+    }
+
+    public NmeaReceiver get_receiver() {
+        return _receiver;
+    }
+
+    public WaitStrategyEnum get_waitStrategy() {
+        return _waitStrategy;
+    }
+
+    /**
+     * Number of bytes received, and not yet handed to the receiver
+     * @return
+     */
+    public int get_pending() {
+        return _ring.get_size();
+    }
+
+    /**
+     * Number of Receive() calls whose bytes were dropped because the ring was full
+     * @return
+     */
+    public long get_overflowCount() {
+        return _ring.get_overflowCount();
+    }
+
+    /**
+     * Receives an arbitrary number of bytes, to be parsed and handled on the consumer thread
+     * @param bytes
+     */
+    public void Receive( byte[] bytes ) {
+        Receive( bytes, 0, bytes.length );
+    }
+
+    /**
+     * Receives a range of bytes, to be parsed and handled on the consumer thread.  The bytes are
+     * copied, so the array can be reused as soon as this returns.  Must always be called from the
+     * same thread, or with external synchronization.
+     * @param bytes
+     * @param offset
+     * @param length
+     */
+    public void Receive( byte[] bytes, int offset, int length ) {
+        CheckRunning();
+        _ring.Offer( bytes, offset, length );
+        WakeConsumer();
+    }
+
+    /**
+     * Receives the remaining bytes of a buffer (heap or direct), to be parsed and handled on the
+     * consumer thread.  The buffer's position is advanced to its limit.
+     * @param buffer
+     */
+    public void Receive( ByteBuffer buffer ) {
+        CheckRunning();
+        _ring.Offer( buffer );
+        WakeConsumer();
+    }
+
+    /**
+     * Handles all the bytes received so far, then stops the consumer thread
+     * @throws InterruptedException
+     */
+    public void shutdown() throws InterruptedException {
+        _running = false;
+        LockSupport.unpark( _thread );
+        _thread.join();
+    }
+
+    private void CheckRunning() {
+        if ( !_running ) {
+            throw new IllegalStateException( "NmeaAsyncReceiver is shut down" );
+        }
+    }
+
+    private void WakeConsumer() {
+        if ( _waitStrategy == WaitStrategyEnum.Park && _parked ) {
+            LockSupport.unpark( _thread );
+        }
+    }
+
+    /**
+     * Consumer thread
+     */
+    private void Consume() {
+        while ( true ) {
+            boolean running = _running;
+            if ( Drain() > 0 ) {
+                continue;
+            }
+            if ( !running ) {
+                // ... Nothing was left once shutdown() was seen
+                return;
+            }
+            switch ( _waitStrategy ) {
+                case Spin:
+                    break;
+                case Yield:
+                    Thread.yield();
+                    break;
+                case Park:
+                    _parked = true;
+                    // ... Check again, in case bytes came in before the producer could see the flag
+                    if ( _ring.get_size() == 0 && _running ) {
+                        LockSupport.parkNanos( this, MAX_PARK_NANOS );
+                    }
+                    _parked = false;
+                    break;
+            }
+        }
+    }
+
+    private int Drain() {
+        try {
+            return _ring.Drain( _consumer );
+        } catch ( RuntimeException e ) {
+            // ... A handler or parser threw: report it, and keep receiving.  The ring was drained
+            // nonetheless, so check it again straight away.
+            _thread.getUncaughtExceptionHandler().uncaughtException( _thread, e );
+            return 1;
+        }
+    }
+}
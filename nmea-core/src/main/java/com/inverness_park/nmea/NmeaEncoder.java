@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Writes NMEA sentences as ASCII bytes, field by field, into a growable buffer that is reused
+ * from one sentence to the next.  The checksum is computed as the bytes are written, and numbers
+ * are written with a fixed number of decimals, always with a '.' decimal point, without going
+ * through String.format().
+ *
+ * A sentence is written by Begin(), then one call per field, then End():
+ *
+ *      encoder.Begin().Field( "GPHDT" ).Field( 75.5664, 1 ).Field( 'T' ).End();
+ */
+public class NmeaEncoder {
+
+    /**
+     * Start of message delimiter
+     */
+    private static final byte SOM = '$';
+
+    /**
+     * Checksum delimiter
+     */
+    private static final byte CKSUM = '*';
+
+    /**
+     * Field delimiter
+     */
+    private static final byte DELIM_FIELDS = ',';
+
+    private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes( StandardCharsets.US_ASCII );
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+    };
+
+    /**
+     * Larger scaled values are written by String.format()
+     */
+    private static final double MAX_SCALED = 1e18;
+
+    /**
+     * Scaled values whose fraction is this many ulps or fewer from .5 are rounded in decimal
+     */
+    private static final int HALFWAY_ULPS = 4;
+
+    /**
+     * Decimal-minute digits of DMM fields
+     */
+    private static final int DMM_DECIMALS = 4;
+
+    private byte[] _bytes = new byte[128];
+    private int _length = 0;
+    private int _payloadLength = 0;
+    private int _fieldCount = 0;
+    private byte _checksum = 0;
+
+    /**
+     * Starts a new sentence, discarding the previous one
+     * @return this
+     */
+    public NmeaEncoder Begin() {
+        _length = 0;
+        _payloadLength = 0;
+        _fieldCount = 0;
+        _checksum = 0;
+        _bytes[_length++] = SOM;
+        return this;
+    }
+
+    /**
+     * Ends the sentence with its checksum delimiter, checksum, and CR LF
+     * @return this
+     */
+    public NmeaEncoder End() {
+        _payloadLength = _length - 1;
+        Ensure( 5 );
+        _bytes[_length++] = CKSUM;
+        _bytes[_length++] = HEX_DIGITS[( _checksum >> 4 ) & 0x0F];
+        _bytes[_length++] = HEX_DIGITS[_checksum & 0x0F];
+        _bytes[_length++] = '\r';
+        _bytes[_length++] = '\n';
+        return this;
+    }
+
+    /**
+     * @return The buffer holding the sentence, starting at index 0
+     */
+    public byte[] get_bytes() {
+        return _bytes;
+    }
+
+    /**
+     * @return Length of the whole sentence, once End() has been called
+     */
+    public int get_length() {
+        return _length;
+    }
+
+    /**
+     * @return Length of the payload (which starts at index 1), once End() has been called
+     */
+    public int get_payloadLength() {
+        return _payloadLength;
+    }
+
+    /**
+     * @return Checksum of the payload written so far
+     */
+    public byte get_checksum() {
+        return _checksum;
+    }
+
+    /**
+     * Empty field
+     * @return this
+     */
+    public NmeaEncoder Field() {
+        Delimit();
+        return this;
+    }
+
+    /**
+     * ASCII text field; null is written as an empty field
+     * @param s
+     * @return this
+     */
+    public NmeaEncoder Field( String s ) {
+        Delimit();
+        return Append( s );
+    }
+
+    /**
+     * Single-character field
+     * @param c
+     * @return this
+     */
+    public NmeaEncoder Field( char c ) {
+        Delimit();
+        Ensure( 1 );
+        Put( (byte)c );
+        return this;
+    }
+
+    /**
+     * Integer field
+     * @param value
+     * @return this
+     */
+    public NmeaEncoder Field( int value ) {
+        return Field( value, 1 );
+    }
+
+    /**
+     * Integer field, zero-padded to a minimum number of digits, as "%0Nd" would
+     * @param value
+     * @param minDigits
+     * @return this
+     */
+    public NmeaEncoder Field( int value, int minDigits ) {
+        Delimit();
+        Ensure( 12 + minDigits );
+        if ( value < 0 ) {
+            Put( (byte)'-' );
+        }
+        PutDigits( Math.abs( (long)value ), minDigits );
+        return this;
+    }
+
+    /**
+     * Decimal field with a fixed number of decimals, as "%.Nf" would write it: the shortest
+     * decimal form of the value (as per Double.toString()) is rounded half up, so that 1.005 with
+     * 2 decimals reads "1.01", although the nearest double is slightly below 1.005.  Values close
+     * enough to a halfway point for the two to differ are rounded with BigDecimal; the others
+     * without allocating.
+     * @param value
+     * @param decimals 0 to 9
+     * @return this
+     */
+    public NmeaEncoder Field( double value, int decimals ) {
+        Delimit();
+        double abs = Math.abs( value );
+        long scale = POW10[decimals];
+        if ( !( abs * scale < MAX_SCALED ) ) {
+            // ... NaN, infinities, and numbers no NMEA field holds
+            return Append( String.format( Locale.US, "%." + decimals + "f", value ) );
+        }
+
+        double product = abs * scale;
+        long scaled;
+        if ( Math.abs( product - Math.floor( product ) - 0.5 ) <= HALFWAY_ULPS * Math.ulp( product ) ) {
+            scaled = BigDecimal.valueOf( abs ).setScale( decimals, RoundingMode.HALF_UP ).unscaledValue().longValue();
+        } else {
+            scaled = Math.round( product );
+        }
+        Ensure( 21 + decimals );
+        if ( Double.doubleToRawLongBits( value ) < 0 ) {
+            Put( (byte)'-' );
+        }
+        PutDigits( scaled / scale, 1 );
+        if ( decimals > 0 ) {
+            Put( (byte)'.' );
+            PutDigits( scaled % scale, decimals );
+        }
+        return this;
+    }
+
+    /**
+     * UTC time field, hhmmss.sss
+     * @param millisOfDay
+     * @return this
+     */
+    public NmeaEncoder FieldTime( int millisOfDay ) {
+        Delimit();
+        Ensure( 10 );
+        int seconds = millisOfDay / 1000;
+        PutDigits( seconds / 3600, 2 );
+        PutDigits( seconds / 60 % 60, 2 );
+        PutDigits( seconds % 60, 2 );
+        Put( (byte)'.' );
+        PutDigits( millisOfDay % 1000, 3 );
+        return this;
+    }
+
+    /**
+     * Date field, ddmmyy
+     * @param packedDate yyyymmdd
+     * @return this
+     */
+    public NmeaEncoder FieldDate( int packedDate ) {
+        Delimit();
+        Ensure( 6 );
+        PutDigits( packedDate % 100, 2 );
+        PutDigits( packedDate / 100 % 100, 2 );
+        PutDigits( packedDate / 10000 % 100, 2 );
+        return this;
+    }
+
+    /**
+     * Compact DMM latitude or longitude, ddmm.mmmm or dddmm.mmmm, followed by its hemisphere
+     * field.  Minutes are rounded as a whole, so that they never read 60.
+     * @param degrees Signed decimal degrees
+     * @param degreeDigits 2 for latitudes, 3 for longitudes
+     * @param positive Hemisphere of positive angles, 'N' or 'E'
+     * @param negative Hemisphere of negative angles, 'S' or 'W'
+     * @return this
+     */
+    public NmeaEncoder FieldDMM( double degrees, int degreeDigits, char positive, char negative ) {
+        Delimit();
+        Ensure( 23 + degreeDigits + DMM_DECIMALS );
+        long scale = POW10[DMM_DECIMALS];
+        long minutes = Math.round( Math.abs( degrees ) * 60 * scale );
+        PutDigits( minutes / ( 60 * scale ), degreeDigits );
+        minutes %= 60 * scale;
+        PutDigits( minutes / scale, 2 );
+        Put( (byte)'.' );
+        PutDigits( minutes % scale, DMM_DECIMALS );
+        return Field( degrees < 0 ? negative : positive );
+    }
+
+    /**
+     * Appends ASCII text to the current field, or writes raw payload text, delimiters included
+     * @param s null appends nothing
+     * @return this
+     */
+    public NmeaEncoder Append( String s ) {
+        if ( s != null ) {
+            int length = s.length();
+            Ensure( length );
+            for ( int i = 0; i < length; ++i ) {
+                Put( (byte)s.charAt( i ) );
+            }
+        }
+        return this;
+    }
+
+    private void Delimit() {
+        if ( _fieldCount++ > 0 ) {
+            Ensure( 1 );
+            Put( DELIM_FIELDS );
+        }
+    }
+
+    /**
+     * Writes a payload byte; room must have been made by Ensure()
+     */
+    private void Put( byte b ) {
+        _bytes[_length++] = b;
+        _checksum ^= b;
+    }
+
+    /**
+     * Writes the decimal digits of a non-negative number, zero-padded; room must have been
+     * made by Ensure() for all of them
+     */
+    private void PutDigits( long value, int minDigits ) {
+        int digits = 1;
+        for ( long v = value / 10; v != 0; v /= 10 ) {
+            ++digits;
+        }
+        digits = Math.max( digits, minDigits );
+        for ( int i = _length + digits - 1; i >= _length; --i ) {
+            byte digit = (byte)( '0' + value % 10 );
+            _bytes[i] = digit;
+            _checksum ^= digit;
+            value /= 10;
+        }
+        _length += digits;
+    }
+
+    private void Ensure( int count ) {
+        if ( _length + count > _bytes.length ) {
+            byte[] bytes = new byte[Math.max( _bytes.length * 2, _length + count )];
+            System.arraycopy( _bytes, 0, bytes, 0, _length );
+            _bytes = bytes;
+        }
+    }
+}
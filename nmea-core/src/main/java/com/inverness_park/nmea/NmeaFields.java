@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Types.DMMComponents;
+import com.inverness_park.nmea.Types.DMMFormatException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Field tokenizer for NMEA sentences.  Instead of splitting a sentence into strings, it records
+ * where each field starts and ends within the original byte array, and the fields are then read
+ * in place.  An instance is meant to be reused from one sentence to the next.
+ *
+ * Fields are numbered the same way String.split(",", -1) would number them: field 0 is the
+ * address field (e.g. "GPGGA"), and empty fields are kept.
+ */
+public class NmeaFields {
+
+    /**
+     * Field delimiter
+     */
+    private static final byte DELIM_FIELDS = ',';
+
+    /**
+     * Initial number of fields we can record; grows as needed
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * Bytes of the sentence being tokenized
+     */
+    private byte[] _bytes;
+
+    /**
+     * Offset of the first byte of each field
+     */
+    private int[] _starts = new int[INITIAL_CAPACITY];
+
+    /**
+     * Offset of the byte following each field
+     */
+    private int[] _ends = new int[INITIAL_CAPACITY];
+
+    /**
+     * Number of fields
+     */
+    private int _count;
+
+    /**
+     * Records the fields of a NMEA payload, i.e. without the leading "$" and the trailing "*" & checksum
+     * @param bytes
+     * @param index
+     * @param count
+     * @return this
+     */
+    public NmeaFields Tokenize( byte[] bytes, int index, int count ) {
+        final int end = index + count;
+        _bytes = bytes;
+        _count = 0;
+
+        int start = index;
+        for ( int i = index; i < end; ++i ) {
+            if ( bytes[i] == DELIM_FIELDS ) {
+                AddField( start, i );
+                start = i + 1;
+            }
+        }
+        AddField( start, end );
+        return this;
+    }
+
+    /**
+     * Builds fields out of string tokens, for code that still works with String.split()
+     * @param tokens
+     * @return
+     */
+    public static NmeaFields FromTokens( String[] tokens ) {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < tokens.length; ++i ) {
+            if ( i > 0 ) {
+                sb.append( (char)DELIM_FIELDS );
+            }
+            sb.append( tokens[i] );
+        }
+        byte[] bytes = sb.toString().getBytes( StandardCharsets.US_ASCII );
+        return new NmeaFields().Tokenize( bytes, 0, bytes.length );
+    }
+
+    /**
+     * Copies the fields into string tokens, as String.split(",", -1) would, for code that still
+     * works with strings
+     * @return
+     */
+    public String[] ToTokens() {
+        String[] tokens = new String[_count];
+        for ( int i = 0; i < _count; ++i ) {
+            tokens[i] = fieldAsString( i );
+        }
+        return tokens;
+    }
+
+    private void AddField( int start, int end ) {
+        if ( _count == _starts.length ) {
+            int[] starts = new int[_count * 2];
+            int[] ends = new int[_count * 2];
+            System.arraycopy( _starts, 0, starts, 0, _count );
+            System.arraycopy( _ends, 0, ends, 0, _count );
+            _starts = starts;
+            _ends = ends;
+        }
+        _starts[_count] = start;
+        _ends[_count] = end;
+        ++_count;
+    }
+
+    /**
+     * Number of fields
+     * @return
+     */
+    public int get_count() {
+        return _count;
+    }
+
+    /**
+     * Bytes the fields refer to
+     * @return
+     */
+    public byte[] get_bytes() {
+        return _bytes;
+    }
+
+    /**
+     * Offset of a field in get_bytes()
+     * @param i field index
+     * @return
+     */
+    public int get_start( int i ) {
+        CheckIndex( i );
+        return _starts[i];
+    }
+
+    /**
+     * Number of bytes in a field
+     * @param i field index
+     * @return
+     */
+    public int get_length( int i ) {
+        CheckIndex( i );
+        return _ends[i] - _starts[i];
+    }
+
+    /**
+     * @param i field index
+     * @return true if the field has no bytes
+     */
+    public boolean fieldIsEmpty( int i ) {
+        return get_length( i ) == 0;
+    }
+
+    /**
+     * @param i field index
+     * @return true if the field has no bytes other than spaces
+     */
+    public boolean fieldIsBlank( int i ) {
+        CheckIndex( i );
+        for ( int j = _starts[i]; j < _ends[i]; ++j ) {
+            if ( _bytes[j] != ' ' ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares a field to an ASCII string, without converting the field to a string
+     * @param i field index
+     * @param s
+     * @return true if the field is exactly 's'
+     */
+    public boolean fieldEquals( int i, String s ) {
+        int length = get_length( i );
+        if ( length != s.length() ) {
+            return false;
+        }
+        int start = _starts[i];
+        for ( int j = 0; j < length; ++j ) {
+            if ( _bytes[start + j] != s.charAt( j ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Single-character fields, such as status or hemisphere indicators
+     * @param i field index
+     * @return The character, if the field is made of exactly one character (surrounding spaces
+     * aside), '\0' otherwise
+     */
+    public char fieldAsChar( int i ) {
+        CheckIndex( i );
+        int start = _starts[i];
+        int end = _ends[i];
+        while ( start < end && _bytes[start] == ' ' ) {
+            ++start;
+        }
+        while ( end > start && _bytes[end - 1] == ' ' ) {
+            --end;
+        }
+        return end - start == 1 ? (char)_bytes[start] : '\0';
+    }
+
+    /**
+     * Parses a field as a decimal integer, as Integer.parseInt() would
+     * @param i field index
+     * @return
+     * @throws NumberFormatException
+     */
+    public int fieldAsInt( int i ) {
+        CheckIndex( i );
+        int j = _starts[i];
+        final int end = _ends[i];
+
+        boolean negative = false;
+        if ( j < end && ( _bytes[j] == '-' || _bytes[j] == '+' ) ) {
+            negative = _bytes[j] == '-';
+            ++j;
+        }
+        if ( j == end ) {
+            throw NotANumber( i );
+        }
+
+        long value = 0;
+        for ( ; j < end; ++j ) {
+            int digit = _bytes[j] - '0';
+            if ( digit < 0 || digit > 9 ) {
+                throw NotANumber( i );
+            }
+            value = value * 10 + digit;
+            if ( value > (long)Integer.MAX_VALUE + 1 ) {
+                throw NotANumber( i );
+            }
+        }
+        value = negative ? -value : value;
+        if ( value > Integer.MAX_VALUE ) {
+            throw NotANumber( i );
+        }
+        return (int)value;
+    }
+
+    /**
+     * Parses a field as a float, as Float.parseFloat() would
+     * @param i field index
+     * @return
+     * @throws NumberFormatException
+     */
+    public float fieldAsFloat( int i ) {
+        CheckIndex( i );
+        return DecimalParser.ParseFloat( _bytes, _starts[i], _ends[i] );
+    }
+
+    /**
+     * Parses a field as a double, as Double.parseDouble() would
+     * @param i field index
+     * @return
+     * @throws NumberFormatException
+     */
+    public double fieldAsDouble( int i ) {
+        CheckIndex( i );
+        return DecimalParser.ParseDouble( _bytes, _starts[i], _ends[i] );
+    }
+
+    /**
+     * Decodes a UTC time field, hhmmss or hhmmss.sss, straight from its digits.  Fractions
+     * beyond the millisecond are truncated.
+     * @param i field index
+     * @return Milliseconds since midnight
+     * @throws NumberFormatException
+     */
+    public int fieldAsMillisOfDay( int i ) {
+        CheckIndex( i );
+        final int start = _starts[i];
+        final int end = _ends[i];
+        if ( end - start < 6 ) {
+            throw NotANumber( i );
+        }
+
+        int hours = Digits2( i, start );
+        int minutes = Digits2( i, start + 2 );
+        int seconds = Digits2( i, start + 4 );
+        if ( hours > 23 || minutes > 59 || seconds > 59 ) {
+            throw NotANumber( i );
+        }
+
+        int millis = 0;
+        int j = start + 6;
+        if ( j < end ) {
+            if ( _bytes[j++] != '.' ) {
+                throw NotANumber( i );
+            }
+            for ( int scale = 100; j < end; ++j, scale /= 10 ) {
+                int digit = _bytes[j] - '0';
+                if ( digit < 0 || digit > 9 ) {
+                    throw NotANumber( i );
+                }
+                millis += digit * scale;
+            }
+        }
+        return ( ( hours * 60 + minutes ) * 60 + seconds ) * 1000 + millis;
+    }
+
+    /**
+     * Decodes a date field, ddmmyy, straight from its digits.  Two-digit years are taken in
+     * 1950-2049, as Joda-Time's "yy" pattern does.
+     * @param i field index
+     * @return The date packed as yyyymmdd, e.g. 20110528
+     * @throws NumberFormatException
+     */
+    public int fieldAsPackedDate( int i ) {
+        CheckIndex( i );
+        final int start = _starts[i];
+        if ( _ends[i] - start != 6 ) {
+            throw NotANumber( i );
+        }
+
+        int day = Digits2( i, start );
+        int month = Digits2( i, start + 2 );
+        int year = Digits2( i, start + 4 );
+        if ( day < 1 || day > 31 || month < 1 || month > 12 ) {
+            throw NotANumber( i );
+        }
+        year += year < 50 ? 2000 : 1900;
+        return ( year * 100 + month ) * 100 + day;
+    }
+
+    /**
+     * Decodes a compact DMM latitude or longitude (ddmm.mmmm or dddmm.mmmm) along with the
+     * hemisphere indicator that follows it
+     * @param i index of the value field; its hemisphere is field i + 1
+     * @return Signed decimal degrees
+     * @throws DMMFormatException
+     */
+    public double fieldAsDMM( int i ) {
+        CheckIndex( i );
+        return DMMComponents.ToDegrees( _bytes, _starts[i], _ends[i], fieldAsChar( i + 1 ) );
+    }
+
+    /**
+     * Decodes a compact DMM latitude or longitude, as per fieldAsDMM( i ), within a bound
+     * @param i index of the value field; its hemisphere is field i + 1
+     * @param maxDegrees Largest absolute value accepted: 90 for latitudes, 180 for longitudes
+     * @return Signed decimal degrees
+     * @throws DMMFormatException
+     */
+    public double fieldAsDMM( int i, int maxDegrees ) {
+        CheckIndex( i );
+        return DMMComponents.ToDegrees( _bytes, _starts[i], _ends[i], fieldAsChar( i + 1 ), maxDegrees );
+    }
+
+    /**
+     * Copies a field into a string.  Prefer the other accessors on the hot path.
+     * @param i field index
+     * @return
+     */
+    public String fieldAsString( int i ) {
+        return new String( _bytes, get_start( i ), get_length( i ), StandardCharsets.US_ASCII );
+    }
+
+    /**
+     * Copies a field into a string, unless it holds the same characters as 'previous'.  Lets
+     * recycled messages keep their strings when consecutive sentences repeat them.
+     * @param i field index
+     * @param previous value to keep if unchanged, may be null
+     * @return 'previous' or a new string
+     */
+    public String fieldAsString( int i, String previous ) {
+        if ( previous != null && fieldEquals( i, previous ) ) {
+            return previous;
+        }
+        return fieldAsString( i );
+    }
+
+    private NumberFormatException NotANumber( int i ) {
+        return new NumberFormatException( "For input string: \"" + fieldAsString( i ) + "\"" );
+    }
+
+    private int Digits2( int i, int j ) {
+        int tens = _bytes[j] - '0';
+        int units = _bytes[j + 1] - '0';
+        if ( tens < 0 || tens > 9 || units < 0 || units > 9 ) {
+            throw NotANumber( i );
+        }
+        return tens * 10 + units;
+    }
+
+    private void CheckIndex( int i ) {
+        if ( i < 0 || i >= _count ) {
+            throw new ArrayIndexOutOfBoundsException( i );
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a raw NMEA capture file through a NmeaReceiver.  The file is memory-mapped, a window at a
+ * time, and the sentences are framed straight from the mapped pages, through the same
+ * Receive(ByteBuffer) path as live data.
+ *
+ * By default, the file is replayed as fast as the receiver can go.  With set_rate(), sentences are
+ * handed over at their original pace (or a multiple of it), as given by the times of the RMC and
+ * GGA sentences.
+ *
+ * Sentences that fail to parse are counted in the parse errors of the receiver's metrics, and
+ * skipped, so that one bad sentence doesn't end the replay.
+ */
+
+public class NmeaFileReplay {
+
+    /**
+     * Bytes mapped at a time; windows end on a sentence boundary
+     */
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private final NmeaReceiver _receiver;
+
+    private final int _windowSize;
+
+    private double _rate = 0;
+
+    /**
+     * Time of the first timed sentence, in milliseconds since the capture's first midnight
+     */
+    private long _firstMillis;
+
+    private long _previousMillis;
+
+    private long _startNanos;
+
+    /**
+     * Constructor
+     * @param receiver Parses the sentences and invokes the handlers, on the thread calling Replay()
+     */
+    public NmeaFileReplay( NmeaReceiver receiver ) {
+        this( receiver, DEFAULT_WINDOW_SIZE );
+    }
+
+    NmeaFileReplay( NmeaReceiver receiver, int windowSize ) {
+        _receiver = receiver;
+        _windowSize = windowSize;
+    }
+
+    /**
+     * Replay speed, as a multiple of the original rate: 1 replays at the original rate, 10 ten
+     * times faster.  0 (the default) replays as fast as possible, without looking at sentence times.
+     * @param rate
+     */
+    public void set_rate( double rate ) {
+        if ( rate < 0 ) {
+            throw new IllegalArgumentException( "rate must be positive, or 0 for full speed" );
+        }
+        _rate = rate;
+    }
+
+    public double get_rate() {
+        return _rate;
+    }
+
+    /**
+     * Replays a whole file
+     * @param file
+     * @return Number of bytes replayed
+     * @throws IOException
+     * @throws InterruptedException If interrupted while waiting for a sentence's time
+     */
+    public long Replay( File file ) throws IOException, InterruptedException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile( file, "r" );
+        try {
+            return Replay( randomAccessFile.getChannel() );
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Replays a channel, from its current position to its end
+     * @param channel
+     * @return Number of bytes replayed
+     * @throws IOException
+     * @throws InterruptedException If interrupted while waiting for a sentence's time
+     */
+    public long Replay( FileChannel channel ) throws IOException, InterruptedException {
+        final long start = channel.position();
+        final long size = channel.size();
+        _startNanos = -1;
+
+        // ... Skip the sentences that fail to parse, for this replay only
+        final boolean skipParseErrors = _receiver.get_skipParseErrors();
+        _receiver.set_skipParseErrors( true );
+        try {
+            ReplayWindows( channel, start, size );
+        } finally {
+            _receiver.set_skipParseErrors( skipParseErrors );
+        }
+        channel.position( size );
+        return size - start;
+    }
+
+    /**
+     * Maps the channel a window at a time, and hands each window over to the receiver
+     * @param channel
+     * @param start
+     * @param size
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private void ReplayWindows( FileChannel channel, long start, long size ) throws IOException, InterruptedException {
+        long position = start;
+        while ( position < size ) {
+            int length = (int) Math.min( _windowSize, size - position );
+            MappedByteBuffer window = channel.map( FileChannel.MapMode.READ_ONLY, position, length );
+
+            // ... End the window after its last LF, so that sentences aren't split across windows
+            int end = length;
+            if ( position + length < size ) {
+                int lastEom = LastIndexOfEom( window, length );
+                if ( lastEom >= 0 ) {
+                    end = lastEom + 1;
+                }
+            }
+            window.limit( end );
+
+            if ( _rate > 0 ) {
+                ReplayAtRate( window );
+            } else {
+                _receiver.Receive( window );
+            }
+            position += end;
+        }
+    }
+
+    /**
+     * Hands the sentences over one at a time, each once its time has come
+     * @param window
+     * @throws InterruptedException
+     */
+    private void ReplayAtRate( MappedByteBuffer window ) throws InterruptedException {
+        final int end = window.limit();
+        int i = window.position();
+        while ( i < end ) {
+            int eom = i;
+            while ( eom < end && window.get( eom ) != '\n' ) {
+                ++eom;
+            }
+            int next = eom < end ? eom + 1 : end;
+
+            int millisOfDay = MillisOfDay( window, i, next );
+            if ( millisOfDay >= 0 ) {
+                WaitFor( millisOfDay );
+            }
+
+            window.limit( next );
+            window.position( i );
+            _receiver.Receive( window );
+            window.limit( end );
+            i = next;
+        }
+    }
+
+    /**
+     * Sleeps until a sentence's time, relative to the first timed sentence of the replay
+     * @param millisOfDay
+     * @throws InterruptedException
+     */
+    private void WaitFor( int millisOfDay ) throws InterruptedException {
+        if ( _startNanos < 0 ) {
+            _startNanos = System.nanoTime();
+            _firstMillis = millisOfDay;
+            _previousMillis = millisOfDay;
+            return;
+        }
+
+        // ... Times only carry the time of day: unwrap midnight, and start over from any other
+        // step back in time (e.g. a capture made of several sessions)
+        long millis = _previousMillis - _previousMillis % MILLIS_PER_DAY + millisOfDay;
+        if ( millis < _previousMillis ) {
+            if ( _previousMillis - millis > MILLIS_PER_DAY / 2 ) {
+                millis += MILLIS_PER_DAY;
+            } else {
+                _startNanos = System.nanoTime();
+                _firstMillis = millis;
+            }
+        }
+        _previousMillis = millis;
+
+        long dueNanos = _startNanos + (long) ( TimeUnit.MILLISECONDS.toNanos( millis - _firstMillis ) / _rate );
+        long waitNanos = dueNanos - System.nanoTime();
+        if ( waitNanos > 0 ) {
+            TimeUnit.NANOSECONDS.sleep( waitNanos );
+        }
+    }
+
+    /**
+     * Time of a RMC or GGA sentence, read straight from the mapped bytes
+     * @param buffer
+     * @param index Start of the line
+     * @param end End of the line
+     * @return Milliseconds since midnight, or -1 for sentences of other types, or without a valid time
+     */
+    static int MillisOfDay( ByteBuffer buffer, int index, int end ) {
+        // ... "$GPRMC,hhmmss[.sss],", with the formatter at the end of the address field
+        if ( end - index < 5 || buffer.get( index ) != '$' ) {
+            return -1;
+        }
+        int comma = index + 4;
+        while ( comma < end && buffer.get( comma ) != ',' ) {
+            ++comma;
+        }
+        if ( end - comma < 8 ) {
+            return -1;
+        }
+        byte c0 = buffer.get( comma - 3 ), c1 = buffer.get( comma - 2 ), c2 = buffer.get( comma - 1 );
+        boolean isRmc = c0 == 'R' && c1 == 'M' && c2 == 'C';
+        boolean isGga = c0 == 'G' && c1 == 'G' && c2 == 'A';
+        if ( !isRmc && !isGga ) {
+            return -1;
+        }
+
+        int j = comma + 1;
+        int seconds = 0;
+        for ( int k = 0; k < 6; ++k, ++j ) {
+            int digit = buffer.get( j ) - '0';
+            if ( digit < 0 || digit > 9 ) {
+                return -1;
+            }
+            // ... hh, mm and ss, each as a base 60 digit
+            seconds = k % 2 == 0 ? seconds * 60 + digit * 10 : seconds + digit;
+        }
+
+        int millis = 0;
+        if ( buffer.get( j ) == '.' ) {
+            ++j;
+            for ( int scale = 100; scale > 0 && j < end; ++j, scale /= 10 ) {
+                int digit = buffer.get( j ) - '0';
+                if ( digit < 0 || digit > 9 ) {
+                    break;
+                }
+                millis += digit * scale;
+            }
+        }
+        return seconds * 1000 + millis;
+    }
+
+    private static int LastIndexOfEom( ByteBuffer buffer, int end ) {
+        for ( int i = end - 1; i >= 0; --i ) {
+            if ( buffer.get( i ) == '\n' ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Operational counters of one or more receivers: sentences handled and parse errors per sentence
+ * type, checksum failures, ignored sentences, drops by reason, and stream buffer overflows.  If
+ * the receivers record latencies, also latency histograms per sentence type.
+ *
+ * Counters are StripedCounters, so that they can be updated on every sentence in production, and
+ * shared by receivers running on different threads (e.g. the workers of a NmeaReceiverHub).
+ * get_snapshot() reads them all, e.g. for export to a monitoring system.
+ */
+
+public class NmeaMetrics {
+
+    private final ConcurrentHashMap<String, StripedCounter> _handled = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, StripedCounter> _parseErrors = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> _parseLatencies = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> _dispatchLatencies = new ConcurrentHashMap<>();
+    private final int _stripes;
+    private final StripedCounter _checksumFailures;
+    private final StripedCounter _ignored;
+    private final StripedCounter _streamOverflows;
+    private final StripedCounter[] _dropped = new StripedCounter[DropReasonEnum.values().length];
+
+    /**
+     * Constructor, for metrics shared by receivers running on different threads
+     */
+    public NmeaMetrics() {
+        this( StripedCounter.DEFAULT_STRIPES );
+    }
+
+    /**
+     * Constructor
+     * @param stripes Number of stripes of each counter; 1 for the metrics of a single receiver
+     */
+    public NmeaMetrics( int stripes ) {
+        _stripes = stripes;
+        _checksumFailures = new StripedCounter( stripes );
+        _ignored = new StripedCounter( stripes );
+        _streamOverflows = new StripedCounter( stripes );
+        for ( int i = 0; i < _dropped.length; ++i ) {
+            _dropped[i] = new StripedCounter( stripes );
+        }
+    }
+
+    /**
+     * Sentences of a type parsed and handed to their handler
+     * @param formatter As registered, e.g. "GGA"
+     * @return
+     */
+    StripedCounter get_handledCounter( String formatter ) {
+        return Counter( _handled, formatter );
+    }
+
+    /**
+     * Sentences of a type whose parseFields() threw
+     * @param formatter As registered, e.g. "GGA"
+     * @return
+     */
+    StripedCounter get_parseErrorCounter( String formatter ) {
+        return Counter( _parseErrors, formatter );
+    }
+
+    /**
+     * Time spent in parseFields() by sentences of a type
+     * @param formatter As registered, e.g. "GGA"
+     * @return
+     */
+    LatencyHistogram get_parseLatencyHistogram( String formatter ) {
+        return Histogram( _parseLatencies, formatter );
+    }
+
+    /**
+     * Time from the arrival of sentences of a type to their handler being invoked
+     * @param formatter As registered, e.g. "GGA"
+     * @return
+     */
+    LatencyHistogram get_dispatchLatencyHistogram( String formatter ) {
+        return Histogram( _dispatchLatencies, formatter );
+    }
+
+    StripedCounter get_checksumFailureCounter() {
+        return _checksumFailures;
+    }
+
+    StripedCounter get_ignoredCounter() {
+        return _ignored;
+    }
+
+    StripedCounter get_droppedCounter( DropReasonEnum reason ) {
+        return _dropped[reason.ordinal()];
+    }
+
+    /**
+     * Incomplete sentences the streams had to drop because they didn't fit in their buffer
+     * @return
+     */
+    StripedCounter get_streamOverflowCounter() {
+        return _streamOverflows;
+    }
+
+    /**
+     * Reads all the counters
+     * @return
+     */
+    public Snapshot get_snapshot() {
+        long[] dropped = new long[_dropped.length];
+        for ( int i = 0; i < dropped.length; ++i ) {
+            dropped[i] = _dropped[i].Sum();
+        }
+        return new Snapshot( System.nanoTime(), 0, Sums( _handled ), Sums( _parseErrors ),
+                _checksumFailures.Sum(), _ignored.Sum(), dropped, _streamOverflows.Sum(),
+                Snapshots( _parseLatencies ), Snapshots( _dispatchLatencies ) );
+    }
+
+    private StripedCounter Counter( ConcurrentHashMap<String, StripedCounter> counters, String formatter ) {
+        StripedCounter counter = counters.get( formatter );
+        if ( counter == null ) {
+            StripedCounter created = new StripedCounter( _stripes );
+            counter = counters.putIfAbsent( formatter, created );
+            if ( counter == null ) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    private static LatencyHistogram Histogram( ConcurrentHashMap<String, LatencyHistogram> histograms, String formatter ) {
+        LatencyHistogram histogram = histograms.get( formatter );
+        if ( histogram == null ) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = histograms.putIfAbsent( formatter, created );
+            if ( histogram == null ) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    private static Map<String, LatencyHistogram.Snapshot> Snapshots( Map<String, LatencyHistogram> histograms ) {
+        TreeMap<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        for ( Map.Entry<String, LatencyHistogram> entry : histograms.entrySet() ) {
+            snapshots.put( entry.getKey(), entry.getValue().get_snapshot() );
+        }
+        return Collections.unmodifiableMap( snapshots );
+    }
+
+    private static Map<String, Long> Sums( Map<String, StripedCounter> counters ) {
+        TreeMap<String, Long> sums = new TreeMap<>();
+        for ( Map.Entry<String, StripedCounter> entry : counters.entrySet() ) {
+            sums.put( entry.getKey(), entry.getValue().Sum() );
+        }
+        return Collections.unmodifiableMap( sums );
+    }
+
+    /**
+     * Values of the counters at a given time, or their increase over a period of time
+     */
+    public static final class Snapshot {
+        private final long _nanoTime;
+        private final long _elapsedNanos;
+        private final Map<String, Long> _handled;
+        private final Map<String, Long> _parseErrors;
+        private final long _checksumFailures;
+        private final long _ignored;
+        private final long[] _dropped;
+        private final long _streamOverflows;
+        private final Map<String, LatencyHistogram.Snapshot> _parseLatencies;
+        private final Map<String, LatencyHistogram.Snapshot> _dispatchLatencies;
+
+        Snapshot( long nanoTime, long elapsedNanos, Map<String, Long> handled, Map<String, Long> parseErrors,
+                  long checksumFailures, long ignored, long[] dropped, long streamOverflows,
+                  Map<String, LatencyHistogram.Snapshot> parseLatencies,
+                  Map<String, LatencyHistogram.Snapshot> dispatchLatencies ) {
+            _nanoTime = nanoTime;
+            _elapsedNanos = elapsedNanos;
+            _handled = handled;
+            _parseErrors = parseErrors;
+            _checksumFailures = checksumFailures;
+            _ignored = ignored;
+            _dropped = dropped;
+            _streamOverflows = streamOverflows;
+            _parseLatencies = parseLatencies;
+            _dispatchLatencies = dispatchLatencies;
+        }
+
+        /**
+         * When the snapshot was taken, as per System.nanoTime()
+         * @return
+         */
+        public long get_nanoTime() {
+            return _nanoTime;
+        }
+
+        /**
+         * For snapshots returned by Since(): the length of the period
+         * @return
+         */
+        public long get_elapsedNanos() {
+            return _elapsedNanos;
+        }
+
+        /**
+         * Sentences handled, by sentence type
+         * @return
+         */
+        public Map<String, Long> get_handledCounts() {
+            return _handled;
+        }
+
+        public long get_handledCount( String formatter ) {
+            Long count = _handled.get( formatter );
+            return count != null ? count : 0;
+        }
+
+        /**
+         * Sentences whose fields couldn't be parsed, by sentence type
+         * @return
+         */
+        public Map<String, Long> get_parseErrorCounts() {
+            return _parseErrors;
+        }
+
+        public long get_parseErrorCount( String formatter ) {
+            Long count = _parseErrors.get( formatter );
+            return count != null ? count : 0;
+        }
+
+        public long get_checksumFailureCount() {
+            return _checksumFailures;
+        }
+
+        public long get_ignoredCount() {
+            return _ignored;
+        }
+
+        public long get_droppedCount( DropReasonEnum reason ) {
+            return _dropped[reason.ordinal()];
+        }
+
+        public long get_streamOverflowCount() {
+            return _streamOverflows;
+        }
+
+        /**
+         * Time spent parsing the fields of sentences of a type
+         * @param formatter
+         * @return The latencies, empty if none were recorded
+         */
+        public LatencyHistogram.Snapshot get_parseLatency( String formatter ) {
+            LatencyHistogram.Snapshot latency = _parseLatencies.get( formatter );
+            return latency != null ? latency : LatencyHistogram.Snapshot.EMPTY;
+        }
+
+        /**
+         * Time from the arrival of sentences of a type to their handler being invoked
+         * @param formatter
+         * @return The latencies, empty if none were recorded
+         */
+        public LatencyHistogram.Snapshot get_dispatchLatency( String formatter ) {
+            LatencyHistogram.Snapshot latency = _dispatchLatencies.get( formatter );
+            return latency != null ? latency : LatencyHistogram.Snapshot.EMPTY;
+        }
+
+        /**
+         * Sentences of a type handled per second, over the period of a snapshot returned by Since()
+         * @param formatter
+         * @return
+         */
+        public double get_handledPerSecond( String formatter ) {
+            return _elapsedNanos > 0 ? get_handledCount( formatter ) * 1e9 / _elapsedNanos : 0;
+        }
+
+        /**
+         * Increase of the counters since an earlier snapshot, e.g. to compute rates
+         * @param earlier
+         * @return
+         */
+        public Snapshot Since( Snapshot earlier ) {
+            long[] dropped = new long[_dropped.length];
+            for ( int i = 0; i < dropped.length; ++i ) {
+                dropped[i] = _dropped[i] - earlier._dropped[i];
+            }
+            return new Snapshot( _nanoTime, _nanoTime - earlier._nanoTime,
+                    Minus( _handled, earlier._handled ), Minus( _parseErrors, earlier._parseErrors ),
+                    _checksumFailures - earlier._checksumFailures, _ignored - earlier._ignored,
+                    dropped, _streamOverflows - earlier._streamOverflows,
+                    MinusLatencies( _parseLatencies, earlier._parseLatencies ), MinusLatencies( _dispatchLatencies, earlier._dispatchLatencies ) );
+        }
+
+        /**
+         * All the counters, flattened with names such as "handled.GGA", "dropped.NoCR" or
+         * "checksumFailures", for export.  Latencies are exported as percentiles in nanoseconds,
+         * e.g. "dispatchLatency.GGA.p99".
+         * @return
+         */
+        public Map<String, Long> ToMap() {
+            TreeMap<String, Long> map = new TreeMap<>();
+            for ( Map.Entry<String, Long> entry : _handled.entrySet() ) {
+                map.put( "handled." + entry.getKey(), entry.getValue() );
+            }
+            for ( Map.Entry<String, Long> entry : _parseErrors.entrySet() ) {
+                map.put( "parseErrors." + entry.getKey(), entry.getValue() );
+            }
+            for ( DropReasonEnum reason : DropReasonEnum.values() ) {
+                map.put( "dropped." + reason.name(), get_droppedCount( reason ) );
+            }
+            map.put( "checksumFailures", _checksumFailures );
+            map.put( "ignored", _ignored );
+            map.put( "streamOverflows", _streamOverflows );
+            Percentiles( map, "parseLatency.", _parseLatencies );
+            Percentiles( map, "dispatchLatency.", _dispatchLatencies );
+            return map;
+        }
+
+        private static void Percentiles( Map<String, Long> map, String prefix, Map<String, LatencyHistogram.Snapshot> latencies ) {
+            for ( Map.Entry<String, LatencyHistogram.Snapshot> entry : latencies.entrySet() ) {
+                String name = prefix + entry.getKey();
+                LatencyHistogram.Snapshot latency = entry.getValue();
+                map.put( name + ".count", latency.get_count() );
+                map.put( name + ".p50", latency.get_percentile( 50 ) );
+                map.put( name + ".p99", latency.get_percentile( 99 ) );
+                map.put( name + ".p999", latency.get_percentile( 99.9 ) );
+                map.put( name + ".max", latency.get_max() );
+            }
+        }
+
+        private static Map<String, Long> Minus( Map<String, Long> counts, Map<String, Long> earlier ) {
+            TreeMap<String, Long> delta = new TreeMap<>();
+            for ( Map.Entry<String, Long> entry : counts.entrySet() ) {
+                Long before = earlier.get( entry.getKey() );
+                delta.put( entry.getKey(), entry.getValue() - ( before != null ? before : 0 ) );
+            }
+            return Collections.unmodifiableMap( delta );
+        }
+
+        private static Map<String, LatencyHistogram.Snapshot> MinusLatencies( Map<String, LatencyHistogram.Snapshot> latencies,
+                                                                              Map<String, LatencyHistogram.Snapshot> earlier ) {
+            TreeMap<String, LatencyHistogram.Snapshot> delta = new TreeMap<>();
+            for ( Map.Entry<String, LatencyHistogram.Snapshot> entry : latencies.entrySet() ) {
+                LatencyHistogram.Snapshot before = earlier.get( entry.getKey() );
+                delta.put( entry.getKey(), entry.getValue().Since( before != null ? before : LatencyHistogram.Snapshot.EMPTY ) );
+            }
+            return Collections.unmodifiableMap( delta );
+        }
+    }
+}
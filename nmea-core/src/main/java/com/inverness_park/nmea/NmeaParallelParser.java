@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses a large capture file on several threads.  The file is divided into chunks, each starting
+ * at a "$" that follows a LF, so that no sentence spans two chunks.  The chunks are memory-mapped
+ * and parsed in parallel on a ForkJoinPool, each through its own NmeaReceiver.
+ *
+ * The results of the chunks are either returned in file order, or handed to a Reducer as each
+ * chunk completes, when order doesn't matter.  Sentences that fail to parse are counted in the
+ * parse errors of the chunk's receiver, and skipped.
+ */
+
+public class NmeaParallelParser {
+
+    /**
+     * Parses one chunk: bytes go through its receiver, whose handlers collect the chunk's result
+     * @param <R>
+     */
+    public interface ChunkParser<R> {
+        NmeaReceiver get_receiver();
+
+        /**
+         * Called once all the chunk's bytes went through the receiver
+         * @return
+         */
+        R get_result();
+    }
+
+    /**
+     * Creates a ChunkParser for each chunk; called from the pool's threads
+     * @param <R>
+     */
+    public interface ChunkParserFactory<R> {
+        ChunkParser<R> Create();
+    }
+
+    /**
+     * Receives the result of each chunk, in no particular order, and possibly from several threads
+     * at once
+     * @param <R>
+     */
+    public interface Reducer<R> {
+        void Reduce( R result );
+    }
+
+    /**
+     * Default number of bytes per chunk
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * Bytes mapped at a time while looking for chunk boundaries
+     */
+    private static final int ALIGN_WINDOW_SIZE = 64 * 1024;
+
+    private final ForkJoinPool _pool;
+
+    private final int _chunkSize;
+
+    /**
+     * Constructor
+     * @param pool Runs the chunks
+     * @param chunkSize Number of bytes per chunk, before realigning to sentence boundaries
+     */
+    public NmeaParallelParser( ForkJoinPool pool, int chunkSize ) {
+        if ( chunkSize < 1 || chunkSize > 1 << 30 ) {
+            throw new IllegalArgumentException( "chunkSize must be between 1 and 2^30" );
+        }
+        _pool = pool;
+        _chunkSize = chunkSize;
+    }
+
+    /**
+     * Constructor, with DEFAULT_CHUNK_SIZE chunks
+     * @param pool Runs the chunks
+     */
+    public NmeaParallelParser( ForkJoinPool pool ) {
+        this( pool, DEFAULT_CHUNK_SIZE );
+    }
+
+    public int get_chunkSize() {
+        return _chunkSize;
+    }
+
+    /**
+     * Parses a file, and returns the result of each chunk, in file order
+     * @param file
+     * @param factory
+     * @param <R>
+     * @return
+     * @throws IOException
+     */
+    public <R> List<R> Parse( File file, ChunkParserFactory<R> factory ) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile( file, "r" );
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long[] boundaries = Boundaries( channel );
+            Object[] results = new Object[boundaries.length - 1];
+            Invoke( new ParseTask<>( channel, boundaries, 0, results.length, factory, results, null ) );
+
+            List<R> list = new ArrayList<>( results.length );
+            for ( Object result : results ) {
+                @SuppressWarnings( "unchecked" )
+                R r = (R) result;
+                list.add( r );
+            }
+            return list;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Parses a file, and hands the result of each chunk to a reducer as soon as it's complete
+     * @param file
+     * @param factory
+     * @param reducer
+     * @param <R>
+     * @throws IOException
+     */
+    public <R> void Parse( File file, ChunkParserFactory<R> factory, Reducer<R> reducer ) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile( file, "r" );
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            long[] boundaries = Boundaries( channel );
+            Invoke( new ParseTask<>( channel, boundaries, 0, boundaries.length - 1, factory, null, reducer ) );
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void Invoke( ParseTask<?> task ) throws IOException {
+        try {
+            _pool.invoke( task );
+        } catch ( RuntimeException e ) {
+            // ... Rethrow the I/O error of a chunk as such
+            for ( Throwable cause = e; cause != null; cause = cause.getCause() ) {
+                if ( cause instanceof IOException ) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Chunk boundaries: 0, then each multiple of the chunk size moved forward to the next "$" that
+     * follows a LF, then the file size.  Chunk i spans [boundaries[i], boundaries[i + 1]).
+     * @param channel
+     * @return
+     * @throws IOException
+     */
+    long[] Boundaries( FileChannel channel ) throws IOException {
+        final long size = channel.size();
+        // ... At least one chunk, if only an empty one
+        long[] boundaries = new long[Math.max( 2, (int) ( ( size + _chunkSize - 1 ) / _chunkSize ) + 1 )];
+        int count = 0;
+        boundaries[count++] = 0;
+        for ( long nominal = _chunkSize; nominal < size; nominal += _chunkSize ) {
+            long boundary = Align( channel, Math.max( nominal, boundaries[count - 1] ), size );
+            if ( boundary >= size ) {
+                break;
+            }
+            if ( boundary > boundaries[count - 1] ) {
+                boundaries[count++] = boundary;
+            }
+        }
+        boundaries[count++] = size;
+        return Arrays.copyOf( boundaries, count );
+    }
+
+    /**
+     * Position of the first "$" that follows a LF, at or after a position
+     * @return The position, or the channel's size if there's none
+     */
+    static long Align( FileChannel channel, long position, long size ) throws IOException {
+        // ... Start from the byte before, in case the position itself is right after a LF
+        long i = position - 1;
+        boolean afterEom = false;
+        while ( i < size ) {
+            int length = (int) Math.min( ALIGN_WINDOW_SIZE, size - i );
+            MappedByteBuffer window = channel.map( FileChannel.MapMode.READ_ONLY, i, length );
+            for ( int j = 0; j < length; ++j ) {
+                byte b = window.get( j );
+                if ( afterEom && b == '$' && i + j >= position ) {
+                    return i + j;
+                }
+                afterEom = b == '\n';
+            }
+            i += length;
+        }
+        return size;
+    }
+
+    /**
+     * Parses a range of chunks, splitting it in halves down to single chunks
+     * @param <R>
+     */
+    private static final class ParseTask<R> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel _channel;
+        private final long[] _boundaries;
+        private final int _first;
+        private final int _end;
+        private final ChunkParserFactory<R> _factory;
+        private final Object[] _results;
+        private final Reducer<R> _reducer;
+
+        ParseTask( FileChannel channel, long[] boundaries, int first, int end, ChunkParserFactory<R> factory,
+                   Object[] results, Reducer<R> reducer ) {
+            _channel = channel;
+            _boundaries = boundaries;
+            _first = first;
+            _end = end;
+            _factory = factory;
+            _results = results;
+            _reducer = reducer;
+        }
+
+        @Override
+        protected void compute() {
+            if ( _end - _first > 1 ) {
+                int middle = ( _first + _end ) >>> 1;
+                invokeAll( new ParseTask<>( _channel, _boundaries, _first, middle, _factory, _results, _reducer ),
+                        new ParseTask<>( _channel, _boundaries, middle, _end, _factory, _results, _reducer ) );
+                return;
+            }
+
+            long start = _boundaries[_first];
+            long length = _boundaries[_first + 1] - start;
+            ChunkParser<R> parser = _factory.Create();
+            parser.get_receiver().set_skipParseErrors( true );
+            try {
+                MappedByteBuffer chunk = _channel.map( FileChannel.MapMode.READ_ONLY, start, length );
+                parser.get_receiver().Receive( chunk );
+            } catch ( IOException e ) {
+                throw new ChunkException( e );
+            }
+
+            R result = parser.get_result();
+            if ( _results != null ) {
+                _results[_first] = result;
+            } else {
+                _reducer.Reduce( result );
+            }
+        }
+    }
+
+    /**
+     * Carries the I/O error of a chunk out of the pool
+     */
+    private static final class ChunkException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ChunkException( IOException cause ) {
+            super( cause );
+        }
+    }
+}
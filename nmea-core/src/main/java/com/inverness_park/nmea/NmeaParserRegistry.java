@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+/**
+ * Maps sentence types to the factory that creates their message objects and to the handler
+ * that receives them.
+ *
+ * Sentence types are identified by their formatter, e.g. "GGA" for "$GPGGA" and "$GNGGA", or
+ * by their whole address field for proprietary sentences, e.g. "PGRME" or "PUBX".  They are
+ * packed into a long, and looked up in an open-addressed table (linear probing, kept at most
+ * half full), straight from the bytes of the received sentence: there is no String and no
+ * boxing involved, and the cost of a lookup doesn't depend on the number of registered types.
+ */
+public class NmeaParserRegistry {
+
+    /**
+     * Registered sentence type
+     */
+    public static final class Entry {
+        private final String _formatter;
+        private final INmeaMessageFactory _factory;
+        private final INmeaMessageHandler _handler;
+        private INmeaMessage _recycled;
+
+        /**
+         * Counters of the registry's metrics for this sentence type, looked up once rather than per sentence
+         */
+        StripedCounter _handled;
+        StripedCounter _parseErrors;
+
+        /**
+         * Latency histograms, only created if latencies are recorded
+         */
+        private NmeaMetrics _metrics;
+        private LatencyHistogram _parseLatency;
+        private LatencyHistogram _dispatchLatency;
+
+        Entry( String formatter, INmeaMessageFactory factory, INmeaMessageHandler handler, NmeaMetrics metrics ) {
+            _formatter = formatter;
+            _factory = factory;
+            _handler = handler;
+            Bind( metrics );
+        }
+
+        private void Bind( NmeaMetrics metrics ) {
+            _metrics = metrics;
+            _parseLatency = null;
+            _dispatchLatency = null;
+            _handled = metrics.get_handledCounter( _formatter );
+            _parseErrors = metrics.get_parseErrorCounter( _formatter );
+        }
+
+        public String get_formatter() {
+            return _formatter;
+        }
+
+        public INmeaMessageFactory get_factory() {
+            return _factory;
+        }
+
+        public INmeaMessageHandler get_handler() {
+            return _handler;
+        }
+
+        LatencyHistogram ParseLatency() {
+            if ( _parseLatency == null ) {
+                _parseLatency = _metrics.get_parseLatencyHistogram( _formatter );
+            }
+            return _parseLatency;
+        }
+
+        LatencyHistogram DispatchLatency() {
+            if ( _dispatchLatency == null ) {
+                _dispatchLatency = _metrics.get_dispatchLatencyHistogram( _formatter );
+            }
+            return _dispatchLatency;
+        }
+
+        /**
+         * Message object reused from one sentence to the next, created on first use.  Messages
+         * that can't be reset (i.e. not INmeaMessageExtensions) are created anew each time.
+         * @return The reset message
+         */
+        INmeaMessage Recycle() {
+            if ( _recycled instanceof INmeaMessageExtensions ) {
+                ((INmeaMessageExtensions) _recycled).Reset();
+            } else {
+                _recycled = _factory.Create();
+            }
+            return _recycled;
+        }
+    }
+
+    /**
+     * Field delimiter
+     */
+    private static final byte DELIM_FIELDS = ',';
+
+    /**
+     * First character of the address field of proprietary sentences
+     */
+    private static final byte PROPRIETARY = 'P';
+
+    /**
+     * Length of a (non-proprietary) sentence formatter
+     */
+    private static final int FORMATTER_LENGTH = 3;
+
+    /**
+     * Number of characters that fit in a key, along with their count
+     */
+    private static final int MAX_KEY_LENGTH = 7;
+
+    /**
+     * Marks keys of proprietary sentences, so that they can't collide with formatters
+     */
+    private static final long KEY_PROPRIETARY = 1L << 63;
+
+    /**
+     * Never a valid key (valid keys carry their length)
+     */
+    private static final long KEY_NONE = 0;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Open-addressed table: a slot is free when its key is KEY_NONE
+     */
+    private long[] _keys = new long[INITIAL_CAPACITY];
+    private Entry[] _entries = new Entry[INITIAL_CAPACITY];
+    private int _size = 0;
+
+    /**
+     * Where the entries count the sentences they handle
+     */
+    private NmeaMetrics _metrics;
+
+    /**
+     * Constructor, with metrics of its own
+     */
+    public NmeaParserRegistry() {
+        this( new NmeaMetrics( 1 ) );
+    }
+
+    NmeaParserRegistry( NmeaMetrics metrics ) {
+        _metrics = metrics;
+    }
+
+    /**
+     * Makes all the entries, present and future, count in other metrics
+     * @param metrics
+     */
+    void set_metrics( NmeaMetrics metrics ) {
+        _metrics = metrics;
+        for ( Entry entry : _entries ) {
+            if ( entry != null ) {
+                entry.Bind( metrics );
+            }
+        }
+    }
+
+    /**
+     * Registers a sentence type, replacing any previous registration for it
+     * @param formatter Sentence formatter (e.g. "GGA"), or address field of a proprietary sentence (e.g. "PGRME")
+     * @param factory Creates the message objects
+     * @param handler Receives the parsed messages
+     * @return The new entry
+     */
+    public Entry register( String formatter, INmeaMessageFactory factory, INmeaMessageHandler handler ) {
+        if ( factory == null || handler == null ) {
+            throw new IllegalArgumentException( "factory and handler are required" );
+        }
+        formatter = formatter.trim().toUpperCase();
+        long key = Key( formatter );
+
+        if ( ( _size + 1 ) * 2 > _keys.length ) {
+            Grow();
+        }
+
+        Entry entry = new Entry( formatter, factory, handler, _metrics );
+        int slot = Slot( key, _keys.length );
+        while ( _keys[slot] != KEY_NONE && _keys[slot] != key ) {
+            slot = ( slot + 1 ) & ( _keys.length - 1 );
+        }
+        if ( _keys[slot] == KEY_NONE ) {
+            ++_size;
+        }
+        _keys[slot] = key;
+        _entries[slot] = entry;
+        return entry;
+    }
+
+    /**
+     * Looks up a registered sentence type
+     * @param formatter Sentence formatter, or address field of a proprietary sentence
+     * @return The entry, or null if the sentence type isn't registered
+     */
+    public Entry get( String formatter ) {
+        return Find( Key( formatter.trim().toUpperCase() ) );
+    }
+
+    /**
+     * Looks up the sentence type of a received sentence, straight from its bytes
+     * @param bytes
+     * @param index Offset of the address field (the byte following the SOM)
+     * @param end Offset past which the address field cannot extend (e.g. the checksum delimiter)
+     * @return The entry, or null if the sentence type isn't registered
+     */
+    public Entry Lookup( byte[] bytes, int index, int end ) {
+        return Find( Key( bytes, index, end ) );
+    }
+
+    /**
+     * Number of registered sentence types
+     * @return
+     */
+    public int get_size() {
+        return _size;
+    }
+
+    private Entry Find( long key ) {
+        if ( key == KEY_NONE ) {
+            return null;
+        }
+        final long[] keys = _keys;
+        final int mask = keys.length - 1;
+        int slot = Slot( key, keys.length );
+        while ( keys[slot] != KEY_NONE ) {
+            if ( keys[slot] == key ) {
+                return _entries[slot];
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+        return null;
+    }
+
+    private void Grow() {
+        long[] oldKeys = _keys;
+        Entry[] oldEntries = _entries;
+        _keys = new long[oldKeys.length * 2];
+        _entries = new Entry[oldKeys.length * 2];
+        for ( int i = 0; i < oldKeys.length; ++i ) {
+            if ( oldKeys[i] != KEY_NONE ) {
+                int slot = Slot( oldKeys[i], _keys.length );
+                while ( _keys[slot] != KEY_NONE ) {
+                    slot = ( slot + 1 ) & ( _keys.length - 1 );
+                }
+                _keys[slot] = oldKeys[i];
+                _entries[slot] = oldEntries[i];
+            }
+        }
+    }
+
+    /**
+     * Fibonacci hashing: spreads the packed characters over the table
+     */
+    private static int Slot( long key, int capacity ) {
+        return (int)( ( key * 0x9E3779B97F4A7C15L ) >>> ( 64 - Integer.numberOfTrailingZeros( capacity ) ) );
+    }
+
+    /**
+     * Key of a registered sentence type
+     * @param formatter Upper-case formatter, or address field of a proprietary sentence
+     * @return
+     */
+    private static long Key( String formatter ) {
+        boolean proprietary = formatter.length() > 0 && formatter.charAt( 0 ) == PROPRIETARY;
+        if ( proprietary ? formatter.length() > MAX_KEY_LENGTH : formatter.length() != FORMATTER_LENGTH ) {
+            throw new IllegalArgumentException( "Unsupported sentence formatter: " + formatter );
+        }
+        long key = 0;
+        for ( int i = 0; i < formatter.length(); ++i ) {
+            char c = formatter.charAt( i );
+            if ( c <= ' ' || c > '~' || c == DELIM_FIELDS ) {
+                throw new IllegalArgumentException( "Unsupported sentence formatter: " + formatter );
+            }
+            key = ( key << 8 ) | c;
+        }
+        return Key( key, formatter.length(), proprietary );
+    }
+
+    /**
+     * Key of a received sentence: the last three characters of its address field, or the whole
+     * address field if the sentence is proprietary
+     * @param bytes
+     * @param index Offset of the address field
+     * @param end Offset past which the address field cannot extend
+     * @return The key, or KEY_NONE if the address field can't be a registered one
+     */
+    static long Key( byte[] bytes, int index, int end ) {
+        int addressEnd = index;
+        while ( addressEnd < end && bytes[addressEnd] != DELIM_FIELDS ) {
+            ++addressEnd;
+        }
+
+        boolean proprietary = addressEnd > index && ToUpper( bytes[index] ) == PROPRIETARY;
+        int start = proprietary ? index : addressEnd - FORMATTER_LENGTH;
+        int length = addressEnd - start;
+        if ( start < index || length > MAX_KEY_LENGTH ) {
+            return KEY_NONE;
+        }
+
+        long key = 0;
+        for ( int i = start; i < addressEnd; ++i ) {
+            key = ( key << 8 ) | ToUpper( bytes[i] );
+        }
+        return Key( key, length, proprietary );
+    }
+
+    private static long Key( long packed, int length, boolean proprietary ) {
+        return ( proprietary ? KEY_PROPRIETARY : 0 ) | ( (long)length << ( 8 * MAX_KEY_LENGTH ) ) | packed;
+    }
+
+    private static int ToUpper( byte b ) {
+        return ( b >= 'a' && b <= 'z' ) ? b - ( 'a' - 'A' ) : b & 0xFF;
+    }
+}
@@ -0,0 +1,562 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GGA;
+import com.inverness_park.nmea.Sentences.GSA;
+import com.inverness_park.nmea.Sentences.GST;
+import com.inverness_park.nmea.Sentences.GSV;
+import com.inverness_park.nmea.Sentences.HDT;
+import com.inverness_park.nmea.Sentences.RMC;
+import com.inverness_park.nmea.Sentences.VTG;
+import com.inverness_park.nmea.Types.NotImplementedException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * his class implements a NMEA receiver.  Use an instance ofthis objects to
+ * feed bytes via the 'Receive()' method.
+ */
+
+public class NmeaReceiver {
+
+    /**
+     * Message handlers used to communicate back to the application when a message is received,
+     * dropped, ignored, etc.
+     */
+    public interface MessageHandlers {
+        /**
+         * When a NMEA sentence fails its checksum check
+         * @param bytes
+         * @param index
+         * @param count
+         * @param expected
+         * @param actual
+         */
+        void OnNmeaMessageFailedChecksum(byte[] bytes, int index, int count, byte expected, byte actual );
+
+        /**
+         * When a NMEA sentence is corrupted and dropped
+         * @param bytes
+         * @param index
+         * @param count
+         * @param reason
+         */
+        void OnNmeaMessageDropped(byte[] bytes, int index, int count, String reason);
+
+        /**
+         * When a NMEA sentence passes the checksum check, but is not supported
+         * @param bytes
+         * @param index
+         * @param count
+         */
+        void OnNmeaMessageIgnored(byte[] bytes, int index, int count);
+    }
+
+    /**
+     * Application-defined callbacks
+     */
+    private MessageHandlers _messageHandlers ;
+
+    /**
+     * Start of NMEA message delimiter
+     */
+    private static final char DELIM_SOM = '$';
+
+    /**
+     * Checksum delimiter
+     */
+    private static final char DELIM_CKSUM = '*';
+
+    /**
+     * First End of message delimiter
+     */
+    private static final char DELIM_CR = '\r';
+
+    /**
+     * Second end of message delimiter
+     */
+    private static final char DELIM_LF = '\n';
+
+    /**
+     * NMEA stream instance used to parse received bytes
+     */
+    private INmeaStream _stream;
+
+    /**
+     * The stream, if it implements the optional extensions; null otherwise
+     */
+    private INmeaStreamExtensions _streamExtensions;
+
+    /**
+     * The stream, if it is a plain NmeaStream, whose running checksum can be trusted; null otherwise
+     */
+    private NmeaStream _builtInStream;
+
+    /**
+     * NMEA message handler provided by the application, for the sentence types it supports
+     */
+    private INmeaHandler _handler;
+
+    /**
+     * Throughput and error counters.  A receiver is only ever used from one thread at a time, so
+     * its own counters don't need more than one stripe.
+     */
+    private NmeaMetrics _metrics = new NmeaMetrics( 1 );
+
+    /**
+     * Supported sentence types
+     */
+    private NmeaParserRegistry _registry = new NmeaParserRegistry( _metrics );
+
+    /**
+     * Field tokenizer, reused from one sentence to the next
+     */
+    private NmeaFields _fields = new NmeaFields();
+
+    /**
+     * If set, unsupported sentences are ignored without verifying their checksum first
+     */
+    private boolean _ignoreBeforeChecksum = false;
+
+    /**
+     * If set, each sentence type reuses a single message object
+     */
+    private boolean _recycleMessages = false;
+
+    /**
+     * If set, parse and dispatch latencies are recorded
+     */
+    private boolean _recordLatencies = false;
+
+    /**
+     * If set, sentences whose fields fail to parse are counted and skipped
+     */
+    private boolean _skipParseErrors = false;
+
+    /**
+     * Constructor
+     * @param factory Will create a NmeaStream object for use when parsing NMEA messages
+     * @param handler A handler for NMEA sentences successfully received; may be null if all
+     *                sentence types are registered with register()
+     */
+    public NmeaReceiver( INmeaStreamFactory factory, INmeaHandler handler ) {
+        _stream = factory.Create();
+        _handler = handler;
+        _stream.set_OnNMEAMessageReceivedHandler( _onNMEAMessageReceived );
+        if ( _stream instanceof INmeaStreamExtensions ) {
+            _streamExtensions = (INmeaStreamExtensions) _stream;
+            _streamExtensions.set_overflowCounter( _metrics.get_streamOverflowCounter() );
+        }
+        if ( _stream.getClass() == NmeaStream.class ) {
+            _builtInStream = (NmeaStream) _stream;
+        }
+        if ( handler != null ) {
+            RegisterDefaults();
+        }
+    }
+
+    /**
+     * Constructor
+     * @param handler A handler for NMEA sentences successfully received
+     */
+    public NmeaReceiver(INmeaHandler handler) {
+        this( new INmeaStreamFactory() {
+            @Override
+            public INmeaStream Create() {
+                return new NmeaStream();
+            }
+        }, handler );
+    }
+
+    /**
+     * Constructor for a receiver that only supports the sentence types registered with register()
+     */
+    public NmeaReceiver() {
+        this( null );
+    }
+
+    /**
+     * Routes the sentence types of the INmeaHandler contract to the application's INmeaHandler
+     */
+    private void RegisterDefaults() {
+        register( "GGA", GGA.FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                _handler.HandleGGA( msg );
+            }
+        } );
+        register( "GSA", GSA.FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                _handler.HandleGSA( msg );
+            }
+        } );
+        register( "GST", GST.FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                _handler.HandleGST( msg );
+            }
+        } );
+        register( "GSV", GSV.FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                _handler.HandleGSV( msg );
+            }
+        } );
+        register( "HDT", HDT.FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                _handler.HandleHDT( msg );
+            }
+        } );
+        register( "RMC", RMC.FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                _handler.HandleRMC( msg );
+            }
+        } );
+        register( "VTG", VTG.FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                _handler.HandleVTG( msg );
+            }
+        } );
+    }
+
+    /**
+     * Adds support for a sentence type, or replaces the parser and handler of a supported one
+     * @param formatter Sentence formatter (e.g. "GLL"), or address field of a proprietary sentence (e.g. "PGRME")
+     * @param factory Creates the messages the sentences are parsed into
+     * @param handler Receives the parsed messages
+     */
+    public void register( String formatter, INmeaMessageFactory factory, INmeaMessageHandler handler ) {
+        _registry.register( formatter, factory, handler );
+    }
+
+    /**
+     * Supported sentence types
+     * @return
+     */
+    public NmeaParserRegistry get_registry() {
+        return _registry;
+    }
+
+    /**
+     * Throughput and error counters: sentences handled and parse errors per sentence type, checksum
+     * failures, drops by reason, ignored sentences and stream overflows
+     * @return
+     */
+    public NmeaMetrics get_metrics() {
+        return _metrics;
+    }
+
+    /**
+     * Makes the receiver count in other metrics, e.g. metrics shared by several receivers.  Set
+     * before the first Receive().
+     * @param metrics
+     */
+    public void set_metrics( NmeaMetrics metrics ) {
+        _metrics = metrics;
+        _registry.set_metrics( metrics );
+        if ( _streamExtensions != null ) {
+            _streamExtensions.set_overflowCounter( metrics.get_streamOverflowCounter() );
+        }
+    }
+
+    /**
+     * When set, the receiver records, per sentence type, how long parseFields() takes, and how long
+     * it takes from the arrival of a sentence (the Receive() call that delivered its '$') to its
+     * handler being invoked, into the latency histograms of its metrics.  Arrival times come from
+     * streams that implement INmeaStreamExtensions; with other streams, the dispatch latency
+     * starts when the stream reports the sentence.  This costs a couple of
+     * System.nanoTime() calls per sentence.
+     * @param recordLatencies
+     */
+    public void set_recordLatencies( boolean recordLatencies ) {
+        _recordLatencies = recordLatencies;
+        if ( _streamExtensions != null ) {
+            _streamExtensions.set_recordArrivalTimes( recordLatencies );
+        }
+    }
+
+    public boolean get_recordLatencies() {
+        return _recordLatencies;
+    }
+
+    /**
+     * By default, an exception thrown by parseFields() (e.g. a malformed number) is counted in the
+     * parse errors of its sentence type, then propagates out of Receive(), and the rest of the bytes
+     * passed to that call are lost.  When set, such a sentence is only counted, then skipped, and
+     * the following sentences are parsed as usual.  Batch parsers (NmeaParallelParser, NmeaStreams,
+     * NmeaFileReplay) receive this way.
+     * @param skipParseErrors
+     */
+    public void set_skipParseErrors( boolean skipParseErrors ) {
+        _skipParseErrors = skipParseErrors;
+    }
+
+    public boolean get_skipParseErrors() {
+        return _skipParseErrors;
+    }
+
+    /**
+     * AAssigns the callback/message handlers
+     * @param messageHandlers
+     */
+    public void setMessageHandlers( MessageHandlers messageHandlers ) {
+        _messageHandlers = messageHandlers;
+    }
+
+    /**
+     * By default, OnNmeaMessageIgnored is only invoked for sentences that pass their checksum
+     * check.  When set, sentences of unsupported types are ignored as soon as their type is known,
+     * which saves the checksum pass, but corrupted sentences of unsupported types are then
+     * reported as ignored rather than as failing their checksum.
+     * @param ignoreBeforeChecksum
+     */
+    public void set_ignoreBeforeChecksum( boolean ignoreBeforeChecksum ) {
+        _ignoreBeforeChecksum = ignoreBeforeChecksum;
+    }
+
+    public boolean get_ignoreBeforeChecksum() {
+        return _ignoreBeforeChecksum;
+    }
+
+    /**
+     * By default, every sentence is parsed into a new message object.  When set, each sentence
+     * type keeps a single message object, which is Reset() and parsed into again for every
+     * sentence of that type, so that steady-state parsing doesn't allocate.
+     *
+     * Handlers are invoked synchronously, from Receive(): in this mode, a message is only valid
+     * until the handler returns, and must be copied if it is needed afterwards.
+     * @param recycleMessages
+     */
+    public void set_recycleMessages( boolean recycleMessages ) {
+        _recycleMessages = recycleMessages;
+    }
+
+    public boolean get_recycleMessages() {
+        return _recycleMessages;
+    }
+
+    /**
+     * Receives an arbitray number of bytes, to be parsed and handled
+     * @param bytes
+     */
+    public void Receive(byte[] bytes) {
+        _stream.Append(bytes);
+    }
+
+    /**
+     * Receives a range of bytes, to be parsed and handled.  Use this when reading into a
+     * reused buffer, to avoid copying each read into an array of the exact size.
+     * @param bytes
+     * @param offset
+     * @param length
+     */
+    public void Receive(byte[] bytes, int offset, int length) {
+        if ( _streamExtensions != null ) {
+            _streamExtensions.Append(bytes, offset, length);
+        } else {
+            _stream.Append(Arrays.copyOfRange(bytes, offset, offset + length));
+        }
+    }
+
+    /**
+     * Receives the remaining bytes of a buffer (heap or direct), to be parsed and handled.
+     * The buffer's position is advanced to its limit, so a buffer filled by
+     * ReadableByteChannel.read() can be flipped, received, then cleared and reused.
+     * @param buffer
+     */
+    public void Receive(ByteBuffer buffer) {
+        if ( _streamExtensions != null ) {
+            _streamExtensions.Append(buffer);
+        } else {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            _stream.Append(bytes);
+        }
+    }
+
+    /**
+     * Invokes the proper handler for a NMEA message, as registered in the registry
+     */
+    private INmeaStream.OnNMEAMessageReceivedHandler _onNMEAMessageReceived = new INmeaStream.OnNMEAMessageReceivedHandler() {
+        @Override
+        public void NMEAMessageReceived( byte[] bytes, int index, int count ) {
+            // ... Only the built-in stream computes the checksum as the sentence comes in
+            byte checksum = _builtInStream != null
+                    ? _builtInStream.get_checksum()
+                    : BaseNmeaMessage.ComputeChecksum( bytes, index + 1, count - 6 );
+            long arrivalNanos = 0;
+            if ( _recordLatencies ) {
+                arrivalNanos = _streamExtensions != null ? _streamExtensions.get_arrivalNanos() : System.nanoTime();
+            }
+            HandleSentence( bytes, index, count, checksum, arrivalNanos );
+        }
+    } ;
+
+    /**
+     * Verifies, parses and hands over a complete sentence reported by a stream
+     * @param bytes
+     * @param index Offset of the '$'
+     * @param count Number of bytes, up to and including the LF
+     * @param checksum Checksum of the sentence, computed by the stream or from its bytes
+     * @param arrivalNanos When the sentence arrived, if latencies are recorded
+     */
+    void HandleSentence( byte[] bytes, int index, int count, byte checksum, long arrivalNanos ) {
+        // ... Parse the bytes.  The sentence may sit anywhere in 'bytes' (the stream reports
+        // complete sentences straight from the caller's array), so all offsets are relative to 'index'.
+        int somOffset = index;
+        int crOffset = index + count - 2;
+        int lnOffset = index + count - 1;
+        int cksumOffset = index + count - 5;
+        int payloadLen = cksumOffset - somOffset - 1;
+
+        // .... Sanity check
+        if (count <= 5) {
+            invokeOnNmeaMessageDropped(bytes, index, count, DropReasonEnum.InsufficientBytes);
+            return;
+        }
+        if ((char)bytes[somOffset] != DELIM_SOM) {
+            invokeOnNmeaMessageDropped(bytes, index, count, DropReasonEnum.InvalidStartOfMessage);
+            return;
+        }
+        if ((char)bytes[crOffset] != DELIM_CR) {
+            invokeOnNmeaMessageDropped(bytes, index, count, DropReasonEnum.NoCR);
+            return;
+        }
+        if ((char)bytes[lnOffset] != DELIM_LF) {
+            invokeOnNmeaMessageDropped(bytes, index, count, DropReasonEnum.NoLF);
+            return;
+        }
+        if ((char)bytes[cksumOffset] != DELIM_CKSUM) {
+            invokeOnNmeaMessageDropped(bytes, index, count, DropReasonEnum.InvalidChecksumDelimiter);
+            return;
+        }
+
+        // ... Find out the NMEA data type from the address field's bytes
+        NmeaParserRegistry.Entry entry = _registry.Lookup( bytes, somOffset + 1, cksumOffset );
+        if (entry == null && _ignoreBeforeChecksum) {
+            invokeOnNmeaMessageIgnored(bytes, index, count);
+            return;
+        }
+
+        // ... Verify checksum
+        byte msgCksum = FromHexString( bytes, cksumOffset+1 );
+        if (msgCksum != checksum) {
+            invokeOnNmeaMessageFailedChecksum(bytes, somOffset + 1, payloadLen, checksum, msgCksum );
+            return;
+        }
+
+        if (entry == null) {
+            invokeOnNmeaMessageIgnored(bytes, index, count);
+            return;
+        }
+
+        // ... Record where each field is, without copying the sentence
+        NmeaFields fields = _fields.Tokenize(bytes, somOffset + 1, payloadLen);
+
+        // ... Parse, and hand over to the application
+        INmeaMessage msg = _recycleMessages ? entry.Recycle() : entry.get_factory().Create();
+        long parseNanos = _recordLatencies ? System.nanoTime() : 0;
+        try {
+            if ( msg instanceof INmeaMessageExtensions ) {
+                msg = ((INmeaMessageExtensions) msg).parseFields( fields );
+            } else {
+                msg = msg.parseFields( fields.ToTokens() );
+            }
+        } catch ( RuntimeException e ) {
+            entry._parseErrors.Increment();
+            if ( _skipParseErrors ) {
+                return;
+            }
+            throw e;
+        }
+        entry._handled.Increment();
+        if ( _recordLatencies ) {
+            long dispatchNanos = System.nanoTime();
+            entry.ParseLatency().Record( dispatchNanos - parseNanos );
+            entry.DispatchLatency().Record( dispatchNanos - arrivalNanos );
+        }
+        entry.get_handler().HandleMessage( msg );
+    }
+
+    /**
+     * used to extract the HEX byte representing the NMEA checksum
+     * @param bytes
+     * @param index
+     * @return
+     */
+    private static byte FromHexString( byte [] bytes, int index ) {
+        byte rc = 0 ;
+        rc = (byte) ((Character.digit((char)bytes[index], 16) << 4)
+                + Character.digit((char)bytes[index+1], 16));
+        return rc ;
+    }
+
+    /**
+     * Called when ckecksum fails
+     * @param bytes byte buffer in which the NMEA senetnce is stored
+     * @param index Offset when the NMEA sentence starts
+     * @param count Number of bytes in the NMEA sentence
+     * @param expected Expected ckscksum
+     * @param actual Actual checksum in NMEA sentence
+     */
+    private void invokeOnNmeaMessageFailedChecksum( byte[] bytes, int index, int count, byte expected, byte actual ) {
+        _metrics.get_checksumFailureCounter().Increment();
+        if ( _messageHandlers != null ) {
+            _messageHandlers.OnNmeaMessageFailedChecksum( bytes, index, count, expected, actual );
+        }
+    }
+
+    /**
+     * Called when a message payload is invalid and the message must be dropped
+     * @param bytes byte buffer in which the NMEA senetnce is stored
+     * @param index Offset when the NMEA sentence starts
+     * @param count Number of bytes in the NMEA sentence
+     * @param reason Why the NMEA sentence was dropped
+     */
+    private void invokeOnNmeaMessageDropped(byte[] bytes, int index, int count, DropReasonEnum reason) {
+        _metrics.get_droppedCounter( reason ).Increment();
+        if ( _messageHandlers != null ) {
+            _messageHandlers.OnNmeaMessageDropped( bytes, index, count, reason.get_description() );
+        }
+    }
+
+    /**
+     * Called when a valid NMEA sentence is not supported
+     * @param bytes byte buffer in which the NMEA senetnce is stored
+     * @param index Offset when the NMEA sentence starts
+     * @param count Number of bytes in the NMEA sentence
+     */
+    private void invokeOnNmeaMessageIgnored(byte[] bytes, int index, int count) {
+        _metrics.get_ignoredCounter().Increment();
+        if ( _messageHandlers != null ) {
+            _messageHandlers.OnNmeaMessageIgnored( bytes, index, count );
+        }
+    }
+}
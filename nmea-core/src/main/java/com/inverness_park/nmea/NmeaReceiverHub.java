@@ -0,0 +1,578 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives the bytes of many NMEA sources (e.g. one per TCP connection or UDP sender), and
+ * parses them on a fixed pool of worker threads.
+ *
+ * Each source is assigned to one worker, by source id, so the sentences of a source are handled
+ * in order, by a single thread, while different sources are parsed in parallel.  Each source only
+ * keeps its own NmeaStream framing state and INmeaHandler; the registry, tokenizer and recycled
+ * messages are shared by all the sources of a worker.
+ *
+ * Sentence types other than the built-in ones are registered with register(), which gives each
+ * source a handler of its own for them.
+ */
+
+public class NmeaReceiverHub {
+
+    /**
+     * Default number of chunks of bytes each worker can have waiting
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Chunk length that asks a worker to forget a source
+     */
+    private static final int CLOSE_SOURCE = -1;
+
+    /**
+     * Chunk length that asks a worker to stop
+     */
+    private static final int STOP = -2;
+
+    /**
+     * How long Receive() waits for room in a full queue before checking for a shutdown
+     */
+    private static final long ENQUEUE_TIMEOUT_MILLIS = 10;
+
+    /**
+     * Bytes received for a source, waiting for its worker
+     */
+    private static final class Chunk {
+        private long _sourceId;
+        private byte[] _bytes = new byte[0];
+        private int _length;
+        private long _arrivalNanos;
+
+        private byte[] Reserve( long sourceId, int length ) {
+            _sourceId = sourceId;
+            _length = length;
+            if ( _bytes.length < length ) {
+                _bytes = new byte[Math.max( length, 2 * _bytes.length )];
+            }
+            return _bytes;
+        }
+    }
+
+    /**
+     * Framing state and handler of one source
+     */
+    private static final class Source {
+        private final NmeaStream _stream = new NmeaStream();
+        private final INmeaHandler _handler;
+
+        /**
+         * Handlers of the registered sentence types, in order of registration
+         */
+        private final INmeaMessageHandler[] _messageHandlers;
+
+        private Source( INmeaHandler handler, INmeaMessageHandler[] messageHandlers ) {
+            _handler = handler;
+            _messageHandlers = messageHandlers;
+        }
+    }
+
+    /**
+     * Sources of a worker by id: open-addressed, with linear probing, so that looking up the source
+     * of each chunk doesn't box its id
+     */
+    private static final class SourceTable {
+        private long[] _ids = new long[16];
+        private Source[] _sources = new Source[16];
+        private int _size = 0;
+
+        private Source get( long sourceId ) {
+            final int mask = _ids.length - 1;
+            int slot = Slot( sourceId, _ids.length );
+            while ( _sources[slot] != null ) {
+                if ( _ids[slot] == sourceId ) {
+                    return _sources[slot];
+                }
+                slot = ( slot + 1 ) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Adds a source, whose id isn't in the table
+         */
+        private void put( long sourceId, Source source ) {
+            if ( ( _size + 1 ) * 2 > _ids.length ) {
+                Grow();
+            }
+            Insert( _ids, _sources, sourceId, source );
+            ++_size;
+        }
+
+        private void remove( long sourceId ) {
+            final int mask = _ids.length - 1;
+            int slot = Slot( sourceId, _ids.length );
+            while ( _sources[slot] != null && _ids[slot] != sourceId ) {
+                slot = ( slot + 1 ) & mask;
+            }
+            if ( _sources[slot] == null ) {
+                return;
+            }
+
+            // ... Shift back the following sources that can't be reached across the hole otherwise
+            int hole = slot;
+            int next = ( hole + 1 ) & mask;
+            while ( _sources[next] != null ) {
+                int home = Slot( _ids[next], _ids.length );
+                if ( ( ( next - home ) & mask ) >= ( ( next - hole ) & mask ) ) {
+                    _ids[hole] = _ids[next];
+                    _sources[hole] = _sources[next];
+                    hole = next;
+                }
+                next = ( next + 1 ) & mask;
+            }
+            _sources[hole] = null;
+            --_size;
+        }
+
+        private void Grow() {
+            long[] ids = new long[_ids.length * 2];
+            Source[] sources = new Source[_ids.length * 2];
+            for ( int i = 0; i < _ids.length; ++i ) {
+                if ( _sources[i] != null ) {
+                    Insert( ids, sources, _ids[i], _sources[i] );
+                }
+            }
+            _ids = ids;
+            _sources = sources;
+        }
+
+        private static void Insert( long[] ids, Source[] sources, long sourceId, Source source ) {
+            int slot = Slot( sourceId, ids.length );
+            while ( sources[slot] != null ) {
+                slot = ( slot + 1 ) & ( ids.length - 1 );
+            }
+            ids[slot] = sourceId;
+            sources[slot] = source;
+        }
+
+        /**
+         * Fibonacci hashing, as per NmeaParserRegistry
+         */
+        private static int Slot( long sourceId, int capacity ) {
+            return (int)( ( sourceId * 0x9E3779B97F4A7C15L ) >>> ( 64 - Integer.numberOfTrailingZeros( capacity ) ) );
+        }
+    }
+
+    /**
+     * Creates the handler of each source, the first time bytes are received for it
+     */
+    private final INmeaHandlerFactory _handlerFactory;
+
+    /**
+     * Create the handlers of the registered sentence types, for each source
+     */
+    private final ArrayList<INmeaMessageHandlerFactory> _messageHandlerFactories = new ArrayList<>();
+
+    private final Worker[] _workers;
+
+    /**
+     * Counters shared by all the workers and sources
+     */
+    private final NmeaMetrics _metrics = new NmeaMetrics();
+
+    private volatile boolean _shutdown = false;
+
+    private boolean _recycleMessages = false;
+
+    private boolean _ignoreBeforeChecksum = false;
+
+    private boolean _recordLatencies = false;
+
+    /**
+     * Constructor
+     * @param workerCount Number of worker threads, e.g. the number of cores
+     * @param queueCapacity Number of chunks of bytes each worker can have waiting before Receive() blocks
+     * @param handlerFactory Creates the handler of each source
+     */
+    public NmeaReceiverHub( int workerCount, int queueCapacity, INmeaHandlerFactory handlerFactory ) {
+        if ( workerCount < 1 ) {
+            throw new IllegalArgumentException( "workerCount must be at least 1" );
+        }
+        if ( queueCapacity < 1 ) {
+            throw new IllegalArgumentException( "queueCapacity must be at least 1" );
+        }
+        _handlerFactory = handlerFactory;
+        _workers = new Worker[workerCount];
+        for ( int i = 0; i < workerCount; ++i ) {
+            _workers[i] = new Worker( i, queueCapacity );
+        }
+        for ( Worker worker : _workers ) {
+            worker._thread.start();
+        }
+    }
+
+    /**
+     * Constructor, with one worker per available processor
+     * @param handlerFactory Creates the handler of each source
+     */
+    public NmeaReceiverHub( INmeaHandlerFactory handlerFactory ) {
+        this( Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, handlerFactory );
+    }
+
+    public int get_workerCount() {
+        return _workers.length;
+    }
+
+    /**
+     * Throughput and error counters of all the sources together
+     * @return
+     */
+    public NmeaMetrics get_metrics() {
+        return _metrics;
+    }
+
+    /**
+     * Assigns the callback/message handlers, which are invoked from the worker threads.  Set before
+     * the first Receive().
+     * @param messageHandlers
+     */
+    public void setMessageHandlers( NmeaReceiver.MessageHandlers messageHandlers ) {
+        for ( Worker worker : _workers ) {
+            worker._receiver.setMessageHandlers( messageHandlers );
+        }
+    }
+
+    /**
+     * Registers a sentence type on the receivers of all the workers, as per NmeaReceiver.register().
+     * Each source gets a handler of its own for it, created by the given factory along with the
+     * source's INmeaHandler.  Register before the first Receive().
+     * @param formatter Sentence formatter (e.g. "GGA"), or address field of a proprietary sentence (e.g. "PGRME")
+     * @param factory Creates the message objects
+     * @param handlerFactory Creates the handler of each source
+     */
+    public void register( String formatter, INmeaMessageFactory factory, INmeaMessageHandlerFactory handlerFactory ) {
+        if ( handlerFactory == null ) {
+            throw new IllegalArgumentException( "handlerFactory is required" );
+        }
+        final int index = _messageHandlerFactories.size();
+        for ( Worker worker : _workers ) {
+            worker.Register( formatter, factory, index );
+        }
+        _messageHandlerFactories.add( handlerFactory );
+    }
+
+    /**
+     * As per NmeaReceiver.set_recycleMessages(), with one message object per sentence type and
+     * worker.  Set before the first Receive().
+     * @param recycleMessages
+     */
+    public void set_recycleMessages( boolean recycleMessages ) {
+        _recycleMessages = recycleMessages;
+        for ( Worker worker : _workers ) {
+            worker._receiver.set_recycleMessages( recycleMessages );
+        }
+    }
+
+    public boolean get_recycleMessages() {
+        return _recycleMessages;
+    }
+
+    /**
+     * As per NmeaReceiver.set_ignoreBeforeChecksum().  Set before the first Receive().
+     * @param ignoreBeforeChecksum
+     */
+    public void set_ignoreBeforeChecksum( boolean ignoreBeforeChecksum ) {
+        _ignoreBeforeChecksum = ignoreBeforeChecksum;
+        for ( Worker worker : _workers ) {
+            worker._receiver.set_ignoreBeforeChecksum( ignoreBeforeChecksum );
+        }
+    }
+
+    public boolean get_ignoreBeforeChecksum() {
+        return _ignoreBeforeChecksum;
+    }
+
+    /**
+     * As per NmeaReceiver.set_recordLatencies(), into the hub's metrics.  Latencies count from the
+     * Receive() call that delivered a sentence's '$', so they include the time spent waiting for a
+     * worker.  Set before the first Receive().
+     * @param recordLatencies
+     */
+    public void set_recordLatencies( boolean recordLatencies ) {
+        _recordLatencies = recordLatencies;
+        for ( Worker worker : _workers ) {
+            worker._receiver.set_recordLatencies( recordLatencies );
+        }
+    }
+
+    public boolean get_recordLatencies() {
+        return _recordLatencies;
+    }
+
+    /**
+     * Receives an arbitrary number of bytes from a source
+     * @param sourceId
+     * @param bytes
+     */
+    public void Receive( long sourceId, byte[] bytes ) {
+        Receive( sourceId, bytes, 0, bytes.length );
+    }
+
+    /**
+     * Receives a range of bytes from a source.  The bytes are copied, so the array can be reused as
+     * soon as this returns.  Blocks while the source's worker has a full queue, until shutdown().
+     *
+     * The bytes of a given source must be received in order, i.e. from one thread at a time.
+     * @param sourceId
+     * @param bytes
+     * @param offset
+     * @param length
+     */
+    public void Receive( long sourceId, byte[] bytes, int offset, int length ) {
+        Worker worker = WorkerOf( sourceId );
+        Chunk chunk = worker.Acquire();
+        System.arraycopy( bytes, offset, chunk.Reserve( sourceId, length ), 0, length );
+        worker.Enqueue( chunk );
+    }
+
+    /**
+     * Receives the remaining bytes of a buffer (heap or direct) from a source.  The buffer's
+     * position is advanced to its limit.
+     * @param sourceId
+     * @param buffer
+     */
+    public void Receive( long sourceId, ByteBuffer buffer ) {
+        Worker worker = WorkerOf( sourceId );
+        Chunk chunk = worker.Acquire();
+        int length = buffer.remaining();
+        buffer.get( chunk.Reserve( sourceId, length ), 0, length );
+        worker.Enqueue( chunk );
+    }
+
+    /**
+     * Forgets a source, e.g. when its connection closes, once the bytes already received for it have
+     * been handled.  A partial sentence is dropped.  Bytes received for the same id afterwards
+     * start a new source, with a new handler.
+     * @param sourceId
+     */
+    public void closeSource( long sourceId ) {
+        Worker worker = WorkerOf( sourceId );
+        Chunk chunk = worker.Acquire();
+        chunk.Reserve( sourceId, CLOSE_SOURCE );
+        worker.Enqueue( chunk );
+    }
+
+    /**
+     * Handles all the bytes received so far, then stops the worker threads.  A Receive() or
+     * closeSource() call racing this one either gets its bytes handled, throws
+     * IllegalStateException, or has its bytes dropped; it doesn't block forever.
+     * @throws InterruptedException
+     */
+    public void shutdown() throws InterruptedException {
+        _shutdown = true;
+        for ( Worker worker : _workers ) {
+            Chunk chunk = new Chunk();
+            chunk.Reserve( 0, STOP );
+            worker._pending.put( chunk );
+        }
+        for ( Worker worker : _workers ) {
+            worker._thread.join();
+        }
+    }
+
+    /**
+     * Spreads source ids over the workers, so that consecutive ids land on different workers
+     */
+    private Worker WorkerOf( long sourceId ) {
+        long hash = ( sourceId * 0x9E3779B97F4A7C15L ) >>> 32;
+        return _workers[(int) ( ( hash * _workers.length ) >>> 32 )];
+    }
+
+    /**
+     * Worker thread, with the sources assigned to it
+     */
+    private final class Worker implements Runnable, INmeaHandler {
+
+        private final ArrayBlockingQueue<Chunk> _pending;
+
+        /**
+         * Handled chunks, to be reused by Receive()
+         */
+        private final ArrayBlockingQueue<Chunk> _free;
+
+        /**
+         * Only accessed from the worker thread
+         */
+        private final SourceTable _sources = new SourceTable();
+
+        /**
+         * Verifies and parses the sentences of all of this worker's sources
+         */
+        private final NmeaReceiver _receiver = new NmeaReceiver( this );
+
+        /**
+         * Source whose bytes are being handled
+         */
+        private Source _current;
+
+        private final Thread _thread;
+
+        private final INmeaStream.OnNMEAMessageReceivedHandler _onNMEAMessageReceived = new INmeaStream.OnNMEAMessageReceivedHandler() {
+            @Override
+            public void NMEAMessageReceived( byte[] bytes, int index, int count ) {
+                _receiver.HandleSentence( bytes, index, count, _current._stream.get_checksum(), _current._stream.get_arrivalNanos() );
+            }
+        };
+
+        private Worker( int index, int queueCapacity ) {
+            _pending = new ArrayBlockingQueue<>( queueCapacity );
+            _free = new ArrayBlockingQueue<>( queueCapacity );
+            _thread = new Thread( this, "NmeaReceiverHub-" + index );
+            _thread.setDaemon( true );
+            _receiver.set_metrics( _metrics );
+        }
+
+        private Chunk Acquire() {
+            if ( _shutdown ) {
+                throw new IllegalStateException( "NmeaReceiverHub is shut down" );
+            }
+            Chunk chunk = _free.poll();
+            if ( chunk == null ) {
+                chunk = new Chunk();
+            }
+            chunk._arrivalNanos = _recordLatencies ? System.nanoTime() : 0;
+            return chunk;
+        }
+
+        /**
+         * Waits for room in the queue, unless the hub shuts down: the worker may be gone by then
+         */
+        private void Enqueue( Chunk chunk ) {
+            try {
+                while ( !_pending.offer( chunk, ENQUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS ) ) {
+                    if ( _shutdown ) {
+                        throw new IllegalStateException( "NmeaReceiverHub is shut down" );
+                    }
+                }
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException( "Interrupted while waiting for a NmeaReceiverHub worker", e );
+            }
+        }
+
+        private void Register( String formatter, INmeaMessageFactory factory, final int index ) {
+            _receiver.register( formatter, factory, new INmeaMessageHandler() {
+                @Override
+                public void HandleMessage( INmeaMessage msg ) {
+                    INmeaMessageHandler[] handlers = _current._messageHandlers;
+                    if ( index < handlers.length && handlers[index] != null ) {
+                        handlers[index].HandleMessage( msg );
+                    }
+                }
+            } );
+        }
+
+        @Override
+        public void run() {
+            try {
+                while ( true ) {
+                    Chunk chunk = _pending.take();
+                    if ( chunk._length == STOP ) {
+                        return;
+                    }
+                    Handle( chunk );
+                    _free.offer( chunk );
+                }
+            } catch ( InterruptedException e ) {
+                // ... Stopped
+            }
+        }
+
+        private void Handle( Chunk chunk ) {
+            if ( chunk._length == CLOSE_SOURCE ) {
+                _sources.remove( chunk._sourceId );
+                return;
+            }
+
+            Source source = _sources.get( chunk._sourceId );
+            if ( source == null ) {
+                INmeaMessageHandler[] messageHandlers = new INmeaMessageHandler[_messageHandlerFactories.size()];
+                for ( int i = 0; i < messageHandlers.length; ++i ) {
+                    messageHandlers[i] = _messageHandlerFactories.get( i ).Create( chunk._sourceId );
+                }
+                source = new Source( _handlerFactory.Create( chunk._sourceId ), messageHandlers );
+                source._stream.set_OnNMEAMessageReceivedHandler( _onNMEAMessageReceived );
+                source._stream.set_overflowCounter( _metrics.get_streamOverflowCounter() );
+                _sources.put( chunk._sourceId, source );
+            }
+
+            _current = source;
+            try {
+                source._stream.Append( chunk._bytes, 0, chunk._length, chunk._arrivalNanos );
+            } catch ( RuntimeException e ) {
+                // ... A handler or parser threw: drop the rest of the chunk, and keep the worker
+                // running for the other sources
+                source._stream.Reset();
+                Thread.UncaughtExceptionHandler exceptionHandler = _thread.getUncaughtExceptionHandler();
+                exceptionHandler.uncaughtException( _thread, e );
+            }
+        }
+
+        @Override
+        public void HandleGGA( INmeaMessage msg ) {
+            _current._handler.HandleGGA( msg );
+        }
+
+        @Override
+        public void HandleGSA( INmeaMessage msg ) {
+            _current._handler.HandleGSA( msg );
+        }
+
+        @Override
+        public void HandleGST( INmeaMessage msg ) {
+            _current._handler.HandleGST( msg );
+        }
+
+        @Override
+        public void HandleGSV( INmeaMessage msg ) {
+            _current._handler.HandleGSV( msg );
+        }
+
+        @Override
+        public void HandleHDT( INmeaMessage msg ) {
+            _current._handler.HandleHDT( msg );
+        }
+
+        @Override
+        public void HandleRMC( INmeaMessage msg ) {
+            _current._handler.HandleRMC( msg );
+        }
+
+        @Override
+        public void HandleVTG( INmeaMessage msg ) {
+            _current._handler.HandleVTG( msg );
+        }
+    }
+}
@@ -0,0 +1,561 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Default implementation of the NMEA stream contract
+ */
+
+public class NmeaStream implements INmeaStreamExtensions {
+
+    /**
+     * NMEA-0183 mandates an 80 byte message limit, but nobody follows this rule.
+     * So let's be safe and use a big enough buffer.
+     */
+    private static final int MAX_RECEIVE_SIZE = 1024;
+
+    /**
+     * Start of NMEA sentence
+     */
+    private static final char DELIM_SOM = '$';
+
+    /**
+     * End of NMEA sentence
+     */
+    private static final char DELIM_EOM = '\n';
+
+    /**
+     * Placeholder for received bytes
+     */
+    private byte[] _buffer = new byte[MAX_RECEIVE_SIZE];
+
+    /**
+     * Offset in the buffer, indicating the number of bytes buffered thus far.
+     */
+    private int _offset = 0;
+
+    /**
+     * XOR of the bytes received since the SOM, EOM excluded, accumulated as they are scanned
+     */
+    private byte _checksum = 0;
+
+    /**
+     * Checksum of the sentence being reported
+     */
+    private byte _reportedChecksum = 0;
+
+    /**
+     * If set, the arrival time of each sentence is recorded
+     */
+    private boolean _recordArrivalTimes = false;
+
+    /**
+     * Arrival time of the SOM of the sentence being received
+     */
+    private long _somNanos = 0;
+
+    /**
+     * Arrival time of the sentence being reported
+     */
+    private long _reportedArrivalNanos = 0;
+
+    /**
+     * Sentences dropped because they didn't fit in the buffer
+     */
+    private StripedCounter _overflows = new StripedCounter( 1 );
+
+    /**
+     * StateEnum of NMEA parsing
+     */
+    public enum StateEnum {
+        Idle,   // Currently not parsing a NMEA sentence (buffering bytes)
+        Payload // Actively parsing a NMEA sentence
+    }
+
+    /**
+     * Default starting state
+     */
+    private StateEnum _state = StateEnum.Idle;
+
+    private OnNMEAMessageReceivedHandler _onNMEAMessageReceived ;
+
+    private void invokeOnNMEAMessageReceivedHandler(byte[] bytes, int index, int count) {
+        if ( _onNMEAMessageReceived != null ) {
+            // ... Take the checksum characters and CR, which precede the EOM, back out of the XOR
+            byte checksum = _checksum;
+            if ( count >= 6 ) {
+                int eom = index + count - 1;
+                checksum ^= bytes[eom - 1] ^ bytes[eom - 2] ^ bytes[eom - 3] ^ bytes[eom - 4];
+            }
+            _reportedChecksum = checksum;
+            _reportedArrivalNanos = _somNanos;
+
+            _onNMEAMessageReceived.NMEAMessageReceived( bytes, index, count );
+        }
+    }
+
+    public StateEnum get_state() {
+        return _state;
+    }
+
+    /**
+     * Checksum of the sentence being reported, computed while the sentence was scanned for
+     * delimiters: the XOR of the bytes between the SOM and the 4 bytes that precede the EOM
+     * (i.e. "*hh\r").  Only valid from within the OnNMEAMessageReceivedHandler.
+     * @return
+     */
+    public byte get_checksum() {
+        return _reportedChecksum;
+    }
+
+    @Override
+    public void set_recordArrivalTimes( boolean recordArrivalTimes ) {
+        _recordArrivalTimes = recordArrivalTimes;
+    }
+
+    @Override
+    public boolean get_recordArrivalTimes() {
+        return _recordArrivalTimes;
+    }
+
+    /**
+     * System.nanoTime() of the Append() call that delivered the SOM of the sentence being reported.
+     * Only valid from within the OnNMEAMessageReceivedHandler, and if arrival times are recorded.
+     * @return
+     */
+    @Override
+    public long get_arrivalNanos() {
+        return _reportedArrivalNanos;
+    }
+
+    @Override
+    public void set_overflowCounter( StripedCounter counter ) {
+        _overflows = counter;
+    }
+
+    /**
+     * Number of sentences dropped so far because they didn't fit in the buffer, as counted by the
+     * overflow counter
+     * @return
+     */
+    public long get_overflowCount() {
+        return _overflows.Sum();
+    }
+
+    @Override
+    public void set_OnNMEAMessageReceivedHandler( OnNMEAMessageReceivedHandler handler ) {
+        _onNMEAMessageReceived = handler ;
+    }
+
+    /**
+     * Number of bytes buffered thus far.
+     * @return
+     */
+    @Override
+    public int get_length() {
+        return _offset;
+    }
+
+    /**
+     * Total number of bytes that can be buffered
+     * @return
+     */
+    @Override
+    public int get_capacity() {
+        return _buffer.length;
+    }
+
+    /**
+     * Available space left in the buffer
+     * @return
+     */
+    @Override
+    public int get_available() {
+        return get_capacity() - get_length();
+    }
+
+    /**
+     * Appends a byte to the buffer, and invokes the NMEA message callback if a complete NMEA sentence has been received.
+     * @param b
+     */
+    @Override
+    public void Append( byte b ) {
+
+        // ... If we've run out of space
+        if (get_available() == 0) {
+            // ... reset everything
+            _overflows.Increment();
+            Reset();
+        }
+
+        switch (_state) {
+            // ... If we're waiting for the start of NMEA message
+            case Idle:
+
+                // ... If the byte is indeed the SOM
+                if ((char)b == DELIM_SOM) {
+
+                    // ... Append the byte to the buffer
+                    _buffer[_offset++] = b;
+                    _checksum = 0;
+                    _somNanos = _recordArrivalTimes ? System.nanoTime() : 0;
+
+                    // ... We are now officially parsing a NMEA message
+                    _state = StateEnum.Payload;
+                }
+
+                // *** Note: we only buffe rbytes if we're parsing a NMEA sentence
+                break;
+
+            // ... If we're actively in the process of parsing a NMEA message
+            case Payload:
+
+                boolean isMessageReceived = false;
+
+                // ... If we get yet another SOM, assume corruption and use this as the new SOM position
+                if ((char)b == DELIM_SOM) {
+                    _offset = 0;
+                    _checksum = 0;
+                    _somNanos = _recordArrivalTimes ? System.nanoTime() : 0;
+                }
+                // ... If the byte is the End of NMEA message, we have received a complete NMEA sentence
+                else if ((char)b == DELIM_EOM) {
+                    isMessageReceived = true;
+                }
+                else {
+                    _checksum ^= b;
+                }
+
+                // ... AAppend the byte to the buffer
+                _buffer[_offset++] = b;
+
+                // ... If we have a complete NMEA sentence
+                if (isMessageReceived) {
+                    // ... Invoke the callback
+                    invokeOnNMEAMessageReceivedHandler(_buffer, 0, get_length());
+                    // ... Then reset the state and the buffer
+                    Reset();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Appends many bytes to the buffer.  See Append(byte[], int, int).
+     * @param bytes
+     */
+    @Override
+    public void Append( byte[] bytes ) {
+        Append( bytes, 0, bytes.length );
+    }
+
+    /**
+     * Appends a range of bytes to the buffer.  This is equivalent to calling Append(byte) for
+     * each byte, but rather than running the state machine byte by byte, the range is scanned for
+     * delimiters and whole runs of bytes are copied at once.  Sentences that are fully contained
+     * in the range are reported straight from the caller's array, without being buffered.
+     * @param bytes
+     * @param index
+     * @param count
+     */
+    @Override
+    public void Append( byte[] bytes, int index, int count ) {
+        Append( bytes, index, count, _recordArrivalTimes ? System.nanoTime() : 0 );
+    }
+
+    /**
+     * Appends a range of bytes that arrived at a given time, e.g. bytes that were queued before
+     * being appended
+     * @param bytes
+     * @param index
+     * @param count
+     * @param arrivalNanos System.nanoTime() when the bytes arrived
+     */
+    void Append( byte[] bytes, int index, int count, long arrivalNanos ) {
+        final int end = index + count;
+        int i = index;
+
+        while ( i < end ) {
+            switch (_state) {
+                // ... If we're waiting for the start of NMEA message
+                case Idle: {
+                    // ... Skip everything up to the next SOM
+                    int som = IndexOfSom( bytes, i, end );
+                    if ( som == end ) {
+                        return;
+                    }
+
+                    _checksum = 0;
+                    _somNanos = arrivalNanos;
+                    int eom = IndexOfDelimiter( bytes, som + 1, end );
+
+                    // ... If the sentence isn't complete, buffer what we have so far
+                    if ( eom == end ) {
+                        BufferPayload( bytes, som, end - som );
+                        return;
+                    }
+
+                    // ... If we get yet another SOM, assume corruption and use this as the new SOM position
+                    if ( (char)bytes[eom] == DELIM_SOM ) {
+                        CountDroppedRun( eom - som );
+                        i = eom;
+                        break;
+                    }
+
+                    // ... The whole sentence is in the caller's array: no need to copy it.  Sentences
+                    // that wouldn't have fit in the buffer are dropped, as they would be byte by byte.
+                    int length = eom - som + 1;
+                    if ( length <= get_capacity() ) {
+                        invokeOnNMEAMessageReceivedHandler( bytes, som, length );
+                    } else {
+                        _overflows.Increment();
+                    }
+                    i = eom + 1;
+                    break;
+                }
+
+                // ... If we're in the middle of a sentence started by a previous call
+                case Payload: {
+                    int eom = IndexOfDelimiter( bytes, i, end );
+
+                    // ... Still not complete, keep on buffering
+                    if ( eom == end ) {
+                        BufferPayload( bytes, i, end - i );
+                        return;
+                    }
+
+                    // ... Corruption: drop what we have, and start over from the new SOM
+                    if ( (char)bytes[eom] == DELIM_SOM ) {
+                        CountDroppedRun( eom - i );
+                        Reset();
+                        i = eom;
+                        break;
+                    }
+
+                    // ... Complete the buffered sentence, unless we've run out of space
+                    int length = eom - i + 1;
+                    if ( length <= get_available() ) {
+                        System.arraycopy( bytes, i, _buffer, _offset, length );
+                        _offset += length;
+                        invokeOnNMEAMessageReceivedHandler( _buffer, 0, get_length() );
+                    } else {
+                        _overflows.Increment();
+                    }
+                    Reset();
+                    i = eom + 1;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the remaining bytes of a buffer.  Heap buffers go through Append(byte[], int, int)
+     * on their backing array.  For direct (and read-only) buffers, the delimiters are scanned for in
+     * place, and each sentence is copied into the internal buffer in a single bulk get, since it
+     * has to be reported as a byte[].  The buffer's position is advanced to its limit.
+     * @param buffer
+     */
+    @Override
+    public void Append( ByteBuffer buffer ) {
+        if ( buffer.hasArray() ) {
+            Append( buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining() );
+            buffer.position( buffer.limit() );
+            return;
+        }
+
+        final int end = buffer.limit();
+        final long arrivalNanos = _recordArrivalTimes ? System.nanoTime() : 0;
+        int i = buffer.position();
+
+        while ( i < end ) {
+            // ... Where does the current run of sentence bytes start?
+            int start = i;
+            if ( _state == StateEnum.Idle ) {
+                start = IndexOfSom( buffer, i, end );
+                if ( start == end ) {
+                    break;
+                }
+                _checksum = 0;
+                _somNanos = arrivalNanos;
+            }
+
+            int eom = IndexOfDelimiter( buffer, _state == StateEnum.Idle ? start + 1 : start, end );
+
+            // ... Corruption: drop what we have, and start over from the new SOM
+            if ( eom < end && buffer.get( eom ) == DELIM_SOM ) {
+                CountDroppedRun( eom - start );
+                Reset();
+                i = eom;
+                continue;
+            }
+
+            // ... Buffer the run (this drops everything if it doesn't fit)
+            int runEnd = eom < end ? eom + 1 : end;
+            BufferPayload( buffer, start, runEnd - start );
+
+            // ... If we have a complete NMEA sentence
+            if ( eom < end && _state == StateEnum.Payload ) {
+                invokeOnNMEAMessageReceivedHandler( _buffer, 0, get_length() );
+                Reset();
+            }
+            i = runEnd;
+        }
+        buffer.position( end );
+    }
+
+    /**
+     * Counts an overflow when a run of sentence bytes, cut short by a new SOM, wouldn't have left
+     * room for that SOM in the buffer: Append(byte) would have overflowed (once) on the way
+     * @param count Bytes of the run, before the new SOM
+     */
+    private void CountDroppedRun( int count ) {
+        if ( count >= get_available() ) {
+            _overflows.Increment();
+        }
+    }
+
+    /**
+     * Buffers the bytes of an incomplete sentence.  If they don't fit, everything is dropped and
+     * we go back to looking for a SOM, which is what Append(byte) would have done.
+     * @param bytes
+     * @param index
+     * @param count
+     */
+    private void BufferPayload( byte[] bytes, int index, int count ) {
+        if ( count > get_available() ) {
+            _overflows.Increment();
+            Reset();
+            return;
+        }
+        System.arraycopy( bytes, index, _buffer, _offset, count );
+        _offset += count;
+        _state = StateEnum.Payload;
+    }
+
+    /**
+     * ByteBuffer flavour of BufferPayload(byte[], int, int).  Changes the buffer's position.
+     * @param buffer
+     * @param index
+     * @param count
+     */
+    private void BufferPayload( ByteBuffer buffer, int index, int count ) {
+        if ( count > get_available() ) {
+            _overflows.Increment();
+            Reset();
+            return;
+        }
+        buffer.position( index );
+        buffer.get( _buffer, _offset, count );
+        _offset += count;
+        _state = StateEnum.Payload;
+    }
+
+    /**
+     * Finds the next SOM
+     * @param bytes
+     * @param index
+     * @param end
+     * @return Offset of the SOM, or 'end' if there is none
+     */
+    private static int IndexOfSom( byte[] bytes, int index, int end ) {
+        while ( index < end && bytes[index] != DELIM_SOM ) {
+            ++index;
+        }
+        return index;
+    }
+
+    /**
+     * Finds the next SOM or EOM, whichever comes first, XORing the bytes before it into the
+     * running checksum along the way
+     * @param bytes
+     * @param index
+     * @param end
+     * @return Offset of the delimiter, or 'end' if there is none
+     */
+    private int IndexOfDelimiter( byte[] bytes, int index, int end ) {
+        int checksum = _checksum;
+
+        // ... Unrolled by 4 so that the loop overhead is paid once every four bytes
+        final int end4 = end - 3;
+        while ( index < end4 ) {
+            byte b0 = bytes[index];
+            byte b1 = bytes[index + 1];
+            byte b2 = bytes[index + 2];
+            byte b3 = bytes[index + 3];
+            if ( IsDelimiter( b0 ) ) break;
+            checksum ^= b0;
+            if ( IsDelimiter( b1 ) ) { _checksum = (byte)checksum; return index + 1; }
+            checksum ^= b1;
+            if ( IsDelimiter( b2 ) ) { _checksum = (byte)checksum; return index + 2; }
+            checksum ^= b2;
+            if ( IsDelimiter( b3 ) ) { _checksum = (byte)checksum; return index + 3; }
+            checksum ^= b3;
+            index += 4;
+        }
+        while ( index < end && !IsDelimiter( bytes[index] ) ) {
+            checksum ^= bytes[index++];
+        }
+        _checksum = (byte)checksum;
+        return index;
+    }
+
+    /**
+     * ByteBuffer flavour of IndexOfSom(byte[], int, int), using absolute gets
+     */
+    private static int IndexOfSom( ByteBuffer buffer, int index, int end ) {
+        while ( index < end && buffer.get( index ) != DELIM_SOM ) {
+            ++index;
+        }
+        return index;
+    }
+
+    /**
+     * ByteBuffer flavour of IndexOfDelimiter(byte[], int, int), using absolute gets
+     */
+    private int IndexOfDelimiter( ByteBuffer buffer, int index, int end ) {
+        int checksum = _checksum;
+        byte b;
+        while ( index < end && !IsDelimiter( b = buffer.get( index ) ) ) {
+            checksum ^= b;
+            ++index;
+        }
+        _checksum = (byte)checksum;
+        return index;
+    }
+
+    private static boolean IsDelimiter( byte b ) {
+        return b == DELIM_SOM || b == DELIM_EOM;
+    }
+
+    /**
+     * Resets the parsing state and offset in the receive buffer
+     */
+    @Override
+    public void Reset() {
+        _offset = 0 ;
+        _checksum = 0 ;
+        _state = StateEnum.Idle;
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GGA;
+import com.inverness_park.nmea.Sentences.GSA;
+import com.inverness_park.nmea.Sentences.GST;
+import com.inverness_park.nmea.Sentences.GSV;
+import com.inverness_park.nmea.Sentences.HDT;
+import com.inverness_park.nmea.Sentences.RMC;
+import com.inverness_park.nmea.Sentences.VTG;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * java.util.stream views of NMEA data, e.g.
+ * <pre>{@code
+ *     try ( Stream<GGA> ggas = NmeaStreams.of( file, GGA.class ) ) {
+ *         double maxAltitude = ggas.mapToDouble( GGA::get_altitude ).max().orElse( 0 );
+ *     }
+ * }</pre>
+ * Sentences are framed by NmeaStream and verified by NmeaReceiver, as they are when received live,
+ * and parsed lazily, as the stream is consumed.  Sentences of types other than the requested one
+ * are skipped without being parsed, so prefer of( file, GGA.class ) to of( file ).filter(...).
+ *
+ * File streams can be split, so .parallel() spreads them over cores: they are split at sentence
+ * boundaries, and memory-mapped.  Streams hold the file or input stream open until closed.
+ * Sentences that fail to parse (e.g. a GGA with malformed fields) are counted in the parse errors
+ * of the underlying receiver, and skipped, rather than ending the stream.
+ *
+ * java.util.stream and UncheckedIOException are only available on Android from API level 24:
+ * this class is for JVMs, and Android devices at API level 24 or above.
+ */
+
+public final class NmeaStreams {
+
+    /**
+     * Sentence types of the INmeaHandler contract
+     */
+    private static final String[] FORMATTERS = { "GGA", "GSA", "GST", "GSV", "HDT", "RMC", "VTG" };
+
+    private static final INmeaMessageFactory[] FACTORIES = {
+            GGA.FACTORY, GSA.FACTORY, GST.FACTORY, GSV.FACTORY, HDT.FACTORY, RMC.FACTORY, VTG.FACTORY
+    };
+
+    private static final Class<?>[] TYPES = {
+            GGA.class, GSA.class, GST.class, GSV.class, HDT.class, RMC.class, VTG.class
+    };
+
+    /**
+     * Bytes mapped at a time
+     */
+    private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Bytes framed at a time, i.e. at most this many bytes' worth of messages are parsed ahead
+     */
+    private static final int FEED_SIZE = 16 * 1024;
+
+    /**
+     * Files aren't split in parts smaller than this
+     */
+    static final int MIN_SPLIT_SIZE = 256 * 1024;
+
+    /**
+     * Used for size estimates
+     */
+    private static final int AVERAGE_SENTENCE_LENGTH = 64;
+
+    private NmeaStreams() {
+    }
+
+    /**
+     * Messages of all the supported sentence types in a file, in file order
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static Stream<INmeaMessage> of( File file ) throws IOException {
+        return of( file, INmeaMessage.class );
+    }
+
+    /**
+     * Messages of one type in a file, in file order.  Sentences of other types aren't parsed.
+     * @param file
+     * @param type e.g. GGA.class
+     * @param <T>
+     * @return
+     * @throws IOException
+     */
+    public static <T extends INmeaMessage> Stream<T> of( File file, Class<T> type ) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile( file, "r" );
+        FileChannel channel = randomAccessFile.getChannel();
+        Spliterator<T> spliterator = new FileSpliterator<>( type, channel, 0, channel.size() );
+        return StreamSupport.stream( spliterator, false ).onClose( new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    randomAccessFile.close();
+                } catch ( IOException e ) {
+                    throw new UncheckedIOException( e );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Messages of all the supported sentence types read from an input stream.  Such streams are
+     * sequential only.
+     * @param input
+     * @return
+     */
+    public static Stream<INmeaMessage> of( InputStream input ) {
+        return of( input, INmeaMessage.class );
+    }
+
+    /**
+     * Messages of one type read from an input stream.  Sentences of other types aren't parsed.
+     * @param input
+     * @param type e.g. GGA.class
+     * @param <T>
+     * @return
+     */
+    public static <T extends INmeaMessage> Stream<T> of( final InputStream input, Class<T> type ) {
+        Spliterator<T> spliterator = new InputStreamSpliterator<>( type, input );
+        return StreamSupport.stream( spliterator, false ).onClose( new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    input.close();
+                } catch ( IOException e ) {
+                    throw new UncheckedIOException( e );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Frames and parses bytes through a NmeaReceiver on which only the requested types are
+     * registered, and hands the messages out one at a time
+     * @param <T>
+     */
+    private static abstract class MessageSpliterator<T extends INmeaMessage> implements Spliterator<T> {
+        protected final Class<T> _type;
+        protected final NmeaReceiver _receiver = new NmeaReceiver();
+
+        /**
+         * Messages parsed from bytes already fed, and not handed out yet
+         */
+        protected final ArrayDeque<T> _pending = new ArrayDeque<>();
+
+        /**
+         * Set by forEachRemaining(), so that messages go straight to the action
+         */
+        private Consumer<? super T> _action;
+
+        MessageSpliterator( Class<T> type ) {
+            _type = type;
+            _receiver.set_ignoreBeforeChecksum( true );
+            _receiver.set_skipParseErrors( true );
+            INmeaMessageHandler handler = new INmeaMessageHandler() {
+                @Override
+                public void HandleMessage( INmeaMessage msg ) {
+                    T message = _type.cast( msg );
+                    if ( _action != null ) {
+                        _action.accept( message );
+                    } else {
+                        _pending.add( message );
+                    }
+                }
+            };
+            for ( int i = 0; i < FORMATTERS.length; ++i ) {
+                if ( type.isAssignableFrom( TYPES[i] ) ) {
+                    _receiver.register( FORMATTERS[i], FACTORIES[i], handler );
+                }
+            }
+        }
+
+        /**
+         * Feeds the next bytes to the receiver
+         * @return false once there are no bytes left
+         */
+        protected abstract boolean Feed();
+
+        @Override
+        public boolean tryAdvance( Consumer<? super T> action ) {
+            while ( _pending.isEmpty() ) {
+                if ( !Feed() ) {
+                    return false;
+                }
+            }
+            action.accept( _pending.poll() );
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining( Consumer<? super T> action ) {
+            while ( !_pending.isEmpty() ) {
+                action.accept( _pending.poll() );
+            }
+            _action = action;
+            try {
+                while ( Feed() ) {
+                    // ... Messages go straight to the action
+                }
+            } finally {
+                _action = null;
+            }
+        }
+
+        /**
+         * Ordered: messages come in the order of their sentences.  Not SIZED: the number of
+         * messages isn't known until the bytes are framed.
+         * @return
+         */
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL;
+        }
+    }
+
+    /**
+     * Range of a file, memory-mapped a window at a time
+     * @param <T>
+     */
+    private static final class FileSpliterator<T extends INmeaMessage> extends MessageSpliterator<T> {
+        private final FileChannel _channel;
+
+        /**
+         * Position of the first byte not mapped yet
+         */
+        private long _next;
+
+        private long _end;
+
+        private MappedByteBuffer _window;
+
+        FileSpliterator( Class<T> type, FileChannel channel, long start, long end ) {
+            super( type );
+            _channel = channel;
+            _next = start;
+            _end = end;
+        }
+
+        @Override
+        protected boolean Feed() {
+            try {
+                if ( _window == null || !_window.hasRemaining() ) {
+                    if ( _next >= _end ) {
+                        return false;
+                    }
+                    int length = (int) Math.min( WINDOW_SIZE, _end - _next );
+                    _window = _channel.map( FileChannel.MapMode.READ_ONLY, _next, length );
+                    _next += length;
+                }
+            } catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+
+            // ... Sentences split across windows are completed by the receiver's stream
+            _window.limit( Math.min( _window.position() + FEED_SIZE, _window.capacity() ) );
+            _receiver.Receive( _window );
+            _window.limit( _window.capacity() );
+            return true;
+        }
+
+        /**
+         * Splits off the first half of the range, at a sentence boundary, as long as nothing has
+         * been read yet
+         * @return
+         */
+        @Override
+        public Spliterator<T> trySplit() {
+            if ( _window != null || _end - _next < 2 * MIN_SPLIT_SIZE ) {
+                return null;
+            }
+            long middle;
+            try {
+                middle = NmeaParallelParser.Align( _channel, _next + ( _end - _next ) / 2, _end );
+            } catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+            if ( middle >= _end ) {
+                return null;
+            }
+            FileSpliterator<T> prefix = new FileSpliterator<>( _type, _channel, _next, middle );
+            _next = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long remaining = _end - _next + ( _window != null ? _window.remaining() : 0 );
+            return remaining / AVERAGE_SENTENCE_LENGTH + _pending.size();
+        }
+    }
+
+    /**
+     * Input stream, read a buffer at a time
+     * @param <T>
+     */
+    private static final class InputStreamSpliterator<T extends INmeaMessage> extends MessageSpliterator<T> {
+        private final InputStream _input;
+        private final byte[] _buffer = new byte[FEED_SIZE];
+
+        InputStreamSpliterator( Class<T> type, InputStream input ) {
+            super( type );
+            _input = input;
+        }
+
+        @Override
+        protected boolean Feed() {
+            int count;
+            try {
+                count = _input.read( _buffer );
+            } catch ( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+            if ( count < 0 ) {
+                return false;
+            }
+            _receiver.Receive( _buffer, 0, count );
+            return true;
+        }
+
+        /**
+         * Input streams can't be split
+         * @return
+         */
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Types.ConstellationEnum;
+
+/**
+ * All the satellites in view at one epoch, across constellations, as assembled from GSV sentences
+ * by a GsvAssembler.  Satellites are kept in primitive arrays, in the order they were reported.
+ */
+
+public class SatellitesInView {
+
+    /**
+     * Elevation, azimuth or SNR that was left blank
+     */
+    public static final int NO_VALUE = Byte.MIN_VALUE;
+
+    private static final ConstellationEnum[] CONSTELLATIONS = ConstellationEnum.values();
+
+    private final byte[] _constellation;
+    private final short[] _prn;
+    private final byte[] _elevation;
+    private final short[] _azimuth;
+    private final byte[] _snr;
+    private int _count = 0;
+    private boolean _complete = false;
+    private long _nanoTime = 0;
+
+    /**
+     * Constructor
+     * @param capacity Maximum number of satellites
+     */
+    public SatellitesInView( int capacity ) {
+        _constellation = new byte[capacity];
+        _prn = new short[capacity];
+        _elevation = new byte[capacity];
+        _azimuth = new short[capacity];
+        _snr = new byte[capacity];
+    }
+
+    public int get_capacity() {
+        return _prn.length;
+    }
+
+    /**
+     * Number of satellites
+     * @return
+     */
+    public int get_count() {
+        return _count;
+    }
+
+    /**
+     * False if some GSV sentences of the epoch were missing, in which case their satellites are too
+     * @return
+     */
+    public boolean get_complete() {
+        return _complete;
+    }
+
+    /**
+     * System.nanoTime() when the first GSV sentence of the epoch was received
+     * @return
+     */
+    public long get_nanoTime() {
+        return _nanoTime;
+    }
+
+    public ConstellationEnum get_constellation( int i ) {
+        return CONSTELLATIONS[_constellation[CheckIndex( i )]];
+    }
+
+    /**
+     * Satellite ID number, as reported by its talker
+     * @param i
+     * @return
+     */
+    public int get_prn( int i ) {
+        return _prn[CheckIndex( i )];
+    }
+
+    /**
+     * Elevation in degrees, or NO_VALUE
+     * @param i
+     * @return
+     */
+    public int get_elevation( int i ) {
+        return _elevation[CheckIndex( i )];
+    }
+
+    /**
+     * Azimuth in degrees from true north, or NO_VALUE
+     * @param i
+     * @return
+     */
+    public int get_azimuth( int i ) {
+        return _azimuth[CheckIndex( i )];
+    }
+
+    /**
+     * Signal to noise ratio in dB-Hz, or NO_VALUE if the satellite isn't tracked
+     * @param i
+     * @return
+     */
+    public int get_snr( int i ) {
+        return _snr[CheckIndex( i )];
+    }
+
+    /**
+     * Number of satellites of a constellation
+     * @param constellation
+     * @return
+     */
+    public int get_count( ConstellationEnum constellation ) {
+        int count = 0;
+        for ( int i = 0; i < _count; ++i ) {
+            if ( _constellation[i] == constellation.ordinal() ) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies the epoch, e.g. to keep it after the GsvAssembler listener returns
+     * @param other Must have enough capacity
+     */
+    public void CopyTo( SatellitesInView other ) {
+        if ( other.get_capacity() < _count ) {
+            throw new IllegalArgumentException( "Not enough capacity for " + _count + " satellites" );
+        }
+        System.arraycopy( _constellation, 0, other._constellation, 0, _count );
+        System.arraycopy( _prn, 0, other._prn, 0, _count );
+        System.arraycopy( _elevation, 0, other._elevation, 0, _count );
+        System.arraycopy( _azimuth, 0, other._azimuth, 0, _count );
+        System.arraycopy( _snr, 0, other._snr, 0, _count );
+        other._count = _count;
+        other._complete = _complete;
+        other._nanoTime = _nanoTime;
+    }
+
+    void Begin( long nanoTime ) {
+        _count = 0;
+        _complete = false;
+        _nanoTime = nanoTime;
+    }
+
+    void Add( ConstellationEnum constellation, short prn, byte elevation, short azimuth, byte snr ) {
+        if ( _count == _prn.length ) {
+            return;
+        }
+        _constellation[_count] = (byte) constellation.ordinal();
+        _prn[_count] = prn;
+        _elevation[_count] = elevation;
+        _azimuth[_count] = azimuth;
+        _snr[_count] = snr;
+        ++_count;
+    }
+
+    /**
+     * Adds a satellite, or, if it is already listed (e.g. for another signal), keeps its best SNR
+     */
+    void Merge( ConstellationEnum constellation, short prn, byte elevation, short azimuth, byte snr ) {
+        for ( int i = 0; i < _count; ++i ) {
+            if ( _prn[i] == prn && _constellation[i] == constellation.ordinal() ) {
+                if ( snr > _snr[i] ) {
+                    _snr[i] = snr;
+                }
+                if ( _elevation[i] == NO_VALUE ) {
+                    _elevation[i] = elevation;
+                    _azimuth[i] = azimuth;
+                }
+                return;
+            }
+        }
+        Add( constellation, prn, elevation, azimuth, snr );
+    }
+
+    void set_complete( boolean complete ) {
+        _complete = complete;
+    }
+
+    private int CheckIndex( int i ) {
+        if ( i < 0 || i >= _count ) {
+            throw new IndexOutOfBoundsException( "Satellite " + i + " of " + _count );
+        }
+        return i;
+    }
+}
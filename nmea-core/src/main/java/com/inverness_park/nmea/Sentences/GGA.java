@@ -21,38 +21,40 @@
 
 package com.inverness_park.nmea.Sentences;
 
-import android.content.Context;
-import android.text.TextUtils;
-
 import com.inverness_park.nmea.BaseNmeaMessage;
 import com.inverness_park.nmea.INmeaMessage;
-import com.inverness_park.nmea.R;
+import com.inverness_park.nmea.INmeaMessageFactory;
+import com.inverness_park.nmea.NmeaEncoder;
+import com.inverness_park.nmea.NmeaFields;
 import com.inverness_park.nmea.Types.FixQualityEnum;
 import com.inverness_park.nmea.Types.GeoAngle;
-import com.inverness_park.nmea.Types.GeoAngleFormat;
-import com.inverness_park.nmea.Types.GeoAngleFormatOptions;
 import com.inverness_park.nmea.Types.Latitude;
 import com.inverness_park.nmea.Types.Longitude;
 
 import org.joda.time.Duration;
 import org.joda.time.LocalTime;
 import org.joda.time.TimeOfDay;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.PeriodFormatter;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
-
 /**
  * NMEA-0183 GGA
  */
 
 public class GGA extends BaseNmeaMessage {
 
+    /**
+     * Creates GGA instances, e.g. for NmeaReceiver.register()
+     */
+    public static final INmeaMessageFactory FACTORY = new INmeaMessageFactory() {
+        @Override
+        public INmeaMessage Create() {
+            return new GGA();
+        }
+    };
+
     private String _dataTypeName;
-    private LocalTime _utc ;
+    private int _utcMillisOfDay ;
+    private LocalTime _utc ; // built on demand from _utcMillisOfDay
     private Latitude _latitude ;
     private Longitude _longitude ;
     private FixQualityEnum _fixQuality ;
@@ -61,17 +63,19 @@ public class GGA extends BaseNmeaMessage {
     private float _altitude ;
     private float _geoidHeight ;
 
-    private DateTimeFormatter _utcFormatter = DateTimeFormat.forPattern("HHmmss.SSS");
-
     public GGA() {
         _dataTypeName = "GPGGA";
+        _latitude = new Latitude();
+        _longitude = new Longitude();
         Reset();
     }
 
+    @Override
     public void Reset() {
-        _utc = new LocalTime();
-        _latitude = new Latitude();
-        _longitude = new Longitude();
+        _utcMillisOfDay = 0;
+        _utc = null;
+        _latitude.set_degrees( 0 );
+        _longitude.set_degrees( 0 );
         _fixQuality = FixQualityEnum.Invalid;
         _satelliteCount = 0;
         _hdop = 99;
@@ -80,40 +84,36 @@ public class GGA extends BaseNmeaMessage {
     }
 
     @Override
-    public String get_description( Context context ) {
-        return context.getString( R.string.gga ) ;
+    public String get_description() {
+        return "Global Positioning System Fix Data";
     }
 
     @Override
-    public String get_payload() {
-        List<String> tokens = new ArrayList<String>() ;
-
-        tokens.add( get_dataTypeName() ) ;
-        tokens.add( get_utc().toString( _utcFormatter ) ) ;
-        tokens.add( get_latitude().ToString( GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact) ) ;
-        tokens.add( get_longitude().ToString(GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact) ) ;
-        tokens.add( get_fixQuality().toString() ) ;
-        tokens.add( String.valueOf( get_satelliteCount() ) ) ;
-        tokens.add( String.format( Locale.getDefault(), "%.2f", get_hdop() ) ) ;
-        tokens.add( String.format( Locale.getDefault(), "%.1f%sM", get_altitude(), DELIM_FIELDS ) ) ;
-        tokens.add( String.format( Locale.getDefault(), "%.1f%sM", get_geoidHeight(), DELIM_FIELDS ) ) ;
-        tokens.add( "" ) ;
-        tokens.add( "" ) ;
-
-        return TextUtils.join(DELIM_FIELDS, tokens);
+    protected void writePayload( NmeaEncoder encoder ) {
+        encoder.Field( get_dataTypeName() )
+                .FieldTime( get_utcMillisOfDay() )
+                .FieldDMM( get_latitude().get_degrees(), 2, 'N', 'S' )
+                .FieldDMM( get_longitude().get_degrees(), 3, 'E', 'W' )
+                .Field( get_fixQuality().ordinal() )
+                .Field( get_satelliteCount() )
+                .Field( get_hdop(), 2 )
+                .Field( get_altitude(), 1 ).Field( 'M' )
+                .Field( get_geoidHeight(), 1 ).Field( 'M' )
+                .Field()
+                .Field();
     }
 
     @Override
-    public INmeaMessage parseFields( String[] tokens ) {
-        set_dataTypeName( tokens[0].trim().substring(1) );
-        set_utc( LocalTime.parse( tokens[1], _utcFormatter ) ) ;
-        set_latitude( Latitude.Parse(tokens[2]+ DELIM_FIELDS + tokens[3], GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact) );
-        set_longitude( Longitude.Parse(tokens[4]+ DELIM_FIELDS + tokens[5], GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact) );
-        set_fixQuality( FixQualityEnum.values()[Integer.valueOf(tokens[6])] );
-        set_satelliteCount( Integer.valueOf(tokens[7]));
-        set_hdop( Float.valueOf(tokens[8]));
-        set_altitude( Float.valueOf(tokens[9]));
-        set_geoidHeight( Float.valueOf( tokens[11] ));
+    public INmeaMessage parseFields( NmeaFields fields ) {
+        set_dataTypeName( fields.fieldAsString(0, _dataTypeName) );
+        set_utcMillisOfDay( fields.fieldAsMillisOfDay(1) ) ;
+        get_latitude().set_degrees( fields.fieldAsDMM(2, 90) );
+        get_longitude().set_degrees( fields.fieldAsDMM(4, 180) );
+        set_fixQuality( FixQualityEnum.values()[fields.fieldAsInt(6)] );
+        set_satelliteCount( fields.fieldAsInt(7) );
+        set_hdop( fields.fieldAsFloat(8) );
+        set_altitude( fields.fieldAsFloat(9) );
+        set_geoidHeight( fields.fieldAsFloat(11) );
         return this ;
     }
 
@@ -126,11 +126,28 @@ public class GGA extends BaseNmeaMessage {
     }
 
     public LocalTime get_utc() {
+        if ( _utc == null ) {
+            _utc = LocalTime.fromMillisOfDay( _utcMillisOfDay );
+        }
         return _utc;
     }
 
     public void set_utc( LocalTime _utc ) {
         this._utc = _utc;
+        this._utcMillisOfDay = _utc.getMillisOfDay();
+    }
+
+    /**
+     * UTC time of day, without building a LocalTime
+     * @return Milliseconds since midnight
+     */
+    public int get_utcMillisOfDay() {
+        return _utcMillisOfDay;
+    }
+
+    public void set_utcMillisOfDay( int _utcMillisOfDay ) {
+        this._utcMillisOfDay = _utcMillisOfDay;
+        this._utc = null;
     }
 
     public Latitude get_latitude() {
@@ -21,20 +21,14 @@
 
 package com.inverness_park.nmea.Sentences;
 
-import android.content.Context;
-import android.text.TextUtils;
-
 import com.inverness_park.nmea.BaseNmeaMessage;
 import com.inverness_park.nmea.INmeaMessage;
-import com.inverness_park.nmea.R;
+import com.inverness_park.nmea.INmeaMessageFactory;
+import com.inverness_park.nmea.NmeaEncoder;
+import com.inverness_park.nmea.NmeaFields;
 import com.inverness_park.nmea.Types.Fix3DEnum;
 import com.inverness_park.nmea.Types.FixSelectionMode;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Locale;
-
 import static com.inverness_park.nmea.Types.Fix3DEnum.Fix3D;
 
 /**
@@ -43,6 +37,16 @@ import static com.inverness_park.nmea.Types.Fix3DEnum.Fix3D;
 
 public class GSA extends BaseNmeaMessage {
 
+    /**
+     * Creates GSA instances, e.g. for NmeaReceiver.register()
+     */
+    public static final INmeaMessageFactory FACTORY = new INmeaMessageFactory() {
+        @Override
+        public INmeaMessage Create() {
+            return new GSA();
+        }
+    };
+
     private String _dataTypeName ;
     private FixSelectionMode _fixSelectionMode ;
     private int _fix3D ;
@@ -53,13 +57,14 @@ public class GSA extends BaseNmeaMessage {
 
     public GSA() {
         _dataTypeName = "GPGSA";
+        _prn = new String[12];
         Reset();
     }
 
+    @Override
     public void Reset() {
         _fixSelectionMode = FixSelectionMode.Auto;
         _fix3D = Fix3DEnum.NoFix;
-        _prn = new String[12];
         ClearPRN();
         _pdop = 99;
         _hdop = 99;
@@ -73,36 +78,34 @@ public class GSA extends BaseNmeaMessage {
     }
 
     @Override
-    public String get_description( Context context ) {
-        return context.getString( R.string.gsa);
+    public String get_description() {
+        return "Satellite status";
     }
 
     @Override
-    public String get_payload() {
-        List<String> tokens = new ArrayList<String> ();
-
-        tokens.add( get_dataTypeName() ) ;
-        tokens.add( _fixSelectionMode.ToNmeaString() ) ;
-        tokens.add( String.valueOf(_fix3D) ) ;
-        tokens.addAll( Arrays.asList(_prn) ) ;
-        tokens.add( String.format( Locale.getDefault(), "%.2f", _pdop ) ) ;
-        tokens.add( String.format( Locale.getDefault(), "%.2f", _hdop ) ) ;
-        tokens.add( String.format( Locale.getDefault(), "%.2f", _vdop ) ) ;
-
-        return TextUtils.join(DELIM_FIELDS, tokens);
+    protected void writePayload( NmeaEncoder encoder ) {
+        encoder.Field( get_dataTypeName() )
+                .Field( _fixSelectionMode.ToNmeaString() )
+                .Field( _fix3D );
+        for (int i = 0; i < _prn.length; ++i) {
+            encoder.Field( _prn[i] );
+        }
+        encoder.Field( _pdop, 2 )
+                .Field( _hdop, 2 )
+                .Field( _vdop, 2 );
     }
 
     @Override
-    public INmeaMessage parseFields( String[] tokens ) {
-        set_dataTypeName( tokens[0].trim().substring(1) );
-        set_fixSelectionMode( FixSelectionMode.FromNmeaString(tokens[1]) );
-        set_fix3D( Integer.valueOf(tokens[2]) );
+    public INmeaMessage parseFields( NmeaFields fields ) {
+        set_dataTypeName( fields.fieldAsString(0, _dataTypeName) );
+        set_fixSelectionMode( FixSelectionMode.FromNmeaChar(fields.fieldAsChar(1)) );
+        set_fix3D( fields.fieldAsInt(2) );
         for (int i = 0; i < 12; ++i) {
-            _prn[i] = tokens[3 + i];
+            _prn[i] = fields.fieldAsString(3 + i, _prn[i]);
         }
-        set_pdop( Float.valueOf(tokens[15]) );
-        set_hdop( Float.valueOf(tokens[16]) );
-        set_vdop( Float.valueOf(tokens[17]) );
+        set_pdop( fields.fieldAsFloat(15) );
+        set_hdop( fields.fieldAsFloat(16) );
+        set_vdop( fields.fieldAsFloat(17) );
         return this;
     }
 
@@ -21,20 +21,13 @@
 
 package com.inverness_park.nmea.Sentences;
 
-import android.content.Context;
-import android.text.TextUtils;
-
 import com.inverness_park.nmea.BaseNmeaMessage;
 import com.inverness_park.nmea.INmeaMessage;
-import com.inverness_park.nmea.R;
+import com.inverness_park.nmea.INmeaMessageFactory;
+import com.inverness_park.nmea.NmeaEncoder;
+import com.inverness_park.nmea.NmeaFields;
 
 import org.joda.time.LocalTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
 
 /**
  * NMEA-0183 GST
@@ -42,8 +35,19 @@ import java.util.Locale;
 
 public class GST extends BaseNmeaMessage {
 
+    /**
+     * Creates GST instances, e.g. for NmeaReceiver.register()
+     */
+    public static final INmeaMessageFactory FACTORY = new INmeaMessageFactory() {
+        @Override
+        public INmeaMessage Create() {
+            return new GST();
+        }
+    };
+
     private String _dataTypeName;
-    private LocalTime _utc ;
+    private int _utcMillisOfDay ;
+    private LocalTime _utc ; // built on demand from _utcMillisOfDay
     private float _rms ;
     private float _smjrStdev ;
     private float _smnrStdev ;
@@ -52,15 +56,15 @@ public class GST extends BaseNmeaMessage {
     private float _longitudeErrorStdev ;
     private float _altitudeErrorStdev ;
 
-    private DateTimeFormatter _utcFormatter = DateTimeFormat.forPattern("HHmmss.SSS");
-
     public GST() {
         _dataTypeName = "GPGST";
         Reset();
     }
 
-    private void Reset() {
-        _utc = new LocalTime();
+    @Override
+    public void Reset() {
+        _utcMillisOfDay = 0;
+        _utc = null;
         _rms = 0;
         _smjrStdev = 0;
         _smnrStdev = 0;
@@ -71,38 +75,34 @@ public class GST extends BaseNmeaMessage {
     }
 
     @Override
-    public String get_description( Context context ) {
-        return context.getString( R.string.gst );
+    public String get_description() {
+        return "GPS Pseudorange Noise Statistics";
     }
 
     @Override
-    public String get_payload() {
-        List<String> tokens = new ArrayList<String>() ;
-
-        tokens.add( get_dataTypeName() ) ;
-        tokens.add( get_utc().toString( _utcFormatter ) ) ;
-        tokens.add( String.format( Locale.getDefault(),"%.2f", get_rms() ) ) ;
-        tokens.add( String.format( Locale.getDefault(),"%.2f", get_smjrStdev() ) ) ;
-        tokens.add( String.format( Locale.getDefault(),"%.2f", get_smnrStdev() ) ) ;
-        tokens.add( String.format( Locale.getDefault(),"%.4f", get_orientation() ) ) ;
-        tokens.add( String.format( Locale.getDefault(),"%.2f", get_latitudeErrorStdev() ) ) ;
-        tokens.add( String.format( Locale.getDefault(),"%.2f", get_longitudeErrorStdev() ) ) ;
-        tokens.add( String.format( Locale.getDefault(),"%.2f", get_altitudeErrorStdev() ) ) ;
-
-        return TextUtils.join(DELIM_FIELDS, tokens);
+    protected void writePayload( NmeaEncoder encoder ) {
+        encoder.Field( get_dataTypeName() )
+                .FieldTime( get_utcMillisOfDay() )
+                .Field( get_rms(), 2 )
+                .Field( get_smjrStdev(), 2 )
+                .Field( get_smnrStdev(), 2 )
+                .Field( get_orientation(), 4 )
+                .Field( get_latitudeErrorStdev(), 2 )
+                .Field( get_longitudeErrorStdev(), 2 )
+                .Field( get_altitudeErrorStdev(), 2 );
     }
 
     @Override
-    public INmeaMessage parseFields( String[] tokens ) {
-        set_dataTypeName( tokens[0].trim().substring(1) );
-        set_utc( LocalTime.parse( tokens[1], _utcFormatter ) ) ;
-        set_rms( Float.parseFloat( tokens[2] )) ;
-        set_smjrStdev( Float.parseFloat( tokens[3] )) ;
-        set_smnrStdev( Float.parseFloat( tokens[4] )) ;
-        set_orientation( Float.parseFloat( tokens[5] )) ;
-        set_latitudeErrorStdev( Float.parseFloat( tokens[6] )) ;
-        set_longitudeErrorStdev( Float.parseFloat( tokens[7] )) ;
-        set_altitudeErrorStdev( Float.parseFloat( tokens[8] )) ;
+    public INmeaMessage parseFields( NmeaFields fields ) {
+        set_dataTypeName( fields.fieldAsString(0, _dataTypeName) );
+        set_utcMillisOfDay( fields.fieldAsMillisOfDay(1) ) ;
+        set_rms( fields.fieldAsFloat(2) ) ;
+        set_smjrStdev( fields.fieldAsFloat(3) ) ;
+        set_smnrStdev( fields.fieldAsFloat(4) ) ;
+        set_orientation( fields.fieldAsFloat(5) ) ;
+        set_latitudeErrorStdev( fields.fieldAsFloat(6) ) ;
+        set_longitudeErrorStdev( fields.fieldAsFloat(7) ) ;
+        set_altitudeErrorStdev( fields.fieldAsFloat(8) ) ;
         return this;
     }
 
@@ -115,11 +115,28 @@ public class GST extends BaseNmeaMessage {
     }
 
     public LocalTime get_utc() {
+        if ( _utc == null ) {
+            _utc = LocalTime.fromMillisOfDay( _utcMillisOfDay );
+        }
         return _utc;
     }
 
     public void set_utc( LocalTime _utc ) {
         this._utc = _utc;
+        this._utcMillisOfDay = _utc.getMillisOfDay();
+    }
+
+    /**
+     * UTC time of day, without building a LocalTime
+     * @return Milliseconds since midnight
+     */
+    public int get_utcMillisOfDay() {
+        return _utcMillisOfDay;
+    }
+
+    public void set_utcMillisOfDay( int _utcMillisOfDay ) {
+        this._utcMillisOfDay = _utcMillisOfDay;
+        this._utc = null;
     }
 
     public float get_rms() {
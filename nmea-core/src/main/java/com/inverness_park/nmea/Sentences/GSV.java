@@ -21,16 +21,12 @@
 
 package com.inverness_park.nmea.Sentences;
 
-import android.content.Context;
-import android.text.TextUtils;
-
 import com.inverness_park.nmea.BaseNmeaMessage;
 import com.inverness_park.nmea.INmeaMessage;
-import com.inverness_park.nmea.R;
+import com.inverness_park.nmea.INmeaMessageFactory;
+import com.inverness_park.nmea.NmeaEncoder;
+import com.inverness_park.nmea.NmeaFields;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Locale;
 
 /**
@@ -39,23 +35,41 @@ import java.util.Locale;
 
 public class GSV extends BaseNmeaMessage {
 
+    /**
+     * Creates GSV instances, e.g. for NmeaReceiver.register()
+     */
+    public static final INmeaMessageFactory FACTORY = new INmeaMessageFactory() {
+        @Override
+        public INmeaMessage Create() {
+            return new GSV();
+        }
+    };
+
     private String _dataTypeName ;
     private int _numSentences ;
     private int _sentenceIndex ;
     private int _numSatellitesInView ;
+    private int _signalId ;
     private Satellite[] _satelliteInfo ;
 
     public GSV() {
         _dataTypeName = "GSPGSV";
-        _numSentences = 0;
-        _sentenceIndex = 0;
-        _numSatellitesInView = 0;
         _satelliteInfo = new Satellite[] {
                 new Satellite(),
                 new Satellite(),
                 new Satellite(),
                 new Satellite(),
         };
+        Reset();
+    }
+
+    @Override
+    public void Reset() {
+        _numSentences = 0;
+        _sentenceIndex = 0;
+        _numSatellitesInView = 0;
+        _signalId = -1;
+        ClearSatelliteInfo();
     }
 
     private void ClearSatelliteInfo() {
@@ -84,11 +98,27 @@ public class GSV extends BaseNmeaMessage {
             _snr = null;
         }
 
+        public String get_prn() {
+            return _prn;
+        }
+
+        public Integer get_elevationDegrees() {
+            return _elevationDegrees;
+        }
+
+        public Integer get_azimuthDegrees() {
+            return _azimuthDegrees;
+        }
+
+        public Integer get_snr() {
+            return _snr;
+        }
+
         public String [] ToArray() {
             String[] tokens = new String[] {
                     _prn != null ? _prn : "",
                     _elevationDegrees != null ? String.format( Locale.getDefault(),"%02d", _elevationDegrees) : "",
-                    _azimuthDegrees != null ? String.format(Locale.getDefault(),"%03d", _elevationDegrees) : "",
+                    _azimuthDegrees != null ? String.format(Locale.getDefault(),"%03d", _azimuthDegrees) : "",
                     _snr != null ? String.valueOf(_snr):""
                 };
             return tokens;
@@ -112,39 +142,79 @@ public class GSV extends BaseNmeaMessage {
                 _snr = Integer.parseInt(tokens[index + 3]);
             }
         }
+
+        public void FromFields(NmeaFields fields, int index) {
+            Clear();
+
+            _prn = fields.fieldAsString(index);
+            if (!fields.fieldIsBlank(index + 1)) {
+                _elevationDegrees = fields.fieldAsInt(index + 1);
+            }
+            if (!fields.fieldIsBlank(index + 2)) {
+                _azimuthDegrees = fields.fieldAsInt(index + 2);
+            }
+            if (!fields.fieldIsBlank(index + 3)) {
+                _snr = fields.fieldAsInt(index + 3);
+            }
+        }
     }
 
     @Override
-    public String get_description( Context context ) {
-        return context.getString( R.string.gsv ) ;
+    public String get_description() {
+        return "Satellites in view";
     }
 
     @Override
-    public String get_payload() {
-        List<String> tokens = new ArrayList<String>();
-
-        tokens.add(get_dataTypeName()) ;
-        tokens.add(String.valueOf(get_numSentences()) );
-        tokens.add(String.valueOf(get_sentenceIndex()) );
-        tokens.add(String.valueOf(get_numSatellitesInView()) );
+    protected void writePayload( NmeaEncoder encoder ) {
+        encoder.Field( get_dataTypeName() )
+                .Field( get_numSentences() )
+                .Field( get_sentenceIndex() )
+                .Field( get_numSatellitesInView() );
 
         for (int i = 0; i < get_satelliteInfo().length; ++i ) {
-            tokens.addAll( Arrays.asList(get_satelliteInfo()[i].ToArray()));
+            Satellite satellite = get_satelliteInfo()[i];
+            encoder.Field( satellite._prn );
+            if ( satellite._elevationDegrees != null ) {
+                encoder.Field( satellite._elevationDegrees, 2 );
+            } else {
+                encoder.Field();
+            }
+            if ( satellite._azimuthDegrees != null ) {
+                encoder.Field( satellite._azimuthDegrees, 3 );
+            } else {
+                encoder.Field();
+            }
+            if ( satellite._snr != null ) {
+                encoder.Field( satellite._snr );
+            } else {
+                encoder.Field();
+            }
+        }
+        if ( _signalId >= 0 ) {
+            encoder.Field( Character.toUpperCase( Character.forDigit( _signalId, 16 ) ) );
         }
-
-        return TextUtils.join(DELIM_FIELDS, tokens);
     }
 
     @Override
-    public INmeaMessage parseFields( String[] tokens ) {
-        set_dataTypeName( tokens[0] );
-        set_numSentences( Integer.parseInt(tokens[1]));
-        set_sentenceIndex( Integer.parseInt(tokens[2]));
-        set_numSatellitesInView( Integer.parseInt(tokens[3]));
+    public INmeaMessage parseFields( NmeaFields fields ) {
+        set_dataTypeName( fields.fieldAsString(0, _dataTypeName) );
+        set_numSentences( fields.fieldAsInt(1) );
+        set_sentenceIndex( fields.fieldAsInt(2) );
+        set_numSatellitesInView( fields.fieldAsInt(3) );
+
+        // ... NMEA 4.10 ends the sentence with a signal ID, after the satellites
+        int count = fields.get_count();
+        _signalId = -1;
+        if ( count > 4 && ( count - 4 ) % 4 == 1 && fields.get_length( count - 1 ) == 1 ) {
+            _signalId = Character.digit( (char) fields.get_bytes()[fields.get_start( count - 1 )], 16 );
+            --count;
+        }
         for (int i = 0; i < get_satelliteInfo().length; ++i) {
             int offset = 4 + i * 4;
-            if (offset < tokens.length) {
-                get_satelliteInfo()[i].FromArray(tokens, offset);
+            if (offset < count) {
+                get_satelliteInfo()[i].FromFields(fields, offset);
+            } else {
+                get_satelliteInfo()[i].Clear();
             }
         }
         return this;
@@ -182,6 +252,18 @@ public class GSV extends BaseNmeaMessage {
         this._numSatellitesInView = _numSatellitesInView;
     }
 
+    /**
+     * Signal ID (NMEA 4.10), e.g. 1 for GPS L1 C/A
+     * @return The ID, or -1 if the sentence has none
+     */
+    public int get_signalId() {
+        return _signalId;
+    }
+
+    public void set_signalId( int _signalId ) {
+        this._signalId = _signalId;
+    }
+
     public Satellite[] get_satelliteInfo() {
         return _satelliteInfo;
     }
@@ -21,23 +21,27 @@
 
 package com.inverness_park.nmea.Sentences;
 
-import android.content.Context;
-import android.text.TextUtils;
-
 import com.inverness_park.nmea.BaseNmeaMessage;
 import com.inverness_park.nmea.INmeaMessage;
-import com.inverness_park.nmea.R;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
-
+import com.inverness_park.nmea.INmeaMessageFactory;
+import com.inverness_park.nmea.NmeaEncoder;
+import com.inverness_park.nmea.NmeaFields;
 /**
  * NMEA-0183 HDT
  */
 
 public class HDT extends BaseNmeaMessage {
 
+    /**
+     * Creates HDT instances, e.g. for NmeaReceiver.register()
+     */
+    public static final INmeaMessageFactory FACTORY = new INmeaMessageFactory() {
+        @Override
+        public INmeaMessage Create() {
+            return new HDT();
+        }
+    };
+
     private String _dataTypeName ;
     private float _headingTrue ;
 
@@ -46,28 +50,27 @@ public class HDT extends BaseNmeaMessage {
         Reset();
     }
 
+    @Override
     public void Reset() {
         _headingTrue = 0;
     }
 
     @Override
-    public String get_description( Context context ) {
-        return context.getString( R.string.hdt ) ;
+    public String get_description() {
+        return "NMEA heading log";
     }
 
     @Override
-    public String get_payload() {
-        List<String> tokens = new ArrayList<String>();
-        tokens.add(get_dataTypeName());
-        tokens.add(String.format( Locale.getDefault(),"%.1f", get_headingTrue()));
-        tokens.add("T");
-        return TextUtils.join(DELIM_FIELDS, tokens);
+    protected void writePayload( NmeaEncoder encoder ) {
+        encoder.Field( get_dataTypeName() )
+                .Field( get_headingTrue(), 1 )
+                .Field( 'T' );
     }
 
     @Override
-    public INmeaMessage parseFields( String[] tokens ) {
-        set_dataTypeName( tokens[0] );
-        set_headingTrue( Float.parseFloat(tokens[1]));
+    public INmeaMessage parseFields( NmeaFields fields ) {
+        set_dataTypeName( fields.fieldAsString(0, _dataTypeName) );
+        set_headingTrue( fields.fieldAsFloat(1) );
         return this;
     }
 
@@ -21,25 +21,16 @@
 
 package com.inverness_park.nmea.Sentences;
 
-import android.content.Context;
-import android.text.TextUtils;
-
 import com.inverness_park.nmea.BaseNmeaMessage;
 import com.inverness_park.nmea.INmeaMessage;
-import com.inverness_park.nmea.R;
-import com.inverness_park.nmea.Types.GeoAngleFormat;
-import com.inverness_park.nmea.Types.GeoAngleFormatOptions;
+import com.inverness_park.nmea.INmeaMessageFactory;
+import com.inverness_park.nmea.NmeaEncoder;
+import com.inverness_park.nmea.NmeaFields;
 import com.inverness_park.nmea.Types.Latitude;
 import com.inverness_park.nmea.Types.Longitude;
 import com.inverness_park.nmea.Types.StatusEnum;
 
 import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormat;
-import org.joda.time.format.DateTimeFormatter;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
 
 /**
  * NMEA-0183 RMC
@@ -47,8 +38,20 @@ import java.util.Locale;
 
 public class RMC extends BaseNmeaMessage {
 
+    /**
+     * Creates RMC instances, e.g. for NmeaReceiver.register()
+     */
+    public static final INmeaMessageFactory FACTORY = new INmeaMessageFactory() {
+        @Override
+        public INmeaMessage Create() {
+            return new RMC();
+        }
+    };
+
     private String _dataTypeName ;
-    private DateTime _utc;
+    private int _utcMillisOfDay ;
+    private int _utcDate ; // yyyymmdd
+    private DateTime _utc; // built on demand from _utcDate and _utcMillisOfDay
     private StatusEnum _status ;
     private Latitude _latitude ;
     private Longitude _longitude ;
@@ -57,20 +60,21 @@ public class RMC extends BaseNmeaMessage {
     private Float _magneticVariation ;
     private String _extraField ;
 
-    private DateTimeFormatter _utcTimeFormatter = DateTimeFormat.forPattern("HHmmss.SSS");
-    private DateTimeFormatter _utcDateFormatter = DateTimeFormat.forPattern("ddMMyy");
-    private DateTimeFormatter _utcFormatter = DateTimeFormat.forPattern("ddMMyy HHmmss.SSS");
-
     public RMC() {
         _dataTypeName = "GPSRMC";
+        _latitude = new Latitude();
+        _longitude = new Longitude();
         Reset();
     }
 
+    @Override
     public void Reset() {
-        _utc = new DateTime();
+        _utcMillisOfDay = 0;
+        _utcDate = 19700101;
+        _utc = null;
         _status = StatusEnum.Void;
-        _latitude = new Latitude();
-        _longitude = new Longitude();
+        _latitude.set_degrees( 0 );
+        _longitude.set_degrees( 0 );
         _speedAboveGroundKnots = 0;
         _trackAngleTrueNorthDegrees = 0;
         _magneticVariation = null;
@@ -78,56 +82,55 @@ public class RMC extends BaseNmeaMessage {
     }
 
     @Override
-    public String get_description( Context context ) {
-        return context.getString( R.string.rmc );
+    public String get_description() {
+        return "Recommended Minimum data for gps";
     }
 
     @Override
-    public String get_payload() {
-        List<String> tokens = new ArrayList<String>();
-
-        tokens.add( get_dataTypeName() ) ;
-        tokens.add( get_utc().toString( _utcTimeFormatter ) ) ;
-        tokens.add( get_status().ToNmeaString() );
-        tokens.add( get_latitude().ToString( GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact));
-        tokens.add( get_longitude().ToString(GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact));
-        tokens.add( String.format( Locale.getDefault(), "%.2f", get_speedAboveGroundKnots() ) );
-        tokens.add( String.format( Locale.getDefault(), "%.2f", get_trackAngleTrueNorthDegrees() ) );
-        tokens.add( get_utc().toString( _utcDateFormatter ) ) ;
+    protected void writePayload( NmeaEncoder encoder ) {
+        encoder.Field( get_dataTypeName() )
+                .FieldTime( get_utcMillisOfDay() )
+                .Field( get_status().ToNmeaString() )
+                .FieldDMM( get_latitude().get_degrees(), 2, 'N', 'S' )
+                .FieldDMM( get_longitude().get_degrees(), 3, 'E', 'W' )
+                .Field( get_speedAboveGroundKnots(), 2 )
+                .Field( get_trackAngleTrueNorthDegrees(), 2 )
+                .FieldDate( get_utcDate() );
         if ( get_magneticVariation() != null ) {
-            tokens.add(String.format(Locale.getDefault(), "%.1f",  Math.abs( get_magneticVariation() ) ));
-            tokens.add(get_magneticVariation() < 0 ? "W" : "E");
+            encoder.Field( Math.abs( get_magneticVariation() ), 1 )
+                    .Field( get_magneticVariation() < 0 ? 'W' : 'E' );
         } else {
-            tokens.add("");
-            tokens.add("");
+            encoder.Field().Field();
         }
-        if (get_extraField() != null ) {
-            tokens.add(get_extraField());
+        if ( get_extraField() != null ) {
+            encoder.Field( get_extraField() );
         }
-        return TextUtils.join(DELIM_FIELDS, tokens);
     }
 
     @Override
-    public INmeaMessage parseFields( String[] tokens ) {
-        set_dataTypeName( tokens[0].trim().substring(1) );
-        set_utc( DateTime.parse( tokens[9] + " " + tokens[1], _utcFormatter )) ;
-        set_status( StatusEnum.FromNmeaString(tokens[2]) );
-        set_latitude( Latitude.Parse(tokens[3]+ DELIM_FIELDS + tokens[4], GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact) );
-        set_longitude( Longitude.Parse(tokens[5]+ DELIM_FIELDS + tokens[6], GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact) );
-        set_speedAboveGroundKnots( Float.parseFloat(tokens[7]) );
-        set_trackAngleTrueNorthDegrees( Float.parseFloat(tokens[8]) );
-
-        if (!tokens[10].isEmpty()) {
-            set_magneticVariation( Float.parseFloat(tokens[10]) );
-            if (!tokens[11].isEmpty()) {
-                int sign = tokens[ 11 ].trim().toUpperCase().equals( "W" ) ? -1 : 1;
+    public INmeaMessage parseFields( NmeaFields fields ) {
+        set_dataTypeName( fields.fieldAsString(0, _dataTypeName) );
+        set_utcDate( fields.fieldAsPackedDate(9) ) ;
+        set_utcMillisOfDay( fields.fieldAsMillisOfDay(1) ) ;
+        set_status( StatusEnum.FromNmeaChar(fields.fieldAsChar(2)) );
+        get_latitude().set_degrees( fields.fieldAsDMM(3, 90) );
+        get_longitude().set_degrees( fields.fieldAsDMM(5, 180) );
+        set_speedAboveGroundKnots( fields.fieldAsFloat(7) );
+        set_trackAngleTrueNorthDegrees( fields.fieldAsFloat(8) );
+
+        if (!fields.fieldIsEmpty(10)) {
+            set_magneticVariation( fields.fieldAsFloat(10) );
+            if (!fields.fieldIsEmpty(11)) {
+                int sign = Character.toUpperCase( fields.fieldAsChar(11) ) == 'W' ? -1 : 1;
                 set_magneticVariation( get_magneticVariation() * sign );
             }
         } else {
             set_magneticVariation( null );
         }
-        if (tokens.length > 12) {
-            set_extraField( tokens[12] );
+        if (fields.get_count() > 12) {
+            set_extraField( fields.fieldAsString(12, _extraField) );
+        } else {
+            set_extraField( null );
         }
         return this;
     }
@@ -140,12 +143,49 @@ public class RMC extends BaseNmeaMessage {
         this._dataTypeName = _dataTypeName;
     }
 
+    /**
+     * UTC date and time, with its fields in the default time zone, as parsed by Joda-Time
+     * @return
+     */
     public DateTime get_utc() {
+        if ( _utc == null ) {
+            int seconds = _utcMillisOfDay / 1000;
+            _utc = new DateTime( _utcDate / 10000, _utcDate / 100 % 100, _utcDate % 100,
+                    seconds / 3600, seconds / 60 % 60, seconds % 60, _utcMillisOfDay % 1000 );
+        }
         return _utc;
     }
 
     public void set_utc( DateTime _utc ) {
         this._utc = _utc;
+        this._utcMillisOfDay = _utc.getMillisOfDay();
+        this._utcDate = ( _utc.getYear() * 100 + _utc.getMonthOfYear() ) * 100 + _utc.getDayOfMonth();
+    }
+
+    /**
+     * UTC time of day, without building a DateTime
+     * @return Milliseconds since midnight
+     */
+    public int get_utcMillisOfDay() {
+        return _utcMillisOfDay;
+    }
+
+    public void set_utcMillisOfDay( int _utcMillisOfDay ) {
+        this._utcMillisOfDay = _utcMillisOfDay;
+        this._utc = null;
+    }
+
+    /**
+     * UTC date, without building a DateTime
+     * @return The date packed as yyyymmdd, e.g. 20110528
+     */
+    public int get_utcDate() {
+        return _utcDate;
+    }
+
+    public void set_utcDate( int _utcDate ) {
+        this._utcDate = _utcDate;
+        this._utc = null;
     }
 
     public StatusEnum get_status() {
@@ -21,22 +21,27 @@
 
 package com.inverness_park.nmea.Sentences;
 
-import android.content.Context;
-import android.text.TextUtils;
-
 import com.inverness_park.nmea.BaseNmeaMessage;
 import com.inverness_park.nmea.INmeaMessage;
-import com.inverness_park.nmea.R;
-
-import java.util.ArrayList;
-import java.util.List;
-
+import com.inverness_park.nmea.INmeaMessageFactory;
+import com.inverness_park.nmea.NmeaEncoder;
+import com.inverness_park.nmea.NmeaFields;
 /**
  * NMEA-0183 VTG
  */
 
 public class VTG extends BaseNmeaMessage {
-    
+
+    /**
+     * Creates VTG instances, e.g. for NmeaReceiver.register()
+     */
+    public static final INmeaMessageFactory FACTORY = new INmeaMessageFactory() {
+        @Override
+        public INmeaMessage Create() {
+            return new VTG();
+        }
+    };
+
     private String _dataTypeName ;
     private float _trueTrackMadeGoodDegrees ;
     private float _magneticTrackMadeGoodDegrees ;
@@ -48,6 +53,7 @@ public class VTG extends BaseNmeaMessage {
         Reset();
     }
 
+    @Override
     public void Reset() {
         _trueTrackMadeGoodDegrees = 0;
         _magneticTrackMadeGoodDegrees = 0;
@@ -56,35 +62,27 @@ public class VTG extends BaseNmeaMessage {
     }
 
     @Override
-    public String get_description( Context context ) {
-        return context.getString( R.string.vtg);
+    public String get_description() {
+        return "Track made good and ground speed";
     }
 
     @Override
-    public String get_payload() {
-        List<String> tokens = new ArrayList<String>() ;
-
-        tokens.add( get_dataTypeName() ) ;
-        tokens.add( String.valueOf(get_trueTrackMadeGoodDegrees()) ) ;
-        tokens.add( "T" ) ;
-        tokens.add( String.valueOf(get_magneticTrackMadeGoodDegrees()) ) ;
-        tokens.add( "M" ) ;
-        tokens.add( String.valueOf(get_groundSpeedKnots()) ) ;
-        tokens.add( "N" ) ;
-        tokens.add( String.valueOf(get_groundSpeedKph()) ) ;
-        tokens.add( "K" ) ;
-
-        return TextUtils.join(DELIM_FIELDS, tokens);
+    protected void writePayload( NmeaEncoder encoder ) {
+        encoder.Field( get_dataTypeName() )
+                .Field( get_trueTrackMadeGoodDegrees(), 3 ).Field( 'T' )
+                .Field( get_magneticTrackMadeGoodDegrees(), 3 ).Field( 'M' )
+                .Field( get_groundSpeedKnots(), 3 ).Field( 'N' )
+                .Field( get_groundSpeedKph(), 3 ).Field( 'K' );
     }
 
     @Override
-    public INmeaMessage parseFields( String[] tokens ) {
+    public INmeaMessage parseFields( NmeaFields fields ) {
 
-        set_dataTypeName( tokens[0] );
-        set_trueTrackMadeGoodDegrees( Float.parseFloat(tokens[1]) );
-        set_magneticTrackMadeGoodDegrees( Float.parseFloat(tokens[3]) );
-        set_groundSpeedKnots( Float.parseFloat(tokens[5]) );
-        set_groundSpeedKph( Float.parseFloat(tokens[7]) );
+        set_dataTypeName( fields.fieldAsString(0, _dataTypeName) );
+        set_trueTrackMadeGoodDegrees( fields.fieldAsFloat(1) );
+        set_magneticTrackMadeGoodDegrees( fields.fieldAsFloat(3) );
+        set_groundSpeedKnots( fields.fieldAsFloat(5) );
+        set_groundSpeedKph( fields.fieldAsFloat(7) );
 
         return this;
     }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter that many threads can increment at once without contending, in the manner of
+ * java.util.concurrent.atomic.LongAdder (which Android only has from API 24).  Each thread adds to
+ * one of several stripes, picked from its id, and Sum() adds the stripes up.  An increment is a
+ * single uncontended atomic add.
+ */
+
+public final class StripedCounter {
+
+    /**
+     * Stripes are 16 longs (128 bytes) apart, so that no two share a cache line, nor an
+     * adjacent-line prefetch pair
+     */
+    private static final int STRIPE_LENGTH = 16;
+
+    /**
+     * Enough stripes for each core to have its own, most of the time
+     */
+    public static final int DEFAULT_STRIPES = Math.min( 64, PowerOfTwo( 2 * Runtime.getRuntime().availableProcessors() ) );
+
+    private final AtomicLongArray _cells;
+
+    /**
+     * Stripe index mask
+     */
+    private final int _mask;
+
+    /**
+     * Shift from a stripe index to its cell; 0 for a single stripe, which doesn't need padding
+     */
+    private final int _shift;
+
+    /**
+     * Constructor, with DEFAULT_STRIPES stripes
+     */
+    public StripedCounter() {
+        this( DEFAULT_STRIPES );
+    }
+
+    /**
+     * Constructor
+     * @param stripes Number of stripes, rounded up to a power of 2; 1 for a counter that only
+     *                ever gets incremented from a single thread
+     */
+    public StripedCounter( int stripes ) {
+        if ( stripes < 1 ) {
+            throw new IllegalArgumentException( "stripes must be at least 1" );
+        }
+        stripes = PowerOfTwo( stripes );
+        _mask = stripes - 1;
+        _shift = stripes == 1 ? 0 : Integer.numberOfTrailingZeros( STRIPE_LENGTH );
+        _cells = new AtomicLongArray( stripes << _shift );
+    }
+
+    public void Increment() {
+        Add( 1 );
+    }
+
+    public void Add( long delta ) {
+        _cells.getAndAdd( Cell(), delta );
+    }
+
+    /**
+     * Current total.  Not an atomic snapshot while other threads are adding.
+     * @return
+     */
+    public long Sum() {
+        long sum = 0;
+        for ( int i = 0; i <= _mask; ++i ) {
+            sum += _cells.get( i << _shift );
+        }
+        return sum;
+    }
+
+    /**
+     * Cell of the calling thread's stripe
+     */
+    private int Cell() {
+        if ( _mask == 0 ) {
+            return 0;
+        }
+        long id = Thread.currentThread().getId();
+        return (int) ( ( id * 0x9E3779B97F4A7C15L ) >>> 32 & _mask ) << _shift;
+    }
+
+    private static int PowerOfTwo( int n ) {
+        int p = Integer.highestOneBit( n );
+        return p < n ? p << 1 : p;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+/**
+ * Binary track log format, as written by TrackLogWriter and read by TrackLogReader.  Big-endian:
+ *
+ *      header:   "NMTL", version (1 byte)
+ *      block:    fix count (int), first time (long), last time (long), payload length (int), payload
+ *      ...
+ *      end:      fix count 0 (int)
+ *      index:    block count (int), then per block: first time (long), last time (long), offset (long)
+ *      trailer:  index offset (long), "NMTX"
+ *
+ * The payload of a block holds one column after the other: time (milliseconds since 1970), latitude
+ * and longitude (1e-7 degrees), altitude, speed (knots), course and HDOP (1e-2 units), and fix
+ * quality (ordinal, -1 for none).  Each column is delta-encoded from one fix to the next, starting
+ * from 0 (the block's first time, for times), and each delta is written as a zigzag varint: 7 bits
+ * per byte, low bits first, the high bit set on all bytes but the last.
+ */
+
+final class TrackLogFormat {
+
+    static final int MAGIC = 0x4E4D544C;          // "NMTL"
+    static final int INDEX_MAGIC = 0x4E4D5458;    // "NMTX"
+    static final byte VERSION = 1;
+
+    static final int BLOCK_HEADER_SIZE = 4 + 8 + 8 + 4;
+    static final int TRAILER_SIZE = 8 + 4;
+
+    /**
+     * Scales of the fixed-point columns
+     */
+    static final double DEGREES_SCALE = 1e7;
+    static final double UNITS_SCALE = 1e2;
+
+    /**
+     * Fixed-point value of NaN
+     */
+    static final int NO_VALUE = Integer.MIN_VALUE;
+
+    private TrackLogFormat() {
+    }
+
+    static int FixedPoint( double value, double scale ) {
+        return Double.isNaN( value ) ? NO_VALUE : (int) Math.round( value * scale );
+    }
+
+    static double FromFixedPoint( long value, double scale ) {
+        return value == NO_VALUE ? Double.NaN : value / scale;
+    }
+
+    /**
+     * Writes a zigzag varint
+     * @param bytes Must have room for 10 bytes
+     * @param index
+     * @param value
+     * @return Offset past the varint
+     */
+    static int PutVarint( byte[] bytes, int index, long value ) {
+        long zigzag = ( value << 1 ) ^ ( value >> 63 );
+        while ( ( zigzag & ~0x7FL ) != 0 ) {
+            bytes[index++] = (byte) ( ( zigzag & 0x7F ) | 0x80 );
+            zigzag >>>= 7;
+        }
+        bytes[index++] = (byte) zigzag;
+        return index;
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Types.FixQualityEnum;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import static com.inverness_park.nmea.TrackLogFormat.DEGREES_SCALE;
+import static com.inverness_park.nmea.TrackLogFormat.FromFixedPoint;
+import static com.inverness_park.nmea.TrackLogFormat.UNITS_SCALE;
+
+/**
+ * Reads a track log written by TrackLogWriter, a block at a time, decoding each block straight
+ * into the primitive arrays of a Block:
+ *
+ *      TrackLogReader reader = new TrackLogReader( file );
+ *      TrackLogReader.Block block = new TrackLogReader.Block();
+ *      reader.SeekTime( fromMillis );
+ *      while ( reader.ReadBlock( block ) > 0 ) {
+ *          ...
+ *      }
+ *
+ * A reader opened on a stream reads forward only, skipping whole blocks when seeking; a reader
+ * opened on a file uses the index of the log to seek directly to a block.
+ */
+
+public class TrackLogReader implements Closeable {
+
+    private static final FixQualityEnum[] FIX_QUALITIES = FixQualityEnum.values();
+
+    /**
+     * Fixes of a block, in columns.  Arrays are reused from one block to the next, and may be
+     * longer than get_count().
+     */
+    public static class Block {
+        private int _count = 0;
+        private long[] _timeMillis = new long[0];
+        private double[] _latitude = new double[0];
+        private double[] _longitude = new double[0];
+        private float[] _altitude = new float[0];
+        private float[] _speedKnots = new float[0];
+        private float[] _courseDegrees = new float[0];
+        private float[] _hdop = new float[0];
+        private byte[] _fixQuality = new byte[0];
+
+        private void Reserve( int count ) {
+            _count = count;
+            if ( _timeMillis.length >= count ) {
+                return;
+            }
+            _timeMillis = new long[count];
+            _latitude = new double[count];
+            _longitude = new double[count];
+            _altitude = new float[count];
+            _speedKnots = new float[count];
+            _courseDegrees = new float[count];
+            _hdop = new float[count];
+            _fixQuality = new byte[count];
+        }
+
+        public int get_count() {
+            return _count;
+        }
+
+        public long[] get_timeMillis() {
+            return _timeMillis;
+        }
+
+        public double[] get_latitude() {
+            return _latitude;
+        }
+
+        public double[] get_longitude() {
+            return _longitude;
+        }
+
+        public float[] get_altitude() {
+            return _altitude;
+        }
+
+        public float[] get_speedKnots() {
+            return _speedKnots;
+        }
+
+        public float[] get_courseDegrees() {
+            return _courseDegrees;
+        }
+
+        public float[] get_hdop() {
+            return _hdop;
+        }
+
+        /**
+         * Fix quality ordinals, -1 for none
+         */
+        public byte[] get_fixQuality() {
+            return _fixQuality;
+        }
+
+        public FixQualityEnum get_fixQuality( int i ) {
+            return _fixQuality[i] >= 0 ? FIX_QUALITIES[_fixQuality[i]] : null;
+        }
+    }
+
+    private DataInputStream _in;
+
+    /**
+     * Channel of a reader opened on a file, null for a stream
+     */
+    private final FileChannel _channel;
+    private final RandomAccessFile _file;
+
+    /**
+     * Index of a reader opened on a file: first time, last time and offset of each block
+     */
+    private long[] _index;
+
+    private byte[] _payload = new byte[0];
+    private long[] _deltas = new long[0];
+
+    private long _skipBefore = Long.MIN_VALUE;
+    private boolean _ended = false;
+
+    /**
+     * Constructor for a stream, read forward only
+     * @param in Closed by close()
+     * @throws IOException if the stream isn't a track log
+     */
+    public TrackLogReader( InputStream in ) throws IOException {
+        _channel = null;
+        _file = null;
+        _in = new DataInputStream( new BufferedInputStream( in ) );
+        ReadHeader();
+    }
+
+    /**
+     * Constructor for a file, which can be seeked through its index
+     * @param file
+     * @throws IOException if the file isn't a complete track log
+     */
+    public TrackLogReader( File file ) throws IOException {
+        _file = new RandomAccessFile( file, "r" );
+        _channel = _file.getChannel();
+        try {
+            long length = _file.length();
+            if ( length < 5 + 4 + TrackLogFormat.TRAILER_SIZE ) {
+                throw new IOException( "Not a complete track log: " + file );
+            }
+            _file.seek( length - TrackLogFormat.TRAILER_SIZE );
+            long indexOffset = _file.readLong();
+            if ( _file.readInt() != TrackLogFormat.INDEX_MAGIC || indexOffset < 5 || indexOffset >= length ) {
+                throw new IOException( "Not a complete track log: " + file );
+            }
+            _file.seek( indexOffset );
+            int blockCount = _file.readInt();
+            _index = new long[3 * blockCount];
+            for ( int i = 0; i < _index.length; ++i ) {
+                _index[i] = _file.readLong();
+            }
+            Position( 0 );
+            ReadHeader();
+        } catch ( IOException e ) {
+            _file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next block
+     * @param block Receives the fixes
+     * @return Number of fixes read, or -1 at the end of the log
+     * @throws IOException
+     */
+    public int ReadBlock( Block block ) throws IOException {
+        while ( !_ended ) {
+            int count;
+            try {
+                count = _in.readInt();
+            } catch ( EOFException e ) {
+                // ... A log still being written, flushed but not closed, ends after its last block
+                count = 0;
+            }
+            if ( count == 0 ) {
+                _ended = true;
+                break;
+            }
+            long firstTime = _in.readLong();
+            long lastTime = _in.readLong();
+            int length = _in.readInt();
+            if ( count < 0 || length < 0 ) {
+                throw new IOException( "Corrupt track log block" );
+            }
+            if ( lastTime < _skipBefore ) {
+                SkipFully( length );
+                continue;
+            }
+            _skipBefore = Long.MIN_VALUE;
+
+            if ( _payload.length < length ) {
+                _payload = new byte[length];
+            }
+            _in.readFully( _payload, 0, length );
+            Decode( block, count, firstTime, length );
+            return count;
+        }
+        block._count = 0;
+        return -1;
+    }
+
+    /**
+     * Positions the reader so that the next block read holds the first fix at or after a given time,
+     * or is the first block after it.  Fixes before that time may still be read from that block.
+     * A reader opened on a stream can only seek forward.
+     * @param timeMillis
+     * @throws IOException
+     */
+    public void SeekTime( long timeMillis ) throws IOException {
+        if ( _channel == null ) {
+            _skipBefore = timeMillis;
+            return;
+        }
+        // ... First block whose last fix is at or after the time
+        int lo = 0;
+        int hi = _index.length / 3;
+        while ( lo < hi ) {
+            int mid = ( lo + hi ) >>> 1;
+            if ( _index[3 * mid + 1] < timeMillis ) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        if ( lo < _index.length / 3 ) {
+            Position( _index[3 * lo + 2] );
+            _ended = false;
+        } else {
+            _ended = true;
+        }
+    }
+
+    /**
+     * Appends the remaining fixes to a track
+     * @param track
+     * @return Number of fixes appended
+     * @throws IOException
+     */
+    public int ReadAll( TrackStore track ) throws IOException {
+        Block block = new Block();
+        int appended = 0;
+        while ( ReadBlock( block ) > 0 ) {
+            for ( int i = 0; i < block._count; ++i ) {
+                if ( track.Append( block._timeMillis[i], block._latitude[i], block._longitude[i], block._altitude[i],
+                        block._speedKnots[i], block._courseDegrees[i], block._hdop[i], block.get_fixQuality( i ) ) ) {
+                    ++appended;
+                }
+            }
+        }
+        return appended;
+    }
+
+    /**
+     * Number of blocks in the index, or -1 for a reader opened on a stream
+     */
+    public int get_blockCount() {
+        return _index != null ? _index.length / 3 : -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _in.close();
+        if ( _file != null ) {
+            _file.close();
+        }
+    }
+
+    private void ReadHeader() throws IOException {
+        try {
+            if ( _in.readInt() != TrackLogFormat.MAGIC ) {
+                throw new IOException( "Not a track log" );
+            }
+            if ( _in.readByte() != TrackLogFormat.VERSION ) {
+                throw new IOException( "Unsupported track log version" );
+            }
+        } catch ( EOFException e ) {
+            throw new IOException( "Not a track log", e );
+        }
+    }
+
+    private void Position( long offset ) throws IOException {
+        _channel.position( offset );
+        // ... Not closed: that would close the channel
+        _in = new DataInputStream( new BufferedInputStream( Channels.newInputStream( _channel ) ) );
+    }
+
+    private void SkipFully( int length ) throws IOException {
+        while ( length > 0 ) {
+            int skipped = _in.skipBytes( length );
+            if ( skipped <= 0 ) {
+                throw new EOFException();
+            }
+            length -= skipped;
+        }
+    }
+
+    private void Decode( Block block, int count, long firstTime, int length ) throws IOException {
+        block.Reserve( count );
+        if ( _deltas.length < count ) {
+            _deltas = new long[count];
+        }
+        int index = 0;
+
+        index = ReadColumn( count, index, length );
+        long time = firstTime;
+        for ( int i = 0; i < count; ++i ) {
+            time += _deltas[i];
+            block._timeMillis[i] = time;
+        }
+        index = ReadColumn( count, index, length );
+        long value = 0;
+        for ( int i = 0; i < count; ++i ) {
+            value += _deltas[i];
+            block._latitude[i] = FromFixedPoint( value, DEGREES_SCALE );
+        }
+        index = ReadColumn( count, index, length );
+        value = 0;
+        for ( int i = 0; i < count; ++i ) {
+            value += _deltas[i];
+            block._longitude[i] = FromFixedPoint( value, DEGREES_SCALE );
+        }
+        index = ReadUnitsColumn( block._altitude, count, index, length );
+        index = ReadUnitsColumn( block._speedKnots, count, index, length );
+        index = ReadUnitsColumn( block._courseDegrees, count, index, length );
+        index = ReadUnitsColumn( block._hdop, count, index, length );
+        index = ReadColumn( count, index, length );
+        value = 0;
+        for ( int i = 0; i < count; ++i ) {
+            value += _deltas[i];
+            if ( value < -1 || value >= FIX_QUALITIES.length ) {
+                throw new IOException( "Corrupt track log block" );
+            }
+            block._fixQuality[i] = (byte) value;
+        }
+        if ( index != length ) {
+            throw new IOException( "Corrupt track log block" );
+        }
+    }
+
+    private int ReadUnitsColumn( float[] column, int count, int index, int length ) throws IOException {
+        index = ReadColumn( count, index, length );
+        long value = 0;
+        for ( int i = 0; i < count; ++i ) {
+            value += _deltas[i];
+            column[i] = (float) FromFixedPoint( value, UNITS_SCALE );
+        }
+        return index;
+    }
+
+    /**
+     * Decodes a column of zigzag varints into _deltas
+     * @return Offset past the column
+     */
+    private int ReadColumn( int count, int index, int length ) throws IOException {
+        final byte[] bytes = _payload;
+        for ( int i = 0; i < count; ++i ) {
+            long zigzag = 0;
+            int shift = 0;
+            int b;
+            do {
+                if ( index >= length || shift > 63 ) {
+                    throw new IOException( "Corrupt track log block" );
+                }
+                b = bytes[index++];
+                zigzag |= (long) ( b & 0x7F ) << shift;
+                shift += 7;
+            } while ( b < 0 );
+            _deltas[i] = ( zigzag >>> 1 ) ^ -( zigzag & 1 );
+        }
+        return index;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Types.FixQualityEnum;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static com.inverness_park.nmea.TrackLogFormat.DEGREES_SCALE;
+import static com.inverness_park.nmea.TrackLogFormat.FixedPoint;
+import static com.inverness_park.nmea.TrackLogFormat.PutVarint;
+import static com.inverness_park.nmea.TrackLogFormat.UNITS_SCALE;
+
+/**
+ * Writes fixes to a compact binary track log (see TrackLogFormat), typically a dozen bytes per fix
+ * against about 70 for the text of a GGA alone.  Fixes are buffered in columns, and written a
+ * block at a time.  The log is only complete, and seekable, once the writer is closed.  Once a
+ * write has failed, the log is left as it is, and Append() and Flush() throw IllegalStateException.
+ *
+ * As a FixEpochCorrelator.Listener, a writer can be fed straight from a receiver:
+ *
+ *      TrackLogWriter log = new TrackLogWriter( new FileOutputStream( file ) );
+ *      NmeaReceiver receiver = new NmeaReceiver( new FixEpochCorrelator( log ) );
+ */
+
+public class TrackLogWriter implements FixEpochCorrelator.Listener, Closeable {
+
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private final DataOutputStream _out;
+
+    /**
+     * Offset of the next byte written
+     */
+    private long _offset = 0;
+
+    /**
+     * Columns of the block being buffered, in fixed point
+     */
+    private final long[] _time;
+    private final int[] _latitude;
+    private final int[] _longitude;
+    private final int[] _altitude;
+    private final int[] _speedKnots;
+    private final int[] _courseDegrees;
+    private final int[] _hdop;
+    private final int[] _fixQuality;
+    private int _count = 0;
+
+    /**
+     * Encoded payload of the block being written
+     */
+    private byte[] _payload;
+
+    /**
+     * Index entries: first time, last time and offset of each block written
+     */
+    private long[] _index = new long[3 * 64];
+    private int _blockCount = 0;
+
+    private long _lastTime = Long.MIN_VALUE;
+
+    private final FixClock _clock = new FixClock();
+
+    private boolean _closed = false;
+
+    /**
+     * Set if writing a block failed, after which the log can't be appended to
+     */
+    private boolean _failed = false;
+
+    /**
+     * Constructor.  Writes the header of the log.
+     * @param out Closed by close()
+     * @param blockSize Number of fixes per block
+     * @throws IOException
+     */
+    public TrackLogWriter( OutputStream out, int blockSize ) throws IOException {
+        if ( blockSize < 1 ) {
+            throw new IllegalArgumentException( "blockSize must be at least 1" );
+        }
+        _out = new DataOutputStream( out );
+        _time = new long[blockSize];
+        _latitude = new int[blockSize];
+        _longitude = new int[blockSize];
+        _altitude = new int[blockSize];
+        _speedKnots = new int[blockSize];
+        _courseDegrees = new int[blockSize];
+        _hdop = new int[blockSize];
+        _fixQuality = new int[blockSize];
+        _payload = new byte[blockSize * 16];
+
+        _out.writeInt( TrackLogFormat.MAGIC );
+        _out.writeByte( TrackLogFormat.VERSION );
+        _offset = 5;
+    }
+
+    public TrackLogWriter( OutputStream out ) throws IOException {
+        this( out, DEFAULT_BLOCK_SIZE );
+    }
+
+    /**
+     * Appends a fix, with the same arguments as TrackStore.Append()
+     * @return false if the fix is older than the last one, in which case it isn't appended
+     * @throws IOException
+     */
+    public boolean Append( long timeMillis, double latitude, double longitude, float altitude,
+                           float speedKnots, float courseDegrees, float hdop, FixQualityEnum fixQuality ) throws IOException {
+        CheckWritable();
+        if ( timeMillis < _lastTime ) {
+            return false;
+        }
+        _lastTime = timeMillis;
+
+        int i = _count;
+        _time[i] = timeMillis;
+        _latitude[i] = FixedPoint( latitude, DEGREES_SCALE );
+        _longitude[i] = FixedPoint( longitude, DEGREES_SCALE );
+        _altitude[i] = FixedPoint( altitude, UNITS_SCALE );
+        _speedKnots[i] = FixedPoint( speedKnots, UNITS_SCALE );
+        _courseDegrees[i] = FixedPoint( courseDegrees, UNITS_SCALE );
+        _hdop[i] = FixedPoint( hdop, UNITS_SCALE );
+        _fixQuality[i] = fixQuality != null ? fixQuality.ordinal() : -1;
+        if ( ++_count == _time.length ) {
+            WriteBlock();
+        }
+        return true;
+    }
+
+    /**
+     * Appends all the fixes of a track
+     * @param track
+     * @throws IOException
+     */
+    public void Append( TrackStore track ) throws IOException {
+        TrackStore.Cursor cursor = track.NewCursor().Seek( 0, track.get_size() );
+        while ( cursor.Next() ) {
+            Append( cursor.get_timeMillis(), cursor.get_latitude(), cursor.get_longitude(), cursor.get_altitude(),
+                    cursor.get_speedKnots(), cursor.get_courseDegrees(), cursor.get_hdop(), cursor.get_fixQuality() );
+        }
+    }
+
+    /**
+     * Appends the fix of an epoch, if it has a position and a time, dated as per TrackStore
+     * @param epoch
+     * @throws IllegalStateException If writing the fix failed, with the IOException as its cause
+     */
+    @Override
+    public void OnFixEpoch( FixEpoch epoch ) {
+        long timeMillis = _clock.TimeMillis( epoch );
+        if ( timeMillis < 0 || Double.isNaN( epoch.get_latitude() ) || Double.isNaN( epoch.get_longitude() ) ) {
+            return;
+        }
+        try {
+            Append( timeMillis, epoch.get_latitude(), epoch.get_longitude(), epoch.get_altitude(),
+                    epoch.get_speedKnots(), epoch.get_courseTrueDegrees(), epoch.get_hdop(), epoch.get_fixQuality() );
+        } catch ( IOException e ) {
+            throw new IllegalStateException( "Failed to write the track log", e );
+        }
+    }
+
+    /**
+     * Writes the buffered fixes as a block, and flushes the underlying stream
+     * @throws IOException
+     */
+    public void Flush() throws IOException {
+        CheckWritable();
+        WriteBlock();
+        _out.flush();
+    }
+
+    /**
+     * Writes the buffered fixes, the end marker and the index, and closes the underlying stream
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if ( _closed ) {
+            return;
+        }
+        try {
+            if ( _failed ) {
+                return;
+            }
+            WriteBlock();
+            _out.writeInt( 0 );
+            _offset += 4;
+
+            long indexOffset = _offset;
+            _out.writeInt( _blockCount );
+            for ( int i = 0; i < 3 * _blockCount; ++i ) {
+                _out.writeLong( _index[i] );
+            }
+            _out.writeLong( indexOffset );
+            _out.writeInt( TrackLogFormat.INDEX_MAGIC );
+        } finally {
+            _closed = true;
+            _out.close();
+        }
+    }
+
+    private void CheckWritable() {
+        if ( _closed ) {
+            throw new IllegalStateException( "TrackLogWriter is closed" );
+        }
+        if ( _failed ) {
+            throw new IllegalStateException( "TrackLogWriter failed to write a block" );
+        }
+    }
+
+    private void WriteBlock() throws IOException {
+        final int count = _count;
+        if ( count == 0 ) {
+            return;
+        }
+
+        // ... Worst case: 10 bytes for each time delta, 5 for each other delta
+        if ( _payload.length < count * ( 10 + 7 * 5 ) ) {
+            _payload = new byte[count * ( 10 + 7 * 5 )];
+        }
+        int length = 0;
+        long previous = _time[0];
+        for ( int i = 0; i < count; ++i ) {
+            length = PutVarint( _payload, length, _time[i] - previous );
+            previous = _time[i];
+        }
+        length = PutColumn( _latitude, count, length );
+        length = PutColumn( _longitude, count, length );
+        length = PutColumn( _altitude, count, length );
+        length = PutColumn( _speedKnots, count, length );
+        length = PutColumn( _courseDegrees, count, length );
+        length = PutColumn( _hdop, count, length );
+        length = PutColumn( _fixQuality, count, length );
+
+        if ( 3 * ( _blockCount + 1 ) > _index.length ) {
+            _index = Arrays.copyOf( _index, 2 * _index.length );
+        }
+        _index[3 * _blockCount] = _time[0];
+        _index[3 * _blockCount + 1] = _time[count - 1];
+        _index[3 * _blockCount + 2] = _offset;
+        ++_blockCount;
+
+        // ... A block written in part can't be completed: fail rather than let the next Append()
+        // write past the full columns
+        try {
+            _out.writeInt( count );
+            _out.writeLong( _time[0] );
+            _out.writeLong( _time[count - 1] );
+            _out.writeInt( length );
+            _out.write( _payload, 0, length );
+        } catch ( IOException e ) {
+            _failed = true;
+            throw e;
+        }
+        _offset += TrackLogFormat.BLOCK_HEADER_SIZE + length;
+        _count = 0;
+    }
+
+    private int PutColumn( int[] column, int count, int length ) {
+        long previous = 0;
+        for ( int i = 0; i < count; ++i ) {
+            length = PutVarint( _payload, length, column[i] - previous );
+            previous = column[i];
+        }
+        return length;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Types.FixQualityEnum;
+
+import java.util.ArrayList;
+
+/**
+ * Track of fixes kept in memory in columns (time, latitude, longitude, altitude, speed, course,
+ * HDOP and fix quality) of primitive arrays, rather than as message objects: about 40 bytes per
+ * fix, against several hundred for a GGA and an RMC.  Columns grow by fixed-size segments, so
+ * appending never copies what is already stored.
+ *
+ * Fixes are kept in time order, so that they can be looked up by time with a binary search.
+ * A Cursor iterates over a range of them without allocating.
+ *
+ * As a FixEpochCorrelator.Listener, a track store can be fed straight from a receiver:
+ *
+ *      TrackStore track = new TrackStore();
+ *      NmeaReceiver receiver = new NmeaReceiver( new FixEpochCorrelator( track ) );
+ *
+ * A track store is used from one thread at a time.
+ */
+
+public class TrackStore implements FixEpochCorrelator.Listener {
+
+    /**
+     * Fixes per segment
+     */
+    private static final int SEGMENT_BITS = 12;
+    public static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private static final FixQualityEnum[] FIX_QUALITIES = FixQualityEnum.values();
+
+    /**
+     * Columns of SEGMENT_SIZE fixes
+     */
+    private static final class Segment {
+        private final long[] _time = new long[SEGMENT_SIZE];
+        private final double[] _latitude = new double[SEGMENT_SIZE];
+        private final double[] _longitude = new double[SEGMENT_SIZE];
+        private final float[] _altitude = new float[SEGMENT_SIZE];
+        private final float[] _speedKnots = new float[SEGMENT_SIZE];
+        private final float[] _courseDegrees = new float[SEGMENT_SIZE];
+        private final float[] _hdop = new float[SEGMENT_SIZE];
+        private final byte[] _fixQuality = new byte[SEGMENT_SIZE];
+    }
+
+    private final ArrayList<Segment> _segments = new ArrayList<>();
+
+    private int _size = 0;
+
+    /**
+     * Dates the fixes received from a FixEpochCorrelator
+     */
+    private final FixClock _clock = new FixClock();
+
+    /**
+     * Iterates over a range of fixes, reading their columns in place
+     */
+    public final class Cursor {
+        private int _index;
+        private int _end;
+        private Segment _segment;
+        private int _offset;
+
+        private Cursor() {
+            Seek( 0, 0 );
+        }
+
+        /**
+         * Positions the cursor before the first fix of a range
+         * @param from Index of the first fix
+         * @param to Index past the last fix
+         * @return This cursor
+         */
+        public Cursor Seek( int from, int to ) {
+            _index = Math.max( from, 0 ) - 1;
+            _end = Math.min( to, _size );
+            _segment = null;
+            return this;
+        }
+
+        /**
+         * Positions the cursor before the first fix at or after a given time
+         * @param fromMillis
+         * @param toMillis Time past the last fix
+         * @return This cursor
+         */
+        public Cursor SeekTime( long fromMillis, long toMillis ) {
+            return Seek( IndexOf( fromMillis ), IndexOf( toMillis ) );
+        }
+
+        /**
+         * Moves to the next fix
+         * @return false if there are no more fixes in the range
+         */
+        public boolean Next() {
+            if ( _index + 1 >= _end ) {
+                _index = _end;
+                return false;
+            }
+            ++_index;
+            _offset = _index & SEGMENT_MASK;
+            if ( _segment == null || _offset == 0 ) {
+                _segment = _segments.get( _index >>> SEGMENT_BITS );
+            }
+            return true;
+        }
+
+        public int get_index() {
+            return _index;
+        }
+
+        public long get_timeMillis() {
+            return _segment._time[_offset];
+        }
+
+        public double get_latitude() {
+            return _segment._latitude[_offset];
+        }
+
+        public double get_longitude() {
+            return _segment._longitude[_offset];
+        }
+
+        public float get_altitude() {
+            return _segment._altitude[_offset];
+        }
+
+        public float get_speedKnots() {
+            return _segment._speedKnots[_offset];
+        }
+
+        public float get_courseDegrees() {
+            return _segment._courseDegrees[_offset];
+        }
+
+        public float get_hdop() {
+            return _segment._hdop[_offset];
+        }
+
+        public FixQualityEnum get_fixQuality() {
+            return FixQuality( _segment._fixQuality[_offset] );
+        }
+    }
+
+    /**
+     * Number of fixes
+     * @return
+     */
+    public int get_size() {
+        return _size;
+    }
+
+    /**
+     * Forgets all fixes
+     */
+    public void Clear() {
+        _segments.clear();
+        _size = 0;
+        _clock.Reset();
+    }
+
+    /**
+     * Appends a fix
+     * @param timeMillis UTC time, in milliseconds since 1970-01-01
+     * @param latitude Degrees, south is negative
+     * @param longitude Degrees, west is negative
+     * @param altitude Meters above mean sea level, or NaN
+     * @param speedKnots Speed over ground, or NaN
+     * @param courseDegrees Course over ground from true north, or NaN
+     * @param hdop Horizontal dilution of precision, or NaN
+     * @param fixQuality May be null
+     * @return false if the fix is older than the last one, in which case it isn't appended
+     */
+    public boolean Append( long timeMillis, double latitude, double longitude, float altitude,
+                           float speedKnots, float courseDegrees, float hdop, FixQualityEnum fixQuality ) {
+        if ( _size > 0 && timeMillis < get_timeMillis( _size - 1 ) ) {
+            return false;
+        }
+        int offset = _size & SEGMENT_MASK;
+        if ( offset == 0 ) {
+            _segments.add( new Segment() );
+        }
+        Segment segment = _segments.get( _segments.size() - 1 );
+        segment._time[offset] = timeMillis;
+        segment._latitude[offset] = latitude;
+        segment._longitude[offset] = longitude;
+        segment._altitude[offset] = altitude;
+        segment._speedKnots[offset] = speedKnots;
+        segment._courseDegrees[offset] = courseDegrees;
+        segment._hdop[offset] = hdop;
+        segment._fixQuality[offset] = (byte) ( fixQuality != null ? fixQuality.ordinal() : -1 );
+        ++_size;
+        return true;
+    }
+
+    /**
+     * Appends the fix of an epoch, if it has a position and a time.  The date is that of the last
+     * RMC; before the first one, fixes are dated 1970-01-01, and move to the next day at midnight.
+     * @param epoch
+     */
+    @Override
+    public void OnFixEpoch( FixEpoch epoch ) {
+        long timeMillis = _clock.TimeMillis( epoch );
+        if ( timeMillis < 0 || Double.isNaN( epoch.get_latitude() ) || Double.isNaN( epoch.get_longitude() ) ) {
+            return;
+        }
+        Append( timeMillis, epoch.get_latitude(), epoch.get_longitude(),
+                epoch.get_altitude(), epoch.get_speedKnots(), epoch.get_courseTrueDegrees(),
+                epoch.get_hdop(), epoch.get_fixQuality() );
+    }
+
+    /**
+     * Index of the first fix at or after a given time
+     * @param timeMillis
+     * @return The index, or get_size() if all fixes are before that time
+     */
+    public int IndexOf( long timeMillis ) {
+        int low = 0;
+        int high = _size;
+        while ( low < high ) {
+            int middle = ( low + high ) >>> 1;
+            if ( get_timeMillis( middle ) < timeMillis ) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Creates a cursor, to be reused for any number of queries
+     * @return
+     */
+    public Cursor NewCursor() {
+        return new Cursor();
+    }
+
+    public long get_timeMillis( int index ) {
+        return SegmentOf( index )._time[index & SEGMENT_MASK];
+    }
+
+    public double get_latitude( int index ) {
+        return SegmentOf( index )._latitude[index & SEGMENT_MASK];
+    }
+
+    public double get_longitude( int index ) {
+        return SegmentOf( index )._longitude[index & SEGMENT_MASK];
+    }
+
+    public float get_altitude( int index ) {
+        return SegmentOf( index )._altitude[index & SEGMENT_MASK];
+    }
+
+    public float get_speedKnots( int index ) {
+        return SegmentOf( index )._speedKnots[index & SEGMENT_MASK];
+    }
+
+    public float get_courseDegrees( int index ) {
+        return SegmentOf( index )._courseDegrees[index & SEGMENT_MASK];
+    }
+
+    public float get_hdop( int index ) {
+        return SegmentOf( index )._hdop[index & SEGMENT_MASK];
+    }
+
+    public FixQualityEnum get_fixQuality( int index ) {
+        return FixQuality( SegmentOf( index )._fixQuality[index & SEGMENT_MASK] );
+    }
+
+    private Segment SegmentOf( int index ) {
+        if ( index < 0 || index >= _size ) {
+            throw new IndexOutOfBoundsException( "Fix " + index + " of " + _size );
+        }
+        return _segments.get( index >>> SEGMENT_BITS );
+    }
+
+    private static FixQualityEnum FixQuality( byte ordinal ) {
+        return ordinal >= 0 ? FIX_QUALITIES[ordinal] : null;
+    }
+}
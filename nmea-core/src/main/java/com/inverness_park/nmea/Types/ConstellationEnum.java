@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea.Types;
+
+/**
+ * Satellite constellation, as given by the talker identifier of a sentence
+ */
+public enum ConstellationEnum {
+    GPS( "GP" ),
+    GLONASS( "GL" ),
+    Galileo( "GA" ),
+    BeiDou( "GB" ),
+    QZSS( "GQ" ),
+    NavIC( "GI" ),
+    Combined( "GN" ),   // Several constellations reported together
+    Unknown( "" );
+
+    private final String _talker;
+
+    ConstellationEnum( String talker ) {
+        _talker = talker;
+    }
+
+    /**
+     * Talker identifier, e.g. "GP"; empty for Unknown
+     * @return
+     */
+    public String get_talker() {
+        return _talker;
+    }
+
+    /**
+     * Constellation of a talker identifier
+     * @param first First character of the talker identifier
+     * @param second Second character of the talker identifier
+     * @return
+     */
+    public static ConstellationEnum FromTalker( char first, char second ) {
+        if ( first == 'B' && second == 'D' ) {
+            return BeiDou;
+        }
+        if ( first != 'G' ) {
+            return Unknown;
+        }
+        switch ( second ) {
+            case 'P': return GPS;
+            case 'L': return GLONASS;
+            case 'A': return Galileo;
+            case 'B': return BeiDou;
+            case 'Q': return QZSS;
+            case 'I': return NavIC;
+            case 'N': return Combined;
+            default: return Unknown;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea.Types;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * Breaks a decimal degree value into it's DMM components
+ */
+
+public class DMMComponents {
+    //static final char[] DELIMS = new char[] { ',', ' ', '\'', '"', '\u00b0' };
+    static final String DELIMS = "[, \'\"\u00b0]";
+
+    /**
+     * Decimal-minute digits kept by the compact decoder: more than any receiver emits, and few
+     * enough for the minutes to be counted exactly in a long
+     */
+    private static final int MAX_MINUTE_DECIMALS = 11;
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L,
+            1000000000L, 10000000000L, 100000000000L,
+    };
+
+    /**
+     * Layout of ScanCompact()'s result: minutes, then decimal count
+     */
+    private static final int DECIMALS_SHIFT = 52;
+    private static final long MINUTES_MASK = ( 1L << DECIMALS_SHIFT ) - 1;
+
+    private int _sign;
+    private int _wholeDegrees ;
+    private double _decimalMinutes ;
+
+    public DMMComponents() {
+        _sign = 0 ;
+        _wholeDegrees = 0;
+        _decimalMinutes = 0;
+    }
+
+    public DMMComponents( double degrees ) {
+        _sign = degrees < 0 ? -1 : 1;
+        degrees = Math.abs(degrees);
+        _wholeDegrees = (int)Math.floor(degrees) ;
+        double fraction = degrees - _wholeDegrees;
+        _decimalMinutes = fraction * 60;
+    }
+
+    public double ToDDD() {
+        double fraction = _decimalMinutes / 60;
+        return _sign * (1.0 * _wholeDegrees + fraction);
+    }
+
+    public int get_sign() {
+        return _sign;
+    }
+
+    public void set_sign( int _sign ) {
+        this._sign = _sign;
+    }
+
+    public int get_wholeDegrees() {
+        return _wholeDegrees;
+    }
+
+    public void set_wholeDegrees( int _wholeDegrees ) {
+        this._wholeDegrees = _wholeDegrees;
+    }
+
+    public double get_decimalMinutes() {
+        return _decimalMinutes;
+    }
+
+    public void set_decimalMinutes( double _decimalMinutes ) {
+        this._decimalMinutes = _decimalMinutes;
+    }
+
+    /**
+     * Returns the numeric sign for a given NMEA hemisphere character
+     * @param hemisphereChar
+     * @return
+     */
+    private static int getHemisphereSign( char hemisphereChar ) {
+        int sign=0;
+        switch( hemisphereChar ) {
+            case 'N':case 'n':
+            case 'E':case 'e':
+                sign = 1 ;
+                break ;
+            case 'S':case 's':
+            case 'W':case 'w':
+                sign = -1 ;
+                break ;
+            default:
+                throw new DMMFormatException( "hemisphereChar: " + String.valueOf( hemisphereChar ) );
+        }
+        return sign ;
+    }
+
+    /**
+     * Decodes a compact DMM value, ddmm.mmmm or dddmm.mmmm as found in NMEA sentences, straight
+     * from its ASCII bytes, without any intermediate string or DMMComponents object.
+     *
+     * The value is counted exactly, in units of the last decimal-minute digit, so the result
+     * is the correctly rounded double for up to 11 decimal-minute digits; further digits are
+     * checked but ignored.
+     * @param bytes ASCII characters
+     * @param start Index of the first character
+     * @param end Index past the last character
+     * @param hemisphere 'N', 'S', 'E' or 'W', in either case
+     * @return Signed decimal degrees, up to 180
+     * @throws DMMFormatException
+     */
+    public static double ToDegrees( byte[] bytes, int start, int end, char hemisphere ) {
+        return ToDegrees( bytes, start, end, hemisphere, 180 );
+    }
+
+    /**
+     * Decodes a compact DMM value, as per ToDegrees( bytes, start, end, hemisphere ), within a
+     * bound: 90 for latitudes, 180 for longitudes
+     * @param bytes ASCII characters
+     * @param start Index of the first character
+     * @param end Index past the last character
+     * @param hemisphere 'N', 'S', 'E' or 'W', in either case
+     * @param maxDegrees Largest absolute value accepted
+     * @return Signed decimal degrees
+     * @throws DMMFormatException
+     */
+    public static double ToDegrees( byte[] bytes, int start, int end, char hemisphere, int maxDegrees ) {
+        int sign = getHemisphereSign( hemisphere );
+        long scanned = ScanCompact( bytes, start, end, maxDegrees );
+        long minutes = scanned & MINUTES_MASK;
+        int decimals = (int)( scanned >>> DECIMALS_SHIFT );
+        return sign * ( minutes / ( 60.0 * POW10[decimals] ) );
+    }
+
+    /**
+     * Reads ddmm.mmmm into a whole number of 10^-decimals minutes, up to maxDegrees
+     * @return Packed minutes and decimal count
+     */
+    private static long ScanCompact( byte[] bytes, int start, int end, int maxDegrees ) {
+        while ( start < end && bytes[start] == ' ' ) {
+            ++start;
+        }
+        while ( end > start && bytes[end - 1] == ' ' ) {
+            --end;
+        }
+
+        // ... Whole degrees and minutes, i.e. everything up to the decimal point
+        long whole = 0;
+        int j = start;
+        for ( ; j < end && bytes[j] != '.'; ++j ) {
+            int digit = bytes[j] - '0';
+            if ( digit < 0 || digit > 9 || whole > 18000 ) {
+                throw new DMMFormatException( new String( bytes, start, end - start, StandardCharsets.US_ASCII ) );
+            }
+            whole = whole * 10 + digit;
+        }
+        final long degrees = whole / 100;
+        if ( j - start < 2 || degrees > maxDegrees || whole % 100 >= 60 ) {
+            throw new DMMFormatException( new String( bytes, start, end - start, StandardCharsets.US_ASCII ) );
+        }
+
+        // ... Decimal minutes
+        long fraction = 0;
+        int decimals = 0;
+        if ( j < end ) {
+            for ( ++j; j < end; ++j ) {
+                int digit = bytes[j] - '0';
+                if ( digit < 0 || digit > 9 ) {
+                    throw new DMMFormatException( new String( bytes, start, end - start, StandardCharsets.US_ASCII ) );
+                }
+                if ( decimals < MAX_MINUTE_DECIMALS ) {
+                    fraction = fraction * 10 + digit;
+                    ++decimals;
+                }
+            }
+        }
+
+        if ( degrees == maxDegrees && ( whole % 100 > 0 || fraction > 0 ) ) {
+            throw new DMMFormatException( new String( bytes, start, end - start, StandardCharsets.US_ASCII ) );
+        }
+
+        long minutes = ( degrees * 60 + whole % 100 ) * POW10[decimals] + fraction;
+        return ( (long)decimals << DECIMALS_SHIFT ) | minutes;
+    }
+
+    /**
+     * Index of the first delimiter in a DMM string representation
+     */
+    private static int IndexOfDelimiter( String s ) {
+        for ( int i = 0; i < s.length(); ++i ) {
+            switch ( s.charAt( i ) ) {
+                case ',': case ' ': case '\'': case '"': case '\u00b0':
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a DMM string representation, up to 180 degrees
+     * @param s
+     * @return
+     */
+    public static DMMComponents parse( String s, GeoAngleFormatOptions options ) {
+        return parse( s, options, 180 );
+    }
+
+    /**
+     * Parses a DMM string representation
+     * @param s
+     * @param options
+     * @param maxDegrees Largest absolute value accepted: 90 for latitudes, 180 for longitudes
+     * @return
+     * @throws DMMFormatException
+     */
+    public static DMMComponents parse( String s, GeoAngleFormatOptions options, int maxDegrees ) {
+        int sign=1;
+        int wholeDegrees=0;
+        double decimalMinutes=0;
+
+        if (options == GeoAngleFormatOptions.Compact) {
+            // ... Split value and hemisphere letter
+            int delim = IndexOfDelimiter(s);
+            String hemisphere = delim < 0 ? "" : s.substring(delim + 1).trim();
+            if (hemisphere.length() != 1) {
+                throw new DMMFormatException(s);
+            }
+            sign = getHemisphereSign(hemisphere.charAt(0));
+
+            byte[] bytes = s.getBytes(StandardCharsets.US_ASCII);
+            long scanned = ScanCompact(bytes, 0, delim, maxDegrees);
+            long scale = POW10[(int)(scanned >>> DECIMALS_SHIFT)];
+            long minutes = scanned & MINUTES_MASK;
+            wholeDegrees = (int)(minutes / (60 * scale));
+            decimalMinutes = (double)(minutes - wholeDegrees * 60 * scale) / scale;
+        }
+        else {
+            // ... Split value and hemisphere letter
+            List<String> tokens = new ArrayList<>( Arrays.asList(s.split(DELIMS)));
+            tokens.removeAll( Arrays.asList("", null) );
+            if (tokens.size() != 2) {
+                throw new DMMFormatException(s);
+            }
+            wholeDegrees = Integer.parseInt( tokens.get(0) );
+            sign = wholeDegrees < 0 ? -1 : 1;
+            wholeDegrees *= sign; // Abs
+            decimalMinutes = Double.parseDouble(tokens.get(1));
+            if (wholeDegrees > maxDegrees || (wholeDegrees == maxDegrees && decimalMinutes > 0)) {
+                throw new DMMFormatException(s);
+            }
+        }
+
+        DMMComponents rc = new DMMComponents() ;
+        rc.set_sign( sign );
+        rc.set_wholeDegrees( wholeDegrees );
+        rc.set_decimalMinutes( decimalMinutes );
+        return rc ;
+    }
+}
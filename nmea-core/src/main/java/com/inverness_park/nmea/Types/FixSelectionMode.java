@@ -58,4 +58,20 @@ public enum FixSelectionMode {
                 throw new IllegalArgumentException(s);
         }
     }
+
+    /**
+     * From NMEA representation to enum
+     * @param c Character, as read from a NMEA message
+     * @return FixSelectionMode value
+     */
+    public static FixSelectionMode FromNmeaChar( char c ) {
+        switch (Character.toUpperCase(c)) {
+            case 'A':
+                return FixSelectionMode.Auto;
+            case 'M':
+                return FixSelectionMode.Manual;
+            default:
+                throw new IllegalArgumentException(String.valueOf(c));
+        }
+    }
 }
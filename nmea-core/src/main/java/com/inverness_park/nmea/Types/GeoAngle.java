@@ -21,8 +21,6 @@
 
 package com.inverness_park.nmea.Types;
 
-import android.support.annotation.NonNull;
-
 import java.util.EnumSet;
 import java.util.Locale;
 
@@ -135,6 +133,19 @@ public abstract class GeoAngle implements Comparable<GeoAngle>  {
     /// <param name="options"></param>
     /// <returns></returns>
     protected static double ParseDegrees(String s, GeoAngleFormat fmt, GeoAngleFormatOptions options) {
+        return ParseDegrees(s, fmt, options, 180);
+    }
+
+    /// <summary>
+    /// Converts a String representation back to numeric degrees, with DMM values bounded by
+    /// maxDegrees: 90 for latitudes, 180 for longitudes
+    /// </summary>
+    /// <param name="s"></param>
+    /// <param name="fmt"></param>
+    /// <param name="options"></param>
+    /// <param name="maxDegrees"></param>
+    /// <returns></returns>
+    protected static double ParseDegrees(String s, GeoAngleFormat fmt, GeoAngleFormatOptions options, int maxDegrees) {
         double rc = 0;
 
         switch (fmt) {
@@ -142,7 +153,7 @@ public abstract class GeoAngle implements Comparable<GeoAngle>  {
                 rc = Double.parseDouble(s);
                 break;
             case DMM:
-                rc = ParseDMM(s, options);
+                rc = ParseDMM(s, options, maxDegrees);
                 break;
             case DMS:
                 rc = ParseDMS(s, options);
@@ -159,7 +170,18 @@ public abstract class GeoAngle implements Comparable<GeoAngle>  {
     /// <param name="options"></param>
     /// <returns></returns>
     protected static double ParseDMM(String s, GeoAngleFormatOptions options) {
-        DMMComponents dmm = DMMComponents.parse( s, options ) ;
+        return ParseDMM(s, options, 180);
+    }
+
+    /// <summary>
+    /// Parses a DMM representation, up to maxDegrees, and converts to degrees
+    /// </summary>
+    /// <param name="s"></param>
+    /// <param name="options"></param>
+    /// <param name="maxDegrees"></param>
+    /// <returns></returns>
+    protected static double ParseDMM(String s, GeoAngleFormatOptions options, int maxDegrees) {
+        DMMComponents dmm = DMMComponents.parse( s, options, maxDegrees ) ;
         return dmm.ToDDD() ;
     }
 
@@ -201,7 +223,7 @@ public abstract class GeoAngle implements Comparable<GeoAngle>  {
      * @return
      */
     @Override
-    public int compareTo( @NonNull GeoAngle geoAngle ) {
+    public int compareTo( GeoAngle geoAngle ) {
         return Double.compare( _degrees, geoAngle._degrees );
     }
 }
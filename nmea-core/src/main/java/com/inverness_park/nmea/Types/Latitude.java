@@ -92,7 +92,7 @@ public class Latitude extends GeoAngle {
      */
     public static Latitude Parse( String s, GeoAngleFormat fmt, GeoAngleFormatOptions options ) {
         Latitude rc = new Latitude();
-        rc.set_degrees( ParseDegrees( s, fmt, options ) );
+        rc.set_degrees( ParseDegrees( s, fmt, options, 90 ) );
         return rc ;
     }
 
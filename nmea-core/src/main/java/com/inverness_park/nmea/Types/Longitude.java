@@ -89,7 +89,7 @@ public class Longitude extends GeoAngle {
      */
     public static Longitude Parse( String s, GeoAngleFormat fmt, GeoAngleFormatOptions options ) {
         Longitude rc = new Longitude();
-        rc.set_degrees( ParseDegrees( s, fmt, options ) );
+        rc.set_degrees( ParseDegrees( s, fmt, options, 180 ) );
         return rc ;
     }
 
@@ -58,4 +58,20 @@ public enum StatusEnum {
                 throw new IllegalArgumentException(s);
         }
     }
+
+    /**
+     * From NMEA representation to enum
+     * @param c Character as read from a NMEA message
+     * @return Corresponding enumvalue
+     */
+    public static StatusEnum FromNmeaChar(char c) {
+        switch (Character.toUpperCase(c)) {
+            case 'A':
+                return StatusEnum.Active;
+            case 'V':
+                return StatusEnum.Void;
+            default:
+                throw new IllegalArgumentException(String.valueOf(c));
+        }
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Single-producer/single-consumer byte ring
+ */
+
+public class ByteRingBufferUnitTest {
+
+    private static class Collector implements ByteRingBuffer.Consumer {
+        private final ByteArrayOutputStream _bytes = new ByteArrayOutputStream();
+
+        @Override
+        public void Consume( byte[] bytes, int index, int count ) {
+            _bytes.write( bytes, index, count );
+        }
+    }
+
+    private static byte[] Sequence( int length ) {
+        byte[] bytes = new byte[length];
+        for ( int i = 0; i < length; ++i ) {
+            bytes[i] = (byte) ( i * 31 + ( i >> 8 ) );
+        }
+        return bytes;
+    }
+
+    @Test
+    public void CapacityIsRoundedUpToPowerOfTwo() {
+        assertEquals( 1, new ByteRingBuffer( 1 ).get_capacity() );
+        assertEquals( 1024, new ByteRingBuffer( 1000 ).get_capacity() );
+        assertEquals( 1024, new ByteRingBuffer( 1024 ).get_capacity() );
+    }
+
+    @Test
+    public void WrapsAround() {
+        ByteRingBuffer ring = new ByteRingBuffer( 64 );
+        Collector collector = new Collector();
+        byte[] expected = Sequence( 10000 );
+        Random random = new Random( 15 );
+        int offset = 0;
+        while ( offset < expected.length ) {
+            int count = Math.min( 1 + random.nextInt( 40 ), expected.length - offset );
+            assertTrue( ring.Offer( expected, offset, count ) );
+            offset += count;
+            if ( random.nextBoolean() ) {
+                ring.Drain( collector );
+            }
+            if ( ring.get_size() > 24 ) {
+                ring.Drain( collector );
+            }
+        }
+        ring.Drain( collector );
+        assertArrayEquals( expected, collector._bytes.toByteArray() );
+        assertEquals( 0, ring.get_overflowCount() );
+    }
+
+    @Test
+    public void OverflowRejectsWholeOffer() {
+        ByteRingBuffer ring = new ByteRingBuffer( 16 );
+        byte[] bytes = Sequence( 12 );
+        assertTrue( ring.Offer( bytes, 0, 12 ) );
+        assertFalse( ring.Offer( bytes, 0, 5 ) );
+        assertFalse( ring.Offer( ByteBuffer.wrap( bytes, 0, 5 ) ) );
+        assertTrue( ring.Offer( bytes, 0, 4 ) );
+        assertEquals( 2, ring.get_overflowCount() );
+
+        Collector collector = new Collector();
+        assertEquals( 16, ring.Drain( collector ) );
+        byte[] expected = Arrays.copyOf( bytes, 16 );
+        System.arraycopy( bytes, 0, expected, 12, 4 );
+        assertArrayEquals( expected, collector._bytes.toByteArray() );
+    }
+
+    @Test
+    public void ProducerAndConsumerThreads() throws Exception {
+        ProducerAndConsumerThreads( new ByteRingBuffer( 256 ) );
+    }
+
+    @Test
+    public void ProducerAndConsumerThreadsVolatilePublish() throws Exception {
+        ProducerAndConsumerThreads( new ByteRingBuffer( 256, true ) );
+    }
+
+    private static void ProducerAndConsumerThreads( final ByteRingBuffer ring ) throws Exception {
+        final byte[] expected = Sequence( 1 << 20 );
+        Thread producer = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                Random random = new Random( 15 );
+                int offset = 0;
+                while ( offset < expected.length ) {
+                    int count = Math.min( 1 + random.nextInt( 100 ), expected.length - offset );
+                    if ( ring.Offer( expected, offset, count ) ) {
+                        offset += count;
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }
+        } );
+        producer.start();
+
+        Collector collector = new Collector();
+        while ( collector._bytes.size() < expected.length ) {
+            if ( ring.Drain( collector ) == 0 ) {
+                Thread.yield();
+            }
+        }
+        producer.join();
+        assertArrayEquals( expected, collector._bytes.toByteArray() );
+    }
+}
@@ -27,13 +27,18 @@ import com.inverness_park.nmea.Types.GeoAngleFormatOptions;
 
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 import java.util.TreeMap;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 /**
  * Created by stephanm on 2018-02-12.
@@ -118,6 +123,90 @@ public class DMMComponentsUnitsTest {
         }
     }
 
+    private static double ToDegrees( String value, char hemisphere ) {
+        byte[] bytes = value.getBytes( StandardCharsets.US_ASCII ) ;
+        return DMMComponents.ToDegrees( bytes, 0, bytes.length, hemisphere ) ;
+    }
+
+    @Test
+    public void DecodeCompactBytes() {
+        assertEquals( 53.3613366666667, ToDegrees( "5321.6802", 'N' ), 1e-12 ) ;
+        assertEquals( -6.50562, ToDegrees( "00630.3372", 'W' ), 0 ) ;
+        assertEquals( -85.2504893, ToDegrees( "8515.029358", 's' ), 1e-9 ) ;
+        assertEquals( 180.0, ToDegrees( "18000.00000000", 'E' ), 0 ) ;
+    }
+
+    @Test
+    public void DecodeCompactBytesIsCorrectlyRounded() {
+        // ... 6 to 8 decimal-minute digits, as RTK receivers emit, compared against exact arithmetic
+        Random random = new Random( 42 ) ;
+        BigDecimal sixty = BigDecimal.valueOf( 60 ) ;
+        for ( int n = 0; n < 100000; ++n ) {
+            int decimals = 6 + random.nextInt( 3 ) ;
+            int degrees = random.nextInt( 180 ) ;
+            int minutes = random.nextInt( 60 ) ;
+            long fraction = (long)( random.nextDouble() * Math.pow( 10, decimals ) ) ;
+            String value = String.format( Locale.US, "%03d%02d.%0" + decimals + "d", degrees, minutes, fraction ) ;
+
+            BigDecimal exact = BigDecimal.valueOf( degrees ).add(
+                    new BigDecimal( minutes + "." + value.substring( 6 ) ).divide( sixty, MathContext.DECIMAL128 ) ) ;
+            assertEquals( value, exact.doubleValue(), ToDegrees( value, 'E' ), 0 ) ;
+            assertEquals( value, -exact.doubleValue(), ToDegrees( value, 'W' ), 0 ) ;
+        }
+    }
+
+    @Test (expected = DMMFormatException.class)
+    public void DecodeCompactBytesWithoutHemisphere() {
+        ToDegrees( "5321.6802", '\0' ) ;
+    }
+
+    @Test (expected = DMMFormatException.class)
+    public void DecodeEmptyCompactBytes() {
+        ToDegrees( "", 'N' ) ;
+    }
+
+    @Test (expected = DMMFormatException.class)
+    public void DecodeInvalidCompactBytes() {
+        ToDegrees( "5361.6802", 'N' ) ;
+    }
+
+    private static double ToDegrees( String value, char hemisphere, int maxDegrees ) {
+        byte[] bytes = value.getBytes( StandardCharsets.US_ASCII ) ;
+        return DMMComponents.ToDegrees( bytes, 0, bytes.length, hemisphere, maxDegrees ) ;
+    }
+
+    @Test
+    public void DecodeCompactBytesBeyondLimits() {
+        assertEquals( -90.0, ToDegrees( "9000.0000", 'S', 90 ), 0 ) ;
+        assertEquals( 89.99999999, ToDegrees( "8959.9999994", 'N', 90 ), 1e-8 ) ;
+        assertEquals( 180.0, ToDegrees( "18000.0", 'E', 180 ), 0 ) ;
+        String[] latitudes = new String[] { "9030.0000", "9000.0001", "9100.0", "12000.0" } ;
+        String[] longitudes = new String[] { "18030.0", "18000.0001", "18100.0000" } ;
+        for ( String value : latitudes ) {
+            try {
+                ToDegrees( value, 'N', 90 ) ;
+                fail( value ) ;
+            } catch ( DMMFormatException e ) {
+                // ... Expected
+            }
+        }
+        for ( String value : longitudes ) {
+            try {
+                ToDegrees( value, 'E', 180 ) ;
+                fail( value ) ;
+            } catch ( DMMFormatException e ) {
+                // ... Expected
+            }
+        }
+    }
+
+    @Test
+    public void DecodeUnpaddedLongitude() {
+        // ... Longitudes below 100 degrees may come without their leading zero
+        assertEquals( -95.5, ToDegrees( "9530.000", 'W', 180 ), 0 ) ;
+        assertEquals( -95.5, ToDegrees( "9530.000", 'W' ), 0 ) ;
+    }
+
     @Test (expected = DMMFormatException.class)
     public void ParseFromInvalidCompactString() {
         DMMComponents.parse( "61x13.083336;N", GeoAngleFormatOptions.Compact ) ;
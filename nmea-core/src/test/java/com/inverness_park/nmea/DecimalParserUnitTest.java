@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * DecimalParser must return exactly what the JDK parsers return
+ */
+public class DecimalParserUnitTest {
+
+    private static double ParseDouble( String s ) {
+        byte[] bytes = ( "," + s + "," ).getBytes( StandardCharsets.US_ASCII ) ;
+        return DecimalParser.ParseDouble( bytes, 1, bytes.length - 1 ) ;
+    }
+
+    private static float ParseFloat( String s ) {
+        byte[] bytes = ( "," + s + "," ).getBytes( StandardCharsets.US_ASCII ) ;
+        return DecimalParser.ParseFloat( bytes, 1, bytes.length - 1 ) ;
+    }
+
+    private static void AssertSameAsJdk( String s ) {
+        assertEquals( s, Double.doubleToRawLongBits( Double.parseDouble( s ) ), Double.doubleToRawLongBits( ParseDouble( s ) ) ) ;
+        assertEquals( s, Float.floatToRawIntBits( Float.parseFloat( s ) ), Float.floatToRawIntBits( ParseFloat( s ) ) ) ;
+    }
+
+    @Test
+    public void TypicalFields() {
+        String[] samples = new String[] {
+                "0", "1", "-1", "+1", "0.0", "-0.0", "1.03", "61.7", "55.2", "0.02", "31.66",
+                "172.516", "155.295", "0.049", "0.090", "75.5664", "99.99", "5321.6802",
+                "00630.3372", "12.", ".5", " 2.5 ", "1e3", "1.5E-2", "NaN", "-Infinity",
+        } ;
+        for ( String s : samples ) {
+            AssertSameAsJdk( s ) ;
+        }
+    }
+
+    @Test
+    public void RandomDecimals() {
+        Random random = new Random( 42 ) ;
+        StringBuilder sb = new StringBuilder() ;
+        for ( int n = 0; n < 200000; ++n ) {
+            sb.setLength( 0 ) ;
+            if ( random.nextBoolean() ) {
+                sb.append( '-' ) ;
+            }
+            int digits = 1 + random.nextInt( 17 ) ;
+            int decimals = random.nextInt( digits + 1 ) ;
+            for ( int i = 0; i < digits; ++i ) {
+                if ( i == digits - decimals ) {
+                    sb.append( '.' ) ;
+                }
+                sb.append( (char)( '0' + random.nextInt( 10 ) ) ) ;
+            }
+            AssertSameAsJdk( sb.toString() ) ;
+        }
+    }
+
+    @Test
+    public void InvalidNumbers() {
+        String[] samples = new String[] { "", " ", "-", ".", "1.2.3", "1,5", "12a", "--1" } ;
+        for ( String s : samples ) {
+            try {
+                ParseDouble( s ) ;
+                fail( "ParseDouble: " + s ) ;
+            } catch ( NumberFormatException e ) {
+                // ... Expected
+            }
+            try {
+                ParseFloat( s ) ;
+                fail( "ParseFloat: " + s ) ;
+            } catch ( NumberFormatException e ) {
+                // ... Expected
+            }
+        }
+    }
+}
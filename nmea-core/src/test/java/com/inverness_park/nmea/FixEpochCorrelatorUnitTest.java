@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Types.FixQualityEnum;
+import com.inverness_park.nmea.Types.StatusEnum;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sentences of each epoch combined by a FixEpochCorrelator
+ */
+
+public class FixEpochCorrelatorUnitTest {
+
+    /**
+     * Sentences of two epochs, in the order a receiver sends them
+     */
+    private static final String[][] EPOCHS = {
+            {
+                    "GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,",
+                    "GPGSA,A,3,10,07,05,02,29,04,08,13,,,,,1.72,1.03,1.38",
+                    "GPGST,092750.000,1.18,0.50,0.40,12.5,0.45,0.42,0.90",
+                    "GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A",
+                    "GPVTG,31.66,T,35.10,M,0.02,N,0.04,K,A",
+            },
+            {
+                    "GPGGA,092751.000,5321.6802,N,00630.3371,W,1,8,1.03,61.7,M,55.3,M,,",
+                    "GPGSA,A,3,10,07,05,02,29,04,08,13,,,,,1.72,1.03,1.38",
+                    "GPGST,092751.000,1.20,0.50,0.40,12.5,0.45,0.42,0.90",
+                    "GPRMC,092751.000,A,5321.6802,N,00630.3371,W,0.06,31.66,280511,,,A",
+                    "GPVTG,31.66,T,35.10,M,0.06,N,0.11,K,A",
+            },
+    };
+
+    /**
+     * Keeps a copy of each epoch
+     */
+    private static class Epochs implements FixEpochCorrelator.Listener {
+        private final List<FixEpoch> _epochs = new ArrayList<>();
+
+        @Override
+        public void OnFixEpoch( FixEpoch epoch ) {
+            FixEpoch copy = new FixEpoch();
+            epoch.CopyTo( copy );
+            _epochs.add( copy );
+        }
+    }
+
+    private static byte[] Sentences( String... payloads ) {
+        StringBuilder sb = new StringBuilder();
+        for ( String payload : payloads ) {
+            byte[] bytes = payload.getBytes( StandardCharsets.US_ASCII );
+            sb.append( String.format( "$%s*%02X\r\n", payload, BaseNmeaMessage.ComputeChecksum( bytes, 0, bytes.length ) & 0xFF ) );
+        }
+        return sb.toString().getBytes( StandardCharsets.US_ASCII );
+    }
+
+    @Test
+    public void OneCallbackPerEpoch() {
+        Epochs epochs = new Epochs();
+        NmeaReceiver receiver = new NmeaReceiver( new FixEpochCorrelator( epochs ) );
+        receiver.set_recycleMessages( true );
+
+        // ... The first epoch is over when the second one starts; the second one is handed over
+        // as soon as it has everything the first one had
+        receiver.Receive( Sentences( EPOCHS[0] ) );
+        assertEquals( 0, epochs._epochs.size() );
+        receiver.Receive( Sentences( EPOCHS[1] ) );
+        assertEquals( 2, epochs._epochs.size() );
+
+        int all = FixEpoch.GGA | FixEpoch.GSA | FixEpoch.GST | FixEpoch.RMC | FixEpoch.VTG;
+        FixEpoch first = epochs._epochs.get( 0 );
+        assertEquals( all, first.get_sentences() );
+        assertFalse( first.Has( FixEpoch.HDT ) );
+        assertEquals( 9 * 3600000 + 27 * 60000 + 50000, first.get_utcMillisOfDay() );
+        assertEquals( 20110528, first.get_utcDate() );
+        assertEquals( 53.36134, first.get_latitude(), 1e-5 );
+        assertEquals( -6.50562, first.get_longitude(), 1e-5 );
+        assertEquals( FixQualityEnum.GpsFix, first.get_fixQuality() );
+        assertEquals( 8, first.get_satelliteCount() );
+        assertEquals( 61.7f, first.get_altitude(), 1e-4 );
+        assertEquals( StatusEnum.Active, first.get_status() );
+        assertEquals( 0.02f, first.get_speedKnots(), 1e-4 );
+        assertEquals( 0.04f, first.get_speedKph(), 1e-4 );
+        assertEquals( 35.10f, first.get_courseMagneticDegrees(), 1e-4 );
+        assertEquals( 1.72f, first.get_pdop(), 1e-4 );
+        assertEquals( 8, first.get_usedSatelliteCount() );
+        assertEquals( 13, first.get_usedPrn( 7 ) );
+        assertEquals( 1.18f, first.get_rms(), 1e-4 );
+        assertEquals( 0.90f, first.get_altitudeErrorStdev(), 1e-4 );
+        assertTrue( Float.isNaN( first.get_headingTrue() ) );
+
+        FixEpoch second = epochs._epochs.get( 1 );
+        assertEquals( all, second.get_sentences() );
+        assertEquals( first.get_utcMillisOfDay() + 1000, second.get_utcMillisOfDay() );
+        assertEquals( 1.20f, second.get_rms(), 1e-4 );
+    }
+
+    @Test
+    public void UntimedSentences() {
+        Epochs epochs = new Epochs();
+        FixEpochCorrelator correlator = new FixEpochCorrelator( epochs );
+        NmeaReceiver receiver = new NmeaReceiver( correlator );
+
+        // ... A VTG already in the epoch starts a new one
+        receiver.Receive( Sentences( EPOCHS[0][4], EPOCHS[0][0], EPOCHS[1][4] ) );
+        correlator.Flush();
+        assertEquals( 2, epochs._epochs.size() );
+        assertEquals( FixEpoch.VTG | FixEpoch.GGA, epochs._epochs.get( 0 ).get_sentences() );
+        assertEquals( FixEpoch.VTG, epochs._epochs.get( 1 ).get_sentences() );
+        assertEquals( -1, epochs._epochs.get( 1 ).get_utcMillisOfDay() );
+        assertEquals( 0.11f, epochs._epochs.get( 1 ).get_speedKph(), 1e-4 );
+    }
+
+    @Test
+    public void OneGsaPerConstellation() {
+        Epochs epochs = new Epochs();
+        FixEpochCorrelator correlator = new FixEpochCorrelator( epochs );
+        NmeaReceiver receiver = new NmeaReceiver( correlator );
+        receiver.set_recycleMessages( true );
+
+        // ... GPS, GLONASS and Galileo, 17 satellites in all, after the timed sentences
+        for ( int i = 0; i < 3; ++i ) {
+            String time = "09275" + i + ".000";
+            receiver.Receive( Sentences(
+                    "GNRMC," + time + ",A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A",
+                    "GNVTG,31.66,T,35.10,M,0.02,N,0.04,K,A",
+                    "GNGGA," + time + ",5321.6802,N,00630.3372,W,1,17,0.80,61.7,M,55.2,M,,",
+                    "GNGSA,A,3,10,07,05,02,29,04,08,13,,,,,1.32,0.80,1.05",
+                    "GNGSA,A,3,79,80,69,70,,,,,,,,,1.32,0.80,1.05",
+                    "GNGSA,A,3,301,305,311,x,319,,,,,,,,1.32,0.80,1.05" ) );
+        }
+        correlator.Flush();
+
+        assertEquals( 3, epochs._epochs.size() );
+        int all = FixEpoch.GGA | FixEpoch.GSA | FixEpoch.RMC | FixEpoch.VTG;
+        for ( int i = 0; i < 3; ++i ) {
+            FixEpoch epoch = epochs._epochs.get( i );
+            assertEquals( all, epoch.get_sentences() );
+            assertEquals( 9 * 3600000 + 27 * 60000 + 50000 + i * 1000, epoch.get_utcMillisOfDay() );
+            assertEquals( 1.32f, epoch.get_pdop(), 1e-4 );
+
+            // ... The malformed ID is skipped
+            assertEquals( 16, epoch.get_usedSatelliteCount() );
+            assertEquals( 10, epoch.get_usedPrn( 0 ) );
+            assertEquals( 79, epoch.get_usedPrn( 8 ) );
+            assertEquals( 319, epoch.get_usedPrn( 15 ) );
+        }
+    }
+
+    @Test
+    public void ParsePrn() {
+        assertEquals( 7, FixEpochCorrelator.ParsePrn( "07" ) );
+        assertEquals( 301, FixEpochCorrelator.ParsePrn( " 301 " ) );
+        assertEquals( -1, FixEpochCorrelator.ParsePrn( "" ) );
+        assertEquals( -1, FixEpochCorrelator.ParsePrn( null ) );
+        assertEquals( -1, FixEpochCorrelator.ParsePrn( "1x" ) );
+        assertEquals( -1, FixEpochCorrelator.ParsePrn( "-3" ) );
+    }
+
+    @Test
+    public void BurstGap() throws InterruptedException {
+        Epochs epochs = new Epochs();
+        FixEpochCorrelator correlator = new FixEpochCorrelator( epochs, 10 );
+        NmeaReceiver receiver = new NmeaReceiver( correlator );
+
+        receiver.Receive( Sentences( EPOCHS[0][0], EPOCHS[0][1] ) );
+        Thread.sleep( 30 );
+        receiver.Receive( Sentences( EPOCHS[0][4] ) );
+        assertEquals( 1, epochs._epochs.size() );
+        assertEquals( FixEpoch.GGA | FixEpoch.GSA, epochs._epochs.get( 0 ).get_sentences() );
+
+        correlator.Expire( System.nanoTime() );
+        assertEquals( 1, epochs._epochs.size() );
+        correlator.Expire( System.nanoTime() + 20000000L );
+        assertEquals( 2, epochs._epochs.size() );
+        assertEquals( FixEpoch.VTG, epochs._epochs.get( 1 ).get_sentences() );
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GSV;
+import com.inverness_park.nmea.Types.ConstellationEnum;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * GSV sequences assembled into epochs by a GsvAssembler
+ */
+
+public class GsvAssemblerUnitTest {
+
+    private static final String[] GPS = {
+            "GPGSV,3,1,11,10,63,137,17,07,61,098,15,05,59,290,20,08,54,157,30",
+            "GPGSV,3,2,11,02,39,223,19,13,28,070,17,26,23,252,,04,14,186,14",
+            "GPGSV,3,3,11,29,09,301,24,16,09,020,,36,,,",
+    };
+
+    private static final String[] GLONASS = {
+            "GLGSV,2,1,05,65,45,010,33,66,30,100,28,72,12,250,,81,70,180,40",
+            "GLGSV,2,2,05,88,05,330,",
+    };
+
+    /**
+     * NMEA 4.10: GPS on L1 C/A (signal 1), then on L5 (signal 8), in the same epoch
+     */
+    private static final String[] GPS_SIGNALS = {
+            "GPGSV,3,1,11,10,63,137,17,07,61,098,15,05,59,290,20,08,54,157,30,1",
+            "GPGSV,3,2,11,02,39,223,19,13,28,070,17,26,23,252,,04,14,186,14,1",
+            "GPGSV,3,3,11,29,09,301,24,16,09,020,,36,,,,1",
+            "GPGSV,1,1,03,10,63,137,42,07,61,098,12,30,44,100,25,8",
+    };
+
+    /**
+     * Keeps a copy of each epoch
+     */
+    private static class Epochs implements GsvAssembler.Listener {
+        private final List<SatellitesInView> _epochs = new ArrayList<>();
+
+        @Override
+        public void OnSatellitesInView( SatellitesInView satellites ) {
+            SatellitesInView copy = new SatellitesInView( satellites.get_count() );
+            satellites.CopyTo( copy );
+            _epochs.add( copy );
+        }
+    }
+
+    private static byte[] Sentences( String... payloads ) {
+        StringBuilder sb = new StringBuilder();
+        for ( String payload : payloads ) {
+            byte[] bytes = payload.getBytes( StandardCharsets.US_ASCII );
+            sb.append( String.format( "$%s*%02X\r\n", payload, BaseNmeaMessage.ComputeChecksum( bytes, 0, bytes.length ) & 0xFF ) );
+        }
+        return sb.toString().getBytes( StandardCharsets.US_ASCII );
+    }
+
+    private static NmeaReceiver Receiver( GsvAssembler assembler ) {
+        NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() );
+        assembler.register( receiver );
+        return receiver;
+    }
+
+    @Test
+    public void Constellations() {
+        Epochs epochs = new Epochs();
+        NmeaReceiver receiver = Receiver( new GsvAssembler( epochs ) );
+
+        // ... The first epoch ends when the next one starts; by then, the talkers are known, and
+        // the second epoch ends as soon as its last part comes in
+        receiver.Receive( Sentences( GPS[0], GPS[1], GPS[2], GLONASS[0], GLONASS[1] ) );
+        assertEquals( 0, epochs._epochs.size() );
+        receiver.Receive( Sentences( GPS[0], GPS[1], GPS[2], GLONASS[0] ) );
+        assertEquals( 1, epochs._epochs.size() );
+        receiver.Receive( Sentences( GLONASS[1] ) );
+        assertEquals( 2, epochs._epochs.size() );
+
+        for ( SatellitesInView epoch : epochs._epochs ) {
+            assertTrue( epoch.get_complete() );
+            assertEquals( 16, epoch.get_count() );
+            assertEquals( 11, epoch.get_count( ConstellationEnum.GPS ) );
+            assertEquals( 5, epoch.get_count( ConstellationEnum.GLONASS ) );
+
+            assertEquals( ConstellationEnum.GPS, epoch.get_constellation( 0 ) );
+            assertEquals( 10, epoch.get_prn( 0 ) );
+            assertEquals( 63, epoch.get_elevation( 0 ) );
+            assertEquals( 137, epoch.get_azimuth( 0 ) );
+            assertEquals( 17, epoch.get_snr( 0 ) );
+
+            assertEquals( 36, epoch.get_prn( 10 ) );
+            assertEquals( SatellitesInView.NO_VALUE, epoch.get_elevation( 10 ) );
+            assertEquals( SatellitesInView.NO_VALUE, epoch.get_snr( 10 ) );
+
+            assertEquals( ConstellationEnum.GLONASS, epoch.get_constellation( 15 ) );
+            assertEquals( 88, epoch.get_prn( 15 ) );
+        }
+    }
+
+    @Test
+    public void Signals() {
+        Epochs epochs = new Epochs();
+        GsvAssembler assembler = new GsvAssembler( epochs );
+        NmeaReceiver receiver = Receiver( assembler );
+
+        // ... Message 1 of the L5 sequence doesn't start a new epoch
+        receiver.Receive( Sentences( GPS_SIGNALS ) );
+        receiver.Receive( Sentences( GPS_SIGNALS ) );
+        assertEquals( 2, epochs._epochs.size() );
+        assembler.Flush();
+        assertEquals( 2, epochs._epochs.size() );
+
+        for ( SatellitesInView epoch : epochs._epochs ) {
+            assertTrue( epoch.get_complete() );
+
+            // ... Satellites on both signals are listed once, with their best SNR
+            assertEquals( 12, epoch.get_count() );
+            assertEquals( 12, epoch.get_count( ConstellationEnum.GPS ) );
+            assertEquals( 10, epoch.get_prn( 0 ) );
+            assertEquals( 42, epoch.get_snr( 0 ) );
+            assertEquals( 7, epoch.get_prn( 1 ) );
+            assertEquals( 15, epoch.get_snr( 1 ) );
+            assertEquals( 30, epoch.get_prn( 11 ) );
+            assertEquals( 25, epoch.get_snr( 11 ) );
+        }
+    }
+
+    @Test
+    public void SignalIdField() {
+        GSV gsv = (GSV) new GSV().parseFields( NmeaFields.FromTokens( GPS_SIGNALS[3].split( "," ) ) );
+        assertEquals( 8, gsv.get_signalId() );
+        assertEquals( 30, Integer.parseInt( gsv.get_satelliteInfo()[2].get_prn() ) );
+        assertEquals( null, gsv.get_satelliteInfo()[3].get_prn() );
+
+        gsv = (GSV) new GSV().parseFields( NmeaFields.FromTokens( GLONASS[1].split( ",", -1 ) ) );
+        assertEquals( -1, gsv.get_signalId() );
+        assertEquals( 88, Integer.parseInt( gsv.get_satelliteInfo()[0].get_prn() ) );
+    }
+
+    @Test
+    public void OutOfOrder() {
+        Epochs epochs = new Epochs();
+        GsvAssembler assembler = new GsvAssembler( epochs );
+        NmeaReceiver receiver = Receiver( assembler );
+        receiver.Receive( Sentences( GPS[2], GPS[0], GPS[1] ) );
+        assembler.Flush();
+
+        SatellitesInView epoch = epochs._epochs.get( 0 );
+        assertTrue( epoch.get_complete() );
+        assertEquals( 11, epoch.get_count() );
+        for ( int i = 0; i < 11; ++i ) {
+            assertEquals( new int[] { 10, 7, 5, 8, 2, 13, 26, 4, 29, 16, 36 }[i], epoch.get_prn( i ) );
+        }
+    }
+
+    @Test
+    public void MissingPart() {
+        Epochs epochs = new Epochs();
+        NmeaReceiver receiver = Receiver( new GsvAssembler( epochs ) );
+        receiver.Receive( Sentences( GPS[0], GPS[2], GPS[0] ) );
+
+        SatellitesInView epoch = epochs._epochs.get( 0 );
+        assertFalse( epoch.get_complete() );
+        assertEquals( 7, epoch.get_count() );
+        assertEquals( 29, epoch.get_prn( 4 ) );
+    }
+
+    @Test
+    public void Timeout() {
+        Epochs epochs = new Epochs();
+        GsvAssembler assembler = new GsvAssembler( epochs, 100 );
+        NmeaReceiver receiver = Receiver( assembler );
+        receiver.Receive( Sentences( GPS[0], GPS[1] ) );
+
+        assembler.Expire( System.nanoTime() );
+        assertEquals( 0, epochs._epochs.size() );
+        assembler.Expire( System.nanoTime() + 200000000L );
+        assertEquals( 1, epochs._epochs.size() );
+        assertFalse( epochs._epochs.get( 0 ).get_complete() );
+        assertEquals( 8, epochs._epochs.get( 0 ).get_count() );
+    }
+
+    @Test
+    public void GsvMessages() {
+        final Epochs epochs = new Epochs();
+        final GsvAssembler assembler = new GsvAssembler( epochs );
+        NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() {
+            @Override
+            public void HandleGSV( INmeaMessage msg ) {
+                assembler.Add( (GSV) msg );
+            }
+        } );
+        receiver.Receive( Sentences( GPS[0], GPS[1], GPS[2], GLONASS[0], GLONASS[1] ) );
+        assembler.Flush();
+
+        SatellitesInView epoch = epochs._epochs.get( 0 );
+        assertTrue( epoch.get_complete() );
+        assertEquals( 16, epoch.get_count() );
+        assertEquals( 26, epoch.get_prn( 6 ) );
+        assertEquals( SatellitesInView.NO_VALUE, epoch.get_snr( 6 ) );
+    }
+}
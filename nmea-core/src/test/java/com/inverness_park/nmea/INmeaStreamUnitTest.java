@@ -21,8 +21,6 @@
 
 package com.inverness_park.nmea;
 
-import android.support.v4.content.res.TypedArrayUtils;
-
 import org.junit.Assert;
 import org.junit.Test;
 
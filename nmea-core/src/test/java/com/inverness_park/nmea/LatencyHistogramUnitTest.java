@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Buckets and percentiles of LatencyHistogram
+ */
+
+public class LatencyHistogramUnitTest {
+
+    @Test
+    public void Buckets() {
+        // ... Consecutive buckets cover consecutive values, within about 3% of each other
+        for ( int i = 0; i < LatencyHistogram.Index( LatencyHistogram.HIGHEST_TRACKABLE_NANOS ); ++i ) {
+            long lowest = LatencyHistogram.LowestValue( i );
+            long highest = LatencyHistogram.HighestValue( i );
+            assertEquals( i, LatencyHistogram.Index( lowest ) );
+            assertEquals( i, LatencyHistogram.Index( highest ) );
+            assertEquals( i + 1, LatencyHistogram.Index( highest + 1 ) );
+            assertTrue( highest - lowest <= lowest / 32 );
+        }
+    }
+
+    @Test
+    public void Percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals( 0, histogram.get_snapshot().get_percentile( 99 ) );
+
+        for ( int i = 1; i <= 1000; ++i ) {
+            histogram.Record( i * 1000L );
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.get_snapshot();
+        assertEquals( 1000, snapshot.get_count() );
+        AssertWithin( 500000, snapshot.get_percentile( 50 ) );
+        AssertWithin( 990000, snapshot.get_percentile( 99 ) );
+        AssertWithin( 1000000, snapshot.get_max() );
+        AssertWithin( 500500, (long) snapshot.get_mean() );
+        assertTrue( snapshot.get_percentile( 99 ) >= 990000 );
+    }
+
+    @Test
+    public void OutOfRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.Record( -5 );
+        histogram.Record( Long.MAX_VALUE );
+        LatencyHistogram.Snapshot snapshot = histogram.get_snapshot();
+        assertEquals( 0, snapshot.get_percentile( 50 ) );
+        assertEquals( LatencyHistogram.HIGHEST_TRACKABLE_NANOS, snapshot.get_max() );
+    }
+
+    @Test
+    public void Since() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.Record( 1000000 );
+        LatencyHistogram.Snapshot earlier = histogram.get_snapshot();
+        histogram.Record( 10 );
+        histogram.Record( 20 );
+
+        LatencyHistogram.Snapshot delta = histogram.get_snapshot().Since( earlier );
+        assertEquals( 2, delta.get_count() );
+        assertEquals( 20, delta.get_max() );
+    }
+
+    private static void AssertWithin( long expected, long actual ) {
+        assertTrue( "expected about " + expected + " but got " + actual, Math.abs( actual - expected ) <= expected / 32 );
+    }
+}
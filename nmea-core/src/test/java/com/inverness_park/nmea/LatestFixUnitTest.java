@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Types.FixQualityEnum;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Latest fix read while it is being updated
+ */
+
+public class LatestFixUnitTest {
+
+    private static final String SENTENCES =
+            "$GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76\r\n" +
+            "$GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*43\r\n";
+
+    @Test
+    public void NoFix() {
+        LatestFix latestFix = new LatestFix();
+        assertFalse( latestFix.Read( new LatestFix.Snapshot() ) );
+        assertNull( latestFix.get_snapshot() );
+    }
+
+    @Test
+    public void FromReceiver() {
+        LatestFix latestFix = new LatestFix();
+        FixEpochCorrelator correlator = new FixEpochCorrelator( latestFix );
+        NmeaReceiver receiver = new NmeaReceiver( correlator );
+        receiver.Receive( SENTENCES.getBytes( StandardCharsets.US_ASCII ) );
+        correlator.Flush();
+
+        LatestFix.Snapshot snapshot = latestFix.get_snapshot();
+        assertEquals( 1, snapshot.get_version() );
+        assertEquals( 53.36134, snapshot.get_latitude(), 1e-5 );
+        assertEquals( -6.50562, snapshot.get_longitude(), 1e-5 );
+        assertEquals( 61.7, snapshot.get_altitude(), 1e-4 );
+        assertEquals( 0.02, snapshot.get_speedKnots(), 1e-4 );
+        assertEquals( 31.66, snapshot.get_courseTrueDegrees(), 1e-4 );
+        assertEquals( 1.03, snapshot.get_hdop(), 1e-4 );
+        assertEquals( FixQualityEnum.GpsFix, snapshot.get_fixQuality() );
+        assertEquals( 8, snapshot.get_satelliteCount() );
+        assertEquals( 20110528, snapshot.get_utcDate() );
+        assertTrue( Double.isNaN( snapshot.get_headingTrue() ) );
+    }
+
+    @Test
+    public void NoTornReads() throws InterruptedException {
+        final LatestFix latestFix = new LatestFix();
+        final AtomicBoolean done = new AtomicBoolean( false );
+        final AtomicLong torn = new AtomicLong();
+        final AtomicLong reads = new AtomicLong();
+
+        // ... Every update has all its values equal: a reader that sees different values saw
+        // parts of two updates
+        Thread[] readers = new Thread[4];
+        for ( int i = 0; i < readers.length; ++i ) {
+            readers[i] = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    LatestFix.Snapshot snapshot = new LatestFix.Snapshot();
+                    do {
+                        if ( latestFix.Read( snapshot ) ) {
+                            double value = snapshot.get_latitude();
+                            if ( snapshot.get_longitude() != value || snapshot.get_altitude() != value
+                                    || snapshot.get_speedKnots() != value || snapshot.get_hdop() != value
+                                    || snapshot.get_satelliteCount() != (int) value
+                                    || snapshot.get_version() != (long) value ) {
+                                torn.incrementAndGet();
+                            }
+                            reads.incrementAndGet();
+                        }
+                    } while ( !done.get() );
+                }
+            } );
+            readers[i].start();
+        }
+
+        FixEpoch epoch = new FixEpoch();
+        for ( int i = 1; i <= 200000; ++i ) {
+            epoch._latitude = i;
+            epoch._longitude = i;
+            epoch._altitude = i;
+            epoch._speedKnots = i;
+            epoch._hdop = i;
+            epoch._satelliteCount = i;
+            latestFix.OnFixEpoch( epoch );
+        }
+        done.set( true );
+        for ( Thread reader : readers ) {
+            reader.join();
+        }
+
+        assertEquals( 0, torn.get() );
+        assertTrue( reads.get() > 0 );
+        assertEquals( 200000, latestFix.get_snapshot().get_version() );
+    }
+}
@@ -21,6 +21,7 @@
 
 package com.inverness_park.nmea;
 
+import com.inverness_park.nmea.Types.DMMFormatException;
 import com.inverness_park.nmea.Types.GeoAngle;
 import com.inverness_park.nmea.Types.GeoAngleFormat;
 import com.inverness_park.nmea.Types.GeoAngleFormatOptions;
@@ -168,4 +169,15 @@ public class LatitudeUnitTest {
             assertTrue( msg, kv.getValue().equalsIgnoreCase( serialized ) );
         }
     }
+
+    @Test (expected = DMMFormatException.class)
+    public void ParseCompactDMMBeyondLimit() {
+        // ... A DMMFormatException rather than the IllegalArgumentException of set_degrees()
+        Latitude.Parse( "12000.0,N", GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact ) ;
+    }
+
+    @Test (expected = DMMFormatException.class)
+    public void ParseCompactDMMJustBeyondLimit() {
+        Latitude.Parse( "9000.0001,S", GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact ) ;
+    }
 }
@@ -21,6 +21,7 @@
 
 package com.inverness_park.nmea;
 
+import com.inverness_park.nmea.Types.DMMFormatException;
 import com.inverness_park.nmea.Types.GeoAngle;
 import com.inverness_park.nmea.Types.GeoAngleFormat;
 import com.inverness_park.nmea.Types.GeoAngleFormatOptions;
@@ -31,6 +32,7 @@ import org.junit.Test;
 import java.util.Map;
 import java.util.TreeMap;
 
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
 
 /**
@@ -168,4 +170,16 @@ public class LongitudeUnitTest {
             assertTrue( msg, kv.getValue().equalsIgnoreCase( serialized ) );
         }
     }
+
+    @Test
+    public void ParseUnpaddedCompactDMM() {
+        // ... Below 100 degrees, without the leading zero
+        Longitude lon = Longitude.Parse( "9530.000,W", GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact ) ;
+        assertEquals( -95.5, lon.get_degrees(), 0 ) ;
+    }
+
+    @Test (expected = DMMFormatException.class)
+    public void ParseCompactDMMBeyondLimit() {
+        Longitude.Parse( "18030.000,E", GeoAngleFormat.DMM, GeoAngleFormatOptions.Compact ) ;
+    }
 }
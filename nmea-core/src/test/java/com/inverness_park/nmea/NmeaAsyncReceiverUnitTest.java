@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GGA;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Receiving on one thread, and parsing on another
+ */
+
+public class NmeaAsyncReceiverUnitTest {
+
+    private static byte[] Sentences( int count ) {
+        StringBuilder sb = new StringBuilder();
+        GGA gga = new GGA();
+        for ( int i = 0; i < count; ++i ) {
+            gga.set_utcMillisOfDay( i * 1000 );
+            sb.append( gga.toString() );
+        }
+        return sb.toString().getBytes( StandardCharsets.US_ASCII );
+    }
+
+    private static NmeaReceiver Recorder( final List<Integer> times ) {
+        NmeaReceiver receiver = new NmeaReceiver();
+        receiver.register( "GGA", GGA.FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                times.add( ((GGA) msg).get_utcMillisOfDay() );
+            }
+        } );
+        return receiver;
+    }
+
+    private static void ReceiveInOrder( WaitStrategyEnum waitStrategy ) throws Exception {
+        List<Integer> times = new ArrayList<>();
+        NmeaAsyncReceiver asyncReceiver = new NmeaAsyncReceiver( Recorder( times ), 4096, waitStrategy );
+        byte[] bytes = Sentences( 2000 );
+        Random random = new Random( 15 );
+        int offset = 0;
+        while ( offset < bytes.length ) {
+            int count = Math.min( 1 + random.nextInt( 200 ), bytes.length - offset );
+            if ( random.nextBoolean() ) {
+                asyncReceiver.Receive( bytes, offset, count );
+            } else {
+                asyncReceiver.Receive( ByteBuffer.wrap( bytes, offset, count ) );
+            }
+            offset += count;
+            // ... Let the consumer keep up, so that nothing overflows
+            while ( asyncReceiver.get_pending() > 2048 ) {
+                Thread.yield();
+            }
+        }
+        asyncReceiver.shutdown();
+
+        assertEquals( 0, asyncReceiver.get_overflowCount() );
+        assertEquals( 2000, times.size() );
+        for ( int i = 0; i < times.size(); ++i ) {
+            assertEquals( i * 1000, (int) times.get( i ) );
+        }
+    }
+
+    @Test
+    public void SpinReceivesInOrder() throws Exception {
+        ReceiveInOrder( WaitStrategyEnum.Spin );
+    }
+
+    @Test
+    public void YieldReceivesInOrder() throws Exception {
+        ReceiveInOrder( WaitStrategyEnum.Yield );
+    }
+
+    @Test
+    public void ParkReceivesInOrder() throws Exception {
+        ReceiveInOrder( WaitStrategyEnum.Park );
+    }
+
+    @Test
+    public void SlowHandlerOverflowsInsteadOfBlocking() throws Exception {
+        final CountDownLatch handlerBlocked = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final List<Integer> times = new ArrayList<>();
+        NmeaReceiver receiver = new NmeaReceiver();
+        receiver.register( "GGA", GGA.FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                times.add( ((GGA) msg).get_utcMillisOfDay() );
+                handlerBlocked.countDown();
+                try {
+                    release.await();
+                } catch ( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } );
+        NmeaAsyncReceiver asyncReceiver = new NmeaAsyncReceiver( receiver, 256, WaitStrategyEnum.Park );
+
+        byte[] first = Sentences( 1 );
+        asyncReceiver.Receive( first );
+        handlerBlocked.await();
+
+        // ... The handler is stuck: Receive() keeps returning, and counts what doesn't fit
+        byte[] bytes = Sentences( 20 );
+        for ( int i = 0; i < 20; ++i ) {
+            asyncReceiver.Receive( bytes, i * first.length, first.length );
+        }
+        assertTrue( asyncReceiver.get_overflowCount() > 0 );
+
+        release.countDown();
+        asyncReceiver.shutdown();
+        assertEquals( 21 - asyncReceiver.get_overflowCount(), times.size() );
+    }
+}
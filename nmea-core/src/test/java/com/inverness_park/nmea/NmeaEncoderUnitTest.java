@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Sentences written by NmeaEncoder must be valid NMEA, and read back the same
+ */
+public class NmeaEncoderUnitTest {
+
+    /**
+     * Sentences in the very format the sentence classes write
+     */
+    private static final String[] CANONICAL_SENTENCES = new String[] {
+            "$GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76\r\n",
+            "$GPGSA,A,3,10,07,05,02,29,04,08,13,,,,,1.72,1.03,1.38*0A\r\n",
+            "$GPGSV,3,1,11,10,63,137,17,07,61,098,15,05,59,290,20,08,54,157,30*70\r\n",
+            "$GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*43\r\n",
+            "$GNGST,143333.000,7.38,1.49,1.30,68.1409,1.47,1.33,2.07*7A\r\n",
+            "$GPHDT,75.6,T*01\r\n",
+            "$GNVTG,134.395,T,134.395,M,0.019,N,0.035,K*5E\r\n",
+    };
+
+    private static List<INmeaMessage> Receive( String sentences ) {
+        final List<INmeaMessage> messages = new ArrayList<INmeaMessage>();
+        NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() {
+            @Override public void HandleGGA( INmeaMessage msg ) { messages.add( msg ); }
+            @Override public void HandleGSA( INmeaMessage msg ) { messages.add( msg ); }
+            @Override public void HandleGST( INmeaMessage msg ) { messages.add( msg ); }
+            @Override public void HandleGSV( INmeaMessage msg ) { messages.add( msg ); }
+            @Override public void HandleHDT( INmeaMessage msg ) { messages.add( msg ); }
+            @Override public void HandleRMC( INmeaMessage msg ) { messages.add( msg ); }
+            @Override public void HandleVTG( INmeaMessage msg ) { messages.add( msg ); }
+        } );
+        receiver.Receive( sentences.getBytes( StandardCharsets.US_ASCII ) );
+        return messages;
+    }
+
+    @Test
+    public void RoundTripSentences() {
+        for ( String sentence : CANONICAL_SENTENCES ) {
+            List<INmeaMessage> messages = Receive( sentence );
+            assertEquals( sentence, 1, messages.size() );
+            assertEquals( sentence, messages.get( 0 ).toString() );
+        }
+    }
+
+    @Test
+    public void WriteToMatchesToString() {
+        for ( String sentence : CANONICAL_SENTENCES ) {
+            INmeaMessageExtensions msg = (INmeaMessageExtensions) Receive( sentence ).get( 0 );
+            byte[] expected = sentence.getBytes( StandardCharsets.US_ASCII );
+
+            byte[] bytes = new byte[expected.length + 10];
+            assertEquals( expected.length, msg.writeTo( bytes, 3 ) );
+            assertEquals( sentence, new String( bytes, 3, expected.length, StandardCharsets.US_ASCII ) );
+
+            ByteBuffer[] buffers = new ByteBuffer[] { ByteBuffer.allocate( 128 ), ByteBuffer.allocateDirect( 128 ) };
+            for ( ByteBuffer buffer : buffers ) {
+                buffer.position( 5 );
+                msg.writeTo( buffer );
+                assertEquals( 5 + expected.length, buffer.position() );
+                byte[] written = new byte[expected.length];
+                buffer.position( 5 );
+                buffer.get( written );
+                assertEquals( sentence, new String( written, StandardCharsets.US_ASCII ) );
+            }
+        }
+    }
+
+    @Test
+    public void PayloadAndChecksumMatchSentence() {
+        for ( String sentence : CANONICAL_SENTENCES ) {
+            INmeaMessage msg = Receive( sentence ).get( 0 );
+            String payload = msg.get_payload();
+            assertEquals( sentence.substring( 1, sentence.indexOf( '*' ) ), payload );
+            byte[] payloadBytes = payload.getBytes( StandardCharsets.US_ASCII );
+            assertEquals( BaseNmeaMessage.ComputeChecksum( payloadBytes, 0, payloadBytes.length ), msg.get_checksum() );
+        }
+    }
+
+    @Test
+    public void LegacyPayload() {
+        // ... A message that predates the encoder implements get_payload() only
+        BaseNmeaMessage msg = new BaseNmeaMessage() {
+            @Override
+            public String get_description() {
+                return "Heading";
+            }
+
+            @Override
+            public String get_payload() {
+                return "GPHDT,75.6,T";
+            }
+
+            @Override
+            public INmeaMessage parseFields( NmeaFields fields ) {
+                return this;
+            }
+        };
+        assertEquals( "$GPHDT,75.6,T*01\r\n", msg.toString() );
+    }
+
+    @Test
+    public void NoPayload() {
+        BaseNmeaMessage msg = new BaseNmeaMessage() {
+            @Override
+            public String get_description() {
+                return "Nothing to write";
+            }
+
+            @Override
+            public INmeaMessage parseFields( NmeaFields fields ) {
+                return this;
+            }
+        };
+        try {
+            msg.toString();
+            fail( "UnsupportedOperationException expected" );
+        } catch ( UnsupportedOperationException e ) {
+            // ... Expected, rather than a StackOverflowError
+        }
+        try {
+            msg.get_payload();
+            fail( "UnsupportedOperationException expected" );
+        } catch ( UnsupportedOperationException e ) {
+            // ... Expected
+        }
+    }
+
+    @Test
+    public void WriteToFullBuffer() {
+        INmeaMessageExtensions msg = (INmeaMessageExtensions) Receive( CANONICAL_SENTENCES[0] ).get( 0 );
+        ByteBuffer buffer = ByteBuffer.allocate( 16 );
+        try {
+            msg.writeTo( buffer );
+            fail( "BufferOverflowException expected" );
+        } catch ( BufferOverflowException e ) {
+            assertEquals( 0, buffer.position() );
+        }
+    }
+
+    @Test
+    public void FixedDecimalsMatchFormatter() {
+        NmeaEncoder encoder = new NmeaEncoder();
+        Random random = new Random( 42 );
+        for ( int n = 0; n < 100000; ++n ) {
+            float value = ( random.nextFloat() - 0.5f ) * (float)Math.pow( 10, random.nextInt( 7 ) );
+            int decimals = random.nextInt( 5 );
+            encoder.Begin().Field( value, decimals ).End();
+            String written = new String( encoder.get_bytes(), 1, encoder.get_payloadLength(), StandardCharsets.US_ASCII );
+            assertEquals( String.format( Locale.US, "%." + decimals + "f", value ), written );
+        }
+    }
+
+    @Test
+    public void FixedDecimalsHalfwayMatchFormatter() {
+        // ... Halfway points in decimal, which are rarely halfway in binary, and their neighbours
+        NmeaEncoder encoder = new NmeaEncoder();
+        Random random = new Random( 42 );
+        for ( int n = 0; n < 200000; ++n ) {
+            int decimals = random.nextInt( 5 );
+            double value = new BigDecimal( random.nextInt( 100000 ) ).add( new BigDecimal( "0.5" ).movePointLeft( decimals ) ).doubleValue();
+            for ( double v : new double[] { value, Math.nextUp( value ), Math.nextDown( value ), -value } ) {
+                encoder.Begin().Field( v, decimals ).End();
+                String written = new String( encoder.get_bytes(), 1, encoder.get_payloadLength(), StandardCharsets.US_ASCII );
+                assertEquals( String.format( Locale.US, "%." + decimals + "f", v ), written );
+            }
+        }
+
+        encoder.Begin().Field( 1.005, 2 ).Field( 65247.675, 2 ).Field( 0.125, 2 ).Field( -2.5, 0 ).End();
+        assertEquals( "1.01,65247.68,0.13,-3", new String( encoder.get_bytes(), 1, encoder.get_payloadLength(), StandardCharsets.US_ASCII ) );
+    }
+
+    @Test
+    public void FixedDecimalsSpecialValues() {
+        NmeaEncoder encoder = new NmeaEncoder();
+        encoder.Begin().Field( 0.0, 2 ).Field( -0.001, 2 ).Field( 99.995, 0 ).Field( 1e300, 1 ).Field( Double.NaN, 1 ).End();
+        assertEquals( "0.00,-0.00,100," + String.format( Locale.US, "%.1f", 1e300 ) + ",NaN",
+                new String( encoder.get_bytes(), 1, encoder.get_payloadLength(), StandardCharsets.US_ASCII ) );
+    }
+
+    @Test
+    public void DMMMinutesCarryIntoDegrees() {
+        NmeaEncoder encoder = new NmeaEncoder();
+        encoder.Begin().FieldDMM( 53.999999999, 2, 'N', 'S' ).FieldDMM( -6.5, 3, 'E', 'W' ).End();
+        assertEquals( "5400.0000,N,00630.0000,W",
+                new String( encoder.get_bytes(), 1, encoder.get_payloadLength(), StandardCharsets.US_ASCII ) );
+    }
+
+    @Test
+    public void TimeAndDateFields() {
+        NmeaEncoder encoder = new NmeaEncoder();
+        encoder.Begin().FieldTime( 33970123 ).FieldDate( 20110528 ).Field( 7, 3 ).Field( -7, 2 ).End();
+        assertEquals( "092610.123,280511,007,-07",
+                new String( encoder.get_bytes(), 1, encoder.get_payloadLength(), StandardCharsets.US_ASCII ) );
+    }
+}
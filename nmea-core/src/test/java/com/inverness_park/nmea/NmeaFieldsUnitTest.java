@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import org.joda.time.LocalTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that NmeaFields sees the same fields as String.split(",", -1)
+ */
+
+public class NmeaFieldsUnitTest {
+
+    private String [] _sampleData = new String [] {
+            "GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,",
+            "GPGSA,A,3,10,07,05,02,29,04,08,13,,,,,1.72,1.03,1.38",
+            "GPGSV,3,3,11,29,09,301,24,16,09,020,,36,,,",
+            "GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A",
+            "GPHDT,75.5664,T",
+            ",",
+            "",
+    } ;
+
+    @Test
+    public void SameFieldsAsSplit() {
+        NmeaFields fields = new NmeaFields() ;
+        for ( String payload : _sampleData ) {
+            // ... Surround the payload with other bytes, to make sure offsets are honoured
+            byte[] bytes = ( "$" + payload + "*00" ).getBytes( StandardCharsets.US_ASCII ) ;
+            fields.Tokenize( bytes, 1, payload.length() ) ;
+
+            String[] tokens = payload.split( ",", -1 ) ;
+            assertEquals( payload, tokens.length, fields.get_count() ) ;
+            for ( int i = 0; i < tokens.length; ++i ) {
+                assertEquals( payload, tokens[i], fields.fieldAsString( i ) ) ;
+                assertEquals( payload, tokens[i].isEmpty(), fields.fieldIsEmpty( i ) ) ;
+                assertTrue( payload, fields.fieldEquals( i, tokens[i] ) ) ;
+            }
+        }
+    }
+
+    @Test
+    public void ManyFields() {
+        StringBuilder sb = new StringBuilder( "P" ) ;
+        for ( int i = 0; i < 100; ++i ) {
+            sb.append( ',' ).append( i ) ;
+        }
+        byte[] bytes = sb.toString().getBytes( StandardCharsets.US_ASCII ) ;
+        NmeaFields fields = new NmeaFields().Tokenize( bytes, 0, bytes.length ) ;
+        assertEquals( 101, fields.get_count() ) ;
+        for ( int i = 0; i < 100; ++i ) {
+            assertEquals( i, fields.fieldAsInt( i + 1 ) ) ;
+        }
+    }
+
+    @Test
+    public void Accessors() {
+        NmeaFields fields = NmeaFields.FromTokens( new String[] { "GPRMC", "A", " w ", "AB", "", "-42", "+7", "0.02", "31.66", "  " } ) ;
+        assertEquals( 'A', fields.fieldAsChar( 1 ) ) ;
+        assertEquals( 'w', fields.fieldAsChar( 2 ) ) ;
+        assertEquals( '\0', fields.fieldAsChar( 3 ) ) ;
+        assertEquals( '\0', fields.fieldAsChar( 4 ) ) ;
+        assertTrue( fields.fieldEquals( 1, "A" ) ) ;
+        assertFalse( fields.fieldEquals( 1, "V" ) ) ;
+        assertFalse( fields.fieldEquals( 3, "A" ) ) ;
+        assertEquals( -42, fields.fieldAsInt( 5 ) ) ;
+        assertEquals( 7, fields.fieldAsInt( 6 ) ) ;
+        assertEquals( 0.02f, fields.fieldAsFloat( 7 ), 0 ) ;
+        assertEquals( 31.66, fields.fieldAsDouble( 8 ), 0 ) ;
+        assertTrue( fields.fieldIsBlank( 9 ) ) ;
+        assertFalse( fields.fieldIsEmpty( 9 ) ) ;
+    }
+
+    @Test
+    public void ToTokens() {
+        String[] tokens = "GPGGA,092750.000,,N,,".split( ",", -1 ) ;
+        assertArrayEquals( tokens, NmeaFields.FromTokens( tokens ).ToTokens() ) ;
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void EmptyIntField() {
+        NmeaFields.FromTokens( new String[] { "GPGGA", "" } ).fieldAsInt( 1 ) ;
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void InvalidIntField() {
+        NmeaFields.FromTokens( new String[] { "GPGGA", "1.5" } ).fieldAsInt( 1 ) ;
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void IntFieldOverflow() {
+        NmeaFields.FromTokens( new String[] { "GPGGA", "2147483648" } ).fieldAsInt( 1 ) ;
+    }
+
+    @Test
+    public void StringFieldKeepsPrevious() {
+        NmeaFields fields = NmeaFields.FromTokens( new String[] { "GPGSA", "07", "" } ) ;
+        String previous = new String( "07" ) ;
+        assertSame( previous, fields.fieldAsString( 1, previous ) ) ;
+        assertEquals( "", fields.fieldAsString( 2, previous ) ) ;
+        assertEquals( "GPGSA", fields.fieldAsString( 0, null ) ) ;
+    }
+
+    @Test
+    public void TimeFieldMatchesJoda() {
+        DateTimeFormatter formatter = DateTimeFormat.forPattern( "HHmmss.SSS" ) ;
+        String[] times = new String[] { "000000.000", "092750.000", "235959.999", "123519.5", "123519.25" } ;
+        for ( String time : times ) {
+            NmeaFields fields = NmeaFields.FromTokens( new String[] { "GPGGA", time } ) ;
+            assertEquals( time, LocalTime.parse( time, formatter ).getMillisOfDay(), fields.fieldAsMillisOfDay( 1 ) ) ;
+        }
+        assertEquals( 45319000, NmeaFields.FromTokens( new String[] { "GPGGA", "123519" } ).fieldAsMillisOfDay( 1 ) ) ;
+        assertEquals( 45319123, NmeaFields.FromTokens( new String[] { "GPGGA", "123519.12345" } ).fieldAsMillisOfDay( 1 ) ) ;
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void InvalidTimeField() {
+        NmeaFields.FromTokens( new String[] { "GPGGA", "126019.00" } ).fieldAsMillisOfDay( 1 ) ;
+    }
+
+    @Test
+    public void DateField() {
+        assertEquals( 20110528, NmeaFields.FromTokens( new String[] { "GPRMC", "280511" } ).fieldAsPackedDate( 1 ) ) ;
+        assertEquals( 19940323, NmeaFields.FromTokens( new String[] { "GPRMC", "230394" } ).fieldAsPackedDate( 1 ) ) ;
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void InvalidDateField() {
+        NmeaFields.FromTokens( new String[] { "GPRMC", "281311" } ).fieldAsPackedDate( 1 ) ;
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void MissingField() {
+        NmeaFields.FromTokens( new String[] { "GPHDT", "75.5664", "T" } ).fieldAsString( 3 ) ;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GGA;
+import com.inverness_park.nmea.Sentences.RMC;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replaying capture files
+ */
+
+public class NmeaFileReplayUnitTest {
+
+    private static File Capture( String contents ) throws IOException {
+        File file = File.createTempFile( "capture", ".nmea" );
+        file.deleteOnExit();
+        FileOutputStream stream = new FileOutputStream( file );
+        try {
+            stream.write( contents.getBytes( StandardCharsets.US_ASCII ) );
+        } finally {
+            stream.close();
+        }
+        return file;
+    }
+
+    private static String Rmc( int millisOfDay ) {
+        RMC rmc = new RMC();
+        rmc.set_utcMillisOfDay( millisOfDay );
+        rmc.set_utcDate( 20180212 );
+        return rmc.toString();
+    }
+
+    /**
+     * Receiver recording the time of each RMC and GGA handled
+     */
+    private static NmeaReceiver Recorder( final List<Integer> times ) {
+        NmeaReceiver receiver = new NmeaReceiver();
+        receiver.register( "RMC", RMC.FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                times.add( ((RMC) msg).get_utcMillisOfDay() );
+            }
+        } );
+        receiver.register( "GGA", GGA.FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                times.add( ((GGA) msg).get_utcMillisOfDay() );
+            }
+        } );
+        return receiver;
+    }
+
+    @Test
+    public void ReplaysSentencesAcrossWindows() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        GGA gga = new GGA();
+        for ( int i = 0; i < 500; ++i ) {
+            gga.set_utcMillisOfDay( i * 1000 );
+            sb.append( gga.toString() );
+            sb.append( Rmc( i * 1000 + 500 ) );
+            if ( i % 50 == 0 ) {
+                sb.append( "$GPGSV,3,1,11,10,63,137,17,07,61,098,15,05,59,290,20,08,54,157,30*70\r\n" );
+            }
+        }
+        File file = Capture( sb.toString() );
+
+        // ... Windows much smaller than a sentence, and a few sentences long
+        for ( int windowSize : new int[] { 16, 100, 1000, 1 << 20 } ) {
+            List<Integer> times = new ArrayList<>();
+            long replayed = new NmeaFileReplay( Recorder( times ), windowSize ).Replay( file );
+            assertEquals( file.length(), replayed );
+            assertEquals( 1000, times.size() );
+            for ( int i = 0; i < times.size(); ++i ) {
+                assertEquals( i * 500, (int) times.get( i ) );
+            }
+        }
+    }
+
+    @Test
+    public void SkipsSentencesThatFailToParse() throws Exception {
+        byte[] payload = "GPGGA,092750.000,53x1.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,".getBytes( StandardCharsets.US_ASCII );
+        String bad = String.format( "$%s*%02X\r\n", new String( payload, StandardCharsets.US_ASCII ), BaseNmeaMessage.ComputeChecksum( payload, 0, payload.length ) & 0xFF );
+        File file = Capture( Rmc( 1000 ) + bad + Rmc( 2000 ) + bad + Rmc( 3000 ) );
+
+        for ( double rate : new double[] { 0, 1000 } ) {
+            List<Integer> times = new ArrayList<>();
+            NmeaReceiver receiver = Recorder( times );
+            NmeaFileReplay replay = new NmeaFileReplay( receiver );
+            replay.set_rate( rate );
+            replay.Replay( file );
+
+            assertEquals( 3, times.size() );
+            assertEquals( 2, receiver.get_metrics().get_snapshot().get_parseErrorCount( "GGA" ) );
+
+            // ... The receiver's own setting is left as it was
+            assertFalse( receiver.get_skipParseErrors() );
+        }
+    }
+
+    @Test
+    public void ReplaysAtOriginalRate() throws Exception {
+        File file = Capture( Rmc( 1000 ) + Rmc( 2000 ) + Rmc( 3000 ) );
+        List<Integer> times = new ArrayList<>();
+        NmeaFileReplay replay = new NmeaFileReplay( Recorder( times ) );
+        replay.set_rate( 20 );
+
+        long start = System.nanoTime();
+        replay.Replay( file );
+        long elapsedMillis = ( System.nanoTime() - start ) / 1000000;
+
+        // ... 2 seconds of capture, 20 times faster
+        assertEquals( 3, times.size() );
+        assertTrue( "elapsed " + elapsedMillis, elapsedMillis >= 95 );
+        assertTrue( "elapsed " + elapsedMillis, elapsedMillis < 1000 );
+    }
+
+    @Test
+    public void ReplayAtRateUnwrapsMidnight() throws Exception {
+        File file = Capture( Rmc( 86399000 ) + Rmc( 0 ) + Rmc( 1000 ) );
+        List<Integer> times = new ArrayList<>();
+        NmeaFileReplay replay = new NmeaFileReplay( Recorder( times ) );
+        replay.set_rate( 20 );
+
+        long start = System.nanoTime();
+        replay.Replay( file );
+        long elapsedMillis = ( System.nanoTime() - start ) / 1000000;
+
+        assertEquals( 3, times.size() );
+        assertTrue( "elapsed " + elapsedMillis, elapsedMillis >= 95 );
+        assertTrue( "elapsed " + elapsedMillis, elapsedMillis < 1000 );
+    }
+
+    @Test
+    public void SentenceTimes() {
+        assertEquals( ( ( 9 * 60 + 27 ) * 60 + 50 ) * 1000 + 250,
+                MillisOfDay( "$GPRMC,092750.25,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*43\r\n" ) );
+        assertEquals( ( ( 23 * 60 + 59 ) * 60 + 59 ) * 1000,
+                MillisOfDay( "$GNGGA,235959,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76\r\n" ) );
+        assertEquals( -1, MillisOfDay( "$GPGSV,3,1,11,10,63,137,17,07,61,098,15,05,59,290,20*70\r\n" ) );
+        assertEquals( -1, MillisOfDay( "$GPRMC,,V,,,,,,,,,,N*53\r\n" ) );
+    }
+
+    private static int MillisOfDay( String sentence ) {
+        byte[] bytes = sentence.getBytes( StandardCharsets.US_ASCII );
+        return NmeaFileReplay.MillisOfDay( ByteBuffer.wrap( bytes ), 0, bytes.length );
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Counters of NmeaReceiver and NmeaStream
+ */
+
+public class NmeaMetricsUnitTest {
+
+    private static final String GGA = "$GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76\r\n";
+    private static final String RMC = "$GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*43\r\n";
+
+    private static byte[] Bytes( String s ) {
+        return s.getBytes( StandardCharsets.US_ASCII );
+    }
+
+    /**
+     * Completes a sentence with its checksum and CR LF
+     */
+    private static String Sentence( String payload ) {
+        byte[] bytes = Bytes( payload );
+        return String.format( "$%s*%02X\r\n", payload, BaseNmeaMessage.ComputeChecksum( bytes, 0, bytes.length ) & 0xFF );
+    }
+
+    @Test
+    public void CountsBySentenceType() {
+        NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() );
+        receiver.Receive( Bytes( GGA + RMC + GGA + Sentence( "GPGLL,5321.6802,N,00630.3372,W,092750.000,A" ) ) );
+
+        NmeaMetrics.Snapshot snapshot = receiver.get_metrics().get_snapshot();
+        assertEquals( 2, snapshot.get_handledCount( "GGA" ) );
+        assertEquals( 1, snapshot.get_handledCount( "RMC" ) );
+        assertEquals( 0, snapshot.get_handledCount( "VTG" ) );
+        assertEquals( 1, snapshot.get_ignoredCount() );
+        assertEquals( 0, snapshot.get_checksumFailureCount() );
+    }
+
+    @Test
+    public void CountsErrors() {
+        NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() );
+        String badChecksum = GGA.replace( "*76", "*77" );
+        receiver.Receive( Bytes( badChecksum + badChecksum + "$GP\r\n" + "$GPGGA,092750.000*76\n" + "$GPGGA,092750.000,*7\r\n" ) );
+
+        NmeaMetrics.Snapshot snapshot = receiver.get_metrics().get_snapshot();
+        assertEquals( 2, snapshot.get_checksumFailureCount() );
+        assertEquals( 1, snapshot.get_droppedCount( DropReasonEnum.InsufficientBytes ) );
+        assertEquals( 1, snapshot.get_droppedCount( DropReasonEnum.NoCR ) );
+        assertEquals( 1, snapshot.get_droppedCount( DropReasonEnum.InvalidChecksumDelimiter ) );
+        assertEquals( 0, snapshot.get_handledCount( "GGA" ) );
+    }
+
+    @Test
+    public void CountsParseErrors() {
+        NmeaReceiver receiver = new NmeaReceiver();
+        receiver.register( "GLL", new INmeaMessageFactory() {
+            @Override
+            public INmeaMessage Create() {
+                return new BaseNmeaMessage() {
+                    @Override
+                    public String get_description() {
+                        return "Geographic Position";
+                    }
+
+                    @Override
+                    public INmeaMessage parseFields( NmeaFields fields ) {
+                        throw new NumberFormatException( "Bad latitude" );
+                    }
+                };
+            }
+        }, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                fail( "Not parsed" );
+            }
+        } );
+
+        try {
+            receiver.Receive( Bytes( Sentence( "GPGLL,x,N,00630.3372,W,092750.000,A" ) ) );
+            fail( "Expected the parse error to propagate" );
+        } catch ( NumberFormatException e ) {
+            // ... Expected
+        }
+        assertEquals( 1, receiver.get_metrics().get_snapshot().get_parseErrorCount( "GLL" ) );
+        assertEquals( 0, receiver.get_metrics().get_snapshot().get_handledCount( "GLL" ) );
+    }
+
+    @Test
+    public void SkipsParseErrors() {
+        NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() );
+        receiver.set_skipParseErrors( true );
+        receiver.Receive( Bytes( GGA + Sentence( "GPGGA,092750.000,53x1.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,," ) + GGA ) );
+
+        NmeaMetrics.Snapshot snapshot = receiver.get_metrics().get_snapshot();
+        assertEquals( 1, snapshot.get_parseErrorCount( "GGA" ) );
+        assertEquals( 2, snapshot.get_handledCount( "GGA" ) );
+    }
+
+    @Test
+    public void CountsStreamOverflows() {
+        char[] padding = new char[2000];
+        Arrays.fill( padding, '0' );
+        String oversized = Sentence( "GPGGA," + new String( padding ) );
+
+        // ... Complete in one call, split across calls, and byte by byte
+        NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() );
+        receiver.Receive( Bytes( oversized + GGA ) );
+        byte[] bytes = Bytes( oversized + GGA );
+        receiver.Receive( bytes, 0, 100 );
+        receiver.Receive( bytes, 100, bytes.length - 100 );
+        NmeaStream stream = new NmeaStream();
+        for ( byte b : Bytes( oversized ) ) {
+            stream.Append( b );
+        }
+
+        NmeaMetrics.Snapshot snapshot = receiver.get_metrics().get_snapshot();
+        assertEquals( 2, snapshot.get_streamOverflowCount() );
+        assertEquals( 2, snapshot.get_handledCount( "GGA" ) );
+        assertEquals( 1, stream.get_overflowCount() );
+    }
+
+    @Test
+    public void SharedMetrics() {
+        NmeaMetrics metrics = new NmeaMetrics();
+        NmeaReceiver first = new NmeaReceiver( new DefaultNmeaHandler() );
+        NmeaReceiver second = new NmeaReceiver( new DefaultNmeaHandler() );
+        first.set_metrics( metrics );
+        second.set_metrics( metrics );
+        assertSame( metrics, first.get_metrics() );
+
+        first.Receive( Bytes( GGA ) );
+        second.Receive( Bytes( GGA + RMC ) );
+        assertEquals( 2, metrics.get_snapshot().get_handledCount( "GGA" ) );
+        assertEquals( 1, metrics.get_snapshot().get_handledCount( "RMC" ) );
+    }
+
+    @Test
+    public void SnapshotDelta() throws InterruptedException {
+        NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() );
+        receiver.Receive( Bytes( GGA ) );
+        NmeaMetrics.Snapshot earlier = receiver.get_metrics().get_snapshot();
+        Thread.sleep( 5 );
+        receiver.Receive( Bytes( GGA + GGA + RMC + "$GP\r\n" ) );
+        NmeaMetrics.Snapshot delta = receiver.get_metrics().get_snapshot().Since( earlier );
+
+        assertEquals( 2, delta.get_handledCount( "GGA" ) );
+        assertEquals( 1, delta.get_handledCount( "RMC" ) );
+        assertTrue( delta.get_elapsedNanos() >= 5000000 );
+        assertTrue( delta.get_handledPerSecond( "GGA" ) > 0 );
+
+        Map<String, Long> map = delta.ToMap();
+        assertEquals( Long.valueOf( 2 ), map.get( "handled.GGA" ) );
+        assertEquals( Long.valueOf( 1 ), map.get( "dropped.InsufficientBytes" ) );
+        assertEquals( Long.valueOf( 0 ), map.get( "checksumFailures" ) );
+    }
+
+    @Test
+    public void RecordsLatencies() throws InterruptedException {
+        NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() );
+        receiver.Receive( Bytes( GGA ) );
+        assertEquals( 0, receiver.get_metrics().get_snapshot().get_dispatchLatency( "GGA" ).get_count() );
+
+        // ... The second GGA arrives in two parts, 20 ms apart
+        receiver.set_recordLatencies( true );
+        byte[] bytes = Bytes( GGA + GGA );
+        receiver.Receive( bytes, 0, GGA.length() + 10 );
+        Thread.sleep( 20 );
+        receiver.Receive( bytes, GGA.length() + 10, GGA.length() - 10 );
+
+        NmeaMetrics.Snapshot snapshot = receiver.get_metrics().get_snapshot();
+        LatencyHistogram.Snapshot dispatch = snapshot.get_dispatchLatency( "GGA" );
+        assertEquals( 2, dispatch.get_count() );
+        assertEquals( 2, snapshot.get_parseLatency( "GGA" ).get_count() );
+        assertTrue( dispatch.get_max() >= 20000000 );
+        assertTrue( dispatch.get_percentile( 50 ) < 20000000 );
+        assertTrue( snapshot.get_parseLatency( "GGA" ).get_max() < dispatch.get_max() );
+        assertEquals( Long.valueOf( 2 ), snapshot.ToMap().get( "dispatchLatency.GGA.count" ) );
+        assertEquals( 0, snapshot.get_dispatchLatency( "RMC" ).get_count() );
+    }
+
+    @Test
+    public void ConcurrentIncrements() throws InterruptedException {
+        final StripedCounter counter = new StripedCounter();
+        Thread[] threads = new Thread[8];
+        for ( int i = 0; i < threads.length; ++i ) {
+            threads[i] = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    for ( int j = 0; j < 100000; ++j ) {
+                        counter.Increment();
+                    }
+                }
+            } );
+            threads[i].start();
+        }
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+        assertEquals( 800000, counter.Sum() );
+    }
+}
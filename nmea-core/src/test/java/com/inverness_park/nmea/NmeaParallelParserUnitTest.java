@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GGA;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Splitting a capture file into chunks, and parsing them in parallel
+ */
+
+public class NmeaParallelParserUnitTest {
+
+    private static final int SENTENCE_COUNT = 2000;
+
+    private static File _capture;
+
+    /**
+     * GGA sentences with increasing times, with some noise between them
+     */
+    private static File Capture() throws IOException {
+        if ( _capture == null ) {
+            StringBuilder sb = new StringBuilder( "92750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76\r\n" );
+            GGA gga = new GGA();
+            for ( int i = 0; i < SENTENCE_COUNT; ++i ) {
+                gga.set_utcMillisOfDay( i * 1000 );
+                sb.append( gga.toString() );
+                if ( i % 97 == 0 ) {
+                    sb.append( "noise, with a $ in the middle\r\n" );
+                }
+            }
+            _capture = File.createTempFile( "capture", ".nmea" );
+            _capture.deleteOnExit();
+            FileOutputStream stream = new FileOutputStream( _capture );
+            try {
+                stream.write( sb.toString().getBytes( StandardCharsets.US_ASCII ) );
+            } finally {
+                stream.close();
+            }
+        }
+        return _capture;
+    }
+
+    /**
+     * Collects the GGA times of a chunk
+     */
+    private static class TimesParser implements NmeaParallelParser.ChunkParser<List<Integer>> {
+        private final NmeaReceiver _receiver = new NmeaReceiver();
+        private final List<Integer> _times = new ArrayList<>();
+
+        TimesParser() {
+            _receiver.set_recycleMessages( true );
+            _receiver.register( "GGA", GGA.FACTORY, new INmeaMessageHandler() {
+                @Override
+                public void HandleMessage( INmeaMessage msg ) {
+                    _times.add( ((GGA) msg).get_utcMillisOfDay() );
+                }
+            } );
+        }
+
+        @Override
+        public NmeaReceiver get_receiver() {
+            return _receiver;
+        }
+
+        @Override
+        public List<Integer> get_result() {
+            return _times;
+        }
+    }
+
+    private static final NmeaParallelParser.ChunkParserFactory<List<Integer>> FACTORY = new NmeaParallelParser.ChunkParserFactory<List<Integer>>() {
+        @Override
+        public NmeaParallelParser.ChunkParser<List<Integer>> Create() {
+            return new TimesParser();
+        }
+    };
+
+    @Test
+    public void ChunksStartAfterLineFeed() throws Exception {
+        File file = Capture();
+        RandomAccessFile randomAccessFile = new RandomAccessFile( file, "r" );
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            randomAccessFile.readFully( bytes );
+            long[] boundaries = new NmeaParallelParser( ForkJoinPool.commonPool(), 1000 ).Boundaries( randomAccessFile.getChannel() );
+
+            assertEquals( 0, boundaries[0] );
+            assertEquals( file.length(), boundaries[boundaries.length - 1] );
+            assertTrue( boundaries.length > 100 );
+            for ( int i = 1; i < boundaries.length - 1; ++i ) {
+                assertTrue( boundaries[i] > boundaries[i - 1] );
+                assertEquals( '$', bytes[(int) boundaries[i]] );
+                assertEquals( '\n', bytes[(int) boundaries[i] - 1] );
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    @Test
+    public void ResultsInFileOrder() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        for ( int chunkSize : new int[] { 50, 1000, 1 << 20 } ) {
+            List<List<Integer>> results = new NmeaParallelParser( pool, chunkSize ).Parse( Capture(), FACTORY );
+
+            List<Integer> times = new ArrayList<>();
+            for ( List<Integer> result : results ) {
+                times.addAll( result );
+            }
+            assertEquals( SENTENCE_COUNT, times.size() );
+            for ( int i = 0; i < SENTENCE_COUNT; ++i ) {
+                assertEquals( i * 1000, (int) times.get( i ) );
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void EmptyFile() throws Exception {
+        File file = File.createTempFile( "empty", ".nmea" );
+        file.deleteOnExit();
+        List<List<Integer>> results = new NmeaParallelParser( ForkJoinPool.commonPool(), 1000 ).Parse( file, FACTORY );
+        assertEquals( 1, results.size() );
+        assertTrue( results.get( 0 ).isEmpty() );
+    }
+
+    @Test
+    public void SkipsParseErrors() throws Exception {
+        // ... Valid checksum, but a malformed latitude
+        String payload = "GPGGA,092750.000,53x1.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,";
+        byte[] payloadBytes = payload.getBytes( StandardCharsets.US_ASCII );
+        String bad = String.format( "$%s*%02X\r\n", payload, BaseNmeaMessage.ComputeChecksum( payloadBytes, 0, payloadBytes.length ) & 0xFF );
+        GGA gga = new GGA();
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 100; ++i ) {
+            gga.set_utcMillisOfDay( i * 1000 );
+            sb.append( gga.toString() ).append( bad );
+        }
+        File file = File.createTempFile( "errors", ".nmea" );
+        file.deleteOnExit();
+        FileOutputStream stream = new FileOutputStream( file );
+        try {
+            stream.write( sb.toString().getBytes( StandardCharsets.US_ASCII ) );
+        } finally {
+            stream.close();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        List<List<Integer>> results = new NmeaParallelParser( pool, 1000 ).Parse( file, FACTORY );
+        pool.shutdown();
+        int count = 0;
+        for ( List<Integer> result : results ) {
+            count += result.size();
+        }
+        assertEquals( 100, count );
+    }
+
+    @Test
+    public void UnorderedReducer() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicInteger chunks = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        new NmeaParallelParser( pool, 4096 ).Parse( Capture(), FACTORY, new NmeaParallelParser.Reducer<List<Integer>>() {
+            @Override
+            public void Reduce( List<Integer> result ) {
+                count.addAndGet( result.size() );
+                chunks.incrementAndGet();
+            }
+        } );
+        pool.shutdown();
+
+        assertEquals( SENTENCE_COUNT, count.get() );
+        assertTrue( chunks.get() > 10 );
+    }
+}
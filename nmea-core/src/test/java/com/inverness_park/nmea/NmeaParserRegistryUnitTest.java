@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GGA;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Registration and lookup of sentence types
+ */
+
+public class NmeaParserRegistryUnitTest {
+
+    private static final INmeaMessageHandler NO_OP = new INmeaMessageHandler() {
+        @Override
+        public void HandleMessage( INmeaMessage msg ) {
+        }
+    };
+
+    /**
+     * Minimal message type, to exercise custom registrations
+     */
+    static class GLL extends BaseNmeaMessage {
+        private String _dataTypeName;
+        private String _status;
+
+        @Override
+        public String get_description() {
+            return "Geographic Position";
+        }
+
+        @Override
+        public String get_payload() {
+            return _dataTypeName;
+        }
+
+        @Override
+        public INmeaMessage parseFields( NmeaFields fields ) {
+            _dataTypeName = fields.fieldAsString( 0 );
+            _status = fields.fieldAsString( 6 );
+            return this;
+        }
+    }
+
+    private static final INmeaMessageFactory GLL_FACTORY = new INmeaMessageFactory() {
+        @Override
+        public INmeaMessage Create() {
+            return new GLL();
+        }
+    };
+
+    private static NmeaParserRegistry.Entry Lookup( NmeaParserRegistry registry, String sentence ) {
+        byte[] bytes = sentence.getBytes( StandardCharsets.US_ASCII );
+        return registry.Lookup( bytes, 1, sentence.indexOf( '*' ) );
+    }
+
+    @Test
+    public void ManyTypes() {
+        NmeaParserRegistry registry = new NmeaParserRegistry();
+        List<String> formatters = new ArrayList<>();
+        for ( char c = 'A'; c <= 'Z'; ++c ) {
+            formatters.add( "G" + c + "A" );
+            formatters.add( "Z" + c + "Z" );
+        }
+        formatters.add( "PGRME" );
+        formatters.add( "PUBX" );
+        formatters.add( "PASHR" );
+
+        for ( String formatter : formatters ) {
+            registry.register( formatter, GLL_FACTORY, NO_OP );
+        }
+        assertEquals( formatters.size(), registry.get_size() );
+
+        for ( String formatter : formatters ) {
+            String address = formatter.startsWith( "P" ) ? formatter : "GN" + formatter;
+            NmeaParserRegistry.Entry entry = Lookup( registry, "$" + address + ",1,2,3*00\r\n" );
+            assertNotNull( formatter, entry );
+            assertEquals( formatter, entry.get_formatter() );
+            assertSame( entry, registry.get( formatter ) );
+        }
+
+        assertNull( Lookup( registry, "$GPGGB,1*00\r\n" ) );
+        assertNull( Lookup( registry, "$PGRMZ,1*00\r\n" ) );
+        assertNull( Lookup( registry, "$GA*00\r\n" ) );
+        assertNull( Lookup( registry, "$,*00\r\n" ) );
+    }
+
+    @Test
+    public void AddressOnly() {
+        NmeaParserRegistry registry = new NmeaParserRegistry();
+        registry.register( "gga", GLL_FACTORY, NO_OP );
+        assertNotNull( Lookup( registry, "$GPGGA*00\r\n" ) );
+        assertNotNull( Lookup( registry, "$gpgga,*00\r\n" ) );
+        assertNotNull( Lookup( registry, "$GGA,*00\r\n" ) );
+    }
+
+    @Test
+    public void ProprietaryDoesNotCollideWithFormatter() {
+        NmeaParserRegistry registry = new NmeaParserRegistry();
+        registry.register( "PSA", GLL_FACTORY, NO_OP );
+        assertNotNull( Lookup( registry, "$PSA,1*00\r\n" ) );
+        assertNull( Lookup( registry, "$GPPSA,1*00\r\n" ) );
+    }
+
+    @Test
+    public void ReRegisterReplaces() {
+        NmeaParserRegistry registry = new NmeaParserRegistry();
+        registry.register( "GGA", GGA.FACTORY, NO_OP );
+        registry.register( "GGA", GLL_FACTORY, NO_OP );
+        assertEquals( 1, registry.get_size() );
+        assertSame( GLL_FACTORY, registry.get( "GGA" ).get_factory() );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void InvalidFormatter() {
+        new NmeaParserRegistry().register( "GPGGA", GGA.FACTORY, NO_OP );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ProprietaryTooLong() {
+        new NmeaParserRegistry().register( "PABCDEFG", GLL_FACTORY, NO_OP );
+    }
+
+    @Test
+    public void ReceiverCustomType() {
+        final List<INmeaMessage> received = new ArrayList<>();
+        NmeaReceiver receiver = new NmeaReceiver();
+        receiver.register( "GLL", GLL_FACTORY, new INmeaMessageHandler() {
+            @Override
+            public void HandleMessage( INmeaMessage msg ) {
+                received.add( msg );
+            }
+        } );
+        receiver.Receive( ( "$GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76\r\n" +
+                "$GPGLL,4916.45,N,12311.12,W,225444,A,*1D\r\n" ).getBytes( StandardCharsets.US_ASCII ) );
+
+        assertEquals( 1, received.size() );
+        assertTrue( received.get( 0 ) instanceof GLL );
+        assertEquals( "GPGLL", ( (GLL)received.get( 0 ) )._dataTypeName );
+        assertEquals( "A", ( (GLL)received.get( 0 ) )._status );
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GGA;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Many sources received through a NmeaReceiverHub
+ */
+
+public class NmeaReceiverHubUnitTest {
+
+    /**
+     * Records the GGA times of one source, and the threads they were handled on
+     */
+    private static class SourceHandler implements INmeaHandler {
+        private final long _sourceId;
+        private final List<Integer> _times = new ArrayList<>();
+        private final List<String> _threads = new ArrayList<>();
+
+        SourceHandler( long sourceId ) {
+            _sourceId = sourceId;
+        }
+
+        @Override
+        public void HandleGGA( INmeaMessage msg ) {
+            _times.add( ((GGA) msg).get_utcMillisOfDay() );
+            if ( !_threads.contains( Thread.currentThread().getName() ) ) {
+                _threads.add( Thread.currentThread().getName() );
+            }
+        }
+
+        @Override public void HandleGSA( INmeaMessage msg ) { }
+        @Override public void HandleGST( INmeaMessage msg ) { }
+        @Override public void HandleGSV( INmeaMessage msg ) { }
+        @Override public void HandleHDT( INmeaMessage msg ) { }
+        @Override public void HandleRMC( INmeaMessage msg ) { }
+        @Override public void HandleVTG( INmeaMessage msg ) { }
+    }
+
+    /**
+     * Keeps every handler created, in order
+     */
+    private static class HandlerFactory implements INmeaHandlerFactory {
+        private final List<SourceHandler> _handlers = new ArrayList<>();
+
+        @Override
+        public INmeaHandler Create( long sourceId ) {
+            SourceHandler handler = new SourceHandler( sourceId );
+            synchronized ( _handlers ) {
+                _handlers.add( handler );
+            }
+            return handler;
+        }
+
+        SourceHandler Find( long sourceId, int occurrence ) {
+            for ( SourceHandler handler : _handlers ) {
+                if ( handler._sourceId == sourceId && occurrence-- == 0 ) {
+                    return handler;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static byte[] Gga( int second ) {
+        GGA gga = new GGA();
+        gga.set_utcMillisOfDay( second * 1000 );
+        return gga.toString().getBytes( StandardCharsets.US_ASCII );
+    }
+
+    private static byte[] Concat( byte[]... arrays ) {
+        int length = 0;
+        for ( byte[] array : arrays ) {
+            length += array.length;
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        for ( byte[] array : arrays ) {
+            System.arraycopy( array, 0, bytes, offset, array.length );
+            offset += array.length;
+        }
+        return bytes;
+    }
+
+    @Test
+    public void SentencesOfEachSourceAreHandledInOrder() throws Exception {
+        final int sourceCount = 64;
+        final int sentenceCount = 100;
+        HandlerFactory factory = new HandlerFactory();
+        NmeaReceiverHub hub = new NmeaReceiverHub( 4, 16, factory );
+
+        byte[][] streams = new byte[sourceCount][];
+        int[] offsets = new int[sourceCount];
+        for ( int source = 0; source < sourceCount; ++source ) {
+            byte[][] sentences = new byte[sentenceCount][];
+            for ( int i = 0; i < sentenceCount; ++i ) {
+                sentences[i] = Gga( i );
+            }
+            streams[source] = Concat( sentences );
+        }
+
+        // ... Interleave the sources, in reads of random lengths, through both Receive() overloads
+        Random random = new Random( 14 );
+        int remaining = sourceCount;
+        while ( remaining > 0 ) {
+            for ( int source = 0; source < sourceCount; ++source ) {
+                int length = Math.min( 1 + random.nextInt( 80 ), streams[source].length - offsets[source] );
+                if ( length == 0 ) {
+                    continue;
+                }
+                if ( source % 2 == 0 ) {
+                    hub.Receive( 1000 + source, streams[source], offsets[source], length );
+                } else {
+                    hub.Receive( 1000 + source, ByteBuffer.wrap( streams[source], offsets[source], length ) );
+                }
+                offsets[source] += length;
+                if ( offsets[source] == streams[source].length ) {
+                    --remaining;
+                }
+            }
+        }
+        hub.shutdown();
+
+        assertEquals( sourceCount, factory._handlers.size() );
+        for ( int source = 0; source < sourceCount; ++source ) {
+            SourceHandler handler = factory.Find( 1000 + source, 0 );
+            assertEquals( sentenceCount, handler._times.size() );
+            for ( int i = 0; i < sentenceCount; ++i ) {
+                assertEquals( i * 1000, (int) handler._times.get( i ) );
+            }
+            assertEquals( 1, handler._threads.size() );
+        }
+    }
+
+    @Test
+    public void ClosedSourceDropsPartialSentence() throws Exception {
+        HandlerFactory factory = new HandlerFactory();
+        NmeaReceiverHub hub = new NmeaReceiverHub( 2, 4, factory );
+
+        byte[] first = Gga( 1 );
+        hub.Receive( 7, first, 0, first.length / 2 );
+        hub.closeSource( 7 );
+        hub.Receive( 7, first, first.length / 2, first.length - first.length / 2 );
+        hub.Receive( 7, Gga( 2 ) );
+        hub.shutdown();
+
+        assertEquals( 2, factory._handlers.size() );
+        assertEquals( 0, factory.Find( 7, 0 )._times.size() );
+        assertEquals( 1, factory.Find( 7, 1 )._times.size() );
+        assertEquals( 2000, (int) factory.Find( 7, 1 )._times.get( 0 ) );
+    }
+
+    @Test
+    public void ReceiveAfterShutdownThrows() throws Exception {
+        NmeaReceiverHub hub = new NmeaReceiverHub( 1, 4, new HandlerFactory() );
+        hub.shutdown();
+        try {
+            hub.Receive( 1, Gga( 1 ) );
+            assertTrue( "Receive() after shutdown()", false );
+        } catch ( IllegalStateException e ) {
+            // ... Expected
+        }
+    }
+
+    @Test
+    public void ClosedSourcesAmongMany() throws Exception {
+        HandlerFactory factory = new HandlerFactory();
+        NmeaReceiverHub hub = new NmeaReceiverHub( 2, 64, factory );
+        for ( long id = 0; id < 200; ++id ) {
+            hub.Receive( id * 1000003L, Gga( 1 ) );
+        }
+        for ( long id = 0; id < 200; id += 2 ) {
+            hub.closeSource( id * 1000003L );
+        }
+        for ( long id = 0; id < 200; ++id ) {
+            hub.Receive( id * 1000003L, Gga( 2 ) );
+        }
+        hub.shutdown();
+
+        assertEquals( 300, factory._handlers.size() );
+        for ( long id = 0; id < 200; ++id ) {
+            SourceHandler first = factory.Find( id * 1000003L, 0 );
+            SourceHandler second = factory.Find( id * 1000003L, 1 );
+            if ( id % 2 == 0 ) {
+                assertEquals( 1, first._times.size() );
+                assertEquals( 2000, (int) second._times.get( 0 ) );
+            } else {
+                assertEquals( 2, first._times.size() );
+                assertEquals( null, second );
+            }
+        }
+    }
+
+    @Test
+    public void RegisteredSentenceTypes() throws Exception {
+        final int[] counts = new int[8];
+        NmeaReceiverHub hub = new NmeaReceiverHub( 2, 4, new HandlerFactory() );
+        hub.register( "GLL", new INmeaMessageFactory() {
+            @Override
+            public INmeaMessage Create() {
+                return new NmeaParserRegistryUnitTest.GLL();
+            }
+        }, new INmeaMessageHandlerFactory() {
+            @Override
+            public INmeaMessageHandler Create( final long sourceId ) {
+                if ( sourceId == 3 ) {
+                    return null;
+                }
+                return new INmeaMessageHandler() {
+                    @Override
+                    public void HandleMessage( INmeaMessage msg ) {
+                        synchronized ( counts ) {
+                            ++counts[(int) sourceId];
+                        }
+                    }
+                };
+            }
+        } );
+
+        byte[] gll = "$GPGLL,5321.6802,N,00630.3372,W,092750.000,A*26\r\n".getBytes( StandardCharsets.US_ASCII );
+        for ( int id = 0; id < counts.length; ++id ) {
+            for ( int i = 0; i <= id; ++i ) {
+                hub.Receive( id, gll );
+            }
+        }
+        hub.shutdown();
+
+        for ( int id = 0; id < counts.length; ++id ) {
+            assertEquals( id == 3 ? 0 : id + 1, counts[id] );
+        }
+        assertEquals( 36, hub.get_metrics().get_snapshot().get_handledCount( "GLL" ) );
+    }
+
+    @Test
+    public void ReceiveRacingShutdownDoesNotBlock() throws Exception {
+        final NmeaReceiverHub hub = new NmeaReceiverHub( 1, 1, new HandlerFactory() );
+        final byte[] gga = Gga( 1 );
+        Thread producer = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while ( true ) {
+                        hub.Receive( 1, gga );
+                    }
+                } catch ( IllegalStateException e ) {
+                    // ... Shut down
+                }
+            }
+        } );
+        producer.start();
+        Thread.sleep( 50 );
+        hub.shutdown();
+
+        producer.join( 5000 );
+        assertFalse( producer.isAlive() );
+    }
+}
@@ -0,0 +1,559 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GGA;
+import com.inverness_park.nmea.Sentences.RMC;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * These unit tests simply verify that we're parsing the correct data type
+ */
+
+public class NmeaReceiverUnitTest implements INmeaHandler {
+
+    private NmeaReceiver _receiver;
+    private BooleanPlaceholder _ggaReceived = new BooleanPlaceholder() ;
+    private BooleanPlaceholder _gsaReceived = new BooleanPlaceholder() ;
+    private BooleanPlaceholder _gstReceived = new BooleanPlaceholder() ;
+    private BooleanPlaceholder _gsvReceived = new BooleanPlaceholder() ;
+    private BooleanPlaceholder _hdtReceived = new BooleanPlaceholder() ;
+    private BooleanPlaceholder _rmcReceived = new BooleanPlaceholder() ;
+    private BooleanPlaceholder _vtgReceived = new BooleanPlaceholder() ;
+
+    /**
+     * Default constructor
+     */
+    public NmeaReceiverUnitTest() {
+        _receiver = new NmeaReceiver( this ) ;
+        _receiver.setMessageHandlers( new NmeaReceiver.MessageHandlers() {
+            @Override
+            public void OnNmeaMessageFailedChecksum( byte[] bytes, int index, int count, byte expected, byte actual ) {
+                String nmea = new String( bytes, index, count, StandardCharsets.US_ASCII ) ;
+                assertTrue( "OnNmeaMessageFailedChecksum: " + nmea, false );
+            }
+
+            @Override
+            public void OnNmeaMessageDropped( byte[] bytes, int index, int count, String reason ) {
+                String nmea = new String( bytes, index, count, StandardCharsets.US_ASCII ) ;
+                assertTrue( "OnNmeaMessageDropped: " + nmea + "; " + reason, false ) ;
+            }
+
+            @Override
+            public void OnNmeaMessageIgnored( byte[] bytes, int index, int count ) {
+                String nmea = new String( bytes, index, count, StandardCharsets.US_ASCII ) ;
+                assertTrue( "OnNmeaMessageIgnored: " + nmea, false ) ;
+            }
+        } );
+    }
+
+    /**
+     * Class used to set state from within callbacks
+     */
+    class BooleanPlaceholder {
+        private boolean _state = false ;
+
+        public boolean is_state() {
+            return _state;
+        }
+
+        public void set_state( boolean _state ) {
+            this._state = _state;
+        }
+    }
+
+    private void TestValidNmeaSentence( String sentence, BooleanPlaceholder placeholder ) {
+        try {
+            placeholder.set_state( false );
+            byte[] nmeaBytes = sentence.getBytes( StandardCharsets.US_ASCII );
+            _receiver.Receive( nmeaBytes );
+            assertEquals( sentence, placeholder.is_state(), true );
+        }
+        catch (Exception e ) {
+            assertEquals( sentence, false, true );
+        }
+    }
+
+    @Test
+    public void TestValidGGA() {
+        String [] sampleData = new String [] {
+            "$GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76\r\n",
+            "$GPGGA,092751.000,5321.6802,N,00630.3371,W,1,8,1.03,61.7,M,55.3,M,,*75\r\n",
+        } ;
+
+        for ( String sample : sampleData ) {
+            TestValidNmeaSentence( sample, _ggaReceived ) ;
+        }
+    }
+    @Test
+    public void TestValidGSA() {
+        String [] sampleData = new String [] {
+                "$GPGSA,A,3,10,07,05,02,29,04,08,13,,,,,1.72,1.03,1.38*0A\r\n",
+                "$GPGSA,A,3,10,07,05,02,29,04,08,13,,,,,1.72,1.03,1.38*0A\r\n",
+        } ;
+
+        for ( String sample : sampleData ) {
+            TestValidNmeaSentence( sample, _gsaReceived ) ;
+        }
+    }
+    @Test
+    public void TestValidGST() {
+        String [] sampleData = new String [] {
+                "$GPGST,141451.00,1.18,0.00,0.00,0.0000,0.00,0.00,0.00*6B\r\n",
+                "$GNGST,143333.00,7.38,1.49,1.30,68.1409,1.47,1.33,2.07*4A\r\n"
+        } ;
+
+        for ( String sample : sampleData ) {
+            TestValidNmeaSentence( sample, _gstReceived ) ;
+        }
+    }
+    @Test
+    public void TestValidGSV() {
+        String [] sampleData = new String [] {
+                "$GPGSV,3,1,11,10,63,137,17,07,61,098,15,05,59,290,20,08,54,157,30*70\r\n",
+                "$GPGSV,3,2,11,02,39,223,19,13,28,070,17,26,23,252,,04,14,186,14*79\r\n",
+                "$GPGSV,3,3,11,29,09,301,24,16,09,020,,36,,,*76\r\n",
+                "$GPGSV,3,1,11,10,63,137,17,07,61,098,15,05,59,290,20,08,54,157,30*70\r\n",
+                "$GPGSV,3,2,11,02,39,223,16,13,28,070,17,26,23,252,,04,14,186,15*77\r\n",
+                "$GPGSV,3,3,11,29,09,301,24,16,09,020,,36,,,*76\r\n",
+        } ;
+
+        for ( String sample : sampleData ) {
+            TestValidNmeaSentence( sample, _gsvReceived ) ;
+        }
+    }
+    @Test
+    public void TestValidHDT() {
+        String [] sampleData = new String [] {
+                "$GPHDT,75.5664,T*36\r\n",
+                "$GNHDT,75.5554,T*28\r\n"
+        } ;
+
+        for ( String sample : sampleData ) {
+            TestValidNmeaSentence( sample, _hdtReceived ) ;
+        }
+    }
+    @Test
+    public void TestValidRMC() {
+        String [] sampleData = new String [] {
+                "$GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*43\r\n",
+                "$GPRMC,092751.000,A,5321.6802,N,00630.3371,W,0.06,31.66,280511,,,A*45\r\n",
+        } ;
+
+        for ( String sample : sampleData ) {
+            TestValidNmeaSentence( sample, _rmcReceived ) ;
+        }
+    }
+    @Test
+    public void TestValidVTG() {
+        String [] sampleData = new String [] {
+                "$GPVTG,172.516,T,155.295,M,0.049,N,0.090,K,D*2B\r\n",
+                "$GNVTG,134.395,T,134.395,M,0.019,N,0.035,K,A*33\r\n"
+        } ;
+
+        for ( String sample : sampleData ) {
+            TestValidNmeaSentence( sample, _vtgReceived ) ;
+        }
+    }
+
+    @Test
+    public void TestManySentencesInOneReceive() {
+        String sentences =
+                "$GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76\r\n" +
+                "$GPGSA,A,3,10,07,05,02,29,04,08,13,,,,,1.72,1.03,1.38*0A\r\n" +
+                "$GPHDT,75.5664,T*36\r\n" +
+                "$GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*43\r\n" ;
+
+        // ... Every sentence but the first sits in the middle of the array
+        TestValidNmeaSentence( sentences, _ggaReceived ) ;
+        TestValidNmeaSentence( sentences, _gsaReceived ) ;
+        TestValidNmeaSentence( sentences, _hdtReceived ) ;
+        TestValidNmeaSentence( sentences, _rmcReceived ) ;
+    }
+
+    @Test
+    public void TestReceiveRanges() {
+        String sentence = "$GPHDT,75.5664,T*36\r\n" ;
+        byte[] nmeaBytes = ( "junk" + sentence + "junk" ).getBytes( StandardCharsets.US_ASCII ) ;
+
+        _hdtReceived.set_state( false );
+        _receiver.Receive( nmeaBytes, 4, sentence.length() );
+        assertTrue( "byte[] range", _hdtReceived.is_state() );
+
+        for ( ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate( 64 ), ByteBuffer.allocateDirect( 64 ) } ) {
+            _hdtReceived.set_state( false );
+            buffer.put( nmeaBytes ).flip();
+            _receiver.Receive( buffer );
+            assertTrue( "ByteBuffer, direct: " + buffer.isDirect(), _hdtReceived.is_state() );
+            assertEquals( 0, buffer.remaining() );
+        }
+    }
+
+    @Test
+    public void TestUnsupportedSentences() {
+        final StringBuilder events = new StringBuilder() ;
+        NmeaReceiver receiver = new NmeaReceiver( this ) ;
+        receiver.setMessageHandlers( new NmeaReceiver.MessageHandlers() {
+            @Override
+            public void OnNmeaMessageFailedChecksum( byte[] bytes, int index, int count, byte expected, byte actual ) {
+                events.append( "checksum;" ) ;
+            }
+
+            @Override
+            public void OnNmeaMessageDropped( byte[] bytes, int index, int count, String reason ) {
+                events.append( "dropped;" ) ;
+            }
+
+            @Override
+            public void OnNmeaMessageIgnored( byte[] bytes, int index, int count ) {
+                events.append( "ignored;" ) ;
+            }
+        } );
+
+        byte[] valid = "$GPGLL,4916.45,N,12311.12,W,225444,A,*1D\r\n".getBytes( StandardCharsets.US_ASCII ) ;
+        byte[] corrupted = "$GPGLL,4916.45,N,12311.12,W,225444,A,*00\r\n".getBytes( StandardCharsets.US_ASCII ) ;
+
+        receiver.Receive( valid ) ;
+        receiver.Receive( corrupted ) ;
+        assertEquals( "ignored;checksum;", events.toString() ) ;
+
+        events.setLength( 0 ) ;
+        receiver.set_ignoreBeforeChecksum( true ) ;
+        receiver.Receive( valid ) ;
+        receiver.Receive( corrupted ) ;
+        assertEquals( "ignored;ignored;", events.toString() ) ;
+    }
+
+    /**
+     * A stream that only implements INmeaStream, and doesn't compute checksums
+     */
+    private static class PlainStream implements INmeaStream {
+        private final byte[] _buffer = new byte[1024];
+        private int _length = 0;
+        private OnNMEAMessageReceivedHandler _handler;
+
+        @Override
+        public void set_OnNMEAMessageReceivedHandler( OnNMEAMessageReceivedHandler handler ) {
+            _handler = handler;
+        }
+
+        @Override
+        public int get_length() {
+            return _length;
+        }
+
+        @Override
+        public int get_capacity() {
+            return _buffer.length;
+        }
+
+        @Override
+        public int get_available() {
+            return _buffer.length - _length;
+        }
+
+        @Override
+        public void Append( byte b ) {
+            if ( b == '$' ) {
+                _length = 0;
+            }
+            if ( _length < _buffer.length ) {
+                _buffer[_length++] = b;
+            }
+            if ( b == '\n' ) {
+                _handler.NMEAMessageReceived( _buffer, 0, _length );
+                _length = 0;
+            }
+        }
+
+        @Override
+        public void Append( byte[] bytes ) {
+            for ( byte b : bytes ) {
+                Append( b );
+            }
+        }
+
+        @Override
+        public void Reset() {
+            _length = 0;
+        }
+    }
+
+    @Test
+    public void TestCustomStream() {
+        final StringBuilder events = new StringBuilder() ;
+        NmeaReceiver receiver = new NmeaReceiver( new INmeaStreamFactory() {
+            @Override
+            public INmeaStream Create() {
+                return new PlainStream() ;
+            }
+        }, new DefaultNmeaHandler() {
+            @Override
+            public void HandleHDT( INmeaMessage msg ) {
+                events.append( "HDT;" ) ;
+            }
+        } ) ;
+        receiver.setMessageHandlers( new NmeaReceiver.MessageHandlers() {
+            @Override
+            public void OnNmeaMessageFailedChecksum( byte[] bytes, int index, int count, byte expected, byte actual ) {
+                events.append( "checksum;" ) ;
+            }
+
+            @Override
+            public void OnNmeaMessageDropped( byte[] bytes, int index, int count, String reason ) {
+                events.append( "dropped;" ) ;
+            }
+
+            @Override
+            public void OnNmeaMessageIgnored( byte[] bytes, int index, int count ) {
+                events.append( "ignored;" ) ;
+            }
+        } ) ;
+
+        // ... The receiver computes the checksum itself, and copies ranges and buffers
+        byte[] valid = "xx$GPHDT,75.5664,T*36\r\nyy".getBytes( StandardCharsets.US_ASCII ) ;
+        receiver.Receive( valid, 2, valid.length - 4 ) ;
+        receiver.Receive( ByteBuffer.wrap( "$GPHDT,75.5664,T*00\r\n".getBytes( StandardCharsets.US_ASCII ) ) ) ;
+        receiver.set_recordLatencies( true ) ;
+        receiver.Receive( "$GPHDT,75.5664,T*36\r\n".getBytes( StandardCharsets.US_ASCII ) ) ;
+        assertEquals( "HDT;checksum;HDT;", events.toString() ) ;
+        assertEquals( 1, receiver.get_metrics().get_snapshot().get_dispatchLatency( "HDT" ).get_count() ) ;
+    }
+
+    @Test
+    public void TestLowerCaseFormatter() {
+        TestValidNmeaSentence( "$gphdt,75.5664,T*16\r\n", _hdtReceived ) ;
+    }
+
+    @Test
+    public void TestRecycleMessages() {
+        final List<INmeaMessage> received = new ArrayList<INmeaMessage>() ;
+        final List<String> extraFields = new ArrayList<String>() ;
+        NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() {
+            @Override
+            public void HandleRMC( INmeaMessage msg ) {
+                received.add( msg ) ;
+                extraFields.add( ( (RMC)msg ).get_extraField() ) ;
+            }
+        } ) ;
+        receiver.set_recycleMessages( true ) ;
+
+        receiver.Receive( "$GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*43\r\n".getBytes( StandardCharsets.US_ASCII ) ) ;
+        receiver.Receive( "$GPRMC,092751.000,A,5321.6803,N,00630.3373,W,0.03,31.67,280511,,*2F\r\n".getBytes( StandardCharsets.US_ASCII ) ) ;
+
+        // ... Same object, parsed into again, with no leftover from the previous sentence
+        assertEquals( 2, received.size() ) ;
+        assertSame( received.get( 0 ), received.get( 1 ) ) ;
+        assertEquals( "A", extraFields.get( 0 ) ) ;
+        assertNull( extraFields.get( 1 ) ) ;
+        RMC rmc = (RMC)received.get( 1 ) ;
+        assertEquals( 0.03f, rmc.get_speedAboveGroundKnots(), 0 ) ;
+        assertEquals( 51, rmc.get_utc().getSecondOfMinute() ) ;
+        assertEquals( DateTime.parse( "280511 092751.000", DateTimeFormat.forPattern( "ddMMyy HHmmss.SSS" ) ), rmc.get_utc() ) ;
+
+        // ... Default mode still hands out a new object per sentence
+        receiver.set_recycleMessages( false ) ;
+        receiver.Receive( "$GPRMC,092751.000,A,5321.6803,N,00630.3373,W,0.03,31.67,280511,,*2F\r\n".getBytes( StandardCharsets.US_ASCII ) ) ;
+        assertNotSame( received.get( 1 ), received.get( 2 ) ) ;
+    }
+
+    /**
+     * HDT message as written before NmeaFields: only parseFields(String[]) is implemented
+     */
+    private static class LegacyHdt extends BaseNmeaMessage {
+        private String _heading;
+
+        @Override
+        public String get_description() {
+            return "Legacy heading";
+        }
+
+        @Override
+        public String get_payload() {
+            return "GPHDT," + _heading + ",T";
+        }
+
+        @Override
+        public INmeaMessage parseFields( String[] tokens ) {
+            _heading = tokens[1];
+            return this;
+        }
+    }
+
+    /**
+     * HDT message implementing INmeaMessage directly
+     */
+    private static class PlainHdt implements INmeaMessage {
+        private String _heading;
+
+        @Override
+        public String get_description() {
+            return "Plain heading";
+        }
+
+        @Override
+        public String get_payload() {
+            return "GPHDT," + _heading + ",T";
+        }
+
+        @Override
+        public byte get_checksum() {
+            return 0;
+        }
+
+        @Override
+        public INmeaMessage parseFields( String[] tokens ) {
+            _heading = tokens[1];
+            return this;
+        }
+    }
+
+    /**
+     * Overrides neither parseFields()
+     */
+    private static class NoFields extends BaseNmeaMessage {
+        @Override
+        public String get_description() {
+            return "No fields";
+        }
+    }
+
+    @Test
+    public void TestCoordinateBounds() {
+        final List<INmeaMessage> received = new ArrayList<INmeaMessage>() ;
+        NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() {
+            @Override
+            public void HandleGGA( INmeaMessage msg ) {
+                received.add( msg ) ;
+            }
+        } ) ;
+        receiver.set_skipParseErrors( true ) ;
+
+        // ... An unpadded longitude is fine, a 5-digit latitude isn't
+        receiver.Receive( Sentence( "GPGGA,092750.000,5321.6802,N,9530.000,W,1,8,1.03,61.7,M,55.2,M,," ) ) ;
+        receiver.Receive( Sentence( "GPGGA,092751.000,12000.0,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,," ) ) ;
+
+        assertEquals( 1, received.size() ) ;
+        assertEquals( -95.5, ( (GGA)received.get( 0 ) ).get_longitude().get_degrees(), 0 ) ;
+        assertEquals( 1, receiver.get_metrics().get_snapshot().get_parseErrorCount( "GGA" ) ) ;
+    }
+
+    private static byte[] Sentence( String payload ) {
+        byte[] bytes = payload.getBytes( StandardCharsets.US_ASCII ) ;
+        String sentence = String.format( "$%s*%02X\r\n", payload, BaseNmeaMessage.ComputeChecksum( bytes, 0, bytes.length ) & 0xFF ) ;
+        return sentence.getBytes( StandardCharsets.US_ASCII ) ;
+    }
+
+    @Test
+    public void TestLegacyMessages() {
+        INmeaMessageFactory[] factories = new INmeaMessageFactory[] {
+                new INmeaMessageFactory() {
+                    @Override
+                    public INmeaMessage Create() {
+                        return new LegacyHdt() ;
+                    }
+                },
+                new INmeaMessageFactory() {
+                    @Override
+                    public INmeaMessage Create() {
+                        return new PlainHdt() ;
+                    }
+                }
+        } ;
+        for ( INmeaMessageFactory factory : factories ) {
+            for ( boolean recycle : new boolean[] { false, true } ) {
+                final List<INmeaMessage> received = new ArrayList<INmeaMessage>() ;
+                NmeaReceiver receiver = new NmeaReceiver( new DefaultNmeaHandler() ) ;
+                receiver.set_recycleMessages( recycle ) ;
+                receiver.register( "HDT", factory, new INmeaMessageHandler() {
+                    @Override
+                    public void HandleMessage( INmeaMessage msg ) {
+                        received.add( msg ) ;
+                    }
+                } ) ;
+                receiver.Receive( "$GPHDT,75.5664,T*36\r\n".getBytes( StandardCharsets.US_ASCII ) ) ;
+
+                assertEquals( 1, received.size() ) ;
+                assertEquals( "GPHDT,75.5664,T", received.get( 0 ).get_payload() ) ;
+            }
+        }
+    }
+
+    @Test
+    public void TestMessageWithoutParseFields() {
+        try {
+            new NoFields().parseFields( new String[] { "GPHDT", "75.5664", "T" } ) ;
+            assertTrue( "UnsupportedOperationException expected", false ) ;
+        } catch ( UnsupportedOperationException e ) {
+            // ... Expected
+        }
+    }
+
+    @Override
+    public void HandleGGA( INmeaMessage msg ) {
+        _ggaReceived.set_state( true );
+    }
+
+    @Override
+    public void HandleGSA( INmeaMessage msg ) {
+        _gsaReceived.set_state( true );
+    }
+
+    @Override
+    public void HandleGST( INmeaMessage msg ) {
+        _gstReceived.set_state( true );
+    }
+
+    @Override
+    public void HandleGSV( INmeaMessage msg ) {
+        _gsvReceived.set_state( true );
+    }
+
+    @Override
+    public void HandleHDT( INmeaMessage msg ) {
+        _hdtReceived.set_state( true );
+    }
+
+    @Override
+    public void HandleRMC( INmeaMessage msg ) {
+        _rmcReceived.set_state( true );
+    }
+
+    @Override
+    public void HandleVTG( INmeaMessage msg ) {
+        _vtgReceived.set_state( true );
+    }
+}
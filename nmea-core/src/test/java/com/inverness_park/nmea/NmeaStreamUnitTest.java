@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static junit.framework.Assert.assertTrue;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by stephanm on 2018-02-12.
+ */
+
+public class NmeaStreamUnitTest extends INmeaStreamUnitTest {
+
+    /**
+     * Default constructor uses a default NmeaStream
+     */
+    public NmeaStreamUnitTest() {
+        super( new NmeaStream() );
+    }
+
+    /**
+     * placeholder for a boolean variable that gets set from within a listener callback
+     */
+    class BoolPlaceholder {
+        private boolean _state = false ;
+
+        public boolean is_state() {
+            return _state;
+        }
+
+        public void set_state( boolean _state ) {
+            this._state = _state;
+        }
+    }
+
+    @Test
+    public void StateIsIdle() {
+        get_strm().Reset() ;
+        assertEquals( ((NmeaStream)get_strm()).get_state(), NmeaStream.StateEnum.Idle ) ;
+    }
+
+    @Test
+    public void StateIsPayload() {
+        get_strm().Reset() ;
+        get_strm().Append( SOM );
+        assertEquals( ((NmeaStream)get_strm()).get_state(), NmeaStream.StateEnum.Payload ) ;
+        get_strm().Append( SOM );
+        assertEquals( ((NmeaStream)get_strm()).get_state(), NmeaStream.StateEnum.Payload ) ;
+        get_strm().Append( SOM );
+        assertEquals( ((NmeaStream)get_strm()).get_state(), NmeaStream.StateEnum.Payload ) ;
+        get_strm().Append( SOM );
+        assertEquals( ((NmeaStream)get_strm()).get_state(), NmeaStream.StateEnum.Payload ) ;
+    }
+
+    @Test
+    public void  ReceiveCompleteMessages() {
+        get_strm().Reset() ;
+        for ( String nmeaSentence: get_sampleData() ) {
+            ReceiveCompleteMessage(nmeaSentence) ;
+        }
+    }
+
+    @Test
+    public void BulkAppendMatchesByteAppend() {
+        byte[] nmeaBytes = BuildCorpus();
+        NmeaStream byteStream = new NmeaStream();
+        List<String> expected = AppendByteByByte( byteStream, nmeaBytes );
+
+        for ( int chunkSize : new int[] { 1, 2, 3, 7, 64, 1000, 4096, nmeaBytes.length } ) {
+            List<String> actual = new ArrayList<>();
+            NmeaStream bulkStream = new NmeaStream();
+            bulkStream.set_OnNMEAMessageReceivedHandler( new SentenceCollector( actual, bulkStream ) );
+            for ( int i = 0; i < nmeaBytes.length; i += chunkSize ) {
+                bulkStream.Append( nmeaBytes, i, Math.min( chunkSize, nmeaBytes.length - i ) );
+            }
+            assertEquals( "chunkSize " + chunkSize, expected, actual );
+            assertEquals( "chunkSize " + chunkSize, byteStream.get_length(), bulkStream.get_length() );
+            assertEquals( "chunkSize " + chunkSize, byteStream.get_state(), bulkStream.get_state() );
+            assertEquals( "chunkSize " + chunkSize, byteStream.get_overflowCount(), bulkStream.get_overflowCount() );
+        }
+    }
+
+    @Test
+    public void ByteBufferAppendMatchesByteAppend() {
+        byte[] nmeaBytes = BuildCorpus();
+        NmeaStream byteStream = new NmeaStream();
+        List<String> expected = AppendByteByByte( byteStream, nmeaBytes );
+
+        for ( int chunkSize : new int[] { 1, 3, 64, 4096, nmeaBytes.length } ) {
+            ByteBuffer[] buffers = new ByteBuffer[] {
+                    ByteBuffer.allocate( chunkSize + 8 ),
+                    ByteBuffer.allocateDirect( chunkSize + 8 ),
+                    null, // read-only view of a heap buffer
+            };
+            for ( int b = 0; b < buffers.length; ++b ) {
+                List<String> actual = new ArrayList<>();
+                NmeaStream bulkStream = new NmeaStream();
+                bulkStream.set_OnNMEAMessageReceivedHandler( new SentenceCollector( actual, bulkStream ) );
+                for ( int i = 0; i < nmeaBytes.length; i += chunkSize ) {
+                    ByteBuffer buffer = buffers[b] != null ? buffers[b] : ByteBuffer.allocate( chunkSize + 8 );
+                    // ... Don't start at 0, to exercise offsets
+                    buffer.clear();
+                    buffer.position( 8 );
+                    buffer.put( nmeaBytes, i, Math.min( chunkSize, nmeaBytes.length - i ) );
+                    buffer.flip();
+                    buffer.position( 8 );
+                    if ( buffers[b] == null ) {
+                        buffer = buffer.asReadOnlyBuffer();
+                    }
+                    bulkStream.Append( buffer );
+                    assertEquals( 0, buffer.remaining() );
+                }
+                String label = "chunkSize " + chunkSize + ", buffer " + b;
+                assertEquals( label, expected, actual );
+                assertEquals( label, byteStream.get_length(), bulkStream.get_length() );
+                assertEquals( label, byteStream.get_state(), bulkStream.get_state() );
+                assertEquals( label, byteStream.get_overflowCount(), bulkStream.get_overflowCount() );
+            }
+        }
+    }
+
+    @Test
+    public void FullBufferThenSomCountsOverflow() {
+        // ... A partial sentence that exactly fills the buffer, then a new sentence
+        StringBuilder sb = new StringBuilder( "$" );
+        while ( sb.length() < get_strm().get_capacity() ) {
+            sb.append( 'X' );
+        }
+        byte[] partial = sb.toString().getBytes( StandardCharsets.US_ASCII );
+        byte[] next = get_sampleData()[0].getBytes( StandardCharsets.US_ASCII );
+
+        NmeaStream byteStream = new NmeaStream();
+        for ( byte b : partial ) {
+            byteStream.Append( b );
+        }
+        for ( byte b : next ) {
+            byteStream.Append( b );
+        }
+        NmeaStream bulkStream = new NmeaStream();
+        bulkStream.Append( partial );
+        bulkStream.Append( next );
+        NmeaStream directStream = new NmeaStream();
+        for ( byte[] bytes : new byte[][] { partial, next } ) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect( bytes.length );
+            buffer.put( bytes ).flip();
+            directStream.Append( buffer );
+        }
+
+        assertEquals( 1, byteStream.get_overflowCount() );
+        assertEquals( 1, bulkStream.get_overflowCount() );
+        assertEquals( 1, directStream.get_overflowCount() );
+    }
+
+    @Test
+    public void ComputeChecksumMatchesByteWise() {
+        Random rnd = new Random( 11 );
+        byte[] bytes = new byte[256];
+        rnd.nextBytes( bytes );
+        for ( int index = 0; index < 16; ++index ) {
+            for ( int count = 0; index + count <= bytes.length; ++count ) {
+                byte expected = 0;
+                for ( int i = index; i < index + count; ++i ) {
+                    expected ^= bytes[i];
+                }
+                assertEquals( expected, BaseNmeaMessage.ComputeChecksum( bytes, index, count ) );
+            }
+        }
+    }
+
+    /**
+     * Valid sentences, interleaved with garbage, truncated sentences and oversized ones
+     * @return
+     */
+    private byte[] BuildCorpus() {
+        StringBuilder sb = new StringBuilder();
+        Random rnd = new Random( 2018 );
+        for ( int i = 0; i < 200; ++i ) {
+            String nmeaSentence = get_sampleData()[rnd.nextInt( get_sampleData().length )];
+            switch ( rnd.nextInt( 7 ) ) {
+                case 0:
+                    sb.append( "garbage\r\n" );
+                    break;
+                case 1:
+                    sb.append( nmeaSentence.substring( 0, rnd.nextInt( nmeaSentence.length() ) ) );
+                    break;
+                case 2:
+                    sb.append( '$' );
+                    for ( int j = rnd.nextInt( 3 ) + 2; j < get_strm().get_capacity(); ++j ) {
+                        sb.append( 'X' );
+                    }
+                    sb.append( "\r\n" );
+                    break;
+                case 3:
+                    // ... Incomplete sentence that fills the buffer, or nearly, before the next SOM
+                    sb.append( '$' );
+                    for ( int j = rnd.nextInt( 3 ) - 1; j < get_strm().get_capacity() - 1; ++j ) {
+                        sb.append( 'X' );
+                    }
+                    break;
+            }
+            sb.append( nmeaSentence );
+        }
+        return sb.toString().getBytes( StandardCharsets.US_ASCII );
+    }
+
+    /**
+     * Reference behaviour: the byte-wise state machine
+     * @param strm
+     * @param nmeaBytes
+     * @return
+     */
+    private List<String> AppendByteByByte( NmeaStream strm, byte[] nmeaBytes ) {
+        List<String> sentences = new ArrayList<>();
+        strm.set_OnNMEAMessageReceivedHandler( new SentenceCollector( sentences, strm ) );
+        for ( byte b : nmeaBytes ) {
+            strm.Append( b );
+        }
+        return sentences;
+    }
+
+    /**
+     * Collects the sentences reported by a stream, and checks the checksum it computed for them
+     */
+    class SentenceCollector implements INmeaStream.OnNMEAMessageReceivedHandler {
+        private List<String> _sentences;
+        private NmeaStream _stream;
+
+        public SentenceCollector( List<String> sentences, NmeaStream stream ) {
+            _sentences = sentences;
+            _stream = stream;
+        }
+
+        @Override
+        public void NMEAMessageReceived( byte[] bytes, int index, int count ) {
+            String sentence = new String( bytes, index, count, StandardCharsets.US_ASCII );
+            _sentences.add( sentence );
+            if ( count >= 6 ) {
+                assertEquals( sentence, BaseNmeaMessage.ComputeChecksum( bytes, index + 1, count - 6 ), _stream.get_checksum() );
+            }
+        }
+    }
+
+    private void ReceiveCompleteMessage( String randomNmeaString ) {
+        final BoolPlaceholder msgIsReceived = new BoolPlaceholder();
+        get_strm().set_OnNMEAMessageReceivedHandler( new INmeaStream.OnNMEAMessageReceivedHandler() {
+            @Override
+            public void NMEAMessageReceived( byte[] bytes, int index, int count ) {
+                msgIsReceived.set_state( true );
+            }
+        } );
+        byte[] nmeaBytes = randomNmeaString.getBytes(StandardCharsets.US_ASCII);
+        get_strm().Append( nmeaBytes );
+        assertTrue( "msgIsReceived", msgIsReceived.is_state() ) ;
+    }
+}
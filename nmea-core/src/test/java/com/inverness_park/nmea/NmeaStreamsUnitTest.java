@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Sentences.GGA;
+import com.inverness_park.nmea.Sentences.GSV;
+import com.inverness_park.nmea.Sentences.RMC;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Streams of messages over files and input streams
+ */
+
+public class NmeaStreamsUnitTest {
+
+    private static final String GSV_SENTENCE = "$GPGSV,3,1,11,10,63,137,17,07,61,098,15,05,59,290,20,08,54,157,30*70\r\n";
+
+    /**
+     * Valid checksum, but fields that can't be parsed
+     */
+    private static final String BAD_RMC_SENTENCE = "$GPRMC,notatime,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*55\r\n";
+
+    private static String Capture( int count ) {
+        StringBuilder sb = new StringBuilder();
+        GGA gga = new GGA();
+        for ( int i = 0; i < count; ++i ) {
+            gga.set_utcMillisOfDay( i * 1000 );
+            sb.append( gga.toString() );
+            if ( i % 10 == 0 ) {
+                sb.append( GSV_SENTENCE ).append( BAD_RMC_SENTENCE );
+            }
+        }
+        return sb.toString();
+    }
+
+    private static File CaptureFile( int count ) throws IOException {
+        File file = File.createTempFile( "capture", ".nmea" );
+        file.deleteOnExit();
+        FileOutputStream stream = new FileOutputStream( file );
+        try {
+            stream.write( Capture( count ).getBytes( StandardCharsets.US_ASCII ) );
+        } finally {
+            stream.close();
+        }
+        return file;
+    }
+
+    private static void AssertTimes( int count, List<Integer> times ) {
+        assertEquals( count, times.size() );
+        for ( int i = 0; i < count; ++i ) {
+            assertEquals( i * 1000, (int) times.get( i ) );
+        }
+    }
+
+    @Test
+    public void BadRmcChecksum() {
+        byte[] bytes = BAD_RMC_SENTENCE.getBytes( StandardCharsets.US_ASCII );
+        assertEquals( 0x55, BaseNmeaMessage.ComputeChecksum( bytes, 1, bytes.length - 6 ) & 0xFF );
+    }
+
+    @Test
+    public void OfTypeOnlyParsesThatType() throws Exception {
+        // ... The RMC sentences would throw, were they parsed
+        try ( Stream<GGA> ggas = NmeaStreams.of( CaptureFile( 100 ), GGA.class ) ) {
+            AssertTimes( 100, ggas.map( GGA::get_utcMillisOfDay ).collect( Collectors.toList() ) );
+        }
+        try ( Stream<GSV> gsvs = NmeaStreams.of( CaptureFile( 100 ), GSV.class ) ) {
+            assertEquals( 10, gsvs.count() );
+        }
+    }
+
+    @Test
+    public void OfAllTypesIsInFileOrder() throws Exception {
+        String capture = Capture( 20 ).replace( BAD_RMC_SENTENCE, "" );
+        List<INmeaMessage> messages = NmeaStreams.of( new ByteArrayInputStream( capture.getBytes( StandardCharsets.US_ASCII ) ) )
+                .collect( Collectors.toList() );
+        assertEquals( 22, messages.size() );
+        assertTrue( messages.get( 0 ) instanceof GGA );
+        assertTrue( messages.get( 1 ) instanceof GSV );
+        assertTrue( messages.get( 2 ) instanceof GGA );
+        assertFalse( messages.contains( null ) );
+    }
+
+    @Test
+    public void SkipsSentencesThatFailToParse() throws Exception {
+        try ( Stream<INmeaMessage> messages = NmeaStreams.of( CaptureFile( 100 ) ) ) {
+            List<INmeaMessage> list = messages.parallel().collect( Collectors.toList() );
+            assertEquals( 110, list.size() );
+            for ( INmeaMessage message : list ) {
+                assertFalse( message instanceof RMC );
+            }
+        }
+        Stream<RMC> rmcs = NmeaStreams.of( new ByteArrayInputStream( Capture( 100 ).getBytes( StandardCharsets.US_ASCII ) ), RMC.class );
+        assertEquals( 0, rmcs.count() );
+    }
+
+    @Test
+    public void TryAdvanceOneAtATime() throws Exception {
+        byte[] bytes = Capture( 1000 ).replace( BAD_RMC_SENTENCE, "" ).getBytes( StandardCharsets.US_ASCII );
+        try ( Stream<RMC> rmcs = NmeaStreams.of( new ByteArrayInputStream( bytes ), RMC.class ) ) {
+            assertFalse( rmcs.iterator().hasNext() );
+        }
+        try ( Stream<GGA> ggas = NmeaStreams.of( new ByteArrayInputStream( bytes ), GGA.class ) ) {
+            Spliterator<GGA> spliterator = ggas.spliterator();
+            final int[] count = new int[1];
+            while ( spliterator.tryAdvance( gga -> assertEquals( count[0]++ * 1000, gga.get_utcMillisOfDay() ) ) ) {
+            }
+            assertEquals( 1000, count[0] );
+            assertTrue( ( spliterator.characteristics() & Spliterator.ORDERED ) != 0 );
+            assertTrue( ( spliterator.characteristics() & Spliterator.SIZED ) == 0 );
+        }
+    }
+
+    @Test
+    public void ParallelFileStreamSplitsAndKeepsOrder() throws Exception {
+        File file = CaptureFile( 30000 );
+        assertTrue( file.length() > 8 * NmeaStreams.MIN_SPLIT_SIZE );
+
+        try ( Stream<GGA> ggas = NmeaStreams.of( file, GGA.class ) ) {
+            Spliterator<GGA> spliterator = ggas.spliterator();
+            Spliterator<GGA> prefix = spliterator.trySplit();
+            assertTrue( prefix != null );
+            final int[] count = new int[1];
+            prefix.forEachRemaining( gga -> ++count[0] );
+            spliterator.forEachRemaining( gga -> ++count[0] );
+            assertEquals( 30000, count[0] );
+        }
+
+        try ( Stream<GGA> ggas = NmeaStreams.of( file, GGA.class ) ) {
+            AssertTimes( 30000, ggas.parallel().map( GGA::get_utcMillisOfDay ).collect( Collectors.toList() ) );
+        }
+    }
+}
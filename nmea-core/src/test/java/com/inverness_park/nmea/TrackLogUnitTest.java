@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Types.FixQualityEnum;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Fixes written to, and read back from, a binary track log
+ */
+
+public class TrackLogUnitTest {
+
+    private static final long START = 1300000000000L;
+    private static final int BLOCK_SIZE = 100;
+
+    /**
+     * One fix per second, as from a receiver: small moves, slowly changing altitude and speed
+     */
+    private static byte[] Log( int count ) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackLogWriter writer = new TrackLogWriter( out, BLOCK_SIZE );
+        for ( int i = 0; i < count; ++i ) {
+            assertTrue( writer.Append( START + i * 1000L, 53.3613367 + i * 3e-7, -6.5056200 - i * 2e-7, 61.7f + ( i % 7 ) / 10f,
+                    0.02f * ( i % 5 ), 31.66f, 1.03f, FixQualityEnum.GpsFix ) );
+        }
+        writer.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void RoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackLogWriter writer = new TrackLogWriter( out, 2 );
+        writer.Append( START, 53.3613367, -6.50562, 61.7f, 0.02f, 31.66f, 1.03f, FixQualityEnum.DgpsFix );
+        writer.Append( START + 1000, -90, 180, Float.NaN, Float.NaN, 359.99f, Float.NaN, null );
+        writer.Append( START + 1000, Double.NaN, -180, -12.5f, 120, 0, 99.99f, FixQualityEnum.Invalid );
+        assertFalse( writer.Append( START, 0, 0, 0, 0, 0, 0, null ) );
+        writer.close();
+
+        TrackLogReader reader = new TrackLogReader( new ByteArrayInputStream( out.toByteArray() ) );
+        TrackLogReader.Block block = new TrackLogReader.Block();
+        assertEquals( 2, reader.ReadBlock( block ) );
+        assertEquals( START, block.get_timeMillis()[0] );
+        assertEquals( 53.3613367, block.get_latitude()[0], 1e-9 );
+        assertEquals( -6.50562, block.get_longitude()[0], 1e-9 );
+        assertEquals( 61.7f, block.get_altitude()[0], 1e-4 );
+        assertEquals( 31.66f, block.get_courseDegrees()[0], 1e-4 );
+        assertEquals( FixQualityEnum.DgpsFix, block.get_fixQuality( 0 ) );
+        assertEquals( START + 1000, block.get_timeMillis()[1] );
+        assertEquals( -90, block.get_latitude()[1], 0 );
+        assertEquals( 180, block.get_longitude()[1], 0 );
+        assertTrue( Float.isNaN( block.get_altitude()[1] ) );
+        assertTrue( Float.isNaN( block.get_speedKnots()[1] ) );
+        assertTrue( Float.isNaN( block.get_hdop()[1] ) );
+        assertNull( block.get_fixQuality( 1 ) );
+
+        assertEquals( 1, reader.ReadBlock( block ) );
+        assertTrue( Double.isNaN( block.get_latitude()[0] ) );
+        assertEquals( -180, block.get_longitude()[0], 0 );
+        assertEquals( -12.5f, block.get_altitude()[0], 0 );
+        assertEquals( 120, block.get_speedKnots()[0], 0 );
+        assertEquals( 99.99f, block.get_hdop()[0], 1e-4 );
+        assertEquals( FixQualityEnum.Invalid, block.get_fixQuality( 0 ) );
+
+        assertEquals( -1, reader.ReadBlock( block ) );
+        assertEquals( -1, reader.ReadBlock( block ) );
+        reader.close();
+    }
+
+    @Test
+    public void Compact() throws IOException {
+        int count = 10000;
+        byte[] log = Log( count );
+
+        // ... A GGA alone takes about 70 bytes of text
+        assertTrue( "bytes per fix: " + (double) log.length / count, log.length < count * 14 );
+
+        TrackStore track = new TrackStore();
+        assertEquals( count, new TrackLogReader( new ByteArrayInputStream( log ) ).ReadAll( track ) );
+        assertEquals( count, track.get_size() );
+        for ( int i = 0; i < count; i += 997 ) {
+            assertEquals( START + i * 1000L, track.get_timeMillis( i ) );
+            assertEquals( 53.3613367 + i * 3e-7, track.get_latitude( i ), 1e-7 );
+            assertEquals( -6.5056200 - i * 2e-7, track.get_longitude( i ), 1e-7 );
+            assertEquals( 61.7f + ( i % 7 ) / 10f, track.get_altitude( i ), 1e-2 );
+        }
+    }
+
+    @Test
+    public void TrackStoreRoundTrip() throws IOException {
+        TrackStore track = new TrackStore();
+        for ( int i = 0; i < 250; ++i ) {
+            track.Append( START + i * 200L, 45 + i * 1e-5, 7, 100, 5, 90, 0.8f, i % 3 == 0 ? null : FixQualityEnum.DgpsFix );
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackLogWriter writer = new TrackLogWriter( out, 64 );
+        writer.Append( track );
+        writer.close();
+
+        TrackStore copy = new TrackStore();
+        new TrackLogReader( new ByteArrayInputStream( out.toByteArray() ) ).ReadAll( copy );
+        assertEquals( track.get_size(), copy.get_size() );
+        for ( int i = 0; i < track.get_size(); ++i ) {
+            assertEquals( track.get_timeMillis( i ), copy.get_timeMillis( i ) );
+            assertEquals( track.get_latitude( i ), copy.get_latitude( i ), 1e-7 );
+            assertEquals( track.get_fixQuality( i ), copy.get_fixQuality( i ) );
+        }
+    }
+
+    @Test
+    public void SeekStream() throws IOException {
+        TrackLogReader reader = new TrackLogReader( new ByteArrayInputStream( Log( 1000 ) ) );
+        TrackLogReader.Block block = new TrackLogReader.Block();
+        reader.SeekTime( START + 450 * 1000L );
+        assertEquals( BLOCK_SIZE, reader.ReadBlock( block ) );
+        assertEquals( START + 400 * 1000L, block.get_timeMillis()[0] );
+        assertEquals( START + 500 * 1000L, reader.ReadBlock( block ) > 0 ? block.get_timeMillis()[0] : 0 );
+
+        reader.SeekTime( Long.MAX_VALUE );
+        assertEquals( -1, reader.ReadBlock( block ) );
+        reader.close();
+    }
+
+    @Test
+    public void SeekFile() throws IOException {
+        File file = File.createTempFile( "track", ".log" );
+        file.deleteOnExit();
+        try ( FileOutputStream out = new FileOutputStream( file ) ) {
+            out.write( Log( 1000 ) );
+        }
+
+        TrackLogReader reader = new TrackLogReader( file );
+        assertEquals( 10, reader.get_blockCount() );
+        TrackLogReader.Block block = new TrackLogReader.Block();
+        reader.SeekTime( START + 750 * 1000L );
+        assertEquals( BLOCK_SIZE, reader.ReadBlock( block ) );
+        assertEquals( START + 700 * 1000L, block.get_timeMillis()[0] );
+
+        // ... Backwards
+        reader.SeekTime( START + 50 * 1000L );
+        assertEquals( BLOCK_SIZE, reader.ReadBlock( block ) );
+        assertEquals( START, block.get_timeMillis()[0] );
+
+        int count = BLOCK_SIZE;
+        while ( reader.ReadBlock( block ) > 0 ) {
+            count += block.get_count();
+        }
+        assertEquals( 1000, count );
+
+        reader.SeekTime( START + 1000 * 1000L );
+        assertEquals( -1, reader.ReadBlock( block ) );
+        reader.close();
+    }
+
+    @Test
+    public void Unflushed() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackLogWriter writer = new TrackLogWriter( out, BLOCK_SIZE );
+        for ( int i = 0; i < 150; ++i ) {
+            writer.Append( START + i * 1000L, 0, 0, 0, 0, 0, 0, null );
+        }
+        writer.Flush();
+
+        // ... Readable as a stream up to the last flush
+        TrackStore track = new TrackStore();
+        assertEquals( 150, new TrackLogReader( new ByteArrayInputStream( out.toByteArray() ) ).ReadAll( track ) );
+    }
+
+    @Test
+    public void WriteFailure() throws IOException {
+        final boolean[] failing = { false };
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write( int b ) throws IOException {
+                if ( failing[0] ) {
+                    throw new IOException( "Disk full" );
+                }
+            }
+        };
+        TrackLogWriter writer = new TrackLogWriter( out, BLOCK_SIZE );
+        for ( int i = 0; i < BLOCK_SIZE - 1; ++i ) {
+            writer.Append( START + i * 1000L, 0, 0, 0, 0, 0, 0, null );
+        }
+        failing[0] = true;
+        try {
+            writer.Append( START + BLOCK_SIZE * 1000L, 0, 0, 0, 0, 0, 0, null );
+            fail();
+        } catch ( IOException e ) {
+            // ... Expected
+        }
+
+        // ... Later fixes fail cleanly, rather than overrunning the full block
+        failing[0] = false;
+        try {
+            writer.Append( START + BLOCK_SIZE * 2000L, 0, 0, 0, 0, 0, 0, null );
+            fail();
+        } catch ( IllegalStateException e ) {
+            // ... Expected
+        }
+        writer.close();
+    }
+
+    @Test
+    public void WriteFailureFromReceiver() throws IOException {
+        // ... Fails after the header
+        OutputStream out = new OutputStream() {
+            private int _written = 0;
+
+            @Override
+            public void write( int b ) throws IOException {
+                if ( ++_written > 5 ) {
+                    throw new IOException( "Disk full" );
+                }
+            }
+        };
+        FixEpochCorrelator correlator = new FixEpochCorrelator( new TrackLogWriter( out, 1 ) );
+        NmeaReceiver receiver = new NmeaReceiver( correlator );
+        try {
+            receiver.Receive( ( "$GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76\r\n" +
+                    "$GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*43\r\n" +
+                    "$GPGGA,092751.000,5321.6802,N,00630.3371,W,1,8,1.03,61.7,M,55.3,M,,*75\r\n" ).getBytes( StandardCharsets.US_ASCII ) );
+            fail();
+        } catch ( IllegalStateException e ) {
+            assertTrue( e.getCause() instanceof IOException );
+        }
+    }
+
+    @Test
+    public void NotATrackLog() {
+        try {
+            new TrackLogReader( new ByteArrayInputStream( "$GPGGA".getBytes( StandardCharsets.US_ASCII ) ) );
+            fail();
+        } catch ( IOException e ) {
+            // ... Expected
+        }
+    }
+
+    @Test
+    public void FromReceiver() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrackLogWriter writer = new TrackLogWriter( out );
+        FixEpochCorrelator correlator = new FixEpochCorrelator( writer );
+        NmeaReceiver receiver = new NmeaReceiver( correlator );
+        receiver.Receive( ( "$GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76\r\n" +
+                "$GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*43\r\n" +
+                "$GPGGA,092751.000,5321.6802,N,00630.3371,W,1,8,1.03,61.7,M,55.3,M,,*75\r\n" ).getBytes( StandardCharsets.US_ASCII ) );
+        correlator.Flush();
+        writer.close();
+
+        TrackStore track = new TrackStore();
+        assertEquals( 2, new TrackLogReader( new ByteArrayInputStream( out.toByteArray() ) ).ReadAll( track ) );
+        assertEquals( 53.36134, track.get_latitude( 1 ), 1e-5 );
+        assertEquals( 31.66f, track.get_courseDegrees( 0 ), 1e-4 );
+        assertEquals( FixQualityEnum.GpsFix, track.get_fixQuality( 1 ) );
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import com.inverness_park.nmea.Types.FixQualityEnum;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fixes stored in, and queried from, a TrackStore
+ */
+
+public class TrackStoreUnitTest {
+
+    private static final long START = 1300000000000L;
+
+    /**
+     * One fix per second, over several segments
+     */
+    private static TrackStore Track( int count ) {
+        TrackStore track = new TrackStore();
+        for ( int i = 0; i < count; ++i ) {
+            assertTrue( track.Append( START + i * 1000L, 53 + i * 1e-6, -6 - i * 1e-6, i, i / 10f, i % 360, 1.0f,
+                    i % 2 == 0 ? FixQualityEnum.GpsFix : null ) );
+        }
+        return track;
+    }
+
+    @Test
+    public void Columns() {
+        int count = 3 * TrackStore.SEGMENT_SIZE + 10;
+        TrackStore track = Track( count );
+        assertEquals( count, track.get_size() );
+        for ( int i = 0; i < count; i += 997 ) {
+            assertEquals( START + i * 1000L, track.get_timeMillis( i ) );
+            assertEquals( 53 + i * 1e-6, track.get_latitude( i ), 0 );
+            assertEquals( -6 - i * 1e-6, track.get_longitude( i ), 0 );
+            assertEquals( i, track.get_altitude( i ), 0 );
+            assertEquals( i % 360, track.get_courseDegrees( i ), 0 );
+        }
+        assertEquals( FixQualityEnum.GpsFix, track.get_fixQuality( 0 ) );
+        assertNull( track.get_fixQuality( 1 ) );
+
+        // ... Fixes must come in time order
+        assertFalse( track.Append( START, 0, 0, 0, 0, 0, 0, null ) );
+        assertEquals( count, track.get_size() );
+    }
+
+    @Test
+    public void TimeRange() {
+        TrackStore track = Track( 2 * TrackStore.SEGMENT_SIZE );
+        assertEquals( 0, track.IndexOf( START - 1 ) );
+        assertEquals( 100, track.IndexOf( START + 100000 ) );
+        assertEquals( 101, track.IndexOf( START + 100001 ) );
+        assertEquals( track.get_size(), track.IndexOf( Long.MAX_VALUE ) );
+
+        // ... Across a segment boundary
+        TrackStore.Cursor cursor = track.NewCursor();
+        long from = START + ( TrackStore.SEGMENT_SIZE - 5 ) * 1000L;
+        cursor.SeekTime( from, from + 10000 );
+        int count = 0;
+        while ( cursor.Next() ) {
+            assertEquals( from + count * 1000L, cursor.get_timeMillis() );
+            assertEquals( track.get_latitude( cursor.get_index() ), cursor.get_latitude(), 0 );
+            ++count;
+        }
+        assertEquals( 10, count );
+        assertFalse( cursor.Next() );
+
+        // ... Reused
+        cursor.Seek( 0, 3 );
+        assertTrue( cursor.Next() );
+        assertEquals( START, cursor.get_timeMillis() );
+        assertEquals( FixQualityEnum.GpsFix, cursor.get_fixQuality() );
+    }
+
+    @Test
+    public void FromReceiver() {
+        TrackStore track = new TrackStore();
+        FixEpochCorrelator correlator = new FixEpochCorrelator( track );
+        NmeaReceiver receiver = new NmeaReceiver( correlator );
+        receiver.Receive( ( "$GPGGA,092750.000,5321.6802,N,00630.3372,W,1,8,1.03,61.7,M,55.2,M,,*76\r\n" +
+                "$GPRMC,092750.000,A,5321.6802,N,00630.3372,W,0.02,31.66,280511,,,A*43\r\n" +
+                "$GPGGA,092751.000,5321.6802,N,00630.3371,W,1,8,1.03,61.7,M,55.3,M,,*75\r\n" ).getBytes( StandardCharsets.US_ASCII ) );
+        correlator.Flush();
+
+        assertEquals( 2, track.get_size() );
+        long day = LocalDate.of( 2011, 5, 28 ).toEpochDay() * 86400000L;
+        assertEquals( day + ( 9 * 3600 + 27 * 60 + 50 ) * 1000L, track.get_timeMillis( 0 ) );
+        assertEquals( day + ( 9 * 3600 + 27 * 60 + 51 ) * 1000L, track.get_timeMillis( 1 ) );
+        assertEquals( 53.36134, track.get_latitude( 1 ), 1e-5 );
+        assertEquals( 31.66f, track.get_courseDegrees( 0 ), 1e-4 );
+        assertEquals( 1.03f, track.get_hdop( 1 ), 1e-4 );
+    }
+
+    @Test
+    public void EpochDay() {
+        int[] dates = { 19700101, 19691231, 20000229, 20110528, 21000301 };
+        for ( int date : dates ) {
+            assertEquals( LocalDate.of( date / 10000, date / 100 % 100, date % 100 ).toEpochDay(), FixClock.EpochDay( date ) );
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018.  Inverness Park Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software
+ * and associated documentation files (the "Software"), to deal in the Software without restriction,
+ * including without limitation the rights to use, copy, modify, merge, publish, distribute, sublicense,
+ * and/or sell copies of the Software, and to permit persons to whom the Software is furnished to
+ * do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or
+ *  substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ */
+
+package com.inverness_park.nmea;
+
+import android.content.Context;
+
+import com.inverness_park.nmea.Sentences.GGA;
+import com.inverness_park.nmea.Sentences.GSA;
+import com.inverness_park.nmea.Sentences.GST;
+import com.inverness_park.nmea.Sentences.GSV;
+import com.inverness_park.nmea.Sentences.HDT;
+import com.inverness_park.nmea.Sentences.RMC;
+import com.inverness_park.nmea.Sentences.VTG;
+
+/**
+ * Localized message descriptions, from the library's string resources
+ */
+
+public final class NmeaDescriptions {
+
+    private NmeaDescriptions() {
+    }
+
+    /**
+     * As per NMEA 0183 documentation, localized for the given context
+     * @param context
+     * @param msg
+     * @return Human readable description; INmeaMessage.get_description() for types without a string resource
+     */
+    public static String get_description( Context context, INmeaMessage msg ) {
+        int resourceId = ResourceId( msg );
+        return resourceId != 0 ? context.getString( resourceId ) : msg.get_description();
+    }
+
+    private static int ResourceId( INmeaMessage msg ) {
+        if ( msg instanceof GGA ) return R.string.gga;
+        if ( msg instanceof GSA ) return R.string.gsa;
+        if ( msg instanceof GST ) return R.string.gst;
+        if ( msg instanceof GSV ) return R.string.gsv;
+        if ( msg instanceof HDT ) return R.string.hdt;
+        if ( msg instanceof RMC ) return R.string.rmc;
+        if ( msg instanceof VTG ) return R.string.vtg;
+        return 0;
+    }
+}